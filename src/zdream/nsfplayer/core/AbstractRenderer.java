@@ -31,6 +31,19 @@ public abstract class AbstractRenderer<T> {
 	 */
 	public abstract boolean isFinished();
 	
+	/**
+	 * <p>将渲染器恢复到刚刚创建时的状态, 以便重复使用 (比如放回 {@link RendererPool} 中).
+	 * <p>子类需要重写该方法, 清除用户在使用过程中对渲染器做的所有设置,
+	 * 包括监听器、轨道屏蔽、轨道音量、混音器的设置以及播放速度等.
+	 * 重置之后, 调用 ready(...) 方法加载音频, 渲染的结果与新创建的渲染器相同.
+	 * <p>调用之后, 需要重新调用 ready(...) 方法加载音频才能继续渲染.
+	 * </p>
+	 * @since v0.3.3
+	 */
+	public void resetForReuse() {
+		clearBuffer();
+	}
+	
 	/* **********
 	 * 渲染部分 *
 	 ********** */
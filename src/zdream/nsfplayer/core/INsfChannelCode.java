@@ -18,6 +18,9 @@ package zdream.nsfplayer.core;
  *   补充 2A07 芯片号的声明,
  *   现在原 2A03 芯片中的三角、噪音和 DPCM 移到 2A07 下.
  * 
+ * @version v0.3.3
+ *   补充 MPEG 采样音频的轨道号、芯片号和轨道类型号
+ * 
  * @author Zdream
  * @since v0.2.1
  */
@@ -60,7 +63,9 @@ public interface INsfChannelCode {
 					
 			CHANNEL_S5B_SQUARE1 = 0x61,
 			CHANNEL_S5B_SQUARE2 = 0x62,
-			CHANNEL_S5B_SQUARE3 = 0x63;
+			CHANNEL_S5B_SQUARE3 = 0x63,
+			
+			CHANNEL_MPEG = 0x71;
 	
 	/**
 	 * 各个芯片的标识号
@@ -74,7 +79,8 @@ public interface INsfChannelCode {
 			CHIP_FDS = 0x30,
 			CHIP_MMC5 = 0x40,
 			CHIP_N163 = 0x50,
-			CHIP_S5B = 0x60;
+			CHIP_S5B = 0x60,
+			CHIP_MPEG = 0x70; // 不是真正的芯片, 而是 MPEG 采样音频
 	
 	/**
 	 * <p>轨道类型编号
@@ -95,6 +101,7 @@ public interface INsfChannelCode {
 			CHANNEL_TYPE_MMC5_PULSE = CHANNEL_MMC5_PULSE1,
 			CHANNEL_TYPE_N163 = CHANNEL_N163_1,
 			CHANNEL_TYPE_S5B = CHANNEL_S5B_SQUARE1,
-			CHANNEL_TYPE_CUSTOM = 0x70;
+			CHANNEL_TYPE_CUSTOM = 0x70,
+			CHANNEL_TYPE_MPEG = CHANNEL_MPEG;
 	
 }
@@ -59,6 +59,9 @@ public class NsfChannelCode implements INsfChannelCode {
 		case CHANNEL_S5B_SQUARE2:
 		case CHANNEL_S5B_SQUARE3:
 			return CHIP_S5B;
+			
+		case CHANNEL_MPEG:
+			return CHIP_MPEG;
 
 		}
 		
@@ -119,6 +122,9 @@ public class NsfChannelCode implements INsfChannelCode {
 		case CHANNEL_S5B_SQUARE2:
 		case CHANNEL_S5B_SQUARE3:
 			return CHANNEL_TYPE_S5B;
+			
+		case CHANNEL_MPEG:
+			return CHANNEL_TYPE_MPEG;
 		}
 		
 		return -1;
@@ -0,0 +1,129 @@
+package zdream.nsfplayer.core;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * <p>渲染器池.
+ * <p>创建渲染器需要构造执行构件、混音器以及拦截器组等大量对象,
+ * 在需要反复创建渲染器的场合 (比如批量导出、服务端渲染) 可以使用该池来重复使用渲染器.
+ * <p>借出的渲染器需要调用 ready(...) 方法加载音频后再使用;
+ * 归还时, 池会调用 {@link AbstractRenderer#resetForReuse()} 清除上一个使用者的所有设置,
+ * 因此借出的渲染器与新创建的渲染器的渲染结果相同.
+ * <p>该类是线程安全的, 但借出的渲染器本身仍然是线程不安全的,
+ * 同一时间只能由一个线程使用.
+ * </p>
+ * 
+ * @param <T>
+ *   渲染器类型
+ * @author Zdream
+ * @since v0.3.3
+ */
+public class RendererPool<T extends AbstractRenderer<?>> {
+	
+	/**
+	 * 创建新渲染器的工厂
+	 */
+	private final Supplier<T> factory;
+	
+	/**
+	 * 最多保留的空闲渲染器个数
+	 */
+	private final int maxIdle;
+	
+	/**
+	 * 空闲的渲染器. 后进先出, 让最近使用过的渲染器优先被借出
+	 */
+	private final ConcurrentLinkedDeque<T> idles = new ConcurrentLinkedDeque<>();
+	private final AtomicInteger idleCount = new AtomicInteger();
+	
+	/**
+	 * 空闲渲染器的个数上限为可用处理器数
+	 * @param factory
+	 *   创建新渲染器的工厂, 不为 null
+	 */
+	public RendererPool(Supplier<T> factory) {
+		this(factory, Runtime.getRuntime().availableProcessors());
+	}
+	
+	/**
+	 * @param factory
+	 *   创建新渲染器的工厂, 不为 null
+	 * @param maxIdle
+	 *   最多保留的空闲渲染器个数. 超出的渲染器在归还时直接丢弃
+	 * @throws NullPointerException
+	 *   当 factory == null 时
+	 * @throws IllegalArgumentException
+	 *   当 maxIdle 为负数时
+	 */
+	public RendererPool(Supplier<T> factory, int maxIdle) {
+		requireNonNull(factory, "factory = null");
+		if (maxIdle < 0) {
+			throw new IllegalArgumentException("空闲个数 maxIdle: " + maxIdle + " 不能为负数");
+		}
+		this.factory = factory;
+		this.maxIdle = maxIdle;
+	}
+	
+	/**
+	 * 借出一个渲染器. 如果池中没有空闲的渲染器, 则创建一个新的渲染器
+	 * @return
+	 *   渲染器. 需要调用 ready(...) 方法加载音频后再使用
+	 */
+	public T borrow() {
+		T renderer = idles.pollFirst();
+		if (renderer != null) {
+			idleCount.decrementAndGet();
+			return renderer;
+		}
+		return factory.get();
+	}
+	
+	/**
+	 * <p>归还渲染器.
+	 * <p>渲染器将被重置 (见 {@link AbstractRenderer#resetForReuse()}).
+	 * 归还之后, 原使用者不能再使用该渲染器.
+	 * </p>
+	 * @param renderer
+	 *   由 {@link #borrow()} 借出的渲染器. 如果为 null, 忽略
+	 */
+	public void release(T renderer) {
+		if (renderer == null) {
+			return;
+		}
+		
+		try {
+			renderer.resetForReuse();
+		} catch (RuntimeException e) {
+			// 重置失败的渲染器状态未知, 直接丢弃
+			return;
+		}
+		
+		if (idleCount.incrementAndGet() > maxIdle) {
+			idleCount.decrementAndGet();
+			return;
+		}
+		idles.offerFirst(renderer);
+	}
+	
+	/**
+	 * @return
+	 *   当前池中空闲的渲染器个数
+	 */
+	public int idleCount() {
+		return idleCount.get();
+	}
+	
+	/**
+	 * 丢弃池中所有空闲的渲染器
+	 */
+	public void clear() {
+		while (idles.pollFirst() != null) {
+			idleCount.decrementAndGet();
+		}
+	}
+
+}
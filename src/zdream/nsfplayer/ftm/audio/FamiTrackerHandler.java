@@ -187,6 +187,8 @@ public class FamiTrackerHandler implements INsfChannelCode {
 	 * @return
 	 */
 	public FtmPattern getOrCreatePattern(final FtmTrack track, final int patternIdx, final int channelIdx) {
+		// 延迟解析的模式数据需要先解析才能修改
+		track.loadPatterns();
 		if (track.patterns == null) {
 			int newLen = Math.max(track.orders.length, patternIdx + 1);
 			track.patterns = new FtmPattern[newLen][channelCount()];
@@ -254,9 +256,10 @@ public class FamiTrackerHandler implements INsfChannelCode {
 	}
 	
 	private static FtmNote getOrCreateNote(final FtmPattern pattern, final int row, final int rowMax) {
-		FtmNote[] notes = pattern.notes;
-		if (pattern.notes == null) {
-			notes = pattern.notes = new FtmNote[rowMax];
+		// 压缩的模式会先还原
+		FtmNote[] notes = pattern.getNotes();
+		if (notes == null) {
+			pattern.setNotes(notes = new FtmNote[rowMax]);
 		}
 		
 		if (notes[row] == null) {
@@ -254,6 +254,49 @@ public class FamiTrackerQuerier implements INsfChannelCode {
 		return audio.getTrack(track).length;
 	}
 	
+	/**
+	 * 如果指定曲目的模式数据是延迟解析的, 并且还没有解析, 那么现在解析
+	 * @param track
+	 *   曲目号
+	 * @see FtmTrack#loadPatterns()
+	 * @since v0.3.3
+	 */
+	public void loadPatterns(int track) {
+		audio.getTrack(track).loadPatterns();
+	}
+	
+	/**
+	 * 确定指定曲目的模式数
+	 * @param track
+	 *   曲目号
+	 * @since v0.3.3
+	 */
+	public int patternCount(int track) {
+		return audio.getTrack(track).getPatterns().length;
+	}
+	
+	/**
+	 * 获取指定段、轨道播放的模式号
+	 * @param track
+	 *   曲目号
+	 * @param section
+	 *   段号
+	 * @param channel
+	 *   轨道号, 从 0 开始
+	 * @return
+	 *   模式号. 如果该模式不存在, 返回 -1
+	 * @since v0.3.3
+	 */
+	public int getPatternIndex(int track, int section, int channel) {
+		FtmTrack t = audio.getTrack(track);
+		FtmPattern[][] ps = t.getPatterns();
+		int order = t.orders[section][channel];
+		if (order >= ps.length || ps[order][channel] == null) {
+			return -1;
+		}
+		return order;
+	}
+	
 	/**
 	 * 获取键数据
 	 * @param track
@@ -265,18 +308,51 @@ public class FamiTrackerQuerier implements INsfChannelCode {
 	 * @param row
 	 *   行号
 	 * @return
+	 *   键数据, 没有数据时返回 null.
+	 *   如果模式已经压缩 (见 {@link FtmPattern#pack()}), 返回的是新创建的实例
 	 */
 	public FtmNote getNote(int track, int section, int channel, int row) {
 		FtmTrack t = audio.getTrack(track);
+		FtmPattern[][] ps = t.getPatterns();
 		int order = t.orders[section][channel];
-		if (order >= t.patterns.length) {
+		if (order >= ps.length) {
 			return null;
 		}
-		FtmPattern p = t.patterns[order][channel];
+		FtmPattern p = ps[order][channel];
 		if (p == null) {
 			return null;
 		}
-		return p.notes[row];
+		return p.getNote(row);
+	}
+	
+	/**
+	 * 将键数据读取到指定的实例中, 不创建新的实例
+	 * @param track
+	 *   曲目号
+	 * @param section
+	 *   段号
+	 * @param channel
+	 *   轨道号, 从 0 开始
+	 * @param row
+	 *   行号
+	 * @param dst
+	 *   存放键数据的实例
+	 * @return
+	 *   如果没有数据, 返回 false, 这时 dst 不会被修改
+	 * @since v0.3.3
+	 */
+	public boolean readNote(int track, int section, int channel, int row, FtmNote dst) {
+		FtmTrack t = audio.getTrack(track);
+		FtmPattern[][] ps = t.getPatterns();
+		int order = t.orders[section][channel];
+		if (order >= ps.length) {
+			return false;
+		}
+		FtmPattern p = ps[order][channel];
+		if (p == null) {
+			return false;
+		}
+		return p.readNote(row, dst);
 	}
 
 }
@@ -223,6 +223,25 @@ public class FtmAudio extends AbstractNsfAudio {
 		return insts.size();
 	}
 	
+	/**
+	 * 获得 DPCM 采样
+	 * @param index
+	 * @return
+	 * @since v0.3.3
+	 */
+	public FtmDPCMSample getDPCMSample(int index) {
+		return samples.get(index);
+	}
+	
+	/**
+	 * @return
+	 *   DPCM 采样总数
+	 * @since v0.3.3
+	 */
+	public int dpcmSampleCount() {
+		return samples.size();
+	}
+	
 	public FtmSequence getSequence(FtmChipType chip, FtmSequenceType type, int index) {
 		ArrayList<FtmSequence> list = seqs.get(chip.ordinal() * FtmSequenceType.values().length + type.ordinal());
 		if (list == null || index >= list.size()) {
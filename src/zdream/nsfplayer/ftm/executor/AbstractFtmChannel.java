@@ -1,8 +1,10 @@
 package zdream.nsfplayer.ftm.executor;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 
 import zdream.nsfplayer.core.INsfChannelCode;
 import zdream.nsfplayer.core.IResetable;
@@ -86,7 +88,7 @@ public abstract class AbstractFtmChannel implements INsfChannelCode, IFtmRuntime
 		startFrame();
 		
 		// 效果
-		forceEffect(runtime.effects.get(this.channelCode).values());
+		forceEffect(runtime.getEffects(this.channelCode).values());
 		
 		// 状态
 		triggleState();
@@ -415,6 +417,124 @@ public abstract class AbstractFtmChannel implements INsfChannelCode, IFtmRuntime
 		schedules.clear();
 	}
 	
+	/* **********
+	 *   快照   *
+	 ********** */
+	
+	/**
+	 * <p>保存该轨道现在的快照.
+	 * <p>轨道上的状态与任务会被复制, 之后轨道继续执行不会影响快照.
+	 * </p>
+	 * @return
+	 *   快照
+	 * @since v0.3.3
+	 */
+	public FtmChannelSnapshot saveState() {
+		FtmChannelSnapshot s = new FtmChannelSnapshot(this);
+		writeState(s);
+		return s;
+	}
+	
+	/**
+	 * <p>将该轨道恢复到快照保存时的样子.
+	 * <p>发声器内部的状态不在快照中. 只在参数变化时才写入发声器的数据 (比如波形),
+	 * 会在下一次 {@link #writeToSound()} 时重新写入.
+	 * </p>
+	 * @param snapshot
+	 *   快照, 需要由同一类型、同一轨道号的轨道保存
+	 * @throws IllegalArgumentException
+	 *   当快照不是由同一类型、同一轨道号的轨道保存时
+	 * @since v0.3.3
+	 */
+	public void loadState(FtmChannelSnapshot snapshot) {
+		if (snapshot.channelCode != channelCode || snapshot.channelClass != getClass()) {
+			throw new IllegalArgumentException("快照 " + snapshot + " 不能恢复到轨道 " + channelCode + " 中");
+		}
+		readState(snapshot.reader());
+	}
+	
+	/**
+	 * <p>将轨道参数写入快照. 子类需要先调用父类的方法, 再写入自己的参数.
+	 * <p>写入的对象需要是不会再修改的, 或者是复制出来的.
+	 * </p>
+	 * @param s
+	 *   快照
+	 * @since v0.3.3
+	 */
+	protected void writeState(FtmChannelSnapshot s) {
+		s.writeInt(instrument);
+		s.writeBoolean(instrumentUpdated);
+		s.writeBoolean(noteUpdated);
+		s.writeInt(curNote);
+		s.writeInt(masterNote);
+		s.writeInt(curVolume);
+		s.writeInt(masterVolume);
+		s.writeInt(curPeriod);
+		s.writeInt(masterPitch);
+		s.writeInt(curDuty);
+		s.writeInt(masterDuty);
+		s.writeBoolean(playing);
+		
+		IdentityHashMap<IFtmState, IFtmState> copies = copyStates(states);
+		s.writeObject(copies.values().toArray(new IFtmState[copies.size()]));
+		s.writeObject(copySchedules(schedules, copies));
+	}
+	
+	/**
+	 * 以 {@link #writeState(FtmChannelSnapshot)} 的顺序从快照中读出轨道参数.
+	 * 子类需要先调用父类的方法, 再读出自己的参数.
+	 * @param s
+	 *   快照
+	 * @since v0.3.3
+	 */
+	protected void readState(FtmChannelSnapshot s) {
+		instrument = s.readInt();
+		instrumentUpdated = s.readBoolean();
+		noteUpdated = s.readBoolean();
+		curNote = s.readInt();
+		masterNote = s.readInt();
+		curVolume = s.readInt();
+		masterVolume = s.readInt();
+		curPeriod = s.readInt();
+		masterPitch = s.readInt();
+		curDuty = s.readInt();
+		masterDuty = s.readInt();
+		playing = s.readBoolean();
+		
+		// 快照中的状态与任务需要再复制一次, 快照才能重复使用
+		IFtmState[] savedStates = s.readObject();
+		IFtmSchedule[] savedSchedules = s.readObject();
+		IdentityHashMap<IFtmState, IFtmState> copies = copyStates(Arrays.asList(savedStates));
+		
+		states.clear();
+		states.addAll(copies.values());
+		schedules.clear();
+		schedules.addAll(Arrays.asList(copySchedules(Arrays.asList(savedSchedules), copies)));
+	}
+	
+	/**
+	 * @return
+	 *   原状态到复制后的状态的映射
+	 */
+	private static IdentityHashMap<IFtmState, IFtmState> copyStates(Collection<IFtmState> src) {
+		IdentityHashMap<IFtmState, IFtmState> copies = new IdentityHashMap<>();
+		for (IFtmState state : src) {
+			copies.put(state, state.copy());
+		}
+		return copies;
+	}
+	
+	private static IFtmSchedule[] copySchedules(
+			Collection<IFtmSchedule> src,
+			IdentityHashMap<IFtmState, IFtmState> states) {
+		IFtmSchedule[] array = new IFtmSchedule[src.size()];
+		int i = 0;
+		for (IFtmSchedule schedule : src) {
+			array[i++] = schedule.copy(states);
+		}
+		return array;
+	}
+	
 	/* **********
 	 * 强制执行 *
 	 ********** */
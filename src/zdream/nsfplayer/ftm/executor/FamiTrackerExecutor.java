@@ -2,7 +2,6 @@ package zdream.nsfplayer.ftm.executor;
 
 import static java.util.Objects.requireNonNull;
 
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -267,9 +266,121 @@ public class FamiTrackerExecutor extends AbstractNsfExecutor<FtmAudio> {
 		switchTo(getCurrentTrack(), pos.section, pos.row);
 	}
 	
+	/* **********
+	 *   快照   *
+	 ********** */
+	
+	/**
+	 * <p>保存执行构件现在的快照.
+	 * <p>快照记录的是两帧之间的状态, 恢复之后从下一帧开始执行.
+	 * </p>
+	 * @return
+	 *   快照
+	 * @throws NullPointerException
+	 *   当调用该方法前未指定 {@link FtmAudio} 音频时
+	 * @since v0.3.3
+	 */
+	public FtmSnapshot saveState() {
+		requireNonNull(runtime.querier, "FamiTracker 曲目 audio = null");
+		return new FtmSnapshot(runtime);
+	}
+	
+	/**
+	 * <p>将执行构件恢复到快照保存时的状态.
+	 * <p>如果快照的音频、曲目与现在执行的不同, 会先切换音频、曲目.
+	 * 之后各轨道与发声器先重置, 再恢复快照中的参数.
+	 * 快照不记录该帧正解释的行的效果, 恢复之后调用 {@link #tickBlock()} 不会再次触发这些效果.
+	 * </p>
+	 * @param snapshot
+	 *   快照
+	 * @throws NullPointerException
+	 *   当 snapshot == null 时
+	 * @since v0.3.3
+	 */
+	public void loadState(FtmSnapshot snapshot) {
+		requireNonNull(snapshot, "快照 snapshot = null");
+		
+		if (getAudio() != snapshot.audio) {
+			ready(snapshot.audio, snapshot.track, snapshot.section, snapshot.row);
+		} else {
+			ready(snapshot.track, snapshot.section, snapshot.row);
+		}
+		
+		FamiTrackerParameter param = runtime.param;
+		param.curSection = snapshot.section;
+		param.curRow = snapshot.row;
+		param.finished = snapshot.finished;
+		runtime.fetcher.copyFrom(snapshot.fetcher);
+		runtime.switchFlag = snapshot.switchFlag;
+		runtime.updateFlag = snapshot.updateFlag;
+		
+		for (int i = 0; i < snapshot.channels.length; i++) {
+			runtime.channelAt(i).loadState(snapshot.channels[i]);
+		}
+	}
+	
+	/**
+	 * <p>利用检查点, 准确地切换到指定曲目的指定行.
+	 * <p>与 {@link #ready(int, int, int)} 不同, 切换之后各轨道的乐器序列、颤音、滑音等状态,
+	 * 与从曲目开头一直执行到该行时相同. 执行构件会从该段的检查点恢复, 然后向下执行到该行,
+	 * 因此最多只需要执行一段.
+	 * <p>如果正常播放时不会执行到该行 (比如该段被跳过, 或者曲目在该行之前停止),
+	 * 则按 {@link #ready(int, int, int)} 的方式切换.
+	 * </p>
+	 * @param checkpoints
+	 *   曲目的检查点
+	 * @param section
+	 *   段号, 从 0 开始
+	 * @param row
+	 *   行号, 从 0 开始
+	 * @return
+	 *   是否准确地切换. 如果按 {@link #ready(int, int, int)} 的方式切换, 返回 false
+	 * @throws NullPointerException
+	 *   当 checkpoints == null 时
+	 * @since v0.3.3
+	 */
+	public boolean seek(FtmCheckpoints checkpoints, int section, int row) {
+		requireNonNull(checkpoints, "检查点 checkpoints = null");
+		
+		FtmSnapshot snapshot = checkpoints.checkpointOf(section);
+		if (snapshot != null && snapshot.nextRow <= row) {
+			loadState(snapshot);
+			
+			// 向下执行, 直到下一帧开始执行该行
+			final int maxRow = runtime.querier.maxRow(snapshot.track);
+			int rows = 0;
+			while (rows <= maxRow) {
+				if (isFinished()) {
+					// 曲目在该行之前停止 (比如 Cxx 效果)
+					break;
+				}
+				FtmRowFetcher fetcher = runtime.fetcher;
+				if (fetcher.needRowUpdate()
+						&& fetcher.getNextSection() == section && fetcher.getNextRow() == row) {
+					return true;
+				}
+				
+				tick();
+				if (isRowUpdated()) {
+					if (getCurrentSection() != section) {
+						// 跳出了该段
+						break;
+					}
+					rows++;
+				}
+			}
+		}
+		
+		if (getAudio() != checkpoints.getAudio()) {
+			ready(checkpoints.getAudio(), checkpoints.getTrack(), section, row);
+		} else {
+			ready(checkpoints.getTrack(), section, row);
+		}
+		return false;
+	}
+	
 	private void readyChannels() {
-		runtime.channels.clear();
-		runtime.effects.clear();
+		// 轨道和效果集已经在 runtime.ready(...) 中清空
 		runtime.selector.reset();
 		
 		final FamiTrackerQuerier querier = runtime.querier;
@@ -280,8 +391,7 @@ public class FamiTrackerExecutor extends AbstractNsfExecutor<FtmAudio> {
 			
 			AbstractFtmChannel ch = runtime.selector.selectFtmChannel(code);
 			ch.setRuntime(runtime);
-			runtime.channels.put(code, ch);
-			runtime.effects.put(code, new HashMap<>());
+			runtime.setChannel(i, ch);
 		}
 	}
 	
@@ -331,8 +441,7 @@ public class FamiTrackerExecutor extends AbstractNsfExecutor<FtmAudio> {
 			// 这里是不需要调用监听器的流程（其实就是想快一点，所以两个流程不合并）
 			final int len = querier.channelCount();
 			for (int i = 0; i < len; i++) {
-				byte code = querier.channelCode(i);
-				AbstractFtmChannel channel = runtime.channels.get(code);
+				AbstractFtmChannel channel = runtime.channelAt(i);
 				
 				channel.playNote();
 				channel.writeToSound();
@@ -341,13 +450,11 @@ public class FamiTrackerExecutor extends AbstractNsfExecutor<FtmAudio> {
 			// 下面是需要调用监听器的流程
 			final int len = querier.channelCount();
 			for (int i = 0; i < len; i++) {
-				byte code = querier.channelCode(i);
-				runtime.channels.get(code).playNote();
+				runtime.channelAt(i).playNote();
 			}
 			runtime.onExecuteFinished();
 			for (int i = 0; i < len; i++) {
-				byte code = querier.channelCode(i);
-				runtime.channels.get(code).writeToSound();
+				runtime.channelAt(i).writeToSound();
 			}
 		}
 	}
@@ -357,6 +464,15 @@ public class FamiTrackerExecutor extends AbstractNsfExecutor<FtmAudio> {
 		ready();
 	}
 	
+	/**
+	 * @return
+	 *   执行上下文. 仅供同一个包的工具使用
+	 * @since v0.3.3
+	 */
+	FamiTrackerRuntime getRuntime() {
+		return runtime;
+	}
+	
 	/* **********
 	 * 参数指标 *
 	 ********** */
@@ -386,6 +502,15 @@ public class FamiTrackerExecutor extends AbstractNsfExecutor<FtmAudio> {
 		return runtime.param.finished;
 	}
 	
+	/**
+	 * @return
+	 *   正在执行的音频. 如果没有调用 ready(...) 方法, 返回 null
+	 * @since v0.3.3
+	 */
+	public FtmAudio getAudio() {
+		return (runtime.querier == null) ? null : runtime.querier.audio;
+	}
+	
 	/**
 	 * @return
 	 *   获取正在播放的曲目号
@@ -419,6 +544,24 @@ public class FamiTrackerExecutor extends AbstractNsfExecutor<FtmAudio> {
 		return new FtmPosition(runtime.param.curSection, runtime.param.curRow);
 	}
 	
+	/**
+	 * @return
+	 *   获取正在执行的速度值. Fxx 效果可以修改该值
+	 * @since v0.3.3
+	 */
+	public int getCurrentSpeed() {
+		return runtime.fetcher.getSpeed();
+	}
+	
+	/**
+	 * @return
+	 *   获取正在执行的节奏值. Fxx 效果可以修改该值
+	 * @since v0.3.3
+	 */
+	public int getCurrentTempo() {
+		return runtime.fetcher.getTempo();
+	}
+	
 	/**
 	 * 询问当前行是否播放完毕, 需要跳到下一行 (不是询问当前帧是否播放完)
 	 * @return
@@ -524,7 +667,7 @@ public class FamiTrackerExecutor extends AbstractNsfExecutor<FtmAudio> {
 	 *   对应轨道的发声器实例. 如果没有对应的轨道, 返回 null.
 	 */
 	public AbstractNsfSound getSound(byte channelCode) {
-		AbstractFtmChannel ch = runtime.channels.get(channelCode);
+		AbstractFtmChannel ch = runtime.getChannel(channelCode);
 		if (ch == null) {
 			return null;
 		}
@@ -21,17 +21,16 @@ import zdream.nsfplayer.sound.AbstractNsfSound;
  */
 public final class FamiTrackerExecutorHandler implements INsfChannelCode {
 	
-	private FamiTrackerRuntime runtime;
+	private final FamiTrackerRuntime runtime;
 	
+	/**
+	 * 每个运行时只创建一个控制杆, 见 {@link FamiTrackerRuntime#getHandler()}
+	 */
 	FamiTrackerExecutorHandler(FamiTrackerRuntime runtime) {
 		requireNonNull(runtime);
 		this.runtime = runtime;
 	}
 	
-	void destroy() {
-		this.runtime = null;
-	}
-	
 	/* **********
 	 * 参数指标 *
 	 ********** */
@@ -124,6 +123,28 @@ public final class FamiTrackerExecutorHandler implements INsfChannelCode {
 		return new HashSet<>(runtime.effects.keySet());
 	}
 	
+	/**
+	 * 获取轨道个数. 与 {@link #channelCodeAt(int)} 一起使用,
+	 * 可以不创建集合就遍历所有轨道.
+	 * @return
+	 *   轨道个数. 如果没有调用 ready(...) 方法时, 返回 0.
+	 * @since v0.3.3
+	 */
+	public int channelCount() {
+		return (runtime.querier == null) ? 0 : runtime.querier.channelCount();
+	}
+	
+	/**
+	 * @param index
+	 *   轨道序号, 范围 [0, {@link #channelCount()})
+	 * @return
+	 *   对应的轨道号
+	 * @since v0.3.3
+	 */
+	public byte channelCodeAt(int index) {
+		return runtime.querier.channelCode(index);
+	}
+	
 	/**
 	 * <p>获得对应轨道号的发声器.
 	 * <p>发声器就是执行体最后的输出, 所有的执行结果将直接写入到发声器中.
@@ -151,7 +172,7 @@ public final class FamiTrackerExecutorHandler implements INsfChannelCode {
 	 *   轨道号
 	 */
 	public Iterator<IFtmEffect> channelEffects(byte channelCode) {
-		return runtime.effects.get(channelCode).values().iterator();
+		return runtime.getEffects(channelCode).values().iterator();
 	}
 	
 	/**
@@ -257,7 +278,7 @@ public final class FamiTrackerExecutorHandler implements INsfChannelCode {
 	}
 	
 	private AbstractFtmChannel getChannel(byte channelCode) {
-		return runtime.channels.get(channelCode);
+		return runtime.getChannel(channelCode);
 	}
 
 }
@@ -2,14 +2,22 @@ package zdream.nsfplayer.ftm.executor;
 
 import static zdream.nsfplayer.core.NsfChannelCode.typeOfChannel;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.IntFunction;
 
 import zdream.nsfplayer.ftm.audio.FamiTrackerQuerier;
 import zdream.nsfplayer.ftm.audio.FtmAudio;
 import zdream.nsfplayer.ftm.executor.context.ChannelDeviceSelector;
 import zdream.nsfplayer.ftm.executor.context.DefaultFtmEffectConverter;
+import zdream.nsfplayer.ftm.executor.context.FtmEffectProgram;
 import zdream.nsfplayer.ftm.executor.context.IFtmEffectConverter;
 import zdream.nsfplayer.ftm.executor.effect.FtmEffectType;
 import zdream.nsfplayer.ftm.executor.effect.IFtmEffect;
@@ -35,9 +43,27 @@ public class FamiTrackerRuntime {
 	/**
 	 * <p>FTM 轨道.
 	 * <p>发声器在轨道中, 可以使用 {@link AbstractFtmChannel#getSound()} 方法获得
+	 * <p>该集合是只读的视图, 内容与 {@link #getChannel(byte)} 相同, 不能修改.
+	 * 播放时请使用 {@link #getChannel(byte)} 或 {@link #channelAt(int)}, 它们不需要装箱查找.
 	 * </p>
 	 */
-	public final HashMap<Byte, AbstractFtmChannel> channels = new HashMap<>();
+	public final Map<Byte, AbstractFtmChannel> channels = new ChannelView<>(i -> this.channelArray[i]);
+	
+	/**
+	 * 按轨道序号 (即查询器中的轨道顺序) 排列的轨道
+	 * @since v0.3.3
+	 */
+	private AbstractFtmChannel[] channelArray = new AbstractFtmChannel[0];
+	
+	/**
+	 * 轨道号 (视作无符号数) - 轨道序号. 没有该轨道时为 -1
+	 * @since v0.3.3
+	 */
+	private final int[] channelIndexes = new int[256];
+	
+	{
+		Arrays.fill(channelIndexes, -1);
+	}
 	
 	/**
 	 * 该帧进行手动切换执行位置的标示
@@ -72,18 +98,40 @@ public class FamiTrackerRuntime {
 	 */
 	public void ready(FtmAudio audio, int track, int section, int row) {
 		querier = new FamiTrackerQuerier(audio);
+		clearPrograms();
 		fetcher.ready(querier, track, section, row);
 		fetcher.clearJump();
 		
-		// 向 runtime.effects 中添加 map
-		effects.clear();
+		Arrays.fill(channelIndexes, -1);
+		
 		final int len = querier.channelCount();
+		channelArray = new AbstractFtmChannel[len];
+		effectArray = newEffectArray(len);
 		for (int i = 0; i < len; i++) {
 			byte code = querier.channelCode(i);
-			effects.put(code, new HashMap<>());
+			Map<FtmEffectType, IFtmEffect> map = new EnumMap<>(FtmEffectType.class);
+			effectArray[i] = map;
+			channelIndexes[code & 0xFF] = i;
 		}
 	}
 	
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private static Map<FtmEffectType, IFtmEffect>[] newEffectArray(int length) {
+		return new Map[length];
+	}
+	
+	/**
+	 * 放入轨道. 需要在 {@link #ready(FtmAudio, int, int, int)} 之后调用
+	 * @param index
+	 *   轨道序号, 即查询器中的轨道顺序
+	 * @param channel
+	 *   轨道
+	 * @since v0.3.3
+	 */
+	public void setChannel(int index, AbstractFtmChannel channel) {
+		channelArray[index] = channel;
+	}
+	
 	/**
 	 * 重置播放位置, 不重置曲目
 	 * @param track
@@ -95,12 +143,11 @@ public class FamiTrackerRuntime {
 	 * @since v0.2.9
 	 */
 	public void ready(int track, int section, int row) {
+		// 延迟解析的模式数据在这里解析, 而不是在播放过程中
+		querier.loadPatterns(track);
 		fetcher.ready(track, section, row);
 		fetcher.clearJump();
-		for (Map<FtmEffectType, IFtmEffect> map : effects.values()) {
-			map.clear();
-		}
-		geffect.clear();
+		clearEffects();
 	}
 	
 	/* **********
@@ -133,17 +180,85 @@ public class FamiTrackerRuntime {
 	/**
 	 * <p>放着正解释的行里面的所有键的效果集合, 已经经过加工和分拣.
 	 * <p>结构: 轨道号 - 效果集合 (可能为空)
+	 * <p>该集合是只读的视图, 内容与 {@link #getEffects(byte)} 相同, 不能修改.
+	 * </p>
+	 */
+	public final Map<Byte, Map<FtmEffectType, IFtmEffect>> effects = new ChannelView<>(i -> this.effectArray[i]);
+	
+	/**
+	 * <p>按轨道序号排列的效果集, 与 {@link #effects} 中的效果集是同一批实例.
+	 * <p>效果集使用 {@link EnumMap}, 按 {@link FtmEffectType} 的顺序存放.
 	 * </p>
+	 * @since v0.3.3
 	 */
-	public final HashMap<Byte, Map<FtmEffectType, IFtmEffect>> effects = new HashMap<>();
+	private Map<FtmEffectType, IFtmEffect>[] effectArray = newEffectArray(0);
 	
 	/**
 	 * 全局范围的效果集
 	 */
-	public final Map<FtmEffectType, IFtmEffect> geffect = new HashMap<>();
+	public final Map<FtmEffectType, IFtmEffect> geffect = new EnumMap<>(FtmEffectType.class);
+	
+	/**
+	 * @param channelCode
+	 *   轨道号
+	 * @return
+	 *   轨道序号, 即查询器中的轨道顺序. 如果没有该轨道, 返回 -1
+	 * @since v0.3.3
+	 */
+	public int indexOfChannel(byte channelCode) {
+		return channelIndexes[channelCode & 0xFF];
+	}
+	
+	/**
+	 * @param channelCode
+	 *   轨道号
+	 * @return
+	 *   对应的轨道. 如果没有该轨道, 返回 null
+	 * @since v0.3.3
+	 */
+	public AbstractFtmChannel getChannel(byte channelCode) {
+		int index = channelIndexes[channelCode & 0xFF];
+		return (index < 0) ? null : channelArray[index];
+	}
+	
+	/**
+	 * @param index
+	 *   轨道序号, 即查询器中的轨道顺序
+	 * @return
+	 *   对应的轨道
+	 * @since v0.3.3
+	 */
+	public AbstractFtmChannel channelAt(int index) {
+		return channelArray[index];
+	}
+	
+	/**
+	 * @param channelCode
+	 *   轨道号
+	 * @return
+	 *   该轨道正解释的行的效果集. 如果没有该轨道, 返回 null
+	 * @since v0.3.3
+	 */
+	public Map<FtmEffectType, IFtmEffect> getEffects(byte channelCode) {
+		int index = channelIndexes[channelCode & 0xFF];
+		return (index < 0) ? null : effectArray[index];
+	}
+	
+	/**
+	 * @param index
+	 *   轨道序号, 即查询器中的轨道顺序
+	 * @return
+	 *   该轨道正解释的行的效果集
+	 * @since v0.3.3
+	 */
+	public Map<FtmEffectType, IFtmEffect> effectsAt(int index) {
+		return effectArray[index];
+	}
 	
 	public void resetAllChannels() {
-		channels.forEach((channelCode, ch) -> ch.reset());
+		for (int i = 0; i < channelArray.length; i++) {
+			channelArray[i].reset();
+		}
 	}
 	
 	/**
@@ -151,8 +266,8 @@ public class FamiTrackerRuntime {
 	 * @since v0.2.9
 	 */
 	public void clearEffects() {
-		for (Map<FtmEffectType, IFtmEffect> effect : effects.values()) {
-			effect.clear();
+		for (int i = 0; i < effectArray.length; i++) {
+			effectArray[i].clear();
 		}
 		geffect.clear();
 	}
@@ -184,15 +299,97 @@ public class FamiTrackerRuntime {
 		int section = param.curSection;
 		int row = param.curRow;
 		
+		// 有音键获取监听器时, 音键可能被修改, 不能使用缓存
+		boolean cacheable = flners.isEmpty() && converter.isCacheable();
+		if (cacheable && (programs == null || programTrack != trackIdx || programConverter != converter)) {
+			programs = new FtmEffectProgram[querier.patternCount(trackIdx)][len][];
+			programTrack = trackIdx;
+			programConverter = converter;
+		}
+		
 		for (int i = 0; i < len; i++) {
 			byte channel = querier.channelCode(i);
+			
+			if (cacheable) {
+				FtmEffectProgram program = getProgram(trackIdx, section, i, row);
+				if (program != null) {
+					program.applyTo(effectArray[i], geffect);
+					continue;
+				}
+			}
+			
 			byte channelType = typeOfChannel(channel);
 			
-			FtmNote note = querier.getNote(trackIdx, section, i, row);
-			note = onFetcher(note, channel);
+			FtmNote note;
+			if (flners.isEmpty()) {
+				note = querier.readNote(trackIdx, section, i, row, noteScratch) ? noteScratch : null;
+			} else {
+				note = onFetcher(trackIdx, section, i, row, channel);
+			}
 			
-			converter.convert(note, channelType, effects.get(channel), geffect, querier);
+			converter.convert(note, channelType, effectArray[i], geffect, querier);
+		}
+	}
+	
+	/* **********
+	 * 效果缓存 *
+	 ********** */
+	
+	/**
+	 * <p>编译后的每一行的效果.
+	 * <p>结构: [模式号][轨道序号][行号]. 第一次播放某一行时才会编译.
+	 * 无法缓存的行 (比如含有延迟效果) 用 {@link FtmEffectProgram#UNCACHEABLE} 标记.
+	 * </p>
+	 * @since v0.3.3
+	 */
+	private FtmEffectProgram[][][] programs;
+	
+	/**
+	 * programs 对应的曲目号
+	 */
+	private int programTrack = -1;
+	
+	/**
+	 * 编译 programs 时使用的转换器
+	 */
+	private IFtmEffectConverter programConverter;
+	
+	/**
+	 * 获取指定行编译后的效果. 如果还没有编译, 则现在编译
+	 * @return
+	 *   编译后的效果. 如果该行无法缓存, 返回 null
+	 */
+	private FtmEffectProgram getProgram(int track, int section, int channel, int row) {
+		int pattern = querier.getPatternIndex(track, section, channel);
+		if (pattern < 0) {
+			return FtmEffectProgram.EMPTY;
+		}
+		
+		FtmEffectProgram[] rows = programs[pattern][channel];
+		if (rows == null) {
+			rows = programs[pattern][channel] = new FtmEffectProgram[querier.maxRow(track)];
 		}
+		
+		FtmEffectProgram program = rows[row];
+		if (program == null) {
+			FtmNote note = querier.readNote(track, section, channel, row, noteScratch) ? noteScratch : null;
+			program = FtmEffectProgram.compile(converter, note,
+					typeOfChannel(querier.channelCode(channel)),
+					querier);
+			rows[row] = (program == null) ? FtmEffectProgram.UNCACHEABLE : program;
+			return program;
+		}
+		return (program == FtmEffectProgram.UNCACHEABLE) ? null : program;
+	}
+	
+	/**
+	 * 清空编译后的效果缓存. 修改了正在播放的音频数据后, 需要调用该方法
+	 * @since v0.3.3
+	 */
+	public void clearPrograms() {
+		programs = null;
+		programTrack = -1;
+		programConverter = null;
 	}
 	
 	/**
@@ -217,29 +414,57 @@ public class FamiTrackerRuntime {
 	public final ArrayList<IFtmExecutedListener> elners = new ArrayList<>();
 	
 	/**
-	 * 调用音键获取监听器
-	 * @param note
-	 *   原始音键, 可能为 null
+	 * 交给监听器的控制杆. 每个运行时只有一个, 所有监听器、所有帧共用
+	 * @since v0.3.3
+	 */
+	private final FamiTrackerExecutorHandler handler = new FamiTrackerExecutorHandler(this);
+	
+	/**
+	 * <p>读取音键时使用的暂存区.
+	 * <p>模式中的音键用 {@link FamiTrackerQuerier#readNote(int, int, int, int, FtmNote)}
+	 * 复制到这里再转换成效果, 读取压缩的模式时不创建新的实例.
+	 * <p>模式中的原始音键不会交给监听器; 有监听器时, 监听器对音键的修改只作用在这份副本上.
+	 * 该实例每次调用都会被覆盖, 监听器如果需要保留音键, 请自行 {@link FtmNote#clone()}.
+	 * </p>
+	 * @since v0.3.3
+	 */
+	private final FtmNote noteScratch = new FtmNote();
+	
+	/**
+	 * @return
+	 *   交给监听器的控制杆
+	 * @since v0.3.3
+	 */
+	public FamiTrackerExecutorHandler getHandler() {
+		return handler;
+	}
+	
+	/**
+	 * 读取音键, 并调用音键获取监听器
+	 * @param track
+	 *   曲目号
+	 * @param section
+	 *   段号
+	 * @param index
+	 *   轨道序号
+	 * @param row
+	 *   行号
 	 * @param channelCode
 	 *   当前轨道号
 	 * @return
+	 *   监听器处理后的音键, 可能为 null
 	 */
-	FtmNote onFetcher(FtmNote note, byte channelCode) {
-		if (flners.isEmpty()) {
-			return note;
-		}
-		
-		FtmNote n = (note != null) ? note.clone() : null;
-		FamiTrackerExecutorHandler h = new FamiTrackerExecutorHandler(this);
+	FtmNote onFetcher(int track, int section, int index, int row, byte channelCode) {
+		FtmNote n = querier.readNote(track, section, index, row, noteScratch) ? noteScratch : null;
 		
-		for (IFtmFetchListener l : flners) {
+		final int len = flners.size();
+		for (int i = 0; i < len; i++) {
 			try {
-				n = l.onFetch(n, channelCode, h);
+				n = flners.get(i).onFetch(n, channelCode, handler);
 			} catch (RuntimeException e) {
 				e.printStackTrace();
 			}
 		}
-		h.destroy();
 		
 		return n;
 	}
@@ -248,12 +473,81 @@ public class FamiTrackerRuntime {
 	 * 调用执行完毕监听器
 	 */
 	void onExecuteFinished() {
-		if (elners.isEmpty()) {
-			return;
+		final int len = elners.size();
+		for (int i = 0; i < len; i++) {
+			elners.get(i).onExecuteFinished(handler);
 		}
-		
-		FamiTrackerExecutorHandler h = new FamiTrackerExecutorHandler(this);
-		elners.forEach(l -> l.onExecuteFinished(h));
 	}
 	
+	
+	/**
+	 * <p>按轨道号查询的只读视图, 数据来自按轨道序号排列的数组.
+	 * <p>用于 {@link #channels} 与 {@link #effects}.
+	 * </p>
+	 * @since v0.3.3
+	 */
+	private class ChannelView<V> extends AbstractMap<Byte, V> {
+		
+		/**
+		 * 轨道序号 - 值
+		 */
+		private final IntFunction<V> getter;
+		
+		private ChannelView(IntFunction<V> getter) {
+			this.getter = getter;
+		}
+		
+		@Override
+		public int size() {
+			return channelArray.length;
+		}
+		
+		@Override
+		public boolean containsKey(Object key) {
+			return key instanceof Byte && channelIndexes[(Byte) key & 0xFF] >= 0;
+		}
+		
+		@Override
+		public V get(Object key) {
+			if (!(key instanceof Byte)) {
+				return null;
+			}
+			int index = channelIndexes[(Byte) key & 0xFF];
+			return (index < 0) ? null : getter.apply(index);
+		}
+		
+		@Override
+		public Set<Entry<Byte, V>> entrySet() {
+			return new AbstractSet<Entry<Byte, V>>() {
+				@Override
+				public int size() {
+					return channelArray.length;
+				}
+				
+				@Override
+				public Iterator<Entry<Byte, V>> iterator() {
+					final int len = channelArray.length;
+					return new Iterator<Entry<Byte, V>>() {
+						int index;
+						
+						@Override
+						public boolean hasNext() {
+							return index < len;
+						}
+						
+						@Override
+						public Entry<Byte, V> next() {
+							if (index >= len) {
+								throw new NoSuchElementException();
+							}
+							int i = index++;
+							return new SimpleImmutableEntry<>(querier.channelCode(i), getter.apply(i));
+						}
+					};
+				}
+			};
+		}
+		
+	}
+
 }
@@ -0,0 +1,129 @@
+package zdream.nsfplayer.ftm.executor;
+
+import java.util.Arrays;
+
+/**
+ * <p>FamiTracker 轨道的快照, 记录轨道 {@link AbstractFtmChannel} 在某一帧结束时的全部执行参数,
+ * 包括音键、音量、音高等参数, 轨道上的状态 {@link IFtmState} 与任务 {@link IFtmSchedule},
+ * 以及子类特有的参数 (比如乐器序列的播放位置).
+ * <p>快照中的数据按顺序写入、按同样的顺序读出. 每个轨道类在
+ * {@link AbstractFtmChannel#writeState(FtmChannelSnapshot)} 中先调用父类的方法, 再写入自己的参数;
+ * 在 {@link AbstractFtmChannel#readState(FtmChannelSnapshot)} 中以同样的顺序读出.
+ * <p>快照保存之后不会再修改, 可以多次 (也可以在多个线程中同时) 恢复到同一个类型的轨道中.
+ * 快照不包含发声器内部的状态, 比如波形的相位、DPCM 采样的读取位置.
+ * </p>
+ * 
+ * @see AbstractFtmChannel#saveState()
+ * @see AbstractFtmChannel#loadState(FtmChannelSnapshot)
+ * @author Zdream
+ * @since v0.3.3
+ */
+public final class FtmChannelSnapshot {
+	
+	/**
+	 * 轨道号
+	 */
+	public final byte channelCode;
+	
+	/**
+	 * 保存快照的轨道类
+	 */
+	final Class<?> channelClass;
+	
+	private int[] ints = new int[32];
+	private int intCount, intPos;
+	
+	private Object[] objects = new Object[8];
+	private int objectCount, objectPos;
+	
+	FtmChannelSnapshot(AbstractFtmChannel channel) {
+		this.channelCode = channel.channelCode;
+		this.channelClass = channel.getClass();
+	}
+	
+	private FtmChannelSnapshot(FtmChannelSnapshot src) {
+		this.channelCode = src.channelCode;
+		this.channelClass = src.channelClass;
+		this.ints = src.ints;
+		this.intCount = src.intCount;
+		this.objects = src.objects;
+		this.objectCount = src.objectCount;
+	}
+	
+	/* **********
+	 *   写入   *
+	 ********** */
+	
+	public void writeInt(int value) {
+		if (intCount == ints.length) {
+			ints = Arrays.copyOf(ints, intCount * 2);
+		}
+		ints[intCount++] = value;
+	}
+	
+	public void writeBoolean(boolean value) {
+		writeInt(value ? 1 : 0);
+	}
+	
+	/**
+	 * 写入对象. 对象需要是不会再修改的, 或者是复制出来的
+	 * @param value
+	 *   对象, 可以为 null
+	 */
+	public void writeObject(Object value) {
+		if (objectCount == objects.length) {
+			objects = Arrays.copyOf(objects, objectCount * 2);
+		}
+		objects[objectCount++] = value;
+	}
+	
+	/* **********
+	 *   读取   *
+	 ********** */
+	
+	/**
+	 * 创建从头开始读取的视图. 视图与快照共用数据, 但有各自的读取位置,
+	 * 因此同一个快照可以同时在多个线程中恢复
+	 */
+	FtmChannelSnapshot reader() {
+		return new FtmChannelSnapshot(this);
+	}
+	
+	/**
+	 * @throws IllegalStateException
+	 *   当数据已经读完时
+	 */
+	public int readInt() {
+		if (intPos >= intCount) {
+			throw new IllegalStateException("轨道 " + channelCode + " 的快照数据已经读完");
+		}
+		return ints[intPos++];
+	}
+	
+	/**
+	 * @throws IllegalStateException
+	 *   当数据已经读完时
+	 */
+	public boolean readBoolean() {
+		return readInt() != 0;
+	}
+	
+	/**
+	 * 读取对象. 对象是快照中保存的实例, 如果需要修改, 请先复制
+	 * @throws IllegalStateException
+	 *   当数据已经读完时
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T readObject() {
+		if (objectPos >= objectCount) {
+			throw new IllegalStateException("轨道 " + channelCode + " 的快照数据已经读完");
+		}
+		return (T) objects[objectPos++];
+	}
+	
+	@Override
+	public String toString() {
+		return "FtmChannelSnapshot [channel=" + channelCode + ", class=" + channelClass.getSimpleName() + "]";
+	}
+
+}
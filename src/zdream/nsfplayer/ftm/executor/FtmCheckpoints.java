@@ -0,0 +1,163 @@
+package zdream.nsfplayer.ftm.executor;
+
+import static java.util.Objects.requireNonNull;
+
+import zdream.nsfplayer.core.NsfPlayerException;
+import zdream.nsfplayer.ftm.audio.FtmAudio;
+
+/**
+ * <p>FamiTracker 曲目的检查点. 每一段一个检查点, 用于准确、快速地切换播放位置.
+ * <p>检查点由一次不发声的快速执行得到 (与 {@link FtmTimeline} 相同).
+ * 执行过程中, 每一段第一次开始执行之前, 保存执行构件的快照 {@link FtmSnapshot}.
+ * 切换到某一段的某一行时 (见 {@link FamiTrackerExecutor#seek(FtmCheckpoints, int, int)}),
+ * 从该段的检查点恢复, 再向下执行到该行, 最多只需要执行一段,
+ * 而不是像 {@link zdream.nsfplayer.core.AbstractRenderer#skip(int)} 那样从曲目开头执行.
+ * <p>正常播放时不会执行到的段 (比如被跳段效果 Bxx 跳过的段) 没有检查点.
+ * <p>检查点创建之后不会再修改, 可以同时被多个执行构件使用.
+ * </p>
+ * 
+ * @author Zdream
+ * @since v0.3.3
+ */
+public class FtmCheckpoints {
+	
+	private final FtmAudio audio;
+	private final int track;
+	
+	/**
+	 * 按段号排列的检查点. 没有执行到的段为 null
+	 */
+	private final FtmSnapshot[] checkpoints;
+	
+	private FtmCheckpoints(FtmAudio audio, int track, int sectionCount) {
+		this.audio = audio;
+		this.track = track;
+		this.checkpoints = new FtmSnapshot[sectionCount];
+	}
+	
+	/**
+	 * 创建指定曲目的检查点
+	 * @param audio
+	 *   FamiTracker 的封装的曲目
+	 * @param track
+	 *   曲目号, 从 0 开始
+	 * @return
+	 * @throws NsfPlayerException
+	 *   当曲目号不存在时
+	 */
+	public static FtmCheckpoints build(FtmAudio audio, int track) throws NsfPlayerException {
+		requireNonNull(audio, "FamiTracker 曲目 audio = null");
+		
+		FamiTrackerExecutor executor = new FamiTrackerExecutor();
+		executor.ready(audio, track);
+		
+		FtmCheckpoints cps = new FtmCheckpoints(audio, track, executor.getRuntime().querier.trackCount(track));
+		cps.scan(executor);
+		return cps;
+	}
+	
+	/**
+	 * <p>快速执行, 在每一段第一次开始执行之前保存快照.
+	 * <p>所有段都有了检查点, 或者曲目停止, 或者执行的行数超过曲目的总行数
+	 * 仍然没有新的段开始执行时 (即曲目已经循环), 结束.
+	 * </p>
+	 */
+	private void scan(FamiTrackerExecutor executor) {
+		final int sectionCount = checkpoints.length;
+		final int totalRows = sectionCount * executor.getRuntime().querier.maxRow(track);
+		final long maxFrame = (long) FtmTimeline.MAX_SECONDS * executor.getFrameRate();
+		
+		int found = 0;
+		int rowsSinceFound = 0;
+		for (long frame = 0; frame < maxFrame && found < sectionCount; frame++) {
+			if (executor.currentRowRunOut()) {
+				int next = executor.getNextSection();
+				if (next >= sectionCount) {
+					// 与 FtmRowFetcher.confirmJump() 相同, 超出范围的段号视为第 0 段
+					next = 0;
+				}
+				if (checkpoints[next] == null) {
+					checkpoints[next] = executor.saveState();
+					found++;
+					rowsSinceFound = 0;
+				}
+			}
+			
+			executor.tick();
+			
+			if (executor.isFinished()) {
+				break;
+			}
+			if (executor.isRowUpdated() && ++rowsSinceFound > totalRows) {
+				break;
+			}
+		}
+	}
+	
+	/* **********
+	 *   查询   *
+	 ********** */
+	
+	/**
+	 * @return
+	 *   FamiTracker 的封装的曲目
+	 */
+	public FtmAudio getAudio() {
+		return audio;
+	}
+	
+	/**
+	 * @return
+	 *   曲目号
+	 */
+	public int getTrack() {
+		return track;
+	}
+	
+	/**
+	 * @return
+	 *   段数
+	 */
+	public int sectionCount() {
+		return checkpoints.length;
+	}
+	
+	/**
+	 * @return
+	 *   有检查点的段数
+	 */
+	public int checkpointCount() {
+		int count = 0;
+		for (FtmSnapshot s : checkpoints) {
+			if (s != null) {
+				count++;
+			}
+		}
+		return count;
+	}
+	
+	/**
+	 * <p>获取指定段的检查点.
+	 * <p>检查点是该段第一次开始执行之前的快照. 一般从该段的第 0 行开始执行,
+	 * 但如果是由跳行效果 Dxx 跳入该段的, 则从跳到的行开始执行,
+	 * 见 {@link FtmSnapshot#nextPosition()}.
+	 * </p>
+	 * @param section
+	 *   段号, 从 0 开始
+	 * @return
+	 *   检查点. 如果段号超出范围, 或者正常播放时不会执行到该段, 返回 null
+	 */
+	public FtmSnapshot checkpointOf(int section) {
+		if (section < 0 || section >= checkpoints.length) {
+			return null;
+		}
+		return checkpoints[section];
+	}
+	
+	@Override
+	public String toString() {
+		return "FtmCheckpoints [track=" + track + ", sections=" + checkpoints.length
+				+ ", checkpoints=" + checkpointCount() + "]";
+	}
+
+}
@@ -0,0 +1,126 @@
+package zdream.nsfplayer.ftm.executor;
+
+import zdream.nsfplayer.ftm.audio.FtmAudio;
+import zdream.nsfplayer.ftm.executor.tools.FtmRowFetcher;
+import zdream.nsfplayer.ftm.process.base.FtmPosition;
+
+/**
+ * <p>FamiTracker 执行构件的快照, 记录 {@link FamiTrackerExecutor} 在两帧之间的执行状态:
+ * <li>播放位置、速度值与节奏值, 以及还没有生效的跳转 (见 {@link FtmRowFetcher});
+ * <li>每个轨道的参数、状态与乐器序列 (见 {@link FtmChannelSnapshot}).
+ * </li>
+ * <p>将快照恢复到执行构件中 ({@link FamiTrackerExecutor#loadState(FtmSnapshot)}) 之后,
+ * 继续执行的结果与保存快照的执行构件继续执行的结果相同.
+ * 快照不包含发声器内部的状态, 这与 {@link zdream.nsfplayer.core.AbstractRenderer#skip(int)}
+ * 跳过帧时发声器不工作的情况是一样的.
+ * <p>快照保存之后不会再修改, 可以多次恢复, 也可以同时恢复到多个执行构件中.
+ * </p>
+ * 
+ * @see FamiTrackerExecutor#saveState()
+ * @see FtmCheckpoints
+ * @author Zdream
+ * @since v0.3.3
+ */
+public final class FtmSnapshot {
+	
+	/**
+	 * 保存快照时执行的音频
+	 */
+	final FtmAudio audio;
+	
+	/**
+	 * 曲目号
+	 */
+	final int track;
+	
+	/**
+	 * 执行位置
+	 */
+	final int section, row;
+	
+	final boolean finished;
+	final boolean switchFlag, updateFlag;
+	
+	/**
+	 * 如果跳到下一行, 跳到的位置
+	 */
+	final int nextSection, nextRow;
+	
+	/**
+	 * 行数据获取工具的复制品, 只用于保存参数
+	 */
+	final FtmRowFetcher fetcher;
+	
+	/**
+	 * 按轨道序号排列的轨道快照
+	 */
+	final FtmChannelSnapshot[] channels;
+	
+	FtmSnapshot(FamiTrackerRuntime runtime) {
+		this.audio = runtime.querier.audio;
+		this.track = runtime.param.trackIdx;
+		this.section = runtime.param.curSection;
+		this.row = runtime.param.curRow;
+		this.finished = runtime.param.finished;
+		this.switchFlag = runtime.switchFlag;
+		this.updateFlag = runtime.updateFlag;
+		
+		this.nextSection = runtime.fetcher.getNextSection();
+		this.nextRow = runtime.fetcher.getNextRow();
+		this.fetcher = new FtmRowFetcher(new FamiTrackerParameter());
+		this.fetcher.copyFrom(runtime.fetcher);
+		
+		final int len = runtime.querier.channelCount();
+		this.channels = new FtmChannelSnapshot[len];
+		for (int i = 0; i < len; i++) {
+			channels[i] = runtime.channelAt(i).saveState();
+		}
+	}
+	
+	/**
+	 * @return
+	 *   保存快照时执行的音频
+	 */
+	public FtmAudio getAudio() {
+		return audio;
+	}
+	
+	/**
+	 * @return
+	 *   曲目号
+	 */
+	public int getTrack() {
+		return track;
+	}
+	
+	/**
+	 * @return
+	 *   保存快照时正在执行的位置
+	 */
+	public FtmPosition currentPosition() {
+		return new FtmPosition(section, row);
+	}
+	
+	/**
+	 * @return
+	 *   恢复快照之后, 如果跳到下一行, 跳到的位置
+	 */
+	public FtmPosition nextPosition() {
+		return new FtmPosition(nextSection, nextRow);
+	}
+	
+	/**
+	 * @return
+	 *   恢复快照之后, 下一帧是否会跳到下一行
+	 */
+	public boolean currentRowRunOut() {
+		return fetcher.needRowUpdate();
+	}
+	
+	@Override
+	public String toString() {
+		return "FtmSnapshot [track=" + track + ", section=" + section + ", row=" + row
+				+ ", next=" + nextSection + ":" + nextRow + "]";
+	}
+
+}
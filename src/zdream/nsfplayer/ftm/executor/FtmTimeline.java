@@ -0,0 +1,551 @@
+package zdream.nsfplayer.ftm.executor;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+import zdream.nsfplayer.core.NsfPlayerException;
+import zdream.nsfplayer.ftm.audio.FtmAudio;
+import zdream.nsfplayer.ftm.executor.tools.FtmRowFetcher;
+import zdream.nsfplayer.ftm.process.base.FtmPosition;
+import zdream.nsfplayer.ftm.renderer.FamiTrackerRenderer;
+
+/**
+ * <p>FamiTracker 曲目的时间轴. 记录曲目中每一行开始的帧与采样位置.
+ * <p>时间轴由一次不发声的快速执行得到: 只让 {@link FamiTrackerExecutor} 执行每一帧,
+ * 不让发声器工作, 也不混音. 执行过程中记录每一行开始的帧, 以及当时的速度值与节奏值
+ * (Fxx 效果会修改它们). 跳行、跳段、停止 (Bxx, Dxx, Cxx) 效果也就自然计算在内.
+ * <p>当某一行以完全相同的播放状态 (段号、行号、速度值、节奏值、节奏累加器) 再次开始时,
+ * 之后的播放与之前完全相同, 曲目进入循环. 这一行就是循环点, 时间轴到此结束.
+ * 遇到停止效果 Cxx 时, 时间轴在该帧结束, 曲目不循环.
+ * <p>节奏值不能被速度值整除时, 节奏累加器可能要经过非常多遍才会重复.
+ * 如果执行 {@link #MAX_SECONDS} 仍然没有完全相同的状态, 就退而使用第一次以相同的段号、行号、
+ * 速度值、节奏值开始的行作为循环点. 此时第一遍每一行的位置仍然准确,
+ * 但查询循环第二遍以后的位置时, 每一遍可能有一帧的误差.
+ * <p>采样位置按照与 {@link FamiTrackerRenderer} 相同的方式由帧数换算, 播放速度为 1 时完全一致.
+ * 位置到采样数的查询为 O(1), 采样数到位置的查询为 O(log n) 的二分查找.
+ * </p>
+ * 
+ * @author Zdream
+ * @since v0.3.3
+ */
+public class FtmTimeline {
+	
+	/**
+	 * 快速执行的最长时间, 单位: 秒. 超过这个时间仍然没有循环或停止时, 时间轴到此为止
+	 */
+	public static final int MAX_SECONDS = 4 * 3600;
+	
+	private final int track;
+	private final int frameRate;
+	private final int sampleRate;
+	
+	/*
+	 * 每一行的数据, 按开始的顺序排列, 有效范围为 [0, rowCount)
+	 */
+	private int rowCount;
+	/**
+	 * 每一行开始的帧. 递增
+	 */
+	private long[] rowFrames = new long[256];
+	/**
+	 * 每一行的段号与行号, section << 16 | row
+	 */
+	private int[] rowPositions = new int[256];
+	/**
+	 * 每一行开始时的速度值与节奏值, speed << 16 | tempo
+	 */
+	private int[] rowSpeeds = new int[256];
+	
+	/**
+	 * 位置 (section << 16 | row) 到第一次开始的行的索引
+	 */
+	private final HashMap<Integer, Integer> firstIndexes = new HashMap<>();
+	
+	/**
+	 * 结束的帧, 即曲目一遍的总帧数
+	 */
+	private long endFrame;
+	
+	/**
+	 * 循环点, 即循环开始的行的索引. 不循环时为 -1
+	 */
+	private int loopIndex = -1;
+	
+	/**
+	 * 是否因为超过 {@link #MAX_SECONDS} 而没有执行完
+	 */
+	private boolean truncated;
+	
+	private FtmTimeline(int track, int frameRate, int sampleRate) {
+		this.track = track;
+		this.frameRate = frameRate;
+		this.sampleRate = sampleRate;
+	}
+	
+	/* **********
+	 *   创建   *
+	 ********** */
+	
+	/**
+	 * 创建指定曲目的时间轴, 采样率为 48000
+	 * @param audio
+	 *   FamiTracker 的封装的曲目
+	 * @param track
+	 *   曲目号, 从 0 开始
+	 * @return
+	 * @see #build(FtmAudio, int, int)
+	 */
+	public static FtmTimeline build(FtmAudio audio, int track) throws NsfPlayerException {
+		return build(audio, track, 48000);
+	}
+	
+	/**
+	 * 创建指定曲目的时间轴.
+	 * @param audio
+	 *   FamiTracker 的封装的曲目
+	 * @param track
+	 *   曲目号, 从 0 开始
+	 * @param sampleRate
+	 *   采样率, 用于将帧换算成采样数. 需要与渲染器的采样率相同
+	 * @return
+	 * @throws NsfPlayerException
+	 *   当曲目号不存在, 或者采样率不是正数时
+	 */
+	public static FtmTimeline build(FtmAudio audio, int track, int sampleRate) throws NsfPlayerException {
+		requireNonNull(audio, "FamiTracker 曲目 audio = null");
+		if (sampleRate <= 0) {
+			throw new NsfPlayerException("采样率: " + sampleRate + " 需要为正数");
+		}
+		
+		FamiTrackerExecutor executor = new FamiTrackerExecutor();
+		executor.ready(audio, track);
+		
+		FtmTimeline timeline = new FtmTimeline(track, executor.getFrameRate(), sampleRate);
+		timeline.scan(executor);
+		return timeline;
+	}
+	
+	/**
+	 * 快速执行, 直到循环、停止或超过最长时间
+	 */
+	private void scan(FamiTrackerExecutor executor) {
+		final FtmRowFetcher fetcher = executor.getRuntime().fetcher;
+		final long maxFrame = (long) MAX_SECONDS * frameRate;
+		
+		/*
+		 * 播放状态 (段号、行号、速度值、节奏值) 到最近一次以该状态开始的行的索引.
+		 * 状态相同的行用 sameStatePrev 串起来, 再比较节奏累加器.
+		 */
+		HashMap<Long, Integer> stateIndexes = new HashMap<>();
+		int[] sameStatePrev = new int[rowFrames.length];
+		int[] accums = new int[rowFrames.length];
+		// 第一次出现状态相同 (不比较节奏累加器) 的行, 备用的循环点
+		int looseLoopIndex = -1, looseEndIndex = -1;
+		long looseEndFrame = 0;
+		
+		for (long frame = 0; frame < maxFrame; frame++) {
+			executor.tick();
+			
+			if (executor.isRowUpdated()) {
+				int position = executor.getCurrentSection() << 16 | executor.getCurrentRow();
+				int speed = executor.getCurrentSpeed() << 16 | (executor.getCurrentTempo() & 0xFFFF);
+				int accum = fetcher.getTempoAccum();
+				Long state = (long) position << 32 | (speed & 0xFFFFFFFFL);
+				
+				Integer last = stateIndexes.get(state);
+				if (last != null) {
+					for (int i = last; i >= 0; i = sameStatePrev[i]) {
+						if (accums[i] == accum) {
+							// 完全相同的状态, 循环
+							loopIndex = i;
+							endFrame = frame;
+							return;
+						}
+					}
+					if (looseLoopIndex < 0) {
+						looseLoopIndex = last;
+						looseEndIndex = rowCount;
+						looseEndFrame = frame;
+					}
+				}
+				
+				int index = addRow(frame, position, speed);
+				if (index == accums.length) {
+					sameStatePrev = Arrays.copyOf(sameStatePrev, rowFrames.length);
+					accums = Arrays.copyOf(accums, rowFrames.length);
+				}
+				sameStatePrev[index] = (last == null) ? -1 : last;
+				accums[index] = accum;
+				stateIndexes.put(state, index);
+			}
+			
+			if (executor.isFinished()) {
+				// 停止效果 Cxx, 该帧仍然会播放
+				endFrame = frame + 1;
+				return;
+			}
+		}
+		
+		if (looseLoopIndex >= 0) {
+			// 节奏累加器一直没有重复, 用第一次状态相同的行作为循环点
+			loopIndex = looseLoopIndex;
+			rowCount = looseEndIndex;
+			endFrame = looseEndFrame;
+			firstIndexes.values().removeIf(i -> i >= rowCount);
+			return;
+		}
+		
+		endFrame = maxFrame;
+		truncated = true;
+	}
+	
+	private int addRow(long frame, int position, int speed) {
+		if (rowCount == rowFrames.length) {
+			int length = rowCount * 2;
+			rowFrames = Arrays.copyOf(rowFrames, length);
+			rowPositions = Arrays.copyOf(rowPositions, length);
+			rowSpeeds = Arrays.copyOf(rowSpeeds, length);
+		}
+		
+		int index = rowCount++;
+		rowFrames[index] = frame;
+		rowPositions[index] = position;
+		rowSpeeds[index] = speed;
+		firstIndexes.putIfAbsent(position, index);
+		return index;
+	}
+	
+	/* **********
+	 *   参数   *
+	 ********** */
+	
+	/**
+	 * @return
+	 *   曲目号
+	 */
+	public int getTrack() {
+		return track;
+	}
+	
+	/**
+	 * @return
+	 *   帧率, 每秒多少帧
+	 */
+	public int getFrameRate() {
+		return frameRate;
+	}
+	
+	/**
+	 * @return
+	 *   采样率
+	 */
+	public int getSampleRate() {
+		return sampleRate;
+	}
+	
+	/**
+	 * @return
+	 *   曲目一遍 (到循环点或停止) 播放的行数
+	 */
+	public int rowCount() {
+		return rowCount;
+	}
+	
+	/**
+	 * @return
+	 *   曲目是否循环. 遇到停止效果 Cxx 而结束的曲目不循环
+	 */
+	public boolean isLooped() {
+		return loopIndex >= 0;
+	}
+	
+	/**
+	 * @return
+	 *   是否因为超过最长时间 {@link #MAX_SECONDS} 而没有找到循环点或停止位置
+	 */
+	public boolean isTruncated() {
+		return truncated;
+	}
+	
+	/**
+	 * @return
+	 *   循环开始的行的索引. 不循环时为 -1
+	 */
+	public int getLoopIndex() {
+		return loopIndex;
+	}
+	
+	/**
+	 * @return
+	 *   循环开始的采样位置. 不循环时为 -1
+	 */
+	public long getLoopSample() {
+		return (loopIndex < 0) ? -1 : frameToSample(rowFrames[loopIndex]);
+	}
+	
+	/**
+	 * @return
+	 *   曲目一遍 (到循环点或停止) 的帧数
+	 */
+	public long durationFrames() {
+		return endFrame;
+	}
+	
+	/**
+	 * @return
+	 *   曲目一遍 (到循环点或停止) 的采样数
+	 */
+	public long durationSamples() {
+		return frameToSample(endFrame);
+	}
+	
+	/**
+	 * @return
+	 *   曲目一遍 (到循环点或停止) 的时长, 单位: 毫秒
+	 */
+	public long durationMillis() {
+		return durationSamples() * 1000 / sampleRate;
+	}
+	
+	/* **********
+	 * 行的数据 *
+	 ********** */
+	
+	/**
+	 * @param index
+	 *   行的索引, 范围为 [0, {@link #rowCount()})
+	 * @return
+	 *   该行的段号
+	 */
+	public int sectionOf(int index) {
+		checkIndex(index);
+		return rowPositions[index] >>> 16;
+	}
+	
+	/**
+	 * @param index
+	 *   行的索引, 范围为 [0, {@link #rowCount()})
+	 * @return
+	 *   该行的行号
+	 */
+	public int rowOf(int index) {
+		checkIndex(index);
+		return rowPositions[index] & 0xFFFF;
+	}
+	
+	/**
+	 * @param index
+	 *   行的索引, 范围为 [0, {@link #rowCount()})
+	 * @return
+	 *   该行的位置
+	 */
+	public FtmPosition positionOf(int index) {
+		checkIndex(index);
+		return new FtmPosition(rowPositions[index] >>> 16, rowPositions[index] & 0xFFFF);
+	}
+	
+	/**
+	 * @param index
+	 *   行的索引, 范围为 [0, {@link #rowCount()})
+	 * @return
+	 *   该行开始时的速度值
+	 */
+	public int speedOf(int index) {
+		checkIndex(index);
+		return rowSpeeds[index] >>> 16;
+	}
+	
+	/**
+	 * @param index
+	 *   行的索引, 范围为 [0, {@link #rowCount()})
+	 * @return
+	 *   该行开始时的节奏值
+	 */
+	public int tempoOf(int index) {
+		checkIndex(index);
+		return rowSpeeds[index] & 0xFFFF;
+	}
+	
+	/**
+	 * @param index
+	 *   行的索引, 范围为 [0, {@link #rowCount()})
+	 * @return
+	 *   该行开始的帧
+	 */
+	public long frameOf(int index) {
+		checkIndex(index);
+		return rowFrames[index];
+	}
+	
+	/**
+	 * @param index
+	 *   行的索引, 范围为 [0, {@link #rowCount()})
+	 * @return
+	 *   该行开始的采样位置
+	 */
+	public long sampleOf(int index) {
+		return frameToSample(frameOf(index));
+	}
+	
+	private void checkIndex(int index) {
+		if (index < 0 || index >= rowCount) {
+			throw new IndexOutOfBoundsException("行的索引: " + index + " 需要在范围 [0, " + rowCount + ") 内");
+		}
+	}
+	
+	/* **********
+	 *   查询   *
+	 ********** */
+	
+	/**
+	 * @param section
+	 *   段号
+	 * @param row
+	 *   行号
+	 * @return
+	 *   该位置第一次开始的行的索引. 如果播放不到该位置, 返回 -1
+	 */
+	public int indexOf(int section, int row) {
+		Integer index = firstIndexes.get(section << 16 | row);
+		return (index == null) ? -1 : index;
+	}
+	
+	/**
+	 * @param pos
+	 *   位置
+	 * @return
+	 *   从曲目开头到该位置第一次开始的采样数. 如果播放不到该位置, 返回 -1
+	 */
+	public long sampleOf(FtmPosition pos) {
+		requireNonNull(pos, "FamiTracker 位置 pos = null");
+		int index = indexOf(pos.section, pos.row);
+		return (index < 0) ? -1 : sampleOf(index);
+	}
+	
+	/**
+	 * @param section
+	 *   段号
+	 * @return
+	 *   从曲目开头到该段第 0 行第一次开始的采样数. 如果播放不到该位置, 返回 -1
+	 */
+	public long sampleOfSection(int section) {
+		int index = indexOf(section, 0);
+		return (index < 0) ? -1 : sampleOf(index);
+	}
+	
+	/**
+	 * <p>查询指定帧正在播放的行.
+	 * <p>超过一遍的帧数时, 循环的曲目按循环计算; 不循环的曲目返回最后一行.
+	 * </p>
+	 * @param frame
+	 *   从曲目开头算起的帧数, 从 0 开始
+	 * @return
+	 *   行的索引. 没有任何行时返回 -1
+	 */
+	public int indexAtFrame(long frame) {
+		if (frame < 0) {
+			throw new IllegalArgumentException("帧数: " + frame + " 不能为负数");
+		}
+		if (rowCount == 0) {
+			return -1;
+		}
+		
+		if (frame >= endFrame) {
+			if (loopIndex < 0) {
+				return rowCount - 1;
+			}
+			long loopFrame = rowFrames[loopIndex];
+			frame = loopFrame + (frame - loopFrame) % (endFrame - loopFrame);
+		}
+		
+		int i = Arrays.binarySearch(rowFrames, 0, rowCount, frame);
+		return (i >= 0) ? i : -i - 2;
+	}
+	
+	/**
+	 * 查询指定采样位置正在播放的行.
+	 * @param sample
+	 *   从曲目开头算起的采样数, 从 0 开始
+	 * @return
+	 *   行的索引. 没有任何行时返回 -1
+	 * @see #indexAtFrame(long)
+	 */
+	public int indexAtSample(long sample) {
+		return indexAtFrame(sampleToFrame(sample));
+	}
+	
+	/**
+	 * 查询指定采样位置正在播放的位置.
+	 * @param sample
+	 *   从曲目开头算起的采样数, 从 0 开始
+	 * @return
+	 *   位置. 没有任何行时返回 null
+	 * @see #indexAtFrame(long)
+	 */
+	public FtmPosition positionAtSample(long sample) {
+		int index = indexAtSample(sample);
+		return (index < 0) ? null : positionOf(index);
+	}
+	
+	/**
+	 * 查询指定时间正在播放的位置.
+	 * @param millis
+	 *   从曲目开头算起的时间, 单位: 毫秒
+	 * @return
+	 *   位置. 没有任何行时返回 null
+	 * @see #indexAtFrame(long)
+	 */
+	public FtmPosition positionAtMillis(long millis) {
+		return positionAtSample(millis * sampleRate / 1000);
+	}
+	
+	/* **********
+	 *   换算   *
+	 ********** */
+	
+	/**
+	 * 帧数换算成采样数. 与渲染器每一帧的采样数的计算方式相同
+	 * @param frame
+	 *   从曲目开头算起的帧数
+	 * @return
+	 *   这些帧的总采样数
+	 */
+	public long frameToSample(long frame) {
+		long seconds = frame / frameRate;
+		int remain = (int) (frame % frameRate);
+		return seconds * sampleRate + (int) ((double) sampleRate * remain / frameRate);
+	}
+	
+	/**
+	 * 采样数换算成帧数
+	 * @param sample
+	 *   从曲目开头算起的采样数
+	 * @return
+	 *   该采样所在的帧, 即满足 frameToSample(frame) &lt;= sample 的最大的 frame
+	 */
+	public long sampleToFrame(long sample) {
+		if (sample < 0) {
+			throw new IllegalArgumentException("采样数: " + sample + " 不能为负数");
+		}
+		
+		long seconds = sample / sampleRate;
+		long frame = seconds * frameRate + (long) ((double) (sample % sampleRate) * frameRate / sampleRate);
+		// 修正浮点数计算的误差
+		while (frameToSample(frame + 1) <= sample) {
+			frame++;
+		}
+		while (frame > 0 && frameToSample(frame) > sample) {
+			frame--;
+		}
+		return frame;
+	}
+	
+	@Override
+	public String toString() {
+		return "FtmTimeline [track=" + track + ", rows=" + rowCount + ", frames=" + endFrame
+				+ ", loop=" + loopIndex + "]";
+	}
+
+}
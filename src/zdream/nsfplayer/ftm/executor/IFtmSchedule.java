@@ -1,5 +1,7 @@
 package zdream.nsfplayer.ftm.executor;
 
+import java.util.Map;
+
 /**
  * <p>每帧开始前触发的任务. 仅在第一帧的效果触发之前执行一次, 执行完后就删除
  * </p>
@@ -17,5 +19,18 @@ public interface IFtmSchedule {
 	 *   运行环境
 	 */
 	public void trigger(byte channelCode, FamiTrackerRuntime runtime);
+	
+	/**
+	 * <p>复制一个新的任务, 用于保存轨道的快照 {@link FtmChannelSnapshot}.
+	 * <p>任务可能引用同一个轨道中的状态. 复制时, 这些状态已经先复制好了,
+	 * 复制的任务需要引用复制后的状态.
+	 * </p>
+	 * @param states
+	 *   同一个轨道中, 原状态到复制后的状态的映射 (按实例对应)
+	 * @return
+	 *   复制的任务
+	 * @since v0.3.3
+	 */
+	public IFtmSchedule copy(Map<IFtmState, IFtmState> states);
 
 }
@@ -61,4 +61,14 @@ public interface IFtmState extends Comparable<IFtmState> {
 		return o.priority() - priority();
 	}
 	
+	/**
+	 * <p>复制一个新的状态, 用于保存轨道的快照 {@link FtmChannelSnapshot}.
+	 * 复制得到的状态与原状态互不影响, 之后继续触发的结果与原状态相同.
+	 * </p>
+	 * @return
+	 *   复制的状态
+	 * @since v0.3.3
+	 */
+	public IFtmState copy();
+
 }
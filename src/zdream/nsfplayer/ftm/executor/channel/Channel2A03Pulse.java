@@ -2,6 +2,7 @@ package zdream.nsfplayer.ftm.executor.channel;
 
 import static zdream.nsfplayer.sound.Sound2A03.LENGTH_TABLE;
 
+import zdream.nsfplayer.ftm.executor.FtmChannelSnapshot;
 import zdream.nsfplayer.ftm.executor.tools.NoteLookupTable;
 import zdream.nsfplayer.ftm.format.FtmSequence;
 import zdream.nsfplayer.ftm.format.FtmSequenceType;
@@ -214,4 +215,28 @@ public final class Channel2A03Pulse extends ChannelTone {
 		return NoteLookupTable.ntsc(note);
 	}
 	
+	/* **********
+	 *   快照   *
+	 ********** */
+	
+	@Override
+	protected void writeState(FtmChannelSnapshot s) {
+		super.writeState(s);
+		s.writeInt(sweepPeriod);
+		s.writeBoolean(sweepMode);
+		s.writeInt(sweepShift);
+		s.writeBoolean(sweepUpdated);
+		s.writeBoolean(sweepEnable);
+	}
+	
+	@Override
+	protected void readState(FtmChannelSnapshot s) {
+		super.readState(s);
+		sweepPeriod = s.readInt();
+		sweepMode = s.readBoolean();
+		sweepShift = s.readInt();
+		sweepUpdated = s.readBoolean();
+		sweepEnable = s.readBoolean();
+	}
+
 }
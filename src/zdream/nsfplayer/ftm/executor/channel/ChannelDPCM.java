@@ -1,6 +1,7 @@
 package zdream.nsfplayer.ftm.executor.channel;
 
 import zdream.nsfplayer.ftm.executor.AbstractFtmChannel;
+import zdream.nsfplayer.ftm.executor.FtmChannelSnapshot;
 import zdream.nsfplayer.ftm.format.FtmDPCMSample;
 import zdream.nsfplayer.ftm.format.FtmInstrument2A03;
 import zdream.nsfplayer.sound.DPCMSound;
@@ -252,4 +253,40 @@ public class ChannelDPCM extends AbstractFtmChannel {
 		}
 	}
 	
+	/* **********
+	 *   快照   *
+	 ********** */
+	
+	@Override
+	protected void writeState(FtmChannelSnapshot s) {
+		super.writeState(s);
+		s.writeObject(sample);
+		s.writeInt(deltaCounter);
+		s.writeBoolean(loop);
+		s.writeInt(offset);
+		s.writeInt(sampleLength);
+		s.writeInt(loopOffset);
+		s.writeInt(loopLength);
+		s.writeBoolean(needReload);
+		s.writeInt(retrigger);
+		s.writeInt(retriggerCtrl);
+		s.writeBoolean(needTrigger);
+	}
+	
+	@Override
+	protected void readState(FtmChannelSnapshot s) {
+		super.readState(s);
+		sample = s.readObject();
+		deltaCounter = s.readInt();
+		loop = s.readBoolean();
+		offset = s.readInt();
+		sampleLength = s.readInt();
+		loopOffset = s.readInt();
+		loopLength = s.readInt();
+		needReload = s.readBoolean();
+		retrigger = s.readInt();
+		retriggerCtrl = s.readInt();
+		needTrigger = s.readBoolean();
+	}
+
 }
@@ -1,6 +1,7 @@
 package zdream.nsfplayer.ftm.executor.channel;
 
 import zdream.nsfplayer.ftm.executor.AbstractFtmChannel;
+import zdream.nsfplayer.ftm.executor.FtmChannelSnapshot;
 import zdream.nsfplayer.ftm.executor.context.DefaultSequenceHandler;
 import zdream.nsfplayer.ftm.executor.tools.NoteLookupTable;
 import zdream.nsfplayer.ftm.format.FtmInstrumentFDS;
@@ -57,6 +58,12 @@ public class ChannelFDS extends AbstractFtmChannel {
 	 */
 	private boolean resetMod = false;
 	
+	/**
+	 * 是否需要重新向发声器写入乐器的波形与调制表. 从快照恢复之后为 true
+	 * @since v0.3.3
+	 */
+	private boolean reloadWave = false;
+	
 	/**
 	 * 设置 modDepth. 该方法由效果 Hxx 调用
 	 */
@@ -230,7 +237,7 @@ public class ChannelFDS extends AbstractFtmChannel {
 			return;
 		}
 		
-		if (instrumentUpdated && this.currentInst != null) {
+		if ((instrumentUpdated || reloadWave) && this.currentInst != null) {
 			// 写入 wave 包络数据
 			// 原本在 NSF 运行时, 还需要打开是否可写的标识, 然后再往里面写数据
 			// 因为这里是用 Sound 直接写入, 所以就省去了这个步骤
@@ -243,6 +250,7 @@ public class ChannelFDS extends AbstractFtmChannel {
 			sound.modPos = 0;
 			for (int i = 0; i < currentInst.modulation.length; ++i)
 				sound.writeMods(currentInst.modulation[i]);
+			reloadWave = false;
 		}
 		
 		/*
@@ -277,4 +285,34 @@ public class ChannelFDS extends AbstractFtmChannel {
 		}
 	}
 	
+	/* **********
+	 *   快照   *
+	 ********** */
+	
+	@Override
+	protected void writeState(FtmChannelSnapshot s) {
+		super.writeState(s);
+		DefaultSequenceHandler copy = new DefaultSequenceHandler();
+		copy.copyFrom(seq);
+		s.writeObject(copy);
+		s.writeObject(currentInst);
+		s.writeInt(modSpeed);
+		s.writeInt(modDepth);
+		s.writeInt(modDelay);
+		s.writeBoolean(resetMod);
+	}
+	
+	@Override
+	protected void readState(FtmChannelSnapshot s) {
+		super.readState(s);
+		seq.copyFrom(s.readObject());
+		currentInst = s.readObject();
+		modSpeed = s.readInt();
+		modDepth = s.readInt();
+		modDelay = s.readInt();
+		resetMod = s.readBoolean();
+		// 发声器中的波形与调制表不在快照中, 下一帧重新写入
+		reloadWave = currentInst != null;
+	}
+
 }
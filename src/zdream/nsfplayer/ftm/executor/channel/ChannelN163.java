@@ -1,5 +1,6 @@
 package zdream.nsfplayer.ftm.executor.channel;
 
+import zdream.nsfplayer.ftm.executor.FtmChannelSnapshot;
 import zdream.nsfplayer.ftm.executor.tools.NoteLookupTable;
 import zdream.nsfplayer.ftm.format.FtmInstrumentN163;
 import zdream.nsfplayer.ftm.format.FtmSequence;
@@ -185,4 +186,22 @@ public class ChannelN163 extends ChannelTone {
 		sound.setEnable(true);
 	}
 	
+	/* **********
+	 *   快照   *
+	 ********** */
+	
+	@Override
+	protected void writeState(FtmChannelSnapshot s) {
+		super.writeState(s);
+		s.writeObject(currentInst);
+	}
+	
+	@Override
+	protected void readState(FtmChannelSnapshot s) {
+		super.readState(s);
+		currentInst = s.readObject();
+		// 发声器中的波形不在快照中, 下一帧重新写入
+		lastDuty = -1;
+	}
+
 }
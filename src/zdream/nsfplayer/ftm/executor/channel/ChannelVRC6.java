@@ -1,6 +1,7 @@
 package zdream.nsfplayer.ftm.executor.channel;
 
 import zdream.nsfplayer.ftm.executor.AbstractFtmChannel;
+import zdream.nsfplayer.ftm.executor.FtmChannelSnapshot;
 import zdream.nsfplayer.ftm.executor.context.DefaultSequenceHandler;
 import zdream.nsfplayer.ftm.executor.tools.NoteLookupTable;
 import zdream.nsfplayer.ftm.format.FtmSequence;
@@ -117,5 +118,23 @@ public abstract class ChannelVRC6 extends AbstractFtmChannel {
 	public void doRelease() {
 		seq.setRelease(true);
 	}
+	
+	/* **********
+	 *   快照   *
+	 ********** */
+	
+	@Override
+	protected void writeState(FtmChannelSnapshot s) {
+		super.writeState(s);
+		DefaultSequenceHandler copy = new DefaultSequenceHandler();
+		copy.copyFrom(seq);
+		s.writeObject(copy);
+	}
+	
+	@Override
+	protected void readState(FtmChannelSnapshot s) {
+		super.readState(s);
+		seq.copyFrom(s.readObject());
+	}
 
 }
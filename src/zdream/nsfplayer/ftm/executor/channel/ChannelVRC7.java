@@ -1,6 +1,7 @@
 package zdream.nsfplayer.ftm.executor.channel;
 
 import zdream.nsfplayer.ftm.executor.AbstractFtmChannel;
+import zdream.nsfplayer.ftm.executor.FtmChannelSnapshot;
 import zdream.nsfplayer.ftm.format.FtmInstrumentVRC7;
 import zdream.nsfplayer.sound.vrc7.OPLL;
 import zdream.nsfplayer.sound.vrc7.OPLLPatch;
@@ -295,4 +296,34 @@ public class ChannelVRC7 extends AbstractFtmChannel {
 		p.RR = (regs[7]) & 15;
 	}
 	
+	/* **********
+	 *   快照   *
+	 ********** */
+	
+	@Override
+	protected void writeState(FtmChannelSnapshot s) {
+		super.writeState(s);
+		s.writeInt(patchNum);
+		s.writeObject(regs.clone());
+		s.writeBoolean(hold);
+		s.writeInt(state);
+		s.writeInt(lastOctave);
+	}
+	
+	@Override
+	protected void readState(FtmChannelSnapshot s) {
+		super.readState(s);
+		patchNum = s.readInt();
+		short[] savedRegs = s.readObject();
+		System.arraycopy(savedRegs, 0, regs, 0, regs.length);
+		hold = s.readBoolean();
+		state = (byte) s.readInt();
+		lastOctave = s.readInt();
+		
+		// OPLL 中的自定义音色不在快照中, 这里重新写入
+		if (patchNum == 0) {
+			writeCustomPitch();
+		}
+	}
+
 }
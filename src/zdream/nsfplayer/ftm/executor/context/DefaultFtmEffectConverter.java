@@ -128,6 +128,16 @@ public class DefaultFtmEffectConverter implements IFtmEffectConverter {
 	}
 	
 	
+	/**
+	 * 默认转换器转换出的效果都是不可变的. 延迟效果 (Gxx) 除外, 它不会被缓存.
+	 * @see FtmEffectProgram#compile(IFtmEffectConverter, FtmNote, byte, FamiTrackerQuerier)
+	 * @since v0.3.3
+	 */
+	@Override
+	public boolean isCacheable() {
+		return true;
+	}
+	
 	/**
 	 * 放入效果
 	 * @param effects
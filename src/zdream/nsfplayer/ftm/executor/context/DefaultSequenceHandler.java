@@ -119,6 +119,25 @@ public class DefaultSequenceHandler implements IResetable {
 		duty = -1;
 	}
 	
+	/**
+	 * 将另一个序列处理器的序列、播放位置与数值复制过来. 序列本身不复制
+	 * @param other
+	 *   复制的来源
+	 * @since v0.3.3
+	 */
+	public void copyFrom(DefaultSequenceHandler other) {
+		System.arraycopy(other.sequence, 0, sequence, 0, SEQUENCE_COUNT);
+		System.arraycopy(other.seqState, 0, seqState, 0, SEQUENCE_COUNT);
+		System.arraycopy(other.seqPtr, 0, seqPtr, 0, SEQUENCE_COUNT);
+		volume = other.volume;
+		period = other.period;
+		deltaNote = other.deltaNote;
+		duty = other.duty;
+		arpSetting = other.arpSetting;
+		arp = other.arp;
+		release = other.release;
+	}
+	
 	/**
 	 * 仅重置数值, 不重置序列
 	 */
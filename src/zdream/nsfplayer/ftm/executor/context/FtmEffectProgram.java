@@ -0,0 +1,119 @@
+package zdream.nsfplayer.ftm.executor.context;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import zdream.nsfplayer.ftm.audio.FamiTrackerQuerier;
+import zdream.nsfplayer.ftm.executor.effect.FtmEffectType;
+import zdream.nsfplayer.ftm.executor.effect.IFtmEffect;
+import zdream.nsfplayer.ftm.format.FtmNote;
+
+/**
+ * <p>编译后的一行效果.
+ * <p>播放时, 每一行的每个轨道都需要由 {@link IFtmEffectConverter} 将音键转换成效果.
+ * 由于播放期间音频数据不会改变, 同一行的转换结果总是相同的,
+ * 因此可以在第一次播放该行时将转换结果编译成该类, 之后播放该行时直接将效果放入效果集即可,
+ * 不需要再创建效果实例.
+ * <p>该类是不可变的.
+ * </p>
+ * 
+ * @author Zdream
+ * @since v0.3.3
+ */
+public final class FtmEffectProgram {
+	
+	private static final IFtmEffect[] NO_EFFECT = new IFtmEffect[0];
+	
+	/**
+	 * 空行, 没有任何效果
+	 */
+	public static final FtmEffectProgram EMPTY = new FtmEffectProgram(NO_EFFECT, NO_EFFECT);
+	
+	/**
+	 * 无法编译的行的占位标记, 没有任何效果. 缓存编译结果时,
+	 * 用它来区分 "还没有编译" 与 "已经尝试编译但无法缓存"
+	 */
+	public static final FtmEffectProgram UNCACHEABLE = new FtmEffectProgram(NO_EFFECT, NO_EFFECT);
+	
+	/**
+	 * 轨道的效果
+	 */
+	private final IFtmEffect[] effects;
+	
+	/**
+	 * 全局范围的效果
+	 */
+	private final IFtmEffect[] geffects;
+	
+	private FtmEffectProgram(IFtmEffect[] effects, IFtmEffect[] geffects) {
+		this.effects = effects;
+		this.geffects = geffects;
+	}
+	
+	/**
+	 * 将音键编译成效果
+	 * @param converter
+	 *   效果转换器. 它的 {@link IFtmEffectConverter#isCacheable()} 需要返回 true
+	 * @param note
+	 *   音键实例, 可以为 null
+	 * @param channelType
+	 *   该音键所在的轨道的类型
+	 * @param querier
+	 *   查询器
+	 * @return
+	 *   编译后的效果. 如果转换出的效果含有状态 (比如延迟效果 Gxx), 无法重复使用, 则返回 null
+	 */
+	public static FtmEffectProgram compile(
+			IFtmEffectConverter converter,
+			FtmNote note,
+			byte channelType,
+			FamiTrackerQuerier querier) {
+		if (note == null) {
+			return EMPTY;
+		}
+		
+		Map<FtmEffectType, IFtmEffect> effects = new HashMap<>();
+		Map<FtmEffectType, IFtmEffect> geffects = new HashMap<>();
+		converter.convert(note, channelType, effects, geffects, querier);
+		
+		if (effects.containsKey(FtmEffectType.DELAY)) {
+			// 延迟效果带有计数状态, 每次播放都需要创建新的实例
+			return null;
+		}
+		if (effects.isEmpty() && geffects.isEmpty()) {
+			return EMPTY;
+		}
+		
+		return new FtmEffectProgram(
+				effects.values().toArray(NO_EFFECT),
+				geffects.values().toArray(NO_EFFECT));
+	}
+	
+	/**
+	 * 将效果放入效果集中, 与调用 {@link IFtmEffectConverter#convert(FtmNote, byte, Map, Map, FamiTrackerQuerier)}
+	 * 的结果相同
+	 * @param effects
+	 *   该轨道的效果集
+	 * @param geffects
+	 *   全局轨道的效果集
+	 */
+	public void applyTo(Map<FtmEffectType, IFtmEffect> effects, Map<FtmEffectType, IFtmEffect> geffects) {
+		for (int i = 0; i < this.effects.length; i++) {
+			IFtmEffect e = this.effects[i];
+			effects.put(e.type(), e);
+		}
+		for (int i = 0; i < this.geffects.length; i++) {
+			IFtmEffect e = this.geffects[i];
+			geffects.put(e.type(), e);
+		}
+	}
+	
+	/**
+	 * @return
+	 *   是否没有任何效果
+	 */
+	public boolean isEmpty() {
+		return effects.length == 0 && geffects.length == 0;
+	}
+
+}
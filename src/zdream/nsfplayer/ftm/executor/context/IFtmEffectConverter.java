@@ -40,5 +40,20 @@ public interface IFtmEffectConverter extends INsfChannelCode {
 			Map<FtmEffectType, IFtmEffect> effects,
 			Map<FtmEffectType, IFtmEffect> geffects,
 			FamiTrackerQuerier querier);
+	
+	/**
+	 * <p>转换结果是否可以缓存.
+	 * <p>如果返回 true, 说明对于同一个音频, 相同的音键与轨道类型总是转换出相同的效果,
+	 * 且这些效果是不可变的, 可以在多次播放同一行时重复使用.
+	 * 这时, 运行环境会将每一行的转换结果编译成 {@link FtmEffectProgram} 并缓存,
+	 * 之后再播放这一行时不再调用 {@link #convert(FtmNote, byte, Map, Map, FamiTrackerQuerier)}.
+	 * </p>
+	 * @return
+	 *   默认返回 false
+	 * @since v0.3.3
+	 */
+	public default boolean isCacheable() {
+		return false;
+	}
 
 }
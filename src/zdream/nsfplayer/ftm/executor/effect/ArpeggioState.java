@@ -40,7 +40,7 @@ public class ArpeggioState implements IFtmState {
 
 	@Override
 	public void trigger(byte channelCode, FamiTrackerRuntime runtime) {
-		AbstractFtmChannel ch = runtime.channels.get(channelCode);
+		AbstractFtmChannel ch = runtime.getChannel(channelCode);
 		
 		switch (period) {
 		case 1:
@@ -54,6 +54,16 @@ public class ArpeggioState implements IFtmState {
 		period = (period + 1) % 3;
 	}
 	
+	/**
+	 * @since v0.3.3
+	 */
+	@Override
+	public ArpeggioState copy() {
+		ArpeggioState s = new ArpeggioState(x, y);
+		s.period = period;
+		return s;
+	}
+	
 	@Override
 	public String toString() {
 		return NAME + ":" + x + "&" + y;
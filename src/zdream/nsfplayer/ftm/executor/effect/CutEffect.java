@@ -48,7 +48,7 @@ public class CutEffect implements IFtmEffect {
 
 	@Override
 	public void execute(byte channelCode, FamiTrackerRuntime runtime) {
-		AbstractFtmChannel ch = runtime.channels.get(channelCode);
+		AbstractFtmChannel ch = runtime.getChannel(channelCode);
 		
 		// 延迟静音效果在每个轨道只有一个
 		HashSet<IFtmState> set = ch.filterStates(DelayCutState.NAME);
@@ -52,7 +52,7 @@ public class DPCMRetriggerEffect implements IFtmEffect {
 					+ channelCode + " 轨道上触发.");
 		}
 		
-		ChannelDPCM ch = (ChannelDPCM) runtime.channels.get(channelCode);
+		ChannelDPCM ch = (ChannelDPCM) runtime.getChannel(channelCode);
 		ch.setRetrigger(duration);
 	}
 	
@@ -53,7 +53,7 @@ public class DPCMSampleOffsetEffect implements IFtmEffect {
 					+ channelCode + " 轨道上触发.");
 		}
 		
-		ChannelDPCM ch = (ChannelDPCM) runtime.channels.get(channelCode);
+		ChannelDPCM ch = (ChannelDPCM) runtime.getChannel(channelCode);
 		ch.setOffset(offset);
 	}
 	
@@ -51,7 +51,7 @@ public class DPCM_DACSettingEffect implements IFtmEffect {
 					+ channelCode + " 轨道上触发.");
 		}
 		
-		ChannelDPCM ch = (ChannelDPCM) runtime.channels.get(channelCode);
+		ChannelDPCM ch = (ChannelDPCM) runtime.getChannel(channelCode);
 		ch.setDeltaCounter(dac);
 	}
 	
@@ -47,10 +47,10 @@ public class DelayCutState implements IFtmState {
 
 	@Override
 	public void trigger(byte channelCode, FamiTrackerRuntime runtime) {
-		AbstractFtmChannel ch = runtime.channels.get(channelCode);
+		AbstractFtmChannel ch = runtime.getChannel(channelCode);
 
 		// 每当轨道中触发了静音效果 NoteHaltEffect, 该效果删除
-		Map<FtmEffectType, IFtmEffect> map = runtime.effects.get(channelCode);
+		Map<FtmEffectType, IFtmEffect> map = runtime.getEffects(channelCode);
 		if (map.get(FtmEffectType.HALT) != null) {
 			ch.removeState(this);
 			return;
@@ -70,6 +70,16 @@ public class DelayCutState implements IFtmState {
 		startFrame = false;
 	}
 	
+	/**
+	 * @since v0.3.3
+	 */
+	@Override
+	public DelayCutState copy() {
+		DelayCutState s = new DelayCutState(frames);
+		s.startFrame = startFrame;
+		return s;
+	}
+	
 	@Override
 	public String toString() {
 		return NAME + ":" + frames;
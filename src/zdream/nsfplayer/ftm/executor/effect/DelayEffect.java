@@ -64,7 +64,7 @@ public class DelayEffect implements IFtmEffect {
 	
 	@Override
 	public void execute(byte channelCode, FamiTrackerRuntime runtime) {
-		AbstractFtmChannel channel = runtime.channels.get(channelCode);
+		AbstractFtmChannel channel = runtime.getChannel(channelCode);
 		
 		// 如果该当前轨道有延迟状态, 则立即触发
 		HashSet<IFtmState> set = channel.filterStates(state.name());
@@ -116,7 +116,7 @@ public class DelayEffect implements IFtmEffect {
 
 		@Override
 		public void trigger(byte channelCode, FamiTrackerRuntime runtime) {
-			AbstractFtmChannel channel = runtime.channels.get(channelCode);
+			AbstractFtmChannel channel = runtime.getChannel(channelCode);
 			
 			if (delayCounter > 1) {
 				delayCounter --;
@@ -134,12 +134,21 @@ public class DelayEffect implements IFtmEffect {
 			return name() + delayCounter;
 		}
 		
+		/**
+		 * @return
+		 *   该状态所属的延迟效果
+		 * @since v0.3.3
+		 */
+		DelayEffect effect() {
+			return DelayEffect.this;
+		}
+		
 		/**
 		 * 现在立即将状态中的键触发掉, 并删除该状态
 		 * @since v0.2.5
 		 */
 		public void triggerNow(byte channelCode, FamiTrackerRuntime runtime) {
-			Map<FtmEffectType, IFtmEffect> map = runtime.effects.get(channelCode);
+			Map<FtmEffectType, IFtmEffect> map = runtime.getEffects(channelCode);
 			
 			ArrayList<IFtmEffect> list = new ArrayList<>(effects);
 			list.sort(null);
@@ -149,10 +158,21 @@ public class DelayEffect implements IFtmEffect {
 					map.put(eff.type(), eff);
 			}
 			
-			AbstractFtmChannel channel = runtime.channels.get(channelCode);
+			AbstractFtmChannel channel = runtime.getChannel(channelCode);
 			channel.removeState(this);
 		}
 		
+		/**
+		 * 复制时, 连同所属的延迟效果一起复制
+		 * @since v0.3.3
+		 */
+		@Override
+		public DelayState copy() {
+			DelayEffect e = copyEffect();
+			e.state.delayCounter = delayCounter;
+			return e.state;
+		}
+		
 		/**
 		 * 最低优先级
 		 */
@@ -166,7 +186,7 @@ public class DelayEffect implements IFtmEffect {
 		@Override
 		public void trigger(byte channelCode, FamiTrackerRuntime runtime) {
 			// 触发
-			Map<FtmEffectType, IFtmEffect> map = runtime.effects.get(channelCode);
+			Map<FtmEffectType, IFtmEffect> map = runtime.getEffects(channelCode);
 			
 			ArrayList<IFtmEffect> list = new ArrayList<>(effects);
 			list.sort(null);
@@ -177,6 +197,14 @@ public class DelayEffect implements IFtmEffect {
 			}
 		}
 		
+		/**
+		 * @since v0.3.3
+		 */
+		@Override
+		public DelaySchedule copy(Map<IFtmState, IFtmState> states) {
+			return copyEffect().schedule;
+		}
+	
 	}
 	
 	/**
@@ -189,9 +217,9 @@ public class DelayEffect implements IFtmEffect {
 
 		@Override
 		public void trigger(byte channelCode, FamiTrackerRuntime runtime) {
-			Map<FtmEffectType, IFtmEffect> map = runtime.effects.get(channelCode);
+			Map<FtmEffectType, IFtmEffect> map = runtime.getEffects(channelCode);
 			if (!map.isEmpty()) {
-				AbstractFtmChannel channel = runtime.channels.get(channelCode);
+				AbstractFtmChannel channel = runtime.getChannel(channelCode);
 				
 				// 准备触发
 				channel.forceEffect(effects);
@@ -201,12 +229,36 @@ public class DelayEffect implements IFtmEffect {
 			}
 		}
 		
+		/**
+		 * 复制的任务需要删除的是复制后的延迟状态
+		 * @since v0.3.3
+		 */
+		@Override
+		public DelayTraceSchedule copy(Map<IFtmState, IFtmState> states) {
+			IFtmState s = states.get(state);
+			if (s instanceof DelayState) {
+				return ((DelayState) s).effect().tracer;
+			}
+			return copyEffect().tracer;
+		}
+	
 	}
 	
 	DelayState state;
 	DelaySchedule schedule;
 	DelayTraceSchedule tracer;
 	
+	/**
+	 * 复制一个新的延迟效果, 延迟触发的效果集合与原效果共用.
+	 * 复制的效果中, 状态的延迟计数器为初始值
+	 * @since v0.3.3
+	 */
+	private DelayEffect copyEffect() {
+		DelayEffect e = new DelayEffect(duration);
+		e.effects = effects;
+		return e;
+	}
+	
 	/**
 	 * 最高优先级
 	 */
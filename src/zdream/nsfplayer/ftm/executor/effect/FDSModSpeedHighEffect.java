@@ -47,7 +47,7 @@ public class FDSModSpeedHighEffect implements IFtmEffect {
 					+ channelCode + " 轨道上触发.");
 		}
 		
-		ChannelFDS ch = (ChannelFDS) runtime.channels.get(channelCode);
+		ChannelFDS ch = (ChannelFDS) runtime.getChannel(channelCode);
 		ch.setModFreqHigh(freq);
 	}
 	
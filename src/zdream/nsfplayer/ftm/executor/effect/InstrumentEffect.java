@@ -38,7 +38,7 @@ public class InstrumentEffect implements IFtmEffect {
 	
 	@Override
 	public void execute(byte channelCode, FamiTrackerRuntime runtime) {
-		runtime.channels.get(channelCode).setInstrument(inst);
+		runtime.getChannel(channelCode).setInstrument(inst);
 	}
 	
 	@Override
@@ -43,7 +43,7 @@ public class NoiseEffect implements IFtmEffect {
 	
 	@Override
 	public void execute(byte channelCode, FamiTrackerRuntime runtime) {
-		AbstractFtmChannel ch = runtime.channels.get(channelCode);
+		AbstractFtmChannel ch = runtime.getChannel(channelCode);
 		
 		ch.setMasterNote(noise);
 		ch.turnOn();
@@ -27,7 +27,7 @@ public class NoteHaltEffect implements IFtmEffect {
 	
 	@Override
 	public void execute(byte channelCode, FamiTrackerRuntime runtime) {
-		runtime.channels.get(channelCode).doHalt();
+		runtime.getChannel(channelCode).doHalt();
 	}
 	
 	@Override
@@ -27,7 +27,7 @@ public class NoteReleaseEffect implements IFtmEffect {
 	
 	@Override
 	public void execute(byte channelCode, FamiTrackerRuntime runtime) {
-		runtime.channels.get(channelCode).doRelease();
+		runtime.getChannel(channelCode).doRelease();
 	}
 	
 	@Override
@@ -81,7 +81,7 @@ public class NoteSlideEffect implements IFtmEffect {
 
 	@Override
 	public void execute(byte channelCode, FamiTrackerRuntime runtime) {
-		AbstractFtmChannel ch = runtime.channels.get(channelCode);
+		AbstractFtmChannel ch = runtime.getChannel(channelCode);
 		int snode = ch.getMasterNote();
 		int dnode = snode + this.delta;
 		
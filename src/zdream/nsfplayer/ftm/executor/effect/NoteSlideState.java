@@ -58,7 +58,7 @@ public class NoteSlideState implements IFtmState {
 
 	@Override
 	public void trigger(byte channelCode, FamiTrackerRuntime runtime) {
-		AbstractFtmChannel ch = runtime.channels.get(channelCode);
+		AbstractFtmChannel ch = runtime.getChannel(channelCode);
 		
 		// 如果该帧的主音键发生变化, 且不是首帧
 		if (!startFrame && ch.isNoteUpdated()) {
@@ -89,6 +89,16 @@ public class NoteSlideState implements IFtmState {
 		startFrame = false;
 	}
 	
+	/**
+	 * @since v0.3.3
+	 */
+	@Override
+	public NoteSlideState copy() {
+		NoteSlideState s = new NoteSlideState(speed, delta);
+		s.startFrame = startFrame;
+		return s;
+	}
+	
 	@Override
 	public String toString() {
 		return NAME + ":" + speed;
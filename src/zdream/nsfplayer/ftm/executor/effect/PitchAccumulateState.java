@@ -52,10 +52,10 @@ public class PitchAccumulateState implements IFtmState {
 
 	@Override
 	public void trigger(byte channelCode, FamiTrackerRuntime runtime) {
-		AbstractFtmChannel ch = runtime.channels.get(channelCode);
+		AbstractFtmChannel ch = runtime.getChannel(channelCode);
 		
 		// 每当轨道中触发了修改音调、音阶的效果 NoteEffect / NoiseEffect, 累积量清零
-		if (runtime.effects.get(channelCode).get(FtmEffectType.NOTE) != null) {
+		if (runtime.getEffects(channelCode).get(FtmEffectType.NOTE) != null) {
 			resetAccumulation();
 		}
 		
@@ -82,6 +82,16 @@ public class PitchAccumulateState implements IFtmState {
 		accum = 0;
 	}
 	
+	/**
+	 * @since v0.3.3
+	 */
+	@Override
+	public PitchAccumulateState copy() {
+		PitchAccumulateState s = new PitchAccumulateState(delta);
+		s.accum = accum;
+		return s;
+	}
+	
 	@Override
 	public String toString() {
 		return NAME + ":" + delta;
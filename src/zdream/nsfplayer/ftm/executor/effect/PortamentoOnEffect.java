@@ -49,7 +49,7 @@ public class PortamentoOnEffect implements IFtmEffect {
 
 	@Override
 	public void execute(byte channelCode, FamiTrackerRuntime runtime) {
-		AbstractFtmChannel ch = runtime.channels.get(channelCode);
+		AbstractFtmChannel ch = runtime.getChannel(channelCode);
 		
 		/*
 		 * 这里要保证一个轨道最多只有一个 NoteSlideState 的实例
@@ -63,7 +63,7 @@ public class PortamentoOnEffect implements IFtmEffect {
 			
 			if (s instanceof PortamentoOnState) {
 				// 如果当前帧, Note 直接修改了, 
-				if (runtime.effects.get(channelCode).containsKey(FtmEffectType.NOTE) && speed == 0) {
+				if (runtime.getEffects(channelCode).containsKey(FtmEffectType.NOTE) && speed == 0) {
 					ch.removeState(s);
 				} else {
 					// 直接修改 speed 即可, 无论 speed 是否等于 0
@@ -28,7 +28,7 @@ public class PortamentoOnState extends NoteSlideState {
 	
 	@Override
 	public void trigger(byte channelCode, FamiTrackerRuntime runtime) {
-		AbstractFtmChannel ch = runtime.channels.get(channelCode);
+		AbstractFtmChannel ch = runtime.getChannel(channelCode);
 		
 		int masterNote = ch.getMasterNote();
 		if (masterNote != baseNote) {
@@ -66,6 +66,14 @@ public class PortamentoOnState extends NoteSlideState {
 		ch.addCurrentPeriod(delta);
 	}
 	
+	/**
+	 * @since v0.3.3
+	 */
+	@Override
+	public PortamentoOnState copy() {
+		return new PortamentoOnState(speed, delta, baseNote);
+	}
+	
 	@Override
 	public int priority() {
 		return 5;
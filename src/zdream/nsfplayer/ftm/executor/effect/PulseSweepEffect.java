@@ -75,7 +75,7 @@ public class PulseSweepEffect implements IFtmEffect {
 					+ channelCode + " 轨道上触发.");
 		}
 		
-		Channel2A03Pulse ch = (Channel2A03Pulse) runtime.channels.get(channelCode);
+		Channel2A03Pulse ch = (Channel2A03Pulse) runtime.getChannel(channelCode);
 		ch.setSweep(period, mode, shift);
 		
 		// 守护状态
@@ -27,7 +27,7 @@ public class PulseSweepState implements IFtmState {
 
 	@Override
 	public void trigger(byte channelCode, FamiTrackerRuntime runtime) {
-		Channel2A03Pulse ch = (Channel2A03Pulse) runtime.channels.get(channelCode);
+		Channel2A03Pulse ch = (Channel2A03Pulse) runtime.getChannel(channelCode);
 		
 		if (ch.isNoteUpdated()) {
 			ch.clearSweep();
@@ -37,6 +37,14 @@ public class PulseSweepState implements IFtmState {
 		}
 	}
 	
+	/**
+	 * @since v0.3.3
+	 */
+	@Override
+	public PulseSweepState copy() {
+		return new PulseSweepState();
+	}
+	
 	/**
 	 * 低优先度. 需要绝大部分主音键 {@link AbstractFtmChannel#setMasterNote(int)} 的调用完后再触发
 	 */
@@ -48,7 +48,17 @@ public class TremoloState implements IFtmState {
 		int x = phase >> 1; // [0, 31]
 		
 		int delta = VibratoTable.vibratoValue(depth, x) << 3;
-		runtime.channels.get(channelCode).addCurrentVolume(-delta); // 影响是, 音量一定不大于原值
+		runtime.getChannel(channelCode).addCurrentVolume(-delta); // 影响是, 音量一定不大于原值
+	}
+	
+	/**
+	 * @since v0.3.3
+	 */
+	@Override
+	public TremoloState copy() {
+		TremoloState s = new TremoloState(speed, depth);
+		s.phase = phase;
+		return s;
 	}
 	
 	@Override
@@ -47,7 +47,7 @@ public class VRC7VolumeSlideEffect extends VolumeSlideEffect {
 			throw new IllegalStateException("修改 VRC7 音量随时间变化的效果只能在 VRC7 轨道上触发, 无法在 "
 					+ channelCode + " 轨道上触发.");
 		}
-		AbstractFtmChannel ch = runtime.channels.get(channelCode);
+		AbstractFtmChannel ch = runtime.getChannel(channelCode);
 		
 		/*
 		 * 这里要保证一个轨道最多只有一个随时间变化修改音量的状态
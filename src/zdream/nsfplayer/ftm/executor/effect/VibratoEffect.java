@@ -68,7 +68,7 @@ public class VibratoEffect implements IFtmEffect {
 
 	@Override
 	public void execute(byte channelCode, FamiTrackerRuntime runtime) {
-		AbstractFtmChannel ch = runtime.channels.get(channelCode);
+		AbstractFtmChannel ch = runtime.getChannel(channelCode);
 		
 		if (isClose()) {
 			ch.removeStates(VibratoState.NAME);
@@ -47,7 +47,17 @@ public class VibratoState implements IFtmState {
 		phase = (phase + speed) & 63;
 		
 		int delta = VibratoTable.vibratoValue(depth, phase);
-		runtime.channels.get(channelCode).addCurrentPeriod(delta);
+		runtime.getChannel(channelCode).addCurrentPeriod(delta);
+	}
+	
+	/**
+	 * @since v0.3.3
+	 */
+	@Override
+	public VibratoState copy() {
+		VibratoState s = new VibratoState(speed, depth);
+		s.phase = phase;
+		return s;
 	}
 	
 	@Override
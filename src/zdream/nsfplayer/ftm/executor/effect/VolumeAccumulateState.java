@@ -49,11 +49,11 @@ public class VolumeAccumulateState implements IFtmState {
 	@Override
 	public void trigger(byte channelCode, FamiTrackerRuntime runtime) {
 		if (delta == 0 && accum == 0) {
-			runtime.channels.get(channelCode).removeState(this);
+			runtime.getChannel(channelCode).removeState(this);
 			return;
 		}
 		
-		runtime.channels.get(channelCode).addCurrentVolume(accum);
+		runtime.getChannel(channelCode).addCurrentVolume(accum);
 		
 		accum += delta;
 	}
@@ -65,6 +65,16 @@ public class VolumeAccumulateState implements IFtmState {
 		accum = 0;
 	}
 	
+	/**
+	 * @since v0.3.3
+	 */
+	@Override
+	public VolumeAccumulateState copy() {
+		VolumeAccumulateState s = new VolumeAccumulateState(delta);
+		s.accum = accum;
+		return s;
+	}
+	
 	@Override
 	public String toString() {
 		return NAME + ":" + delta;
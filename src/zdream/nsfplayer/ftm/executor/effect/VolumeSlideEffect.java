@@ -73,7 +73,7 @@ public class VolumeSlideEffect implements IFtmEffect {
 	
 	@Override
 	public void execute(byte channelCode, FamiTrackerRuntime runtime) {
-		AbstractFtmChannel ch = runtime.channels.get(channelCode);
+		AbstractFtmChannel ch = runtime.getChannel(channelCode);
 		
 		/*
 		 * 这里要保证一个轨道最多只有一个随时间变化修改音量的状态
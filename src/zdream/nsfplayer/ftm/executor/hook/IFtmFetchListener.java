@@ -18,10 +18,15 @@ public interface IFtmFetchListener {
 	/**
 	 * 当执行构件获取新的 {@link FtmNote} 或者没获取到 Note 时调用.
 	 * @param note
-	 *   FTM 音键
+	 *   FTM 音键. 没有音键时为 null.
+	 *   这是模式中音键的副本, 可以直接修改; 但该实例会被执行构件重复使用,
+	 *   需要在调用之后保留时, 请使用 {@link FtmNote#clone()}
 	 * @param channelCode
 	 *   所在的轨道
 	 * @param handler
+	 *   执行构件的控制杆, 每次调用都是同一个实例
+	 * @return
+	 *   修改后的音键, 交给下一个监听器以及效果转换器
 	 */
 	public FtmNote onFetch(
 			FtmNote note,
@@ -74,32 +74,73 @@ public class FtmRowFetcher {
 		setupSpeed();
 	}
 	
+	/**
+	 * @return
+	 *   正在播放的速度值
+	 * @since v0.3.3
+	 */
+	public int getSpeed() {
+		return speed;
+	}
+	
+	/**
+	 * @return
+	 *   正在播放的节奏值
+	 * @since v0.3.3
+	 */
+	public int getTempo() {
+		return tempo;
+	}
+	
+	/**
+	 * @return
+	 *   节奏的累加器的值. 它与速度值、节奏值一起决定之后每一行持续的帧数
+	 * @since v0.3.3
+	 */
+	public int getTempoAccum() {
+		return tempoAccum;
+	}
+	
 	/**
 	 * @return
 	 *   获取下一次播放位置移动之后的行号
+	 * @version v0.3.3
+	 *   <br>修正: 与 {@link #confirmJump()} 的规则保持一致.
+	 *   只有跳段效果时返回 0, 有跳行效果时返回跳到的行号
 	 * @since v0.2.9
 	 */
 	public int getNextRow() {
-		if (skipRow == -1) {
-			return nextRow;
-		} else if (jumpSection == -1) {
+		if (skipRow >= 0) {
+			return skipRow;
+		} else if (jumpSection >= 0) {
 			return 0;
 		}
 		
-		return skipRow;
+		return nextRow;
 	}
 	
 	/**
 	 * @return
 	 *   获取下一次播放位置移动之后的段号
+	 * @version v0.3.3
+	 *   <br>修正: 与 {@link #confirmJump()} 的规则保持一致.
+	 *   只有跳行效果时返回下一段的段号, 超出范围的段号视为第 0 段
 	 * @since v0.2.9
 	 */
 	public int getNextSection() {
-		if (jumpSection == -1) {
-			return nextSection;
+		int section;
+		if (jumpSection >= 0) {
+			section = jumpSection;
+		} else if (skipRow >= 0) {
+			section = param.curSection + 1;
+		} else {
+			section = nextSection;
 		}
 		
-		return jumpSection;
+		if (section >= querier.trackCount(param.trackIdx)) {
+			section = 0;
+		}
+		return section;
 	}
 	
 	/* **********
@@ -209,6 +250,27 @@ public class FtmRowFetcher {
 		this.param = param;
 	}
 	
+	/**
+	 * <p>将另一个工具的播放参数、跳转参数、状态参数复制过来, 用于保存和恢复执行构件的快照.
+	 * <p>查询器、播放位置 (段号、行号) 与修改的帧率不复制.
+	 * </p>
+	 * @param other
+	 *   复制的来源
+	 * @since v0.3.3
+	 */
+	public void copyFrom(FtmRowFetcher other) {
+		tempo = other.tempo;
+		speed = other.speed;
+		nextRow = other.nextRow;
+		nextSection = other.nextSection;
+		jumpSection = other.jumpSection;
+		skipRow = other.skipRow;
+		tempoAccum = other.tempoAccum;
+		tempoRemainder = other.tempoRemainder;
+		tempoDecrement = other.tempoDecrement;
+		updateRow = other.updateRow;
+	}
+	
 	public void ready(FamiTrackerQuerier querier, int track, int section, int row) {
 		this.querier = querier;
 		this.frameRate = querier.getFrameRate();
@@ -45,4 +45,23 @@ class Block extends BytesReader {
 		this.size = size;
 		bs = new byte[size];
 	}
+	
+	/**
+	 * 创建一个与该块共享数据的块. 两个块的读取位置互不影响,
+	 * 可以交给不同的线程同时读取
+	 * @param offset
+	 *   新块的读取位置
+	 * @return
+	 * @since v0.3.3
+	 */
+	Block duplicate(int offset) {
+		Block b = new Block();
+		b.id = id;
+		b.version = version;
+		b.size = size;
+		b.blockOffset = blockOffset;
+		b.bs = bs;
+		b.offset = offset;
+		return b;
+	}
 }
\ No newline at end of file
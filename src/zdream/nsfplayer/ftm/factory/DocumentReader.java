@@ -1,12 +1,18 @@
 package zdream.nsfplayer.ftm.factory;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 
-import zdream.utils.common.BytesReader;
+import zdream.utils.common.ByteBufferReader;
+import zdream.utils.common.FileUtils;
 
-public class DocumentReader extends BytesReader {
+/**
+ * <p>FTM 文件读取器.
+ * <p>从 v0.3.3 开始, 文件以只读方式映射到内存中 (见 {@link FileUtils#mapFile(String)}),
+ * 不再将整个文件复制到 byte 数组中.
+ * </p>
+ */
+public class DocumentReader extends ByteBufferReader {
 	
 	public DocumentReader(String fileName) {
 		file = new File(fileName);
@@ -15,27 +21,16 @@ public class DocumentReader extends BytesReader {
 	File file;
 	
 	/**
-	 * 打开并创建文件, 将文件的所有数据以 byte 数组的方式读入.
-	 * @param fileName
+	 * 打开文件, 将文件映射到内存中.
 	 * @throws IOException
 	 */
 	public void open() throws IOException {
-		FileInputStream reader = new FileInputStream(file);
-		bs = new byte[(int) file.length()];
-		reader.read(bs);
-		offset = 0;
-		
-		reader.close();
+		setBuffer(FileUtils.mapFile(file.getPath()));
 	}
 	
 	@Override
 	public int length() {
 		return (int) file.length();
 	}
-	
-	@Override
-	public void set(byte[] bs) {
-		// do-nothing
-	}
 
 }
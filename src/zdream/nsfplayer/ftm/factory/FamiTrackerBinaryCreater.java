@@ -0,0 +1,467 @@
+package zdream.nsfplayer.ftm.factory;
+
+import static zdream.nsfplayer.ftm.format.FtmStatic.MAX_EFFECT_COLUMNS;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import zdream.nsfplayer.core.FtmChipType;
+import zdream.nsfplayer.core.NsfPlayerException;
+import zdream.nsfplayer.ftm.audio.FamiTrackerHandler;
+import zdream.nsfplayer.ftm.audio.FtmAudio;
+import zdream.nsfplayer.ftm.format.AbstractFtmInstrument;
+import zdream.nsfplayer.ftm.format.FtmDPCMSample;
+import zdream.nsfplayer.ftm.format.FtmInstrument2A03;
+import zdream.nsfplayer.ftm.format.FtmInstrumentFDS;
+import zdream.nsfplayer.ftm.format.FtmInstrumentN163;
+import zdream.nsfplayer.ftm.format.FtmInstrumentVRC6;
+import zdream.nsfplayer.ftm.format.FtmInstrumentVRC7;
+import zdream.nsfplayer.ftm.format.FtmNote;
+import zdream.nsfplayer.ftm.format.FtmPattern;
+import zdream.nsfplayer.ftm.format.FtmSequence;
+import zdream.nsfplayer.ftm.format.FtmSequenceType;
+import zdream.nsfplayer.ftm.format.FtmTrack;
+
+/**
+ * <p>读取由 {@link FamiTrackerBinaryWriter} 写出的预解析二进制格式, 填充 {@link FtmAudio} 的数据.
+ * <p>二进制格式保存的是已经检查、修正过的数据, 读取时不需要再检查,
+ * 模式数据直接按列读入压缩的 {@link FtmPattern}. 数据可以来自映射到内存中的文件.
+ * <p>格式 (数值均为高位在前):
+ * <li>文件头标识 {@link #FILE_HEADER_ID}, 格式版本号 {@link #FORMAT_VERSION}
+ * <li>参数: 标题、作者、版权、制式、刷新率、扩展芯片码、N163 轨道数、震动模式、节奏与速度的分割值
+ * <li>DPCM 采样
+ * <li>2A03、VRC6、N163 的序列
+ * <li>乐器
+ * <li>曲目: 段长、速度、节奏值、名称、段序列、模式.
+ * 压缩的模式只保存有数据的行, 无法压缩的模式逐个键保存
+ * </li>
+ * <p>字符串与数组以长度开头, 长度为 -1 表示 null. 格式有变化时需要修改格式版本号,
+ * 旧版本的数据将无法读取.
+ * </p>
+ * 
+ * @author Zdream
+ * @since v0.3.3
+ */
+public class FamiTrackerBinaryCreater extends AbstractFamiTrackerCreater<ByteBuffer> {
+	
+	/**
+	 * 文件头标识
+	 */
+	public static final String FILE_HEADER_ID = "FTMCACHE";
+	
+	/**
+	 * 格式版本号. 读取时版本号必须完全相同
+	 */
+	public static final int FORMAT_VERSION = 1;
+	
+	/**
+	 * 保存序列的芯片, 按顺序写出
+	 */
+	static final FtmChipType[] SEQUENCE_CHIPS = {FtmChipType._2A03, FtmChipType.VRC6, FtmChipType.N163};
+	
+	/*
+	 * 模式的存储方式
+	 */
+	static final byte
+			PATTERN_NULL = 0,
+			PATTERN_PACKED = 1,
+			PATTERN_PACKED_EFFECTS = 2,
+			PATTERN_NOTES = 3;
+	
+	/**
+	 * 压缩的模式中, 没有数据的行的值. 见 {@link FtmPattern#packedHeads()}
+	 */
+	static final int PACKED_ABSENT = -1;
+	
+	/**
+	 * 读取过程中的 DPCM 采样, 用于乐器引用
+	 */
+	private FtmDPCMSample[] samples;
+	
+	/**
+	 * 从 reader 的 position 开始读取. 读取不会修改 reader 的 position
+	 */
+	@Override
+	public void doCreate(ByteBuffer reader, FamiTrackerHandler doc) throws FamiTrackerFormatException {
+		ByteBuffer buf = reader.duplicate();
+		buf.order(ByteOrder.BIG_ENDIAN);
+		
+		try {
+			validateHeader(buf);
+			readParams(buf, doc);
+			readSamples(buf, doc);
+			readSequences(buf, doc);
+			readInstruments(buf, doc);
+			readTracks(buf, doc);
+		} catch (FamiTrackerFormatException e) {
+			throw e;
+		} catch (BufferUnderflowException | IndexOutOfBoundsException | NsfPlayerException e) {
+			handleException(buf, "数据不完整或已经损坏: " + e);
+		} finally {
+			samples = null;
+		}
+	}
+	
+	private void validateHeader(ByteBuffer buf) {
+		byte[] id = FILE_HEADER_ID.getBytes(StandardCharsets.US_ASCII);
+		if (buf.remaining() < id.length + 4) {
+			handleException(buf, "文件头标识有误");
+		}
+		for (int i = 0; i < id.length; i++) {
+			if (buf.get() != id[i]) {
+				handleException(buf, "文件头标识有误");
+			}
+		}
+		
+		int version = buf.getInt();
+		if (version != FORMAT_VERSION) {
+			handleException(buf, "格式版本号 " + version + " 与当前版本号 " + FORMAT_VERSION + " 不同");
+		}
+	}
+	
+	/* **********
+	 *   参数   *
+	 ********** */
+	
+	private void readParams(ByteBuffer buf, FamiTrackerHandler doc) {
+		FtmAudio audio = doc.audio;
+		audio.title = readString(buf);
+		audio.author = readString(buf);
+		audio.copyright = readString(buf);
+		
+		doc.setMechine(buf.get());
+		doc.setFramerate(buf.getInt());
+		doc.setChip(buf.get());
+		doc.setNamcoChannels(buf.get());
+		doc.setVibrato(buf.get());
+		doc.setSplit(buf.getInt());
+	}
+	
+	/* **********
+	 * DPCM 采样 *
+	 ********** */
+	
+	private void readSamples(ByteBuffer buf, FamiTrackerHandler doc) {
+		final int count = readLength(buf, 1);
+		samples = new FtmDPCMSample[count];
+		
+		for (int i = 0; i < count; i++) {
+			if (buf.get() == 0) {
+				continue;
+			}
+			FtmDPCMSample sample = doc.getOrCreateDPCMSample(i);
+			sample.name = readString(buf);
+			sample.data = readBytes(buf);
+			samples[i] = sample;
+		}
+	}
+	
+	/* **********
+	 *   序列   *
+	 ********** */
+	
+	private void readSequences(ByteBuffer buf, FamiTrackerHandler doc) {
+		for (FtmChipType chip : SEQUENCE_CHIPS) {
+			for (FtmSequenceType type : FtmSequenceType.values()) {
+				final int count = readLength(buf, 1);
+				for (int i = 0; i < count; i++) {
+					FtmSequence src = readSequence(buf);
+					if (src == null) {
+						continue;
+					}
+					if (src.type != type) {
+						handleException(buf, "序列类型 " + src.type + " 与 " + type + " 不同");
+					}
+					
+					FtmSequence seq = doc.getOrCreateSequence(chip, type, i);
+					seq.loopPoint = src.loopPoint;
+					seq.releasePoint = src.releasePoint;
+					seq.settings = src.settings;
+					seq.data = src.data;
+				}
+			}
+		}
+	}
+	
+	private FtmSequence readSequence(ByteBuffer buf) {
+		int type = buf.get();
+		if (type < 0) {
+			return null;
+		}
+		
+		FtmSequence seq = new FtmSequence(FtmSequenceType.values()[type]);
+		seq.loopPoint = buf.getInt();
+		seq.releasePoint = buf.getInt();
+		seq.settings = buf.get();
+		seq.data = readBytes(buf);
+		return seq;
+	}
+	
+	/* **********
+	 *   乐器   *
+	 ********** */
+	
+	private void readInstruments(ByteBuffer buf, FamiTrackerHandler doc) {
+		final int count = readLength(buf, 1);
+		
+		for (int i = 0; i < count; i++) {
+			int type = buf.get();
+			if (type < 0) {
+				continue;
+			}
+			
+			AbstractFtmInstrument inst;
+			switch (FtmChipType.get(type)) {
+			case _2A03: {
+				FtmInstrument2A03 ins = new FtmInstrument2A03();
+				ins.name = readString(buf);
+				ins.vol = buf.getInt();
+				ins.arp = buf.getInt();
+				ins.pit = buf.getInt();
+				ins.hip = buf.getInt();
+				ins.dut = buf.getInt();
+				for (int octave = 0; octave < ins.samples.length; octave++) {
+					for (int key = 0; key < ins.samples[octave].length; key++) {
+						int index = buf.getInt();
+						FtmDPCMSample sample = (index < 0) ? null : samples[index];
+						ins.setSample(octave, key, sample, buf.get(), buf.get());
+					}
+				}
+				inst = ins;
+			} break;
+			
+			case VRC6: {
+				FtmInstrumentVRC6 ins = new FtmInstrumentVRC6();
+				ins.name = readString(buf);
+				ins.vol = buf.getInt();
+				ins.arp = buf.getInt();
+				ins.pit = buf.getInt();
+				ins.hip = buf.getInt();
+				ins.dut = buf.getInt();
+				inst = ins;
+			} break;
+			
+			case VRC7: {
+				FtmInstrumentVRC7 ins = new FtmInstrumentVRC7();
+				ins.name = readString(buf);
+				ins.patchNum = buf.getInt();
+				for (int j = 0; j < ins.regs.length; j++) {
+					ins.regs[j] = buf.getShort();
+				}
+				inst = ins;
+			} break;
+			
+			case FDS: {
+				FtmInstrumentFDS ins = new FtmInstrumentFDS();
+				ins.name = readString(buf);
+				buf.get(ins.samples);
+				buf.get(ins.modulation);
+				ins.modulationSpeed = buf.getInt();
+				ins.modulationDepth = buf.getInt();
+				ins.modulationDelay = buf.getInt();
+				ins.seqVolume = readSequence(buf);
+				ins.seqArpeggio = readSequence(buf);
+				ins.seqPitch = readSequence(buf);
+				inst = ins;
+			} break;
+			
+			case N163: {
+				FtmInstrumentN163 ins = new FtmInstrumentN163();
+				ins.name = readString(buf);
+				ins.vol = buf.getInt();
+				ins.arp = buf.getInt();
+				ins.pit = buf.getInt();
+				ins.hip = buf.getInt();
+				ins.dut = buf.getInt();
+				ins.wavePos = buf.getInt();
+				int waveCount = buf.getInt();
+				if (waveCount >= 0) {
+					ins.waves = new byte[checkLength(buf, waveCount, 4)][];
+					for (int j = 0; j < waveCount; j++) {
+						ins.waves[j] = readBytes(buf);
+					}
+				}
+				inst = ins;
+			} break;
+			
+			default:
+				handleException(buf, "无法识别的乐器类型: " + type);
+				return;
+			}
+			
+			inst.seq = i;
+			doc.registerInstrument(inst);
+		}
+	}
+	
+	/* **********
+	 *   曲目   *
+	 ********** */
+	
+	private void readTracks(ByteBuffer buf, FamiTrackerHandler doc) {
+		final int count = readLength(buf, 1);
+		doc.allocateTrack(count);
+		
+		for (int i = 0; i < count; i++) {
+			FtmTrack track = doc.audio.getTrack(i);
+			track.length = buf.getInt();
+			track.speed = buf.getInt();
+			track.tempo = buf.getInt();
+			track.name = readString(buf);
+			
+			int orderCount = buf.getInt();
+			if (orderCount >= 0) {
+				track.orders = new int[checkLength(buf, orderCount, 4)][];
+				for (int j = 0; j < orderCount; j++) {
+					track.orders[j] = readInts(buf);
+				}
+			}
+			
+			int patternCount = buf.getInt();
+			if (patternCount < 0) {
+				continue;
+			}
+			FtmPattern[][] patterns = new FtmPattern[checkLength(buf, patternCount, 4)][];
+			for (int j = 0; j < patternCount; j++) {
+				int channelCount = buf.getInt();
+				if (channelCount < 0) {
+					continue;
+				}
+				FtmPattern[] ps = patterns[j] = new FtmPattern[checkLength(buf, channelCount, 1)];
+				for (int k = 0; k < channelCount; k++) {
+					ps[k] = readPattern(buf);
+				}
+			}
+			track.patterns = patterns;
+		}
+	}
+	
+	private FtmPattern readPattern(ByteBuffer buf) {
+		byte form = buf.get();
+		switch (form) {
+		case PATTERN_NULL:
+			return null;
+		
+		case PATTERN_PACKED:
+		case PATTERN_PACKED_EFFECTS: {
+			int length = buf.getInt();
+			if (length < 0 || length > 0xFFFF) {
+				handleException(buf, "段长 " + length + " 超出范围");
+			}
+			int count = readLength(buf, 6);
+			if (count > length) {
+				handleException(buf, "有数据的行数 " + count + " 超过了段长 " + length);
+			}
+			
+			int[] heads = new int[length];
+			Arrays.fill(heads, PACKED_ABSENT);
+			long[] effects = (form == PATTERN_PACKED) ? null : new long[length];
+			for (int i = 0; i < count; i++) {
+				int row = buf.getShort() & 0xFFFF;
+				heads[row] = buf.getInt();
+				if (effects != null) {
+					effects[row] = buf.getLong();
+				}
+			}
+			return FtmPattern.ofPacked(heads, effects);
+		}
+		
+		case PATTERN_NOTES: {
+			FtmPattern p = new FtmPattern();
+			int length = buf.getInt();
+			if (length < 0) {
+				return p;
+			}
+			FtmNote[] notes = new FtmNote[checkLength(buf, length, 1)];
+			p.setNotes(notes);
+			for (int row = 0; row < length; row++) {
+				if (buf.get() == 0) {
+					continue;
+				}
+				FtmNote n = notes[row] = new FtmNote();
+				n.note = buf.get();
+				n.octave = buf.get();
+				n.vol = buf.get();
+				n.instrument = buf.getInt();
+				for (int i = 0; i < MAX_EFFECT_COLUMNS; i++) {
+					n.effNumber[i] = buf.get();
+					n.effParam[i] = buf.getShort();
+				}
+			}
+			return p;
+		}
+		
+		default:
+			handleException(buf, "无法识别的模式存储方式: " + form);
+			return null;
+		}
+	}
+	
+	/* **********
+	 *   工具   *
+	 ********** */
+	
+	/**
+	 * 读取数组长度, 不能为负数
+	 * @param unit
+	 *   每个元素至少占的字节数
+	 */
+	private int readLength(ByteBuffer buf, int unit) {
+		int length = buf.getInt();
+		if (length < 0) {
+			handleException(buf, "长度 " + length + " 不能为负数");
+		}
+		return checkLength(buf, length, unit);
+	}
+	
+	/**
+	 * 检查数组长度是否超出剩余的数据, 防止损坏的数据导致创建过大的数组
+	 * @param unit
+	 *   每个元素至少占的字节数
+	 */
+	private int checkLength(ByteBuffer buf, int length, int unit) {
+		if ((long) length * unit > buf.remaining()) {
+			handleException(buf, "长度 " + length + " 超出了剩余的数据");
+		}
+		return length;
+	}
+	
+	private String readString(ByteBuffer buf) {
+		byte[] bs = readBytes(buf);
+		return (bs == null) ? null : new String(bs, StandardCharsets.UTF_8);
+	}
+	
+	private byte[] readBytes(ByteBuffer buf) {
+		int length = buf.getInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bs = new byte[checkLength(buf, length, 1)];
+		buf.get(bs);
+		return bs;
+	}
+	
+	private int[] readInts(ByteBuffer buf) {
+		int length = buf.getInt();
+		if (length < 0) {
+			return null;
+		}
+		int[] is = new int[checkLength(buf, length, 4)];
+		buf.asIntBuffer().get(is);
+		buf.position(buf.position() + is.length * 4);
+		return is;
+	}
+	
+	/* **********
+	 * 错误处理 *
+	 ********** */
+	
+	@Override
+	protected void handleException(ByteBuffer buf, String msg) throws FamiTrackerFormatException {
+		throw new FamiTrackerFormatException("二进制数据位置 " + buf.position() + ": " + msg);
+	}
+
+}
@@ -0,0 +1,391 @@
+package zdream.nsfplayer.ftm.factory;
+
+import static zdream.nsfplayer.ftm.factory.FamiTrackerBinaryCreater.*;
+import static zdream.nsfplayer.ftm.format.FtmStatic.MAX_EFFECT_COLUMNS;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.IdentityHashMap;
+
+import zdream.nsfplayer.core.FtmChipType;
+import zdream.nsfplayer.ftm.audio.FtmAudio;
+import zdream.nsfplayer.ftm.format.AbstractFtmInstrument;
+import zdream.nsfplayer.ftm.format.FtmDPCMSample;
+import zdream.nsfplayer.ftm.format.FtmInstrument2A03;
+import zdream.nsfplayer.ftm.format.FtmInstrumentFDS;
+import zdream.nsfplayer.ftm.format.FtmInstrumentN163;
+import zdream.nsfplayer.ftm.format.FtmInstrumentVRC6;
+import zdream.nsfplayer.ftm.format.FtmInstrumentVRC7;
+import zdream.nsfplayer.ftm.format.FtmNote;
+import zdream.nsfplayer.ftm.format.FtmPattern;
+import zdream.nsfplayer.ftm.format.FtmSequence;
+import zdream.nsfplayer.ftm.format.FtmSequenceType;
+import zdream.nsfplayer.ftm.format.FtmTrack;
+
+/**
+ * <p>将 {@link FtmAudio} 写成预解析的二进制格式.
+ * <p>写出的是已经检查、修正过的 {@link FtmAudio} 的全部数据: 参数、DPCM 采样、序列、乐器、
+ * 曲目与模式. 压缩的模式直接按列写出. 用 {@link FamiTrackerBinaryCreater} 读取.
+ * 格式见 {@link FamiTrackerBinaryCreater}.
+ * <p>延迟解析的曲目 (见 {@link FtmTrack#loadPatterns()}) 会在写出前解析.
+ * </p>
+ * 
+ * @author Zdream
+ * @since v0.3.3
+ */
+public class FamiTrackerBinaryWriter {
+	
+	/**
+	 * 将音频写成 byte 数组
+	 * @param audio
+	 *   音频
+	 * @return
+	 * @throws IllegalArgumentException
+	 *   音频含有该格式不支持的乐器时
+	 */
+	public byte[] toBytes(FtmAudio audio) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(16384);
+		try {
+			write(audio, out);
+		} catch (IOException e) {
+			// ByteArrayOutputStream 不会抛出 IOException
+			throw new IllegalStateException(e);
+		}
+		return out.toByteArray();
+	}
+	
+	/**
+	 * 将音频写到输出流中. 该方法不关闭输出流
+	 * @param audio
+	 *   音频
+	 * @param os
+	 *   输出流
+	 * @throws IOException
+	 * @throws IllegalArgumentException
+	 *   音频含有该格式不支持的乐器时
+	 */
+	public void write(FtmAudio audio, OutputStream os) throws IOException {
+		DataOutputStream out = new DataOutputStream(os);
+		
+		out.write(FILE_HEADER_ID.getBytes(StandardCharsets.US_ASCII));
+		out.writeInt(FORMAT_VERSION);
+		
+		writeParams(audio, out);
+		IdentityHashMap<FtmDPCMSample, Integer> sampleIndexes = writeSamples(audio, out);
+		writeSequences(audio, out);
+		writeInstruments(audio, out, sampleIndexes);
+		writeTracks(audio, out);
+		
+		out.flush();
+	}
+	
+	/* **********
+	 *   参数   *
+	 ********** */
+	
+	private void writeParams(FtmAudio audio, DataOutputStream out) throws IOException {
+		writeString(audio.title, out);
+		writeString(audio.author, out);
+		writeString(audio.copyright, out);
+		
+		out.writeByte(audio.getRegion().ordinal());
+		out.writeInt(audio.isDefaultFrameRate() ? 0 : audio.getFrameRate());
+		int chip = 0;
+		if (audio.isUseVcr6()) chip |= 1;
+		if (audio.isUseVcr7()) chip |= 2;
+		if (audio.isUseFds()) chip |= 4;
+		if (audio.isUseMmc5()) chip |= 8;
+		if (audio.isUseN163()) chip |= 16;
+		if (audio.isUseS5b()) chip |= 32;
+		out.writeByte(chip);
+		out.writeByte(audio.getNamcoChannels());
+		out.writeByte(audio.getVibrato());
+		out.writeInt(audio.getSplit());
+	}
+	
+	/* **********
+	 * DPCM 采样 *
+	 ********** */
+	
+	private IdentityHashMap<FtmDPCMSample, Integer> writeSamples(FtmAudio audio, DataOutputStream out)
+			throws IOException {
+		IdentityHashMap<FtmDPCMSample, Integer> indexes = new IdentityHashMap<>();
+		final int count = audio.dpcmSampleCount();
+		out.writeInt(count);
+		
+		for (int i = 0; i < count; i++) {
+			FtmDPCMSample sample = audio.getDPCMSample(i);
+			if (sample == null) {
+				out.writeBoolean(false);
+				continue;
+			}
+			out.writeBoolean(true);
+			indexes.put(sample, i);
+			writeString(sample.name, out);
+			writeBytes(sample.data, out);
+		}
+		return indexes;
+	}
+	
+	/* **********
+	 *   序列   *
+	 ********** */
+	
+	private void writeSequences(FtmAudio audio, DataOutputStream out) throws IOException {
+		for (FtmChipType chip : SEQUENCE_CHIPS) {
+			for (FtmSequenceType type : FtmSequenceType.values()) {
+				final int count = audio.sequenceCount(chip, type);
+				out.writeInt(count);
+				for (int i = 0; i < count; i++) {
+					writeSequence(audio.getSequence(chip, type, i), out);
+				}
+			}
+		}
+	}
+	
+	private void writeSequence(FtmSequence seq, DataOutputStream out) throws IOException {
+		if (seq == null) {
+			out.writeByte(-1);
+			return;
+		}
+		out.writeByte(seq.type.ordinal());
+		out.writeInt(seq.loopPoint);
+		out.writeInt(seq.releasePoint);
+		out.writeByte(seq.settings);
+		writeBytes(seq.data, out);
+	}
+	
+	/* **********
+	 *   乐器   *
+	 ********** */
+	
+	private void writeInstruments(FtmAudio audio, DataOutputStream out,
+			IdentityHashMap<FtmDPCMSample, Integer> sampleIndexes) throws IOException {
+		final int count = audio.instrumentCount();
+		out.writeInt(count);
+		
+		for (int i = 0; i < count; i++) {
+			AbstractFtmInstrument inst = audio.getInstrument(i);
+			if (inst == null) {
+				out.writeByte(-1);
+				continue;
+			}
+			
+			FtmChipType type = inst.instType();
+			out.writeByte(type.ordinal());
+			writeString(inst.name, out);
+			
+			switch (type) {
+			case _2A03: {
+				FtmInstrument2A03 ins = (FtmInstrument2A03) inst;
+				writeSequenceIndexes(ins.vol, ins.arp, ins.pit, ins.hip, ins.dut, out);
+				for (int octave = 0; octave < ins.samples.length; octave++) {
+					for (int key = 0; key < ins.samples[octave].length; key++) {
+						FtmDPCMSample sample = ins.samples[octave][key];
+						Integer index = (sample == null) ? null : sampleIndexes.get(sample);
+						if (sample != null && index == null) {
+							throw new IllegalArgumentException(
+									inst + " 使用的 DPCM 采样不在音频的采样列表中");
+						}
+						out.writeInt((index == null) ? -1 : index);
+						out.writeByte(ins.samplePitches[octave][key]);
+						out.writeByte(ins.sampleDeltas[octave][key]);
+					}
+				}
+			} break;
+			
+			case VRC6: {
+				FtmInstrumentVRC6 ins = (FtmInstrumentVRC6) inst;
+				writeSequenceIndexes(ins.vol, ins.arp, ins.pit, ins.hip, ins.dut, out);
+			} break;
+			
+			case VRC7: {
+				FtmInstrumentVRC7 ins = (FtmInstrumentVRC7) inst;
+				out.writeInt(ins.patchNum);
+				for (short reg : ins.regs) {
+					out.writeShort(reg);
+				}
+			} break;
+			
+			case FDS: {
+				FtmInstrumentFDS ins = (FtmInstrumentFDS) inst;
+				out.write(ins.samples);
+				out.write(ins.modulation);
+				out.writeInt(ins.modulationSpeed);
+				out.writeInt(ins.modulationDepth);
+				out.writeInt(ins.modulationDelay);
+				writeSequence(ins.seqVolume, out);
+				writeSequence(ins.seqArpeggio, out);
+				writeSequence(ins.seqPitch, out);
+			} break;
+			
+			case N163: {
+				FtmInstrumentN163 ins = (FtmInstrumentN163) inst;
+				writeSequenceIndexes(ins.vol, ins.arp, ins.pit, ins.hip, ins.dut, out);
+				out.writeInt(ins.wavePos);
+				if (ins.waves == null) {
+					out.writeInt(-1);
+				} else {
+					out.writeInt(ins.waves.length);
+					for (byte[] wave : ins.waves) {
+						writeBytes(wave, out);
+					}
+				}
+			} break;
+			
+			default:
+				throw new IllegalArgumentException("二进制格式不支持乐器: " + inst);
+			}
+		}
+	}
+	
+	private void writeSequenceIndexes(int vol, int arp, int pit, int hip, int dut, DataOutputStream out)
+			throws IOException {
+		out.writeInt(vol);
+		out.writeInt(arp);
+		out.writeInt(pit);
+		out.writeInt(hip);
+		out.writeInt(dut);
+	}
+	
+	/* **********
+	 *   曲目   *
+	 ********** */
+	
+	private void writeTracks(FtmAudio audio, DataOutputStream out) throws IOException {
+		final int count = audio.getTrackCount();
+		out.writeInt(count);
+		
+		for (int i = 0; i < count; i++) {
+			FtmTrack track = audio.getTrack(i);
+			FtmPattern[][] patterns = track.getPatterns();
+			
+			out.writeInt(track.length);
+			out.writeInt(track.speed);
+			out.writeInt(track.tempo);
+			writeString(track.name, out);
+			
+			if (track.orders == null) {
+				out.writeInt(-1);
+			} else {
+				out.writeInt(track.orders.length);
+				for (int[] order : track.orders) {
+					writeInts(order, out);
+				}
+			}
+			
+			if (patterns == null) {
+				out.writeInt(-1);
+				continue;
+			}
+			out.writeInt(patterns.length);
+			for (FtmPattern[] ps : patterns) {
+				if (ps == null) {
+					out.writeInt(-1);
+					continue;
+				}
+				out.writeInt(ps.length);
+				for (FtmPattern p : ps) {
+					writePattern(p, out);
+				}
+			}
+		}
+	}
+	
+	private void writePattern(FtmPattern p, DataOutputStream out) throws IOException {
+		if (p == null) {
+			out.writeByte(PATTERN_NULL);
+			return;
+		}
+		
+		if (p.isPacked() && p.length() <= 0xFFFF) {
+			// 只写出有数据的行: 行号、音符等数据、效果
+			int[] heads = p.packedHeads();
+			long[] effects = p.packedEffects();
+			int count = 0;
+			for (int head : heads) {
+				if (head != PACKED_ABSENT) {
+					count++;
+				}
+			}
+			
+			out.writeByte((effects == null) ? PATTERN_PACKED : PATTERN_PACKED_EFFECTS);
+			out.writeInt(heads.length);
+			out.writeInt(count);
+			for (int row = 0; row < heads.length; row++) {
+				if (heads[row] == PACKED_ABSENT) {
+					continue;
+				}
+				out.writeShort(row);
+				out.writeInt(heads[row]);
+				if (effects != null) {
+					out.writeLong(effects[row]);
+				}
+			}
+			return;
+		}
+		
+		// 无法压缩的模式, 逐个键写出
+		out.writeByte(PATTERN_NOTES);
+		if (!p.isPacked() && p.getNotes() == null) {
+			out.writeInt(-1);
+			return;
+		}
+		final int length = p.length();
+		out.writeInt(length);
+		for (int row = 0; row < length; row++) {
+			FtmNote n = p.getNote(row);
+			if (n == null) {
+				out.writeBoolean(false);
+				continue;
+			}
+			out.writeBoolean(true);
+			out.writeByte(n.note);
+			out.writeByte(n.octave);
+			out.writeByte(n.vol);
+			out.writeInt(n.instrument);
+			for (int i = 0; i < MAX_EFFECT_COLUMNS; i++) {
+				out.writeByte(n.effNumber[i]);
+				out.writeShort(n.effParam[i]);
+			}
+		}
+	}
+	
+	/* **********
+	 *   工具   *
+	 ********** */
+	
+	private static void writeString(String s, DataOutputStream out) throws IOException {
+		writeBytes((s == null) ? null : s.getBytes(StandardCharsets.UTF_8), out);
+	}
+	
+	/**
+	 * 写出长度与数据. null 的长度为 -1
+	 */
+	private static void writeBytes(byte[] bs, DataOutputStream out) throws IOException {
+		if (bs == null) {
+			out.writeInt(-1);
+			return;
+		}
+		out.writeInt(bs.length);
+		out.write(bs);
+	}
+	
+	/**
+	 * 写出长度与数据. null 的长度为 -1
+	 */
+	private static void writeInts(int[] is, DataOutputStream out) throws IOException {
+		if (is == null) {
+			out.writeInt(-1);
+			return;
+		}
+		out.writeInt(is.length);
+		for (int i : is) {
+			out.writeInt(i);
+		}
+	}
+
+}
@@ -6,6 +6,15 @@ import static zdream.nsfplayer.ftm.format.FtmStatic.*;
 import static zdream.nsfplayer.core.FtmChipType.*;
 import static zdream.nsfplayer.ftm.format.FtmNote.*;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
+
 import zdream.nsfplayer.core.ERegion;
 import zdream.nsfplayer.core.FtmChipType;
 import zdream.nsfplayer.core.INsfChannelCode;
@@ -30,6 +39,11 @@ import zdream.utils.common.BytesReader;
  * 填充 {@link FtmAudio} 的数据
  * <p>一个该创建者实例只能填充一个 {@link FtmAudio} 的数据.
  * 如果要填充更多 {@link FtmAudio} 请新建更多该创建者实例.
+ * 
+ * @version v0.3.3
+ * <p>读取分为两步: 先将文件划分成块, 再处理各个块.
+ * 如果指定了线程池, 模式块 (PATTERNS) 会被切成多段交给线程池解析,
+ * 同时当前线程继续处理乐器、序列、采样等其它块, 最后再将解析好的模式放入 {@link FtmAudio} 中.
  * </p>
  * @author Zdream
  * @since v0.1
@@ -93,10 +107,61 @@ public class FamiTrackerCreater extends AbstractFamiTrackerCreater<BytesReader>
 	 */
 	private boolean needAdjustFDSArpeggio;
 	
+	/**
+	 * 并行解析模式块使用的线程池. 为 null 时, 所有块都在调用线程中按顺序处理
+	 * @since v0.3.3
+	 */
+	private final ForkJoinPool pool;
+	
+	public FamiTrackerCreater() {
+		this(null);
+	}
+	
+	/**
+	 * @param pool
+	 *   并行解析模式块使用的线程池. 为 null 时不并行.
+	 *   线程池的并行数不大于 1 时, 和不并行的效果一样
+	 * @since v0.3.3
+	 */
+	public FamiTrackerCreater(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+	
+	/**
+	 * 是否延迟解析模式数据
+	 * @since v0.3.3
+	 */
+	private boolean lazyPatterns;
+	
+	/**
+	 * 延迟解析模式数据时, 各个曲目的模式记录在模式块中的范围.
+	 * 曲目号 - 范围列表 (按文件顺序)
+	 * @since v0.3.3
+	 */
+	private Map<Integer, List<PatternChunk>> patternRanges;
+	
+	/**
+	 * <p>设置是否延迟解析模式数据.
+	 * <p>开启后, 读取模式块时只记录各个曲目的模式记录所在的范围,
+	 * 每个曲目的模式数据在第一次使用时才解析 (见 {@link FtmTrack#loadPatterns()}).
+	 * 只播放一首曲目时, 其它曲目的模式数据不会被解析.
+	 * <p>延迟解析时, 模式数据的错误要在解析时才会抛出.
+	 * 模式块的记录无法划分, 或者文件需要根据模式数据调整乐器 (旧版本的 FDS 音频) 时,
+	 * 该模式块仍然立即解析.
+	 * </p>
+	 * @param lazyPatterns
+	 *   默认为 false
+	 * @since v0.3.3
+	 */
+	public void setLazyPatterns(boolean lazyPatterns) {
+		this.lazyPatterns = lazyPatterns;
+	}
+	
 	private void init() {
 		trackCount = 0;
 		effColumnCounts = null;
 		needAdjustFDSArpeggio = false;
+		patternRanges = null;
 	}
 	
 	/**
@@ -130,77 +195,315 @@ public class FamiTrackerCreater extends AbstractFamiTrackerCreater<BytesReader>
 		
 		/*
 		 * Famitracker 产生的文件由多个块组成.
-		 * 在读取的过程中就需要对逐个块进行处理.
+		 * 先将文件划分成块, 再逐个块进行处理.
 		 */
-		while (!reader.isFinished()) LOOP: {
+		List<Block> blocks = indexBlocks(reader);
+		
+		if (lazyPatterns || pool == null || pool.getParallelism() <= 1) {
+			for (Block block : blocks) {
+				readBlock(doc, block, version);
+			}
+		} else {
+			readBlocksConcurrently(doc, blocks, version);
+		}
+		setPatternLoaders(doc, version);
+		
+		// 当 doc 建立完成之后, 开始进入检查部分
+		revise(doc);
+	}
+	
+	/**
+	 * 将文件划分成块. 文件结束标识之后的数据将被忽略
+	 * @param reader
+	 * @return
+	 *   按文件顺序排列的所有块, 不含结束标识
+	 * @since v0.3.3
+	 */
+	private List<Block> indexBlocks(BytesReader reader) {
+		List<Block> blocks = new ArrayList<>();
+		while (!reader.isFinished()) {
 			Block block = nextBlock(reader);
 			if (block.id == null) {
 				// 已经读取结束
 				break;
 			}
+			if (FILE_END_ID.equals(block.id)) {
+				continue;
+			}
+			blocks.add(block);
+		}
+		return blocks;
+	}
+	
+	/**
+	 * 处理一个块
+	 * @since v0.3.3
+	 */
+	private void readBlock(FamiTrackerHandler doc, Block block, int version) {
+		switch (block.id) {
+		
+		case FILE_BLOCK_PARAMS:
+			readBlockParameters(doc, block, version);
+			break;
 			
-			switch (block.id) {
+		case FILE_BLOCK_INFO: {
+			readBlockInfo(doc, block);
+		} break;
+		
+		case FILE_BLOCK_HEADER: {
+			readBlockHeader(doc, block);
+		} break;
+		
+		case FILE_BLOCK_INSTRUMENTS: {
+			readBlockInstruments(doc, block);
+		} break;
+		
+		case FILE_BLOCK_SEQUENCES: {
+			readBlockSequences(doc, block);
+		} break;
+		
+		case FILE_BLOCK_FRAMES: {
+			readBlockFrames(doc, block);
+		} break;
+		
+		case FILE_BLOCK_PATTERNS: {
+			readBlockPatterns(doc, block, version);
+		} break;
+		
+		case FILE_BLOCK_DSAMPLES: {
+			readBlockDSamples(doc, block);
+		} break;
+		
+		case FILE_BLOCK_COMMENTS: {
+			// 直接忽略
+		} break;
+		
+		case FILE_BLOCK_SEQUENCES_VRC6: {
+			readBlockSequencesVRC6(doc, block);
+		} break;
+		
+		// FILE_BLOCK_SEQUENCES_N106 是出于向后兼容的目的
+		case FILE_BLOCK_SEQUENCES_N163: case FILE_BLOCK_SEQUENCES_N106: {
+			readBlockSequencesN163(doc, block);
+		} break;
+		
+		case FILE_BLOCK_SEQUENCES_S5B: {
+			// TODO 暂时无法处理 S5B 部分
+		} break;
+
+		default:
+			handleException(block, EX_BLOCK_UNKNOWED_ID);
+			break;
+		}
+	}
+	
+	/**
+	 * <p>并行处理所有块.
+	 * <p>参数、曲目头、段序列这三类块决定了模式块的解析方式, 因此最先按文件顺序处理.
+	 * 之后模式块被切成多段交给线程池解析, 解析结果暂时存放在各段中, 不直接修改 doc;
+	 * 同时当前线程按文件顺序处理其它块. 最后在当前线程中将模式放入 doc.
+	 * </p>
+	 * @since v0.3.3
+	 */
+	private void readBlocksConcurrently(FamiTrackerHandler doc, List<Block> blocks, int version) {
+		for (Block block : blocks) {
+			if (isLayoutBlock(block.id)) {
+				readBlock(doc, block, version);
+			}
+		}
+		
+		List<ForkJoinTask<PatternChunk>> tasks = new ArrayList<>();
+		try {
+			for (Block block : blocks) {
+				if (!FILE_BLOCK_PATTERNS.equals(block.id)) {
+					continue;
+				}
+				if (block.version <= 1) {
+					handleException(block, EX_PAT_LOW_VERSION, block.version);
+				}
+				for (PatternChunk chunk : splitPatterns(doc, block, version)) {
+					tasks.add(pool.submit(() -> {
+						readPatterns(doc, chunk.block, chunk.end, version, effColumnCounts, chunk);
+						return chunk;
+					}));
+				}
+			}
 			
-			case FILE_END_ID: // 已经读取结束
-				break LOOP;
+			for (Block block : blocks) {
+				if (!isLayoutBlock(block.id) && !FILE_BLOCK_PATTERNS.equals(block.id)) {
+					readBlock(doc, block, version);
+				}
+			}
 			
-			case FILE_BLOCK_PARAMS:
-				readBlockParameters(doc, block, version);
+			for (ForkJoinTask<PatternChunk> task : tasks) {
+				mergePatterns(doc, waitFor(task));
+			}
+		} finally {
+			for (ForkJoinTask<PatternChunk> task : tasks) {
+				task.cancel(false);
+			}
+		}
+	}
+	
+	private static boolean isLayoutBlock(String id) {
+		return FILE_BLOCK_PARAMS.equals(id)
+				|| FILE_BLOCK_HEADER.equals(id)
+				|| FILE_BLOCK_FRAMES.equals(id);
+	}
+	
+	private static PatternChunk waitFor(ForkJoinTask<PatternChunk> task) {
+		try {
+			return task.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new FamiTrackerFormatException(cause);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new FamiTrackerFormatException("解析模式块时线程被中断", e);
+		}
+	}
+	
+	/**
+	 * <p>并行解析时, 模式块中的一段.
+	 * <p>一段包含若干个完整的模式记录. 解析出来的键按 (曲目, 模式, 轨道) 存放在 {@link #notes} 中,
+	 * 数组长度为曲目的段长, 和 {@link FamiTrackerHandler} 创建的键数组一致.
+	 * </p>
+	 * @since v0.3.3
+	 */
+	private static class PatternChunk {
+		/**
+		 * 读取位置在该段开头的块
+		 */
+		final Block block;
+		/**
+		 * 该段的开始位置与结束位置 (不含)
+		 */
+		final int start, end;
+		
+		/**
+		 * 键为 (trackIdx, patternIdx, channelIdx) 三个数合成的 long, 保留解析顺序
+		 */
+		final Map<Long, FtmNote[]> notes = new LinkedHashMap<>();
+		boolean adjustFDSArpeggio;
+		
+		PatternChunk(Block block, int start, int end) {
+			this.block = block.duplicate(start);
+			this.start = start;
+			this.end = end;
+		}
+		
+		FtmNote getOrCreateNote(int trackIdx, int patternIdx, int channelIdx, int row, int rowMax) {
+			Long key = ((long) trackIdx << 40) | ((long) patternIdx << 20) | channelIdx;
+			FtmNote[] ns = notes.get(key);
+			if (ns == null) {
+				notes.put(key, ns = new FtmNote[rowMax]);
+			}
+			if (ns[row] == null) {
+				ns[row] = new FtmNote();
+			}
+			return ns[row];
+		}
+	}
+	
+	/**
+	 * <p>将模式块切成若干段, 每段的大小大致相同.
+	 * <p>每条模式记录的长度可以由记录头部的键数据个数和该轨道的效果列数算出,
+	 * 因此只需要读取记录头部. 遇到无法计算长度的记录 (数据已经损坏) 时,
+	 * 剩下的数据整体作为一段, 在解析时按原样报错.
+	 * </p>
+	 * @since v0.3.3
+	 */
+	private List<PatternChunk> splitPatterns(FamiTrackerHandler doc, Block block, int fileVersion) {
+		final byte[] bs = block.bytes();
+		final int size = bs.length;
+		final int target = size / pool.getParallelism() + 1;
+		
+		List<PatternChunk> chunks = new ArrayList<>();
+		int start = 0, pos = 0;
+		while (pos < size) {
+			int len = patternRecordLength(doc, bs, pos, fileVersion);
+			if (len <= 0) {
 				break;
-				
-			case FILE_BLOCK_INFO: {
-				readBlockInfo(doc, block);
-			} break;
-			
-			case FILE_BLOCK_HEADER: {
-				readBlockHeader(doc, block);
-			} break;
-			
-			case FILE_BLOCK_INSTRUMENTS: {
-				readBlockInstruments(doc, block);
-			} break;
-			
-			case FILE_BLOCK_SEQUENCES: {
-				readBlockSequences(doc, block);
-			} break;
-			
-			case FILE_BLOCK_FRAMES: {
-				readBlockFrames(doc, block);
-			} break;
-			
-			case FILE_BLOCK_PATTERNS: {
-				readBlockPatterns(doc, block, version);
-			} break;
-			
-			case FILE_BLOCK_DSAMPLES: {
-				readBlockDSamples(doc, block);
-			} break;
-			
-			case FILE_BLOCK_COMMENTS: {
-				// 直接忽略
-			} break;
-			
-			case FILE_BLOCK_SEQUENCES_VRC6: {
-				readBlockSequencesVRC6(doc, block);
-			} break;
-			
-			// FILE_BLOCK_SEQUENCES_N106 是出于向后兼容的目的
-			case FILE_BLOCK_SEQUENCES_N163: case FILE_BLOCK_SEQUENCES_N106: {
-				readBlockSequencesN163(doc, block);
-			} break;
+			}
+			pos += len;
+			if (pos - start >= target && pos < size) {
+				chunks.add(new PatternChunk(block, start, pos));
+				start = pos;
+			}
+		}
+		chunks.add(new PatternChunk(block, start, size));
+		return chunks;
+	}
+	
+	/**
+	 * @return
+	 *   从 pos 开始的模式记录的字节数. 如果无法计算, 返回 -1
+	 */
+	private int patternRecordLength(FamiTrackerHandler doc, byte[] bs, int pos, int fileVersion) {
+		if (pos + 16 > bs.length) {
+			return -1;
+		}
+		int trackIdx = cInt(bs, pos);
+		int channelIdx = cInt(bs, pos + 4);
+		int items = cInt(bs, pos + 12);
+		if (trackIdx < 0 || trackIdx >= doc.audio.getTrackCount()
+				|| channelIdx < 0 || channelIdx >= doc.channelCount()
+				|| items <= 0 || items > MAX_PATTERN_LENGTH) {
+			return -1;
+		}
+		
+		int itemLength;
+		if (fileVersion == 0x0200) {
+			// 行号 1 字节, 音调、音阶、乐器、音量各 1 字节, 1 列效果
+			itemLength = 1 + 4 + 2;
+		} else {
+			if (effColumnCounts == null || trackIdx >= effColumnCounts.length
+					|| channelIdx >= effColumnCounts[trackIdx].length) {
+				return -1;
+			}
+			itemLength = 4 + 4 + (effColumnCounts[trackIdx][channelIdx] + 1) * 2;
+		}
+		return 16 + items * itemLength;
+	}
+	
+	private static int cInt(byte[] bs, int pos) {
+		return (bs[pos] & 0xFF) | ((bs[pos + 1] & 0xFF) << 8)
+				| ((bs[pos + 2] & 0xFF) << 16) | ((bs[pos + 3] & 0xFF) << 24);
+	}
+	
+	/**
+	 * 将一段解析好的模式放入 doc. 已经存在的键会被替换
+	 * @since v0.3.3
+	 */
+	private void mergePatterns(FamiTrackerHandler doc, PatternChunk chunk) {
+		for (Map.Entry<Long, FtmNote[]> entry : chunk.notes.entrySet()) {
+			long key = entry.getKey();
+			FtmNote[] ns = entry.getValue();
 			
-			case FILE_BLOCK_SEQUENCES_S5B: {
-				// TODO 暂时无法处理 S5B 部分
-			} break;
-
-			default:
-				handleException(block, EX_BLOCK_UNKNOWED_ID);
-				break;
+			FtmTrack track = doc.audio.getTrack((int) (key >>> 40));
+			FtmPattern pattern = doc.getOrCreatePattern(track,
+					(int) (key >>> 20) & 0xFFFFF, (int) key & 0xFFFFF);
+			FtmNote[] notes = pattern.getNotes();
+			if (notes == null) {
+				pattern.setNotes(ns);
+				continue;
+			}
+			for (int row = 0; row < ns.length; row++) {
+				if (ns[row] != null) {
+					notes[row] = ns[row];
+				}
 			}
 		}
 		
-		// 当 doc 建立完成之后, 开始进入检查部分
-		revise(doc);
+		if (chunk.adjustFDSArpeggio) {
+			needAdjustFDSArpeggio = true;
+		}
 	}
 
 	/**
@@ -829,7 +1132,229 @@ public class FamiTrackerCreater extends AbstractFamiTrackerCreater<BytesReader>
 			handleException(block, EX_PAT_LOW_VERSION, version);
 		}
 		
-		while (!block.isFinished()) {
+		if (lazyPatterns && indexPatterns(doc, block, fileVersion)) {
+			return;
+		}
+		
+		// 之前记录下来的模式先解析, 保持文件顺序
+		flushPatternRanges(doc, fileVersion);
+		readPatterns(doc, block, block.length(), fileVersion, effColumnCounts, null);
+	}
+	
+	/**
+	 * 延迟解析时, 记录模式块中各个曲目的模式记录所在的范围.
+	 * 同一曲目相邻的记录合并为一个范围
+	 * @return
+	 *   是否记录成功. 如果模式块需要立即解析, 返回 false, 这时不记录任何范围
+	 * @since v0.3.3
+	 */
+	private boolean indexPatterns(FamiTrackerHandler doc, Block block, int fileVersion) {
+		if (block.version < 5 && doc.audio.isUseFds()) {
+			// 旧版本的 FDS 音频需要在解析模式时才能确定是否调整乐器
+			return false;
+		}
+		
+		final byte[] bs = block.bytes();
+		List<int[]> records = new ArrayList<>(); // [曲目号, 开始位置, 结束位置]
+		int[] last = null;
+		int pos = 0;
+		while (pos < bs.length) {
+			int len = patternRecordLength(doc, bs, pos, fileVersion);
+			if (len <= 0 || pos + len > bs.length) {
+				return false;
+			}
+			
+			int trackIdx = cInt(bs, pos);
+			if (last != null && last[0] == trackIdx) {
+				last[2] = pos + len;
+			} else {
+				records.add(last = new int[] {trackIdx, pos, pos + len});
+			}
+			pos += len;
+		}
+		
+		if (patternRanges == null) {
+			patternRanges = new LinkedHashMap<>();
+		}
+		for (int[] r : records) {
+			patternRanges.computeIfAbsent(r[0], k -> new ArrayList<>())
+					.add(new PatternChunk(block, r[1], r[2]));
+		}
+		return true;
+	}
+	
+	/**
+	 * 立即解析之前记录下来的所有模式
+	 * @since v0.3.3
+	 */
+	private void flushPatternRanges(FamiTrackerHandler doc, int fileVersion) {
+		if (patternRanges == null) {
+			return;
+		}
+		
+		// 按文件中的位置排序. 范围来自同一个或多个模式块, 块的位置都不同
+		List<PatternChunk> ranges = new ArrayList<>();
+		for (List<PatternChunk> list : patternRanges.values()) {
+			ranges.addAll(list);
+		}
+		ranges.sort((a, b) -> Integer.compare(a.block.blockOffset + a.start, b.block.blockOffset + b.start));
+		
+		patternRanges = null;
+		for (PatternChunk range : ranges) {
+			readPatterns(doc, range.block.duplicate(range.start), range.end, fileVersion, effColumnCounts, null);
+		}
+	}
+	
+	/**
+	 * 延迟解析时, 为记录了模式范围的曲目设置解析模式数据的方法
+	 * @since v0.3.3
+	 */
+	private void setPatternLoaders(FamiTrackerHandler doc, int fileVersion) {
+		if (patternRanges == null) {
+			return;
+		}
+		
+		for (Map.Entry<Integer, List<PatternChunk>> entry : patternRanges.entrySet()) {
+			int trackIdx = entry.getKey();
+			FtmTrack track = doc.audio.getTrack(trackIdx);
+			track.setPatternLoader(new PatternLoader(doc, track, trackIdx, entry.getValue(), fileVersion, effColumnCounts));
+		}
+		patternRanges = null;
+	}
+	
+	/**
+	 * <p>延迟解析一个曲目的模式数据时, 需要的所有数据.
+	 * <p>创建时复制了该曲目的效果列数, 不引用 FamiTrackerCreater 本身.
+	 * 因此 FamiTrackerCreater 解析下一个文件, 不会影响之前文件的曲目的延迟解析.
+	 * </p>
+	 * @since v0.3.3
+	 */
+	private static final class PatternLoader implements Supplier<FtmPattern[][]> {
+		final FamiTrackerHandler doc;
+		final FtmTrack track;
+		final List<PatternChunk> ranges;
+		final int fileVersion;
+		/**
+		 * 效果列数, 只有该曲目的一行有数据. 文件版本为 0x0200 时为 null
+		 */
+		final int[][] effColumnCounts;
+		
+		PatternLoader(FamiTrackerHandler doc, FtmTrack track, int trackIdx,
+				List<PatternChunk> ranges, int fileVersion, int[][] effColumnCounts) {
+			this.doc = doc;
+			this.track = track;
+			this.ranges = ranges;
+			this.fileVersion = fileVersion;
+			if (effColumnCounts != null && trackIdx < effColumnCounts.length) {
+				this.effColumnCounts = new int[trackIdx + 1][];
+				this.effColumnCounts[trackIdx] = effColumnCounts[trackIdx].clone();
+			} else {
+				this.effColumnCounts = null;
+			}
+		}
+		
+		@Override
+		public FtmPattern[][] get() {
+			// 解析过程只用到 FamiTrackerCreater 的方法, 不用到它的状态, 因此每次用新的实例
+			return new FamiTrackerCreater().decodeTrackPatterns(this);
+		}
+	}
+	
+	/**
+	 * <p>延迟解析一个曲目的模式数据.
+	 * <p>结果和立即解析时相同: 模式数组的大小、键数据的合并方式与 {@link FamiTrackerHandler} 一致,
+	 * 最后检查乐器号并压缩. 解析过程不修改 doc, 不同的曲目可以在不同的线程中同时解析.
+	 * </p>
+	 * @return
+	 *   曲目的模式数据
+	 * @since v0.3.3
+	 */
+	private FtmPattern[][] decodeTrackPatterns(PatternLoader loader) {
+		final FamiTrackerHandler doc = loader.doc;
+		final FtmTrack track = loader.track;
+		
+		List<PatternChunk> chunks = new ArrayList<>(loader.ranges.size());
+		for (PatternChunk range : loader.ranges) {
+			PatternChunk chunk = new PatternChunk(range.block, range.start, range.end);
+			readPatterns(doc, chunk.block, chunk.end, loader.fileVersion, loader.effColumnCounts, chunk);
+			chunks.add(chunk);
+		}
+		
+		final int channelCount = doc.channelCount();
+		FtmPattern[][] ps = track.patterns;
+		int length;
+		if (ps != null) {
+			length = ps.length;
+		} else {
+			length = (track.orders == null) ? 0 : track.orders.length;
+		}
+		boolean empty = true;
+		for (PatternChunk chunk : chunks) {
+			for (long key : chunk.notes.keySet()) {
+				length = Math.max(length, ((int) (key >>> 20) & 0xFFFFF) + 1);
+				empty = false;
+			}
+		}
+		
+		if (empty && ps == null) {
+			return new FtmPattern[1][channelCount];
+		}
+		if (ps == null || ps.length < length) {
+			FtmPattern[][] oldps = ps;
+			ps = new FtmPattern[length][];
+			int i = 0;
+			if (oldps != null) {
+				System.arraycopy(oldps, 0, ps, 0, oldps.length);
+				i = oldps.length;
+			}
+			for (; i < length; i++) {
+				ps[i] = new FtmPattern[channelCount];
+			}
+		}
+		
+		for (PatternChunk chunk : chunks) {
+			for (Map.Entry<Long, FtmNote[]> entry : chunk.notes.entrySet()) {
+				long key = entry.getKey();
+				FtmNote[] ns = entry.getValue();
+				int patternIdx = (int) (key >>> 20) & 0xFFFFF;
+				int channelIdx = (int) key & 0xFFFFF;
+				
+				FtmPattern pattern = ps[patternIdx][channelIdx];
+				if (pattern == null) {
+					ps[patternIdx][channelIdx] = pattern = new FtmPattern();
+				}
+				FtmNote[] notes = pattern.getNotes();
+				if (notes == null) {
+					pattern.setNotes(ns);
+					continue;
+				}
+				for (int row = 0; row < ns.length; row++) {
+					if (ns[row] != null) {
+						notes[row] = ns[row];
+					}
+				}
+			}
+		}
+		
+		reviseNotes(ps, doc.audio.instrumentCount());
+		return ps;
+	}
+	
+	/**
+	 * 解析模式块中从当前读取位置到 end 之间的模式记录
+	 * @param end
+	 *   结束位置 (不含)
+	 * @param effColumnCounts
+	 *   每个轨道的效果列数 [trackIdx][channelIdx]
+	 * @param chunk
+	 *   存放解析结果的段. 为 null 时, 解析结果直接放入 doc
+	 * @since v0.3.3
+	 */
+	private void readPatterns(FamiTrackerHandler doc, Block block, int end, int fileVersion,
+			int[][] effColumnCounts, PatternChunk chunk) {
+		int version = block.version;
+		
+		while (block.getOffset() < end) {
 			int trackIdx = block.readAsCInt();
 			
 			int channelIdx = block.readAsCInt();
@@ -863,11 +1388,18 @@ public class FamiTrackerCreater extends AbstractFamiTrackerCreater<BytesReader>
 					handleException(block, EX_PAT_WRONG_ROW_NO, trackIdx, patternIdx, channelIdx, i, row);
 				}
 				
-				if (row >= doc.audio.getTrack(trackIdx).length) {
+				int rowMax = doc.audio.getTrack(trackIdx).length;
+				if (row >= rowMax) {
 					// 这个 note 不会加到 doc 中去
 					note = new FtmNote();
-				} else {
+				} else if (chunk == null) {
 					note = doc.getOrCreateNote(trackIdx, patternIdx, channelIdx, row);
+				} else {
+					if (channelIdx >= doc.channelCount()) {
+						throw new ArrayIndexOutOfBoundsException(String.format("channelIdx: %d 超出范围 [0, %d)",
+								channelIdx, doc.channelCount()));
+					}
+					note = chunk.getOrCreateNote(trackIdx, patternIdx, channelIdx, row, rowMax);
 				}
 
 				note.note = block.readByte();
@@ -968,7 +1500,11 @@ public class FamiTrackerCreater extends AbstractFamiTrackerCreater<BytesReader>
 					if (doc.audio.isUseFds() && doc.channelCode(channelIdx) == INsfChannelCode.CHANNEL_FDS
 							&& note.octave < 6) {
 						note.octave += 2;
-						needAdjustFDSArpeggio = true;
+						if (chunk == null) {
+							needAdjustFDSArpeggio = true;
+						} else {
+							chunk.adjustFDSArpeggio = true;
+						}
 					}
 				}
 			}
@@ -1404,6 +1940,7 @@ public class FamiTrackerCreater extends AbstractFamiTrackerCreater<BytesReader>
 	/**
 	 * 检查每个音键使用的乐器是否在正确的范围内.
 	 * 修复: 将不在正确的范围内的乐器号码修改成统一值 -1
+	 * <p>检查完毕后, 压缩模式数据 (v0.3.3)
 	 * @param doc
 	 */
 	private void reviseNotes(FamiTrackerHandler doc) {
@@ -1413,31 +1950,46 @@ public class FamiTrackerCreater extends AbstractFamiTrackerCreater<BytesReader>
 		int trackLen = audio.getTrackCount();
 		for (int i = 0; i < trackLen; i++) {
 			FtmTrack track = audio.getTrack(i);
+			if (!track.isPatternsLoaded()) {
+				// 延迟解析的曲目在解析时检查
+				continue;
+			}
+			
 			FtmPattern[][] ps = track.patterns;
 			if (ps == null) {
 				track.patterns = new FtmPattern[1][doc.channelCount()];
 				continue;
 			}
+			reviseNotes(ps, instMax);
+		}
+	}
+	
+	/**
+	 * 检查一个曲目的所有模式的乐器号, 然后压缩模式数据
+	 * @since v0.3.3
+	 */
+	private void reviseNotes(FtmPattern[][] ps, int instMax) {
+		for (int x = 0; x < ps.length; x++) {
+			FtmPattern[] ys = ps[x];
+			if (ys == null) {
+				continue;
+			}
 			
-			for (int x = 0; x < ps.length; x++) {
-				FtmPattern[] ys = ps[x];
-				if (ys == null) {
+			for (int y = 0; y < ys.length; y++) {
+				FtmPattern p = ys[y];
+				if (p == null) {
 					continue;
 				}
 				
-				for (int y = 0; y < ys.length; y++) {
-					FtmPattern p = ys[y];
-					if (p == null) {
-						continue;
-					}
-					
-					FtmNote[] notes = p.notes;
-					for (int j = 0; j < notes.length; j++) {
-						reviseNote(notes[j], instMax);
-					}
+				FtmNote[] notes = p.getNotes();
+				if (notes == null) {
+					continue;
+				}
+				for (int j = 0; j < notes.length; j++) {
+					reviseNote(notes[j], instMax);
 				}
+				p.pack();
 			}
-			
 		}
 	}
 	
@@ -37,6 +37,12 @@ import zdream.utils.common.TextReader;
  * <p>一个该创建者实例只能填充一个 {@link FtmAudio} 的数据.
  * 如果要填充更多 {@link FtmAudio} 请新建更多该创建者实例.
  * </p>
+ * 
+ * @version v0.3.3
+ * <p>ROW 行直接在 {@link TextReader} 的 char 数组上切分、解析, 不再为每一项创建 String;
+ * 空的键不再创建 {@link FtmNote} 实例.
+ * </p>
+ * 
  * @author Zdream
  * @since v0.1
  */
@@ -130,7 +136,7 @@ public class FamiTrackerTextCreater extends AbstractFamiTrackerCreater<TextReade
 	}
 	
 	/**
-	 * 按照文本内容来生成 {@link FtmAudio}
+	 * 按照文本内容来生成 {@link FtmAudio}. 该方法不会关闭 reader, 由调用者负责关闭
 	 */
 	public void doCreate(TextReader reader, FamiTrackerHandler doc) throws FamiTrackerFormatException {
 		this.reader = reader;
@@ -142,10 +148,14 @@ public class FamiTrackerTextCreater extends AbstractFamiTrackerCreater<TextReade
 		}
 		
 		statusChange(-1, doc);
-		reader.close();
 	}
 	
 	private void handleLine(TextReader reader, FamiTrackerHandler doc) {
+		if (isRowLine(reader)) {
+			parseRow(reader, doc);
+			return;
+		}
+		
 		String[] strs = split(reader.thisLine());
 		
 		switch (strs[0]) {
@@ -264,15 +274,25 @@ public class FamiTrackerTextCreater extends AbstractFamiTrackerCreater<TextReade
 			parsePattern(reader, doc, strs);
 		} break;
 		
-		case "ROW": {
-			parseRow(reader, doc, strs);
-		} break;
-
 		default:
 			break;
 		}
 	}
 	
+	/**
+	 * 本行是否是 ROW 行, 即第一项是否为 "ROW"
+	 */
+	private boolean isRowLine(TextReader reader) {
+		char[] cs = reader.lineChars();
+		int len = reader.lineLength();
+		int i = 0;
+		while (i < len && Character.isSpaceChar(cs[i])) {
+			i++;
+		}
+		return i + 3 <= len && cs[i] == 'R' && cs[i + 1] == 'O' && cs[i + 2] == 'W'
+				&& (i + 3 == len || Character.isSpaceChar(cs[i + 3]));
+	}
+	
 	/**
 	 * <p>解析 Macro 部分, 即 sequence 部分
 	 * <p>示例:
@@ -899,19 +919,25 @@ public class FamiTrackerTextCreater extends AbstractFamiTrackerCreater<TextReade
 		rowIdx = 0; // 行数从 0 开始计
 	}
 	
-	private void parseRow(TextReader reader, FamiTrackerHandler doc, String[] strs) {
-		// 预计的 strs 的数组长度
+	/**
+	 * <p>解析 ROW 行. ROW 行是文本中数量最多的行, 因此直接在读取器的 char 数组上解析
+	 * (见 {@link TextReader#tokenize()}), 不创建 String.
+	 * </p>
+	 */
+	private void parseRow(TextReader reader, FamiTrackerHandler doc) {
+		// 预计的项数
 		int lenExp = 2;
 		for (int i = 0; i < columns.length; i++) {
 			lenExp += (4 + columns[i]);
 		}
 		
-		if (strs.length != lenExp) {
-			handleException(reader, EX_ROW_WRONG_ITEMS, lenExp, strs.length);
+		int count = reader.tokenize();
+		if (count != lenExp) {
+			handleException(reader, EX_ROW_WRONG_ITEMS, lenExp, count);
 		}
 		
 		// 行数
-		int row = Integer.parseInt(strs[1], 16);
+		int row = reader.tokenToInt(1, 0, 16);
 		if (row != rowIdx) {
 			handleException(reader, EX_ROW_WRONG_ROW_NO, row, rowIdx);
 		}
@@ -924,7 +950,7 @@ public class FamiTrackerTextCreater extends AbstractFamiTrackerCreater<TextReade
 			// realColume 是在 FtmAudio 中的列数. 存在 N163 轨道时, realColume 可能不等于 column
 			int realColume = channelIndexs[column];
 			if (realColume != -1) {
-				parseColumnInRow(reader, doc, strs, realColume, offset, length);
+				parseColumnInRow(reader, doc, realColume, offset, length);
 			}
 			
 			offset += length;
@@ -933,166 +959,193 @@ public class FamiTrackerTextCreater extends AbstractFamiTrackerCreater<TextReade
 		rowIdx++;
 	}
 	
+	/**
+	 * 上一次解析出的空的键. 空的键不放入模式中, 可以在解析下一个键时重复使用
+	 */
+	private FtmNote spareNote;
+	
 	/**
 	 * 解析一个 note 部分, 产生 {@link FtmNote} 并存到 doc 部分
 	 * @param reader
+	 *   已经切分了本行的读取器
 	 * @param doc
-	 * @param strs
 	 * @param column
 	 *   第几列
 	 * @param offset
-	 *   输入该列的 strs 是从第几个元素开始起
+	 *   该列是从第几项开始起
 	 * @param length
-	 *   属于该列的 strs 的长度, 至少是 5
+	 *   属于该列的项数, 至少是 5
 	 *   <br>(第一个是 ':', 第二个是音调, 第三个是乐器, 第四个是音量, 第五个以及后面都是效果)
 	 */
 	private void parseColumnInRow(
 			TextReader reader,
 			FamiTrackerHandler doc,
-			String[] strs,
 			final int column,
 			final int offset,
 			final int length) {
 		// 第一个元素必须是 ":"
-		if (!":".equals(strs[offset])) {
+		if (!reader.tokenEquals(offset, ":")) {
 			handleException(reader, EX_ROW_WRONG_TOKEN_IN_COLUMN, column);
 		}
 		
 		boolean empty = true;
-		FtmNote note = new FtmNote();
+		FtmNote note = (spareNote != null) ? spareNote : new FtmNote();
+		spareNote = null;
 		
 		// 音调部分
-		String t = strs[offset + 1];
+		int t = offset + 1;
 		
-		if ("...".equals(t)) {
+		if (reader.tokenEquals(t, "...")) {
 			note.note = FtmNote.NOTE_NONE;
 			note.octave = 0;
-		} else if ("---".equals(t)) {
+		} else if (reader.tokenEquals(t, "---")) {
 			note.note = FtmNote.NOTE_HALT;
 			note.octave = 0;
 			empty = false;
-		} else if ("===".equals(t)) {
+		} else if (reader.tokenEquals(t, "===")) {
 			note.note = FtmNote.NOTE_RELEASE;
 			note.octave = 0;
 			empty = false;
 		} else {
 			if (doc.channelCode(column) == CHANNEL_2A03_NOISE) {
-				parseNoiseNote(t, note);
+				parseNoiseNote(reader, t, note);
 			} else {
-				parseAudioNote(t, note);
+				parseAudioNote(reader, t, note);
 			}
 			empty = false;
 		}
 		
 		// 乐器部分
-		t = strs[offset + 2];
-		if ("..".equals(t)) {
+		t = offset + 2;
+		if (reader.tokenEquals(t, "..")) {
 			note.instrument = MAX_INSTRUMENTS;
 		} else {
-			note.instrument = Integer.parseInt(t, 16);
+			note.instrument = reader.tokenToInt(t, 0, 16);
 			empty = false;
 		}
 		
 		// 音量部分
-		t = strs[offset + 3];
-		if (".".equals(t)) {
+		t = offset + 3;
+		if (reader.tokenEquals(t, ".")) {
 			note.vol = MAX_VOLUMN;
 		} else {
-			note.vol = Byte.parseByte(t, 16);
+			note.vol = (byte) tokenToRange(reader, t, 0, 16, Byte.MIN_VALUE, Byte.MAX_VALUE);
 			empty = false;
 		}
 		
 		// 效果部分
 		byte channelCode = doc.channelCode(column);
 		for (int idx = 4; idx < length; idx++) {
-			t = strs[offset + idx];
-			empty &= parseEffect(t, note, idx - 4, channelCode);
+			empty &= parseEffect(reader, offset + idx, note, idx - 4, channelCode);
 		}
 		
-		if (!empty)
-			this.curPatternGroup[column].notes[rowIdx] = note;
+		if (!empty) {
+			this.curPatternGroup[column].getNotes()[rowIdx] = note;
+		} else {
+			// 空的键只修改了音调、乐器与音量, 下次解析时会被全部覆盖
+			spareNote = note;
+		}
 	}
 	
 	/**
 	 * 非噪声部的音调与音阶解析
+	 * @param index
+	 *   音调是本行的第几项
 	 */
-	private void parseAudioNote(String text, FtmNote note) {
-		String tt = text.substring(0, 2);
-		switch (tt) {
-		case "C-": note.note = FtmNote.NOTE_C; break;
-		case "C#": note.note = FtmNote.NOTE_CS; break;
-		case "D-": note.note = FtmNote.NOTE_D; break;
-		case "D#": note.note = FtmNote.NOTE_DS; break;
-		case "E-": note.note = FtmNote.NOTE_E; break;
-		case "F-": note.note = FtmNote.NOTE_F; break;
-		case "F#": note.note = FtmNote.NOTE_FS; break;
-		case "G-": note.note = FtmNote.NOTE_G; break;
-		case "G#": note.note = FtmNote.NOTE_GS; break;
-		case "A-": note.note = FtmNote.NOTE_A; break;
-		case "A#": note.note = FtmNote.NOTE_AS; break;
-		case "B-": note.note = FtmNote.NOTE_B; break;
-
+	private void parseAudioNote(TextReader reader, int index, FtmNote note) {
+		if (reader.tokenLength(index) < 2) {
+			handleException(reader, EX_ROW_WRONG_NOTE, reader.tokenString(index));
+		}
+		
+		char sharp = reader.tokenCharAt(index, 1);
+		switch (reader.tokenCharAt(index, 0)) {
+		case 'C': note.note = (sharp == '#') ? FtmNote.NOTE_CS : FtmNote.NOTE_C; break;
+		case 'D': note.note = (sharp == '#') ? FtmNote.NOTE_DS : FtmNote.NOTE_D; break;
+		case 'E': note.note = FtmNote.NOTE_E; break;
+		case 'F': note.note = (sharp == '#') ? FtmNote.NOTE_FS : FtmNote.NOTE_F; break;
+		case 'G': note.note = (sharp == '#') ? FtmNote.NOTE_GS : FtmNote.NOTE_G; break;
+		case 'A': note.note = (sharp == '#') ? FtmNote.NOTE_AS : FtmNote.NOTE_A; break;
+		case 'B': note.note = FtmNote.NOTE_B; break;
+		
 		default:
-			handleException(reader, EX_ROW_WRONG_NOTE, tt);
+			sharp = 0;
+		}
+		// "E#", "B#" 这类不存在的音符
+		if (sharp != '-' && (sharp != '#' || note.note == FtmNote.NOTE_E || note.note == FtmNote.NOTE_B)) {
+			handleException(reader, EX_ROW_WRONG_NOTE, reader.tokenString(index).substring(0, 2));
 		}
 		
 		// 音阶
-		byte octave = Byte.parseByte(text.substring(2));
+		int octave = tokenToRange(reader, index, 2, 10, Byte.MIN_VALUE, Byte.MAX_VALUE);
 		if (octave < 0 || octave > 9) {
 			handleException(reader, EX_ROW_WRONG_OCTAVE, octave);
 		}
-		note.octave = octave;
+		note.octave = (byte) octave;
 	}
 	
 	/**
-	 * 噪声部的音调解析
+	 * <p>噪声部的音调解析.
+	 * <p>噪声部的音调写作 "0-#" 到 "F-#", 其中 "0-#" 到 "B-#" 对应 0 号音阶的 C 到 B,
+	 * "C-#" 到 "F-#" 对应 1 号音阶的 C 到 D#.
+	 * </p>
+	 * @param index
+	 *   音调是本行的第几项
 	 */
-	private void parseNoiseNote(String text, FtmNote note) {
-		switch (text) {
-		case "0-#": note.note = FtmNote.NOTE_C; note.octave = 0; break;
-		case "1-#": note.note = FtmNote.NOTE_CS; note.octave = 0; break;
-		case "2-#": note.note = FtmNote.NOTE_D; note.octave = 0; break;
-		case "3-#": note.note = FtmNote.NOTE_DS; note.octave = 0; break;
-		case "4-#": note.note = FtmNote.NOTE_E; note.octave = 0; break;
-		case "5-#": note.note = FtmNote.NOTE_F; note.octave = 0; break;
-		case "6-#": note.note = FtmNote.NOTE_FS; note.octave = 0; break;
-		case "7-#": note.note = FtmNote.NOTE_G; note.octave = 0; break;
-		case "8-#": note.note = FtmNote.NOTE_GS; note.octave = 0; break;
-		case "9-#": note.note = FtmNote.NOTE_A; note.octave = 0; break;
-		case "A-#": note.note = FtmNote.NOTE_AS; note.octave = 0; break;
-		case "B-#": note.note = FtmNote.NOTE_B; note.octave = 0; break;
-		case "C-#": note.note = FtmNote.NOTE_C; note.octave = 1; break;
-		case "D-#": note.note = FtmNote.NOTE_CS; note.octave = 1; break;
-		case "E-#": note.note = FtmNote.NOTE_D; note.octave = 1; break;
-		case "F-#": note.note = FtmNote.NOTE_DS; note.octave = 1; break;
-
-		default:
-			handleException(reader, EX_ROW_WRONG_NOISE, text);
+	private void parseNoiseNote(TextReader reader, int index, FtmNote note) {
+		int value = -1;
+		if (reader.tokenLength(index) == 3
+				&& reader.tokenCharAt(index, 1) == '-' && reader.tokenCharAt(index, 2) == '#') {
+			char ch = reader.tokenCharAt(index, 0);
+			// 只接受数字与大写字母
+			if ((ch >= '0' && ch <= '9') || (ch >= 'A' && ch <= 'F')) {
+				value = Character.digit(ch, 16);
+			}
+		}
+		if (value < 0) {
+			handleException(reader, EX_ROW_WRONG_NOISE, reader.tokenString(index));
 		}
+		
+		note.note = (byte) (FtmNote.NOTE_C + value % 12);
+		note.octave = (byte) (value / 12);
 	}
 	
 	/**
 	 * 效果部分解析
+	 * @param index
+	 *   效果是本行的第几项
 	 * @param channelCode
 	 *   现在处理的轨道号 (不是轨道序号)
 	 */
-	private boolean parseEffect(String text, FtmNote note, int index, byte channelCode) {
-		if ("...".equals(text)) {
+	private boolean parseEffect(TextReader reader, int index, FtmNote note, int effIndex, byte channelCode) {
+		if (reader.tokenEquals(index, "...")) {
 			return true;
 		}
 		
-		char head = text.charAt(0);
+		char head = reader.tokenCharAt(index, 0);
 		byte eff = this.conventEffectToCode(head, channelCode);
 		
 		if (eff == -1) {
 			return true; // 找不到效果是什么, 可以选择报错, 但是这里不这样做
 		}
 		
-		note.effNumber[index] = eff;
-		note.effParam[index] = Short.parseShort(text.substring(1), 16);
+		note.effNumber[effIndex] = eff;
+		note.effParam[effIndex] = (short) tokenToRange(reader, index, 1, 16, Short.MIN_VALUE, Short.MAX_VALUE);
 		return false;
 	}
 	
+	/**
+	 * 将本行第 index 项从第 from 个字符开始的部分解析为整数,
+	 * 超出范围时与 {@link Byte#parseByte(String, int)} 等方法一样抛出 {@link NumberFormatException}
+	 */
+	private static int tokenToRange(TextReader reader, int index, int from, int radix, int min, int max) {
+		int value = reader.tokenToInt(index, from, radix);
+		if (value < min || value > max) {
+			throw new NumberFormatException("Value out of range. Value:\"" + reader.tokenString(index)
+					+ "\" Radix:" + radix);
+		}
+		return value;
+	}
+	
 	/**
 	 * 状态转换
 	 */
@@ -1119,7 +1172,7 @@ public class FamiTrackerTextCreater extends AbstractFamiTrackerCreater<TextReade
 			curPatternGroup = new FtmPattern[columns.length];
 			for (int i = 0; i < curPatternGroup.length; i++) {
 				curPatternGroup[i] = new FtmPattern();
-				curPatternGroup[i].notes = new FtmNote[curTrack.length];
+				curPatternGroup[i].setNotes(new FtmNote[curTrack.length]);
 			}
 			break;
 			
@@ -1149,14 +1202,20 @@ public class FamiTrackerTextCreater extends AbstractFamiTrackerCreater<TextReade
 	}
 	
 	/**
-	 * 打包上一个 track 的所有 pattern
+	 * 打包上一个 track 的所有 pattern, 并压缩模式数据
 	 */
 	private void packPattern() {
 		curTrack.patterns = new FtmPattern[maxPatternIdx + 1][];
 		
 		for (Iterator<Entry<Integer, FtmPattern[]>> it = this.patterns.entrySet().iterator(); it.hasNext();) {
 			Entry<Integer, FtmPattern[]> entry = it.next();
-			curTrack.patterns[entry.getKey()] = entry.getValue();
+			FtmPattern[] group = entry.getValue();
+			for (int i = 0; i < group.length; i++) {
+				if (group[i] != null) {
+					group[i].pack();
+				}
+			}
+			curTrack.patterns[entry.getKey()] = group;
 		}
 	}
 	
@@ -0,0 +1,190 @@
+package zdream.nsfplayer.ftm.factory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import zdream.nsfplayer.core.NsfPlayerException;
+import zdream.nsfplayer.ftm.audio.FtmAudio;
+import zdream.utils.common.FileUtils;
+
+/**
+ * <p>预解析 FTM 音频的磁盘缓存.
+ * <p>以源文件内容的 SHA-256 作为键, 将解析、修正后的 {@link FtmAudio} 以二进制格式
+ * (见 {@link FamiTrackerBinaryCreater}) 存放在指定的目录中. 再次读取同样内容的文件时,
+ * 直接将缓存文件映射到内存中读取, 不需要再解析源文件.
+ * <p>缓存文件名中带有格式版本号, 格式变化后旧的缓存文件不会再被使用.
+ * 缓存文件损坏时会被删除, 然后重新解析源文件. 写入缓存文件失败不影响解析结果.
+ * <p>缓存文件先写到临时文件, 再移动到目标位置, 多个进程可以共用同一个缓存目录.
+ * </p>
+ * 
+ * @see FtmAudioFactory#setCache(FtmAudioCache)
+ * @author Zdream
+ * @since v0.3.3
+ */
+public class FtmAudioCache {
+	
+	/**
+	 * 源文件类型: FTM 文件
+	 */
+	public static final String KIND_FTM = "ftm";
+	
+	/**
+	 * 源文件类型: FamiTracker 导出的文本文件
+	 */
+	public static final String KIND_TEXT = "txt";
+	
+	/**
+	 * 缓存文件的后缀
+	 */
+	private static final String SUFFIX = ".v" + FamiTrackerBinaryCreater.FORMAT_VERSION + ".ftmc";
+	
+	private final Path directory;
+	
+	/**
+	 * @param directory
+	 *   缓存目录. 不存在时, 在第一次写入缓存时创建
+	 */
+	public FtmAudioCache(Path directory) {
+		if (directory == null) {
+			throw new NullPointerException("缓存目录不能为 null");
+		}
+		this.directory = directory;
+	}
+	
+	/**
+	 * @param directory
+	 *   缓存目录. 不存在时, 在第一次写入缓存时创建
+	 */
+	public FtmAudioCache(String directory) {
+		this(Paths.get(directory));
+	}
+	
+	public Path getDirectory() {
+		return directory;
+	}
+	
+	/* **********
+	 *   读写   *
+	 ********** */
+	
+	/**
+	 * 计算缓存的键
+	 * @param kind
+	 *   源文件类型, 比如 {@link #KIND_FTM}, {@link #KIND_TEXT}
+	 * @param content
+	 *   源文件数据, 范围是 [position, limit). 不会修改 content 的 position
+	 * @return
+	 *   键, 十六进制的 SHA-256 值
+	 */
+	public static String keyOf(String kind, ByteBuffer content) {
+		MessageDigest md;
+		try {
+			md = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			// 所有 Java 平台都必须支持 SHA-256
+			throw new IllegalStateException(e);
+		}
+		md.update(kind.getBytes(StandardCharsets.US_ASCII));
+		md.update((byte) 0);
+		md.update(content.duplicate());
+		
+		byte[] digest = md.digest();
+		StringBuilder b = new StringBuilder(digest.length * 2);
+		for (byte d : digest) {
+			b.append(Character.forDigit((d >> 4) & 0xF, 16)).append(Character.forDigit(d & 0xF, 16));
+		}
+		return b.toString();
+	}
+	
+	/**
+	 * 读取缓存.
+	 * @param key
+	 *   键, 由 {@link #keyOf(String, ByteBuffer)} 计算得到
+	 * @return
+	 *   缓存的音频. 没有缓存, 或者缓存文件已经损坏时, 返回 null. 损坏的缓存文件会被删除
+	 */
+	public FtmAudio load(String key) {
+		Path path = pathOf(key);
+		if (!Files.isRegularFile(path)) {
+			return null;
+		}
+		
+		FtmAudio audio = new FtmAudio();
+		try {
+			ByteBuffer buf = FileUtils.mapFile(path.toString());
+			new FamiTrackerBinaryCreater().doCreate(buf, audio.handler);
+		} catch (IOException e) {
+			// 可能是其它进程刚好删除了该文件
+			return null;
+		} catch (NsfPlayerException e) {
+			delete(path);
+			return null;
+		}
+		return audio;
+	}
+	
+	/**
+	 * <p>写入缓存. 写入失败时不抛出异常.
+	 * <p>延迟解析的曲目会在写入前解析 (见 {@link FamiTrackerBinaryWriter}).
+	 * 音频含有二进制格式不支持的数据, 或者模式数据有误时, 不写入.
+	 * </p>
+	 * @param key
+	 *   键, 由 {@link #keyOf(String, ByteBuffer)} 计算得到
+	 * @param audio
+	 *   解析后的音频
+	 * @return
+	 *   是否写入成功
+	 */
+	public boolean store(String key, FtmAudio audio) {
+		byte[] data;
+		try {
+			data = new FamiTrackerBinaryWriter().toBytes(audio);
+		} catch (IllegalArgumentException | NsfPlayerException e) {
+			return false;
+		}
+		
+		Path path = pathOf(key);
+		Path temp = null;
+		try {
+			Files.createDirectories(directory);
+			temp = Files.createTempFile(directory, key, ".tmp");
+			try (OutputStream out = Files.newOutputStream(temp)) {
+				out.write(data);
+			}
+			
+			try {
+				Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+			}
+			return true;
+		} catch (IOException e) {
+			if (temp != null) {
+				delete(temp);
+			}
+			return false;
+		}
+	}
+	
+	private Path pathOf(String key) {
+		return directory.resolve(key + SUFFIX);
+	}
+	
+	private static void delete(Path path) {
+		try {
+			Files.deleteIfExists(path);
+		} catch (IOException e) {
+			// 删除失败不影响读取
+		}
+	}
+
+}
@@ -1,8 +1,17 @@
 package zdream.nsfplayer.ftm.factory;
 
 import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
 
 import zdream.nsfplayer.ftm.audio.FtmAudio;
+import zdream.utils.common.ByteBufferReader;
 import zdream.utils.common.BytesReader;
 import zdream.utils.common.FileUtils;
 import zdream.utils.common.TextReader;
@@ -17,6 +26,67 @@ import zdream.utils.common.TextReader;
  */
 public class FtmAudioFactory {
 	
+	/**
+	 * 解析 FTM 文件时并行解析模式块使用的线程池. 默认为 null, 不并行
+	 */
+	private ForkJoinPool decodePool;
+	
+	/**
+	 * <p>设置解析 FTM 文件 (非文本文件) 时, 并行解析模式块使用的线程池.
+	 * <p>模式块一般是 FTM 文件中最大的块. 设置之后, 模式块会被切成多段交给线程池解析,
+	 * 解析结果与不并行时相同. 需要大量解析 FTM 文件, 或者文件较大时, 可以使用
+	 * {@link ForkJoinPool#commonPool()}.
+	 * </p>
+	 * @param pool
+	 *   线程池. 为 null 时不并行
+	 * @since v0.3.3
+	 */
+	public void setDecodePool(ForkJoinPool pool) {
+		this.decodePool = pool;
+	}
+	
+	/**
+	 * 解析 FTM 文件时是否延迟解析模式数据. 默认为 false
+	 */
+	private boolean lazyPatterns;
+	
+	/**
+	 * <p>设置解析 FTM 文件 (非文本文件) 时, 是否延迟解析模式数据.
+	 * <p>开启后, 每个曲目的模式数据在第一次播放该曲目时才解析.
+	 * 含有大量曲目的文件, 只播放其中一首时, 可以减少加载时间与内存占用.
+	 * 模式数据的格式错误也将在解析时才抛出.
+	 * 延迟解析时不使用 {@link #setDecodePool(ForkJoinPool)} 设置的线程池.
+	 * <p>设置了缓存 ({@link #setCache(FtmAudioCache)}) 时, 该设置不起作用:
+	 * 写入缓存文件需要所有曲目的模式数据, 因此总是立即解析.
+	 * </p>
+	 * @param lazyPatterns
+	 *   是否延迟解析
+	 * @see FamiTrackerCreater#setLazyPatterns(boolean)
+	 * @since v0.3.3
+	 */
+	public void setLazyPatterns(boolean lazyPatterns) {
+		this.lazyPatterns = lazyPatterns;
+	}
+	
+	/**
+	 * 预解析音频的缓存. 默认为 null, 不使用缓存
+	 */
+	private FtmAudioCache cache;
+	
+	/**
+	 * <p>设置预解析音频的磁盘缓存.
+	 * <p>设置之后, 解析 FTM 文件与文本文件时, 先按文件内容查找缓存,
+	 * 找到时直接读取缓存, 不再解析; 没有找到时解析文件, 并将结果写入缓存.
+	 * 使用缓存时不延迟解析模式数据 (见 {@link #setLazyPatterns(boolean)}).
+	 * </p>
+	 * @param cache
+	 *   缓存. 为 null 时不使用缓存
+	 * @since v0.3.3
+	 */
+	public void setCache(FtmAudioCache cache) {
+		this.cache = cache;
+	}
+	
 	/**
 	 * 解析 Ftm 文件, 生成 Ftm-Audio.
 	 * @param bs
@@ -24,8 +94,8 @@ public class FtmAudioFactory {
 	 * @return
 	 */
 	public FtmAudio create(byte[] bs) throws FamiTrackerFormatException {
-		BytesReader reader = new BytesReader(bs);
-		return createFtm(reader);
+		return createCached(FtmAudioCache.KIND_FTM, ByteBuffer.wrap(bs),
+				() -> createFtm(new BytesReader(bs)));
 	}
 	
 	/**
@@ -35,6 +105,14 @@ public class FtmAudioFactory {
 	 * @return
 	 */
 	public FtmAudio create(String filepath) throws IOException, FamiTrackerFormatException {
+		if (cache != null) {
+			ByteBuffer buf = FileUtils.mapFile(filepath);
+			if (!buf.hasRemaining()) {
+				throw new IOException("文件: " + filepath + " 是空文件");
+			}
+			return createCached(FtmAudioCache.KIND_FTM, buf, () -> createFtm(new ByteBufferReader(buf)));
+		}
+		
 		DocumentReader openFile = new DocumentReader(filepath);
 		
 		openFile.open();
@@ -48,7 +126,9 @@ public class FtmAudioFactory {
 	}
 	
 	private FtmAudio createFtm(BytesReader reader) throws FamiTrackerFormatException {
-		FamiTrackerCreater creater = new FamiTrackerCreater();
+		FamiTrackerCreater creater = new FamiTrackerCreater(decodePool);
+		// 写入缓存需要所有的模式数据, 延迟解析没有意义
+		creater.setLazyPatterns(lazyPatterns && cache == null);
 		
 		FtmAudio audio = new FtmAudio();
 		creater.doCreate(reader, audio.handler);
@@ -63,23 +143,123 @@ public class FtmAudioFactory {
 	 * @return
 	 */
 	public FtmAudio createFromText(String txt) throws FamiTrackerFormatException {
-		FamiTrackerTextCreater creater = new FamiTrackerTextCreater();
-		
-		TextReader reader = new TextReader(txt);
-		FtmAudio audio = new FtmAudio();
-		creater.doCreate(reader, audio.handler);
-		
-		return audio;
+		if (cache != null) {
+			return createCached(FtmAudioCache.KIND_TEXT,
+					ByteBuffer.wrap(txt.getBytes(StandardCharsets.UTF_8)), () -> createText(txt));
+		}
+		return createText(txt);
 	}
 	
 	/**
-	 * 解析 Ftm 导出的文本文件, 生成 Ftm-Audio.
+	 * <p>从 {@link Reader} 中逐行读取 Ftm 导出的文本, 生成 Ftm-Audio.
+	 * <p>文本不会被整个读到内存中, 解析时占用的内存只与生成的音频大小有关.
+	 * 该方法不使用 {@link #setCache(FtmAudioCache)} 设置的缓存. 读取完毕或者出错后关闭 reader.
+	 * </p>
+	 * @param reader
+	 *   文本数据源
+	 * @return
+	 * @since v0.3.3
+	 */
+	public FtmAudio createFromText(Reader reader) throws IOException, FamiTrackerFormatException {
+		try {
+			return createText(new TextReader(reader));
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+	
+	private FtmAudio createText(String txt) throws FamiTrackerFormatException {
+		return createText(new TextReader(txt));
+	}
+	
+	/**
+	 * 解析完毕后关闭 reader, 解析出错时也会关闭
+	 * @throws UncheckedIOException
+	 *   读取数据源出错时
+	 */
+	private FtmAudio createText(TextReader reader) throws FamiTrackerFormatException {
+		try {
+			FamiTrackerTextCreater creater = new FamiTrackerTextCreater();
+			
+			FtmAudio audio = new FtmAudio();
+			creater.doCreate(reader, audio.handler);
+			
+			return audio;
+		} finally {
+			reader.close();
+		}
+	}
+	
+	/**
+	 * <p>解析 Ftm 导出的文本文件, 生成 Ftm-Audio.
+	 * <p>从 v0.3.3 开始, 文件按 UTF-8 逐行读取解析, 不再将整个文件读成字符串.
+	 * </p>
 	 * @param filepath
 	 *   文件路径
 	 * @return
 	 */
 	public FtmAudio createFromTextPath(String path) throws IOException, FamiTrackerFormatException {
-		return createFromText(FileUtils.readFileAsString(path));
+		try {
+			if (cache != null) {
+				ByteBuffer buf = FileUtils.mapFile(path);
+				return createCached(FtmAudioCache.KIND_TEXT, buf, () -> createText(openText(path)));
+			}
+			return createText(openText(path));
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+	
+	/**
+	 * 以 UTF-8 打开文本文件
+	 * @throws UncheckedIOException
+	 *   文件无法打开时
+	 */
+	private static TextReader openText(String path) {
+		try {
+			FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ);
+			return new TextReader(channel, StandardCharsets.UTF_8);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	/* **********
+	 *   缓存   *
+	 ********** */
+	
+	/**
+	 * 解析数据源的方法
+	 */
+	private interface Parser {
+		FtmAudio parse() throws FamiTrackerFormatException;
+	}
+	
+	/**
+	 * 先查找缓存, 没有找到时解析数据, 并写入缓存
+	 * @param kind
+	 *   源文件类型
+	 * @param content
+	 *   源文件数据, 用于计算缓存的键
+	 * @param parser
+	 *   解析方法
+	 */
+	private FtmAudio createCached(String kind, ByteBuffer content, Parser parser)
+			throws FamiTrackerFormatException {
+		FtmAudioCache cache = this.cache;
+		if (cache == null) {
+			return parser.parse();
+		}
+		
+		String key = FtmAudioCache.keyOf(kind, content);
+		FtmAudio audio = cache.load(key);
+		if (audio != null) {
+			return audio;
+		}
+		
+		audio = parser.parse();
+		cache.store(key, audio);
+		return audio;
 	}
 
 }
@@ -1,15 +1,47 @@
 package zdream.nsfplayer.ftm.format;
 
+import static zdream.nsfplayer.ftm.format.FtmStatic.MAX_EFFECT_COLUMNS;
+
 /**
  * <p>FTM 每一个有效模式 (pattern) 数据.
  * <p>里面存放了一个模式 (或段落) 的、指定轨道的所有 note 数据, 也就是 FamiTracker 的一列数据
  * 
+ * @version v0.3.3
+ * <p>补充紧凑存储形式. 调用 {@link #pack()} 之后, 每个键不再是单独的 {@link FtmNote} 实例,
+ * 而是按列存放在 int / long 数组中, 每个键只占 12 字节.
+ * 键数据使用 {@link #readNote(int, FtmNote)} 读取; 需要修改时, 用 {@link #getNotes()} 获取键数据数组,
+ * 这时压缩的模式会被还原.
+ * </p>
+ * 
  * @author Zdream
  * @since v0.1
  */
 public class FtmPattern {
 	
-	public FtmNote[] notes;
+	/**
+	 * <p>键数据. 没有数据的行为 null.
+	 * <p>模式被压缩 (见 {@link #pack()}) 之后, 该值为 null.
+	 * </p>
+	 */
+	private FtmNote[] notes;
+	
+	/* **********
+	 * 紧凑存储 *
+	 ********** */
+	/*
+	 * 每一行的音符、八度、音量、乐器, 从低位到高位各占 8 位.
+	 * 乐器号存放的是 instrument + 1, 这样 -1 也可以存放.
+	 * 没有数据的行为 ABSENT.
+	 */
+	private int[] heads;
+	
+	/*
+	 * 每一行的效果, 每列效果占 16 位: 低 8 位为效果号, 高 8 位为效果参数.
+	 * 如果整个模式都没有效果, 为 null.
+	 */
+	private long[] effects;
+	
+	private static final int ABSENT = -1;
 	
 	/**
 	 * 段长
@@ -17,7 +49,240 @@ public class FtmPattern {
 	 * @since v0.2.10
 	 */
 	public int length() {
+		if (heads != null) {
+			return heads.length;
+		}
 		return (notes == null) ? 0 : notes.length;
 	}
 	
+	/**
+	 * <p>获取键数据数组, 可以直接修改. 没有数据的行为 null.
+	 * <p>如果模式已经压缩, 会先还原 (见 {@link #unpack()}). 只需要读取时,
+	 * 请使用 {@link #readNote(int, FtmNote)}, 它不会还原模式, 也不会创建新的实例.
+	 * </p>
+	 * @return
+	 *   键数据数组. 如果模式还没有数据, 返回 null
+	 * @since v0.3.3
+	 */
+	public FtmNote[] getNotes() {
+		unpack();
+		return notes;
+	}
+	
+	/**
+	 * 设置键数据数组. 模式原有的数据 (包括压缩的数据) 被丢弃
+	 * @param notes
+	 *   键数据数组, 没有数据的行为 null
+	 * @since v0.3.3
+	 */
+	public void setNotes(FtmNote[] notes) {
+		this.notes = notes;
+		this.heads = null;
+		this.effects = null;
+	}
+	
+	/**
+	 * @return
+	 *   是否已经压缩
+	 * @since v0.3.3
+	 */
+	public boolean isPacked() {
+		return heads != null;
+	}
+	
+	/**
+	 * <p>获取键数据.
+	 * <p>如果模式已经压缩, 每次调用都会返回一个新的 {@link FtmNote} 实例,
+	 * 修改它不会影响模式中的数据. 播放等需要重复读取的地方, 请使用 {@link #readNote(int, FtmNote)}.
+	 * </p>
+	 * @param row
+	 *   行号
+	 * @return
+	 *   键数据. 如果该行没有数据, 返回 null
+	 * @since v0.3.3
+	 */
+	public FtmNote getNote(int row) {
+		if (heads == null) {
+			return notes[row];
+		}
+		
+		if (heads[row] == ABSENT) {
+			return null;
+		}
+		FtmNote note = new FtmNote();
+		readNote(row, note);
+		return note;
+	}
+	
+	/**
+	 * 将键数据读取到指定的 {@link FtmNote} 实例中. 不会创建新的实例
+	 * @param row
+	 *   行号
+	 * @param dst
+	 *   存放键数据的实例
+	 * @return
+	 *   如果该行没有数据, 返回 false, 这时 dst 不会被修改
+	 * @since v0.3.3
+	 */
+	public boolean readNote(int row, FtmNote dst) {
+		if (heads == null) {
+			FtmNote src = notes[row];
+			if (src == null) {
+				return false;
+			}
+			copy(src, dst);
+			return true;
+		}
+		
+		int head = heads[row];
+		if (head == ABSENT) {
+			return false;
+		}
+		dst.note = (byte) head;
+		dst.octave = (byte) (head >> 8);
+		dst.vol = (byte) (head >> 16);
+		dst.instrument = ((head >>> 24) & 0xFF) - 1;
+		
+		long eff = (effects == null) ? 0 : effects[row];
+		for (int i = 0; i < MAX_EFFECT_COLUMNS; i++) {
+			dst.effNumber[i] = (byte) (eff >> (i * 16));
+			dst.effParam[i] = (short) ((eff >> (i * 16 + 8)) & 0xFF);
+		}
+		return true;
+	}
+	
+	/**
+	 * <p>压缩模式数据.
+	 * <p>压缩后的模式只读. 如果有键的数据超出了紧凑存储的范围 (比如效果参数超过 0xFF),
+	 * 则不压缩, 模式保持原样.
+	 * </p>
+	 * @return
+	 *   压缩之后模式是否为压缩状态
+	 * @since v0.3.3
+	 */
+	public boolean pack() {
+		if (heads != null) {
+			return true;
+		}
+		if (notes == null) {
+			return false;
+		}
+		
+		final int len = notes.length;
+		int[] hs = new int[len];
+		long[] es = new long[len];
+		boolean hasEffect = false;
+		
+		for (int row = 0; row < len; row++) {
+			FtmNote n = notes[row];
+			if (n == null) {
+				hs[row] = ABSENT;
+				continue;
+			}
+			
+			int inst = n.instrument + 1;
+			if (inst < 0 || inst > 0xFF) {
+				return false;
+			}
+			int head = (n.note & 0xFF) | (n.octave & 0xFF) << 8 | (n.vol & 0xFF) << 16 | inst << 24;
+			if (head == ABSENT) {
+				return false;
+			}
+			hs[row] = head;
+			
+			long eff = 0;
+			for (int i = 0; i < MAX_EFFECT_COLUMNS; i++) {
+				int param = n.effParam[i];
+				if (param < 0 || param > 0xFF) {
+					return false;
+				}
+				eff |= (long) ((n.effNumber[i] & 0xFF) | param << 8) << (i * 16);
+			}
+			if (eff != 0) {
+				es[row] = eff;
+				hasEffect = true;
+			}
+		}
+		
+		this.heads = hs;
+		this.effects = hasEffect ? es : null;
+		this.notes = null;
+		return true;
+	}
+	
+	/**
+	 * 将压缩的模式数据还原成 {@link FtmNote} 数组, 之后可以用 {@link #getNotes()} 修改.
+	 * 如果模式没有压缩, 不做任何操作
+	 * @since v0.3.3
+	 */
+	public void unpack() {
+		if (heads == null) {
+			return;
+		}
+		
+		final int len = heads.length;
+		FtmNote[] ns = new FtmNote[len];
+		for (int row = 0; row < len; row++) {
+			ns[row] = getNote(row);
+		}
+		
+		this.notes = ns;
+		this.heads = null;
+		this.effects = null;
+	}
+	
+	/**
+	 * <p>获取压缩后每一行的音符、八度、音量、乐器数据. 用于序列化.
+	 * 没有数据的行的值为 -1, 这些行的效果数据为 0.
+	 * <p>返回的是模式内部的数组, 不要修改.
+	 * </p>
+	 * @return
+	 *   如果模式没有压缩, 返回 null
+	 * @since v0.3.3
+	 */
+	public int[] packedHeads() {
+		return heads;
+	}
+	
+	/**
+	 * <p>获取压缩后每一行的效果数据. 用于序列化.
+	 * <p>返回的是模式内部的数组, 不要修改.
+	 * </p>
+	 * @return
+	 *   如果模式没有压缩, 或者整个模式都没有效果, 返回 null
+	 * @since v0.3.3
+	 */
+	public long[] packedEffects() {
+		return effects;
+	}
+	
+	/**
+	 * 用压缩后的数据直接创建模式. 用于反序列化, 数据由 {@link #packedHeads()} 和 {@link #packedEffects()} 得到
+	 * @param heads
+	 *   每一行的音符、八度、音量、乐器数据, 不为 null
+	 * @param effects
+	 *   每一行的效果数据, 长度与 heads 相同. 没有效果时为 null
+	 * @return
+	 *   已经压缩的模式, 直接使用参数中的数组
+	 * @since v0.3.3
+	 */
+	public static FtmPattern ofPacked(int[] heads, long[] effects) {
+		if (effects != null && effects.length != heads.length) {
+			throw new IllegalArgumentException("heads 与 effects 长度不同: " + heads.length + ", " + effects.length);
+		}
+		FtmPattern p = new FtmPattern();
+		p.heads = heads;
+		p.effects = effects;
+		return p;
+	}
+	
+	private static void copy(FtmNote src, FtmNote dst) {
+		dst.note = src.note;
+		dst.octave = src.octave;
+		dst.vol = src.vol;
+		dst.instrument = src.instrument;
+		System.arraycopy(src.effNumber, 0, dst.effNumber, 0, MAX_EFFECT_COLUMNS);
+		System.arraycopy(src.effParam, 0, dst.effParam, 0, MAX_EFFECT_COLUMNS);
+	}
+
 }
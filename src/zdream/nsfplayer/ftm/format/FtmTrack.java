@@ -1,10 +1,16 @@
 package zdream.nsfplayer.ftm.format;
 
+import java.util.function.Supplier;
+
 /**
  * <p>FTM 乐曲
  * <p>{@link FtmAudio} 是多个 FTM 乐曲的集合.
  * </p>
  * 
+ * @version v0.3.3
+ * <p>模式数据可以延迟解析, 见 {@link #setPatternLoader(Supplier)}.
+ * </p>
+ * 
  * @author Zdream
  * @since v0.1
  */
@@ -40,9 +46,71 @@ public final class FtmTrack {
 	/*
 	 * 模式 PATTERN (段是 FRAME)
 	 * [模式号][轨道序号]
+	 * 如果模式数据是延迟解析的, 在解析之前为 null. 请使用 getPatterns() 获取
 	 */
 	public FtmPattern[][] patterns;
 	
+	/**
+	 * 延迟解析模式数据的方法. 模式数据已经就绪时为 null
+	 */
+	private volatile Supplier<FtmPattern[][]> patternLoader;
+	
+	/**
+	 * <p>设置延迟解析模式数据的方法.
+	 * <p>设置之后, 第一次调用 {@link #getPatterns()} 或 {@link #loadPatterns()} 时,
+	 * 将调用 loader 解析模式数据, 结果放到 {@link #patterns} 中. 之后不再调用 loader.
+	 * </p>
+	 * @param loader
+	 *   解析模式数据的方法. 为 null 时, 表示模式数据已经就绪
+	 * @since v0.3.3
+	 */
+	public void setPatternLoader(Supplier<FtmPattern[][]> loader) {
+		this.patternLoader = loader;
+	}
+	
+	/**
+	 * @return
+	 *   模式数据是否已经就绪. 模式数据不是延迟解析的, 或者已经解析完成时, 返回 true
+	 * @since v0.3.3
+	 */
+	public boolean isPatternsLoaded() {
+		return patternLoader == null;
+	}
+	
+	/**
+	 * <p>如果模式数据是延迟解析的, 并且还没有解析, 那么现在解析.
+	 * <p>该方法是线程安全的, 多个线程同时调用时, 只会解析一次.
+	 * 解析失败时抛出解析方法的异常, 下一次调用时将重新解析.
+	 * </p>
+	 * @since v0.3.3
+	 */
+	public void loadPatterns() {
+		if (patternLoader == null) {
+			return;
+		}
+		
+		synchronized (this) {
+			Supplier<FtmPattern[][]> loader = patternLoader;
+			if (loader == null) {
+				return;
+			}
+			patterns = loader.get();
+			patternLoader = null;
+		}
+	}
+	
+	/**
+	 * 获取模式数据. 如果模式数据是延迟解析的, 第一次调用时解析
+	 * @return
+	 *   模式数据 [模式号][轨道序号]
+	 * @see #loadPatterns()
+	 * @since v0.3.3
+	 */
+	public FtmPattern[][] getPatterns() {
+		loadPatterns();
+		return patterns;
+	}
+	
 	/* **********
 	 * 曲目顺序 *
 	 ********** */
@@ -1,8 +1,6 @@
 package zdream.nsfplayer.ftm.process;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
 
 import zdream.nsfplayer.ftm.process.agreement.AbstractAgreementEntry;
 import zdream.nsfplayer.ftm.process.base.FtmPosition;
@@ -10,6 +8,11 @@ import zdream.nsfplayer.ftm.process.base.FtmPosition;
 /**
  * <p>执行器执行状态
  * </p>
+ * 
+ * @version v0.3.3
+ * <br>位置改为压缩后的 int (见 {@link FtmPosition#pack(int, int)}),
+ * 同步协议改为列表存储, 位置变化时逐个比较, 不再创建 {@link FtmPosition} 实例.
+ * 
  * @author Zdream
  * @since v0.3.1
  */
@@ -25,9 +28,10 @@ class ExecutorProcessState {
 	}
 
 	/**
-	 * 该执行器所有的同步协议, 即会导致该执行器发生等待的协议
+	 * 该执行器所有的同步协议, 即会导致该执行器发生等待的协议.
+	 * 包括该执行器作为等待方的等待协议, 以及该执行器参与的栅栏协议
 	 */
-	final HashMap<FtmPosition, List<AbstractAgreementEntry>> agreements = new HashMap<>();
+	final ArrayList<AbstractAgreementEntry> agreements = new ArrayList<>();
 	
 	/**
 	 * 依靠该执行器判断的同步协议. 如果该执行器删除或发生改变将导致变动的协议
@@ -35,9 +39,9 @@ class ExecutorProcessState {
 	final ArrayList<AbstractAgreementEntry> refs = new ArrayList<>();
 	
 	/**
-	 * 现在的位置
+	 * 现在的位置, 压缩后的值, 见 {@link FtmPosition#pack(int, int)}
 	 */
-	FtmPosition pos;
+	int pos;
 	
 	/**
 	 * 正在束缚该执行器、让该执行器等待的协议
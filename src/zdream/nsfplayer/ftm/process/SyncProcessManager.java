@@ -1,11 +1,11 @@
 package zdream.nsfplayer.ftm.process;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
-import java.util.List;
-import java.util.ListIterator;
 
 import zdream.nsfplayer.ftm.process.agreement.AbstractAgreementEntry;
+import zdream.nsfplayer.ftm.process.agreement.BarrierAgreement;
 import zdream.nsfplayer.ftm.process.agreement.BarrierAgreementEntry;
 import zdream.nsfplayer.ftm.process.agreement.WaitingAgreement;
 import zdream.nsfplayer.ftm.process.agreement.WaitingAgreementEntry;
@@ -15,19 +15,41 @@ import zdream.nsfplayer.ftm.renderer.FamiTrackerSyncRenderer;
 /**
  * <p>处理各个执行器依据协议内容协调执行位置、速度的管理者
  * <p>在 {@link FamiTrackerSyncRenderer} 中使用.
- * 支持信号协议. 在版本 v0.3.1 暂不支持栅栏协议
+ * 支持信号协议与栅栏协议.
  * </p>
  * 
+ * @version v0.3.3
+ * <br>执行器状态改为按执行器标识号存放在数组中, 位置改为压缩后的 int
+ * (见 {@link FtmPosition#pack(int, int)}), 每帧的状态更新不再创建对象,
+ * 所需时间只与执行器、协议的个数成正比.
+ * <br>补充栅栏协议 {@link BarrierAgreement} 的处理, 包括超时放行.
+ * 超时放行时还没有到达的执行器, 之后到达时直接通过.
+ * <br>修复删除执行器时, 相关的协议没有被删除的问题.
+ * 
  * @author Zdream
  * @since v0.3.1
  */
 public class SyncProcessManager {
 	
-	final ArrayList<ExecutorProcessState> states = new ArrayList<>();
+	/**
+	 * 按执行器标识号存放的执行器状态. 没有对应执行器的为 null
+	 */
+	private ExecutorProcessState[] states = new ExecutorProcessState[4];
+	
+	/**
+	 * 每帧更新状态时, 暂存正在束缚执行器的栅栏协议. 重复使用
+	 */
+	private final ArrayList<BarrierAgreementEntry> barriers = new ArrayList<>();
+	
+	/**
+	 * 与 barriers 的内容相同, 用于去重. 重复使用
+	 */
+	private final HashSet<BarrierAgreementEntry> barrierSet = new HashSet<>();
 	
 	private ExecutorProcessState getState(int exeId) {
-		for (ExecutorProcessState state : states) {
-			if (state.id == exeId) {
+		if (exeId >= 0 && exeId < states.length) {
+			ExecutorProcessState state = states[exeId];
+			if (state != null) {
 				return state;
 			}
 		}
@@ -46,9 +68,13 @@ public class SyncProcessManager {
 	 *   初始位置
 	 */
 	public void addExecutor(int exeId, FtmPosition pos) {
+		if (exeId >= states.length) {
+			states = Arrays.copyOf(states, Math.max(exeId + 1, states.length * 2));
+		}
+		
 		ExecutorProcessState state = new ExecutorProcessState(exeId);
-		state.pos = pos;
-		states.add(state);
+		state.pos = pos.pack();
+		states[exeId] = state;
 	}
 	
 	/**
@@ -58,7 +84,7 @@ public class SyncProcessManager {
 	 */
 	public void removeExecutor(int exeId) {
 		clearAgreement(exeId);
-		states.remove(getState(exeId));
+		states[exeId] = null;
 	}
 	
 	/**
@@ -69,10 +95,24 @@ public class SyncProcessManager {
 	 *   更新后的位置
 	 */
 	public void updatePosition(int exeId, FtmPosition pos) {
+		updatePosition(exeId, pos.section, pos.row);
+	}
+	
+	/**
+	 * 为执行器更新位置. 不需要创建 {@link FtmPosition} 实例
+	 * @param exeId
+	 *   执行器标识号
+	 * @param section
+	 *   更新后的段号
+	 * @param row
+	 *   更新后的行号
+	 * @since v0.3.3
+	 */
+	public void updatePosition(int exeId, int section, int row) {
 		ExecutorProcessState state = getState(exeId);
-		FtmPosition oldPos = state.pos;
+		final int pos = FtmPosition.pack(section, row);
 		
-		if (oldPos.equals(pos)) {
+		if (state.pos == pos) {
 			return;
 		}
 		
@@ -85,42 +125,67 @@ public class SyncProcessManager {
 	 * @param state
 	 */
 	private void updateExecutorBound(ExecutorProcessState state) {
-		state.bounds.forEach(a -> a.reset()); // TODO 同步等待可以这样做, 但是栅栏不行.
-		state.bounds.clear();
-		List<AbstractAgreementEntry> agreements = state.agreements.get(state.pos);
-		
-		if (agreements == null) {
-			return;
+		final ArrayList<AbstractAgreementEntry> bounds = state.bounds;
+		for (int i = 0; i < bounds.size(); i++) {
+			AbstractAgreementEntry e = bounds.get(i);
+			if (e instanceof WaitingAgreementEntry) {
+				e.reset();
+			}
 		}
+		bounds.clear();
 		
-		for (AbstractAgreementEntry entry : agreements) {
-			state.bounds.add(entry);
+		final ArrayList<AbstractAgreementEntry> agreements = state.agreements;
+		for (int i = 0; i < agreements.size(); i++) {
+			AbstractAgreementEntry e = agreements.get(i);
+			if (waitPosOf(e, state.id) != state.pos) {
+				continue;
+			}
+			if (e instanceof BarrierAgreementEntry && ((BarrierAgreementEntry) e).takePass(state.id)) {
+				// 栅栏已经超时放行, 不再等待.
+				// 如果其它执行器已经在等待下一轮, 由于本执行器停在同步位置, 这一轮会在本帧放行
+				continue;
+			}
+			bounds.add(e);
+		}
+	}
+	
+	/**
+	 * @return
+	 *   协议中, 指定执行器压缩后的等待位置. 如果不是等待方, 返回 -1
+	 */
+	private static int waitPosOf(AbstractAgreementEntry e, int exeId) {
+		if (e instanceof WaitingAgreementEntry) {
+			WaitingAgreementEntry w = (WaitingAgreementEntry) e;
+			return (w.waitExeId == exeId) ? w.waitPacked : -1;
+		} else if (e instanceof BarrierAgreementEntry) {
+			return ((BarrierAgreementEntry) e).packedPosOf(exeId);
 		}
+		return -1;
 	}
 	
 	/**
 	 * 每帧更新状态
 	 */
 	public void updateStates() {
-		HashSet<BarrierAgreementEntry> barriers = null;
+		final ExecutorProcessState[] states = this.states;
 		
-		for (ExecutorProcessState state : states) {
-			if (state.bounds.isEmpty()) {
+		for (int s = 0; s < states.length; s++) {
+			ExecutorProcessState state = states[s];
+			if (state == null || state.bounds.isEmpty()) {
 				continue;
 			}
 			
-			ListIterator<AbstractAgreementEntry> it = state.bounds.listIterator();
-			
-			while (it.hasNext()) {
-				AbstractAgreementEntry e0 = it.next();
+			final ArrayList<AbstractAgreementEntry> bounds = state.bounds;
+			for (int i = 0; i < bounds.size(); i++) {
+				AbstractAgreementEntry e0 = bounds.get(i);
 				if (e0 instanceof WaitingAgreementEntry) {
 					WaitingAgreementEntry e = (WaitingAgreementEntry) e0;
 					
 					ExecutorProcessState depend = getState(e.dependExeId);
-					if (e.dependPos.equals(depend.pos)) {
+					if (e.dependPacked == depend.pos) {
 						// 结束等待
 						e.countdown = -1;
-						it.remove();
+						bounds.remove(i--);
 						continue;
 					}
 					
@@ -129,34 +194,73 @@ public class SyncProcessManager {
 						e.countdown = e.baseTimeout;
 					} else if (e.countdown == 0) {
 						// 超时了, 放行
-						it.remove();
+						bounds.remove(i--);
 						continue;
 					} else {
 						e.countdown--;
 					}
 				} else if (e0 instanceof BarrierAgreementEntry) {
-					if (barriers == null) {
-						barriers = new HashSet<>();
+					BarrierAgreementEntry e = (BarrierAgreementEntry) e0;
+					if (barrierSet.add(e)) {
+						barriers.add(e);
 					}
-					barriers.add((BarrierAgreementEntry) e0);
 				}
 			}
 		}
 		
 		// 对所有栅栏进行更新
-		if (barriers != null) {
-			for (BarrierAgreementEntry entry : barriers) {
-				// TODO
-				
-				if (entry.countdown == -1) {
-					entry.countdown = entry.baseTimeout;
-				} else if (entry.countdown == 0) {
-					// 超时了, 放行 TODO
-//					state.bounds.remove(e);
-					continue;
-				} else {
-					entry.countdown--;
-				}
+		for (int i = 0; i < barriers.size(); i++) {
+			BarrierAgreementEntry entry = barriers.get(i);
+			
+			if (isBarrierReached(entry)) {
+				// 所有执行器均已到达, 放行
+				releaseBarrier(entry);
+				entry.countdown = -1;
+			} else if (entry.countdown == -1) {
+				entry.countdown = entry.baseTimeout;
+			} else if (entry.countdown == 0) {
+				// 超时了, 已经到达的执行器全部放行, 还没有到达的执行器之后到达时直接通过
+				releaseBarrier(entry);
+				entry.countdown = -1;
+			} else {
+				entry.countdown--;
+			}
+		}
+		barriers.clear();
+		barrierSet.clear();
+	}
+	
+	/**
+	 * 栅栏协议中, 所有有效的执行器是否都到达了指定位置
+	 */
+	private boolean isBarrierReached(BarrierAgreementEntry entry) {
+		final int len = entry.size();
+		for (int i = 0; i < len; i++) {
+			int exeId = entry.exeIdAt(i);
+			if (exeId == -1) {
+				continue;
+			}
+			if (getState(exeId).pos != entry.packedPosAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * 让被栅栏协议束缚的执行器全部放行.
+	 * 还没有到达同步位置的执行器, 记录为已经通过
+	 */
+	private void releaseBarrier(BarrierAgreementEntry entry) {
+		final int len = entry.size();
+		for (int i = 0; i < len; i++) {
+			int exeId = entry.exeIdAt(i);
+			if (exeId == -1) {
+				continue;
+			}
+			ExecutorProcessState state = getState(exeId);
+			if (!state.bounds.remove(entry) && state.pos != entry.packedPosAt(i)) {
+				entry.grantPass(i);
 			}
 		}
 	}
@@ -188,19 +292,11 @@ public class SyncProcessManager {
 		ExecutorProcessState waitExe = getState(waitExeId);
 		ExecutorProcessState dependExe = getState(dependExeId);
 		
-		List<AbstractAgreementEntry> list = waitExe.agreements.get(entry.waitPos);
-		if (list == null) {
-			list = new ArrayList<>();
-			list.add(entry);
-			waitExe.agreements.put(entry.waitPos, list);
-		} else {
-			list.add(entry);
-		}
-		
+		waitExe.agreements.add(entry);
 		dependExe.refs.add(entry);
 		
 		// 查看该协议是否现在就要触发
-		if (waitExe.pos.equals(entry.waitPos)) {
+		if (waitExe.pos == entry.waitPacked) {
 			waitExe.bounds.add(entry);
 		}
 	}
@@ -226,44 +322,126 @@ public class SyncProcessManager {
 	
 	private void removeWaitingAgreement(WaitingAgreementEntry entry) {
 		// 删除 dependExe 中的引用
-		int dependExeId = entry.dependExeId;
-		ExecutorProcessState dependExe = getState(dependExeId);
+		ExecutorProcessState dependExe = getState(entry.dependExeId);
 		dependExe.refs.remove(entry);
 		
 		// 删除 waitExe 中的引用
-		int waitExeId = entry.waitExeId;
-		ExecutorProcessState waitExe = getState(waitExeId);
-		List<AbstractAgreementEntry> list = waitExe.agreements.get(entry.waitPos);
-		if (list != null) {
-			list.remove(entry);
+		ExecutorProcessState waitExe = getState(entry.waitExeId);
+		waitExe.agreements.remove(entry);
+		waitExe.bounds.remove(entry);
+	}
+	
+	/**
+	 * <p>添加栅栏协议.
+	 * <p>协议中的执行器到达各自的指定位置后开始等待,
+	 * 直到所有执行器都到达指定位置, 或者从第一个执行器开始等待起超过了超时时间, 一起放行.
+	 * </p>
+	 * @param a
+	 *   协议数据. 如果协议中的执行器少于 2 个, 忽略
+	 * @throws NullPointerException
+	 *   当协议中有不存在的执行器时
+	 * @since v0.3.3
+	 */
+	public void addBarrierAgreement(BarrierAgreement a) {
+		BarrierAgreementEntry entry = BarrierAgreementEntry.create(a);
+		if (entry == null) {
+			return;
 		}
-		if (list.isEmpty()) {
-			waitExe.agreements.remove(entry.waitPos);
+		
+		final int len = entry.size();
+		// 先检查, 保证执行器都存在
+		for (int i = 0; i < len; i++) {
+			getState(entry.exeIdAt(i));
 		}
 		
-		if (entry.waitPos.equals(waitExe.pos)) {
-			waitExe.bounds.remove(entry);
+		for (int i = 0; i < len; i++) {
+			ExecutorProcessState exe = getState(entry.exeIdAt(i));
+			exe.agreements.add(entry);
+			
+			// 查看该协议是否现在就要触发
+			if (exe.pos == entry.packedPosAt(i)) {
+				exe.bounds.add(entry);
+			}
+		}
+	}
+	
+	/**
+	 * 删除栅栏协议. 被该协议束缚的执行器将放行
+	 * @param a
+	 *   协议数据
+	 * @since v0.3.3
+	 */
+	public void removeBarrierAgreement(BarrierAgreement a) {
+		for (int s = 0; s < states.length; s++) {
+			ExecutorProcessState state = states[s];
+			if (state == null) {
+				continue;
+			}
+			
+			final ArrayList<AbstractAgreementEntry> agreements = state.agreements;
+			for (int i = 0; i < agreements.size(); i++) {
+				AbstractAgreementEntry e = agreements.get(i);
+				if (e instanceof BarrierAgreementEntry && e.is(a)) {
+					removeBarrierAgreement((BarrierAgreementEntry) e);
+					return;
+				}
+			}
+		}
+	}
+	
+	private void removeBarrierAgreement(BarrierAgreementEntry entry) {
+		final int len = entry.size();
+		for (int i = 0; i < len; i++) {
+			int exeId = entry.exeIdAt(i);
+			if (exeId == -1) {
+				continue;
+			}
+			ExecutorProcessState exe = getState(exeId);
+			exe.agreements.remove(entry);
+			exe.bounds.remove(entry);
 		}
 	}
 	
 	/**
 	 * <p>清除指定执行器的所有协议内容.
 	 * <p>如果该执行器签订了等待协议, 无论是等待方还是依据方, 该协议都将取消.
-	 * 另一个对象中的该协议也将删除
+	 * 另一个对象中的该协议也将删除.
+	 * <p>如果该执行器参与了栅栏协议, 该执行器退出协议.
+	 * 如果协议中剩余的执行器个数少于等于 1, 该协议取消.
 	 * </p>
 	 * @param exeId
 	 */
 	private void clearAgreement(int exeId) {
 		ExecutorProcessState exe = getState(exeId);
 		
-		ArrayList<AbstractAgreementEntry> lists =
-				new ArrayList<>(exe.agreements.size() + (exe.agreements.size() << 1));
+		final ArrayList<AbstractAgreementEntry> agreements = exe.agreements;
+		while (!agreements.isEmpty()) {
+			AbstractAgreementEntry entry = agreements.get(agreements.size() - 1);
+			if (entry instanceof WaitingAgreementEntry) {
+				removeWaitingAgreement((WaitingAgreementEntry) entry);
+			} else if (entry instanceof BarrierAgreementEntry) {
+				BarrierAgreementEntry barrier = (BarrierAgreementEntry) entry;
+				agreements.remove(agreements.size() - 1);
+				exe.bounds.remove(barrier);
+				if (barrier.quit(exeId) <= 1) {
+					removeBarrierAgreement(barrier);
+				}
+			} else {
+				agreements.remove(agreements.size() - 1);
+			}
+		}
 		
-		for (AbstractAgreementEntry entry : lists) {
+		final ArrayList<AbstractAgreementEntry> refs = exe.refs;
+		while (!refs.isEmpty()) {
+			AbstractAgreementEntry entry = refs.get(refs.size() - 1);
 			if (entry instanceof WaitingAgreementEntry) {
 				removeWaitingAgreement((WaitingAgreementEntry) entry);
+			} else {
+				refs.remove(refs.size() - 1);
 			}
 		}
+		
+		exe.bounds.clear();
 	}
 
 }
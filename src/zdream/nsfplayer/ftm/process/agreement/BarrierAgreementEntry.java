@@ -32,14 +32,17 @@ public class BarrierAgreementEntry extends AbstractAgreementEntry {
 		final int len = map.size();
 		exeIds = new int[len];
 		poses = new FtmPosition[len];
+		packedPoses = new int[len];
+		passes = new boolean[len];
 		
 		Iterator<Entry<Integer, FtmPosition>> it = map.entrySet().iterator();
 		for (int i = 0; i < exeIds.length; i++) {
 			Entry<Integer, FtmPosition> e = it.next();
 			exeIds[i] = e.getKey();
 			poses[i] = e.getValue();
+			packedPoses[i] = poses[i].pack();
 		}
-		
+		remain = len;
 	}
 	
 	/**
@@ -47,5 +50,121 @@ public class BarrierAgreementEntry extends AbstractAgreementEntry {
 	 */
 	final int[] exeIds;
 	final FtmPosition[] poses;
+	
+	/**
+	 * 压缩后的同步位置, 见 {@link FtmPosition#pack(int, int)}
+	 */
+	final int[] packedPoses;
+	
+	/**
+	 * 仍然有效的执行器个数
+	 */
+	private int remain;
+	
+	/**
+	 * <p>栅栏超时放行时还没有到达同步位置的执行器.
+	 * <p>这些执行器之后到达同步位置时直接通过, 不再等待; 否则它会重新触发栅栏,
+	 * 而其它执行器已经走了, 只能等到超时.
+	 * </p>
+	 */
+	private final boolean[] passes;
+	
+	/* **********
+	 *   查询   *
+	 ********** */
+	
+	/**
+	 * @return
+	 *   协议中执行器的总数, 包括已经退出的
+	 * @since v0.3.3
+	 */
+	public int size() {
+		return exeIds.length;
+	}
+	
+	/**
+	 * @param index
+	 *   序号, 范围 [0, {@link #size()})
+	 * @return
+	 *   执行器标识号. 已经退出协议的, 返回 -1
+	 * @since v0.3.3
+	 */
+	public int exeIdAt(int index) {
+		return exeIds[index];
+	}
+	
+	/**
+	 * @param index
+	 *   序号, 范围 [0, {@link #size()})
+	 * @return
+	 *   压缩后的同步位置, 见 {@link FtmPosition#pack(int, int)}
+	 * @since v0.3.3
+	 */
+	public int packedPosAt(int index) {
+		return packedPoses[index];
+	}
+	
+	/**
+	 * @param exeId
+	 *   执行器标识号
+	 * @return
+	 *   该执行器压缩后的同步位置. 如果执行器不在协议中, 返回 -1
+	 * @since v0.3.3
+	 */
+	public int packedPosOf(int exeId) {
+		for (int i = 0; i < exeIds.length; i++) {
+			if (exeIds[i] == exeId) {
+				return packedPoses[i];
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * 栅栏放行时, 记录还没有到达同步位置的执行器. 它们之后到达时直接通过
+	 * @param index
+	 *   序号, 范围 [0, {@link #size()})
+	 * @since v0.3.3
+	 */
+	public void grantPass(int index) {
+		passes[index] = true;
+	}
+	
+	/**
+	 * 执行器到达同步位置时调用, 查看该执行器是否在之前的放行中已经通过.
+	 * 已经通过的记录在调用之后清除
+	 * @param exeId
+	 *   执行器标识号
+	 * @return
+	 *   如果该执行器已经通过, 不需要等待, 返回 true
+	 * @since v0.3.3
+	 */
+	public boolean takePass(int exeId) {
+		for (int i = 0; i < exeIds.length; i++) {
+			if (exeIds[i] == exeId && passes[i]) {
+				passes[i] = false;
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * 让指定执行器退出协议
+	 * @param exeId
+	 *   执行器标识号
+	 * @return
+	 *   协议中仍然有效的执行器个数. 少于等于 1 时, 协议应当取消
+	 * @since v0.3.3
+	 */
+	public int quit(int exeId) {
+		for (int i = 0; i < exeIds.length; i++) {
+			if (exeIds[i] == exeId) {
+				exeIds[i] = -1;
+				remain--;
+			}
+		}
+		return remain;
+	}
 
 }
@@ -21,11 +21,19 @@ public class WaitingAgreementEntry extends AbstractAgreementEntry {
 		this.waitPos = ref.waitPos;
 		this.dependExeId = ref.dependExeId;
 		this.dependPos = ref.dependPos;
+		this.waitPacked = waitPos.pack();
+		this.dependPacked = dependPos.pack();
 	}
 
 	public final int waitExeId;
 	public final FtmPosition waitPos;
 	public final int dependExeId;
 	public final FtmPosition dependPos;
+	
+	/**
+	 * 压缩后的等待位置与依据位置, 见 {@link FtmPosition#pack(int, int)}
+	 * @since v0.3.3
+	 */
+	public final int waitPacked, dependPacked;
 
 }
@@ -73,6 +73,58 @@ public class FtmPosition implements Cloneable, Comparable<FtmPosition> {
 		this.row = o.row;
 	}
 
+	/* **********
+	 *   压缩   *
+	 ********** */
+	
+	/**
+	 * <p>将位置压缩为一个 int: <code>section &lt;&lt; 16 | row</code>.
+	 * <p>压缩后的位置之间的大小关系与 {@link #compareTo(FtmPosition)} 相同.
+	 * 用于需要频繁比较位置、又不希望创建 {@link FtmPosition} 实例的场合.
+	 * </p>
+	 * @param section
+	 *   段号
+	 * @param row
+	 *   行号
+	 * @return
+	 *   压缩后的位置
+	 * @since v0.3.3
+	 */
+	public static int pack(int section, int row) {
+		return section << 16 | row;
+	}
+	
+	/**
+	 * @param packed
+	 *   压缩后的位置, 见 {@link #pack(int, int)}
+	 * @return
+	 *   段号
+	 * @since v0.3.3
+	 */
+	public static int sectionOf(int packed) {
+		return packed >>> 16;
+	}
+	
+	/**
+	 * @param packed
+	 *   压缩后的位置, 见 {@link #pack(int, int)}
+	 * @return
+	 *   行号
+	 * @since v0.3.3
+	 */
+	public static int rowOf(int packed) {
+		return packed & 0xFFFF;
+	}
+	
+	/**
+	 * @return
+	 *   压缩后的位置, 见 {@link #pack(int, int)}
+	 * @since v0.3.3
+	 */
+	public int pack() {
+		return pack(section, row);
+	}
+	
 	@Override
 	public String toString() {
 		return "FtmPosition [section=" + section + ", row=" + row + "]";
@@ -1,5 +1,6 @@
 package zdream.nsfplayer.ftm.renderer;
 
+import static java.util.Objects.requireNonNull;
 import static zdream.nsfplayer.core.NsfStatic.BASE_FREQ_NTSC;
 
 import java.util.Set;
@@ -13,6 +14,7 @@ import zdream.nsfplayer.core.NsfRateConverter;
 import zdream.nsfplayer.ftm.audio.FtmAudio;
 import zdream.nsfplayer.ftm.executor.FamiTrackerExecutor;
 import zdream.nsfplayer.ftm.executor.FamiTrackerParameter;
+import zdream.nsfplayer.ftm.executor.FtmCheckpoints;
 import zdream.nsfplayer.ftm.executor.hook.IFtmExecutedListener;
 import zdream.nsfplayer.ftm.executor.hook.IFtmFetchListener;
 import zdream.nsfplayer.ftm.process.base.FtmPosition;
@@ -21,6 +23,7 @@ import zdream.nsfplayer.mixer.IMixerConfig;
 import zdream.nsfplayer.mixer.IMixerHandler;
 import zdream.nsfplayer.mixer.ISoundMixer;
 import zdream.nsfplayer.mixer.xgm.XgmMixerConfig;
+import zdream.nsfplayer.mpeg.renderer.MpegChannel;
 import zdream.nsfplayer.sound.AbstractNsfSound;
 
 /**
@@ -59,6 +62,12 @@ public class FamiTrackerRenderer extends AbstractNsfRenderer<FtmAudio> {
 	
 	private NsfCommonParameter param = new NsfCommonParameter();
 	
+	/**
+	 * 接入的 MPEG 轨道. 没有接入时为 null
+	 * @since v0.3.3
+	 */
+	private MpegChannel mpeg;
+	
 	/**
 	 * 利用默认配置产生一个音频渲染器
 	 */
@@ -167,6 +176,35 @@ public class FamiTrackerRenderer extends AbstractNsfRenderer<FtmAudio> {
 		connectChannels();
 	}
 	
+	/**
+	 * <p>将渲染器恢复到刚刚创建时的状态, 以便重复使用.
+	 * <p>清空所有的监听器, 取消所有轨道的屏蔽, 拆开混音器的所有轨道 (包括接入的 MPEG 轨道) 并丢弃混音器的设置,
+	 * 播放速度恢复为 1.
+	 * 调用之后需要重新调用 {@link #ready(FtmAudio, int)} 等含 {@link FtmAudio} 参数的方法.
+	 * </p>
+	 * @since v0.3.3
+	 */
+	@Override
+	public void resetForReuse() {
+		executor.clearFetchListener();
+		executor.clearExecuteFinishedListener();
+		
+		for (byte channelCode : executor.allChannelSet()) {
+			AbstractNsfSound sound = executor.getSound(channelCode);
+			if (sound != null) {
+				sound.setMuted(false);
+			}
+		}
+		
+		detachMpeg();
+		mixer.resetForReuse();
+		channels = null;
+		
+		// 播放速度在下一次 ready 时重新计算
+		param.speed = 1;
+		super.resetForReuse();
+	}
+	
 	/**
 	 * <p>在不更改 Ftm 音频的同时, 重置当前曲目, 让播放的位置重置到曲目开头
 	 * <p>第一次播放时需要指定 Ftm 音频数据.
@@ -244,6 +282,38 @@ public class FamiTrackerRenderer extends AbstractNsfRenderer<FtmAudio> {
 		resetMixer();
 	}
 	
+	/**
+	 * <p>利用检查点, 准确地切换到指定曲目的指定行.
+	 * <p>与 {@link #ready(int, int, int)} 不同, 切换之后各轨道的乐器序列、颤音、滑音等状态,
+	 * 与从曲目开头一直播放到该行时相同, 而最多只需要执行一段 (不发声),
+	 * 比 {@link #skip(int)} 从曲目开头执行快得多. 混音器会重置.
+	 * <p>如果检查点的音频、曲目与现在播放的不同, 会先切换音频、曲目.
+	 * </p>
+	 * @param checkpoints
+	 *   曲目的检查点, 见 {@link FtmCheckpoints#build(FtmAudio, int)}
+	 * @param section
+	 *   段号, 从 0 开始
+	 * @param row
+	 *   行号, 从 0 开始
+	 * @return
+	 *   是否准确地切换. 如果正常播放时不会播放到该行, 按 {@link #ready(int, int, int)} 的方式切换,
+	 *   返回 false
+	 * @throws NullPointerException
+	 *   当 checkpoints == null 时
+	 * @see FamiTrackerExecutor#seek(FtmCheckpoints, int, int)
+	 * @since v0.3.3
+	 */
+	public boolean seek(FtmCheckpoints checkpoints, int section, int row) {
+		requireNonNull(checkpoints, "检查点 checkpoints = null");
+		
+		if (executor.getAudio() != checkpoints.getAudio()) {
+			ready(checkpoints.getAudio(), checkpoints.getTrack());
+		}
+		boolean accurate = executor.seek(checkpoints, section, row);
+		resetMixer();
+		return accurate;
+	}
+	
 	/**
 	 * <p>不改变各个轨道参数的情况下, 切换到指定播放位置.
 	 * 切换时, 各轨道的播放音高、音量、效果等均不改变, 这也包括延迟效果 Gxx.
@@ -311,11 +381,17 @@ public class FamiTrackerRenderer extends AbstractNsfRenderer<FtmAudio> {
 		int ret = countNextFrame();
 		param.sampleInCurFrame = ret;
 		rate.doConvert();
+		if (mpeg != null) {
+			mpeg.beforeFrame();
+		}
 		mixer.readyBuffer();
 		
 		handleDelay();
 		executor.tick();
 		triggerSounds();
+		if (mpeg != null) {
+			mpeg.processFrame();
+		}
 		
 		// 从 mixer 中读取数据
 		readMixer();
@@ -336,6 +412,9 @@ public class FamiTrackerRenderer extends AbstractNsfRenderer<FtmAudio> {
 		rate.doConvert();
 
 		executor.tick();
+		if (mpeg != null) {
+			mpeg.skipFrame();
+		}
 		
 		return ret;
 	}
@@ -592,8 +671,8 @@ public class FamiTrackerRenderer extends AbstractNsfRenderer<FtmAudio> {
 				// 音量
 				mix.setLevel(getInitLevel(channelCode));
 				
-				// TODO 告诉混音器更多的信息, 包括发声器的输出采样率 (NSF 的为 177万, mpeg 的为 44100 或 48000 等)
-				
+				// NES 的发声器使用全局的入采样数 (每帧的时钟数).
+				// MPEG 轨道的入采样数由 MpegChannel 每帧告诉混音器
 			}
 			
 			// channel param
@@ -605,6 +684,58 @@ public class FamiTrackerRenderer extends AbstractNsfRenderer<FtmAudio> {
 			
 			index++;
 		}
+		
+		connectMpeg();
+	}
+	
+	/**
+	 * 将接入的 MPEG 轨道连接到混音器
+	 * @since v0.3.3
+	 */
+	private void connectMpeg() {
+		if (mpeg != null) {
+			mpeg.setFrameRate(executor.getFrameRate());
+			mpeg.connect(mixer);
+		}
+	}
+	
+	/**
+	 * <p>接入 MPEG 轨道, 让 MPEG 音频与 FTM 的轨道在同一个混音器中混音.
+	 * <p>MPEG 轨道跟随该渲染器逐帧渲染、跳过. 渲染器的播放速度改变时, MPEG 音频的速度、音调随之改变.
+	 * 渲染器读取新的 FTM 音频时, MPEG 轨道会重新连接到混音器, 播放位置不变.
+	 * 之前接入的 MPEG 轨道将被拆开.
+	 * </p>
+	 * @param mpeg
+	 *   MPEG 轨道, 需要已经调用过 {@link MpegChannel#ready(zdream.nsfplayer.mpeg.MpegAudio)}.
+	 *   为 null 时, 等同于 {@link #detachMpeg()}
+	 * @since v0.3.3
+	 */
+	public void attachMpeg(MpegChannel mpeg) {
+		detachMpeg();
+		this.mpeg = mpeg;
+		if (channels != null) {
+			connectMpeg();
+		}
+	}
+	
+	/**
+	 * 拆开接入的 MPEG 轨道
+	 * @since v0.3.3
+	 */
+	public void detachMpeg() {
+		if (mpeg != null) {
+			mpeg.disconnect();
+			mpeg = null;
+		}
+	}
+	
+	/**
+	 * @return
+	 *   接入的 MPEG 轨道. 没有接入时为 null
+	 * @since v0.3.3
+	 */
+	public MpegChannel getMpeg() {
+		return mpeg;
 	}
 	
 	/**
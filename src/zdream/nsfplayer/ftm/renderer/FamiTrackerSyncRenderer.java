@@ -7,6 +7,8 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import zdream.nsfplayer.core.AbstractRenderer;
 import zdream.nsfplayer.core.INsfChannelCode;
@@ -20,6 +22,7 @@ import zdream.nsfplayer.ftm.executor.FamiTrackerExecutor;
 import zdream.nsfplayer.ftm.executor.hook.IFtmExecutedListener;
 import zdream.nsfplayer.ftm.executor.hook.IFtmFetchListener;
 import zdream.nsfplayer.ftm.process.SyncProcessManager;
+import zdream.nsfplayer.ftm.process.agreement.BarrierAgreement;
 import zdream.nsfplayer.ftm.process.agreement.WaitingAgreement;
 import zdream.nsfplayer.ftm.process.base.FtmPosition;
 import zdream.nsfplayer.mixer.EmptyMixerChannel;
@@ -34,6 +37,9 @@ import zdream.nsfplayer.sound.AbstractNsfSound;
  * <p>该渲染器是线程不安全的, 请注意不要在渲染途中设置参数.
  * </p>
  * 
+ * @version v0.3.3
+ * <br>补充执行器的并行执行, 见 {@link #setParallelPool(java.util.concurrent.ForkJoinPool)}.
+ * 
  * @author Zdream
  * @since v0.3.1
  */
@@ -98,6 +104,28 @@ public class FamiTrackerSyncRenderer extends AbstractRenderer<FtmAudio>
 		this.mixer.reset();
 	}
 	
+	/**
+	 * <p>将渲染器恢复到刚刚创建时的状态, 以便重复使用.
+	 * <p>删除所有的执行器 (连同它们的监听器) 与等待协议, 只保留一个未使用的主执行器;
+	 * 拆开混音器的所有轨道并丢弃混音器的设置, 播放速度恢复为 1.
+	 * 混音器实例会被保留, 不会重新创建.
+	 * </p>
+	 * @since v0.3.3
+	 */
+	@Override
+	public void resetForReuse() {
+		mixer.resetForReuse();
+		process = new SyncProcessManager();
+		initExecutors();
+		parallelPool = null;
+		Arrays.fill(tasks, null);
+		taskCount = 0;
+		
+		param.frameRate = NsfStatic.FRAME_RATE_NTSC;
+		param.speed = 1;
+		super.resetForReuse();
+	}
+	
 	/* **********
 	 * 准备部分 *
 	 ********** */
@@ -265,9 +293,13 @@ public class FamiTrackerSyncRenderer extends AbstractRenderer<FtmAudio>
 		rate.doConvert();
 		mixer.readyBuffer();
 		
-		handleDelay();
-		tickExeutors();
-		triggerSounds();
+		if (isParallel()) {
+			renderParallel();
+		} else {
+			handleDelay();
+			tickExeutors();
+			triggerSounds();
+		}
 		
 		// 从 mixer 中读取数据
 		readMixer();
@@ -281,7 +313,12 @@ public class FamiTrackerSyncRenderer extends AbstractRenderer<FtmAudio>
 		param.sampleInCurFrame = ret;
 		rate.doConvert();
 		
-		tickExeutors();
+		if (isParallel()) {
+			tickParallel(false);
+			updateProcess();
+		} else {
+			tickExeutors();
+		}
 		
 		return ret;
 	}
@@ -305,10 +342,17 @@ public class FamiTrackerSyncRenderer extends AbstractRenderer<FtmAudio>
 			
 			// 位置更新
 			if (ep.executor.isRowUpdated()) {
-				process.updatePosition(ep.id, ep.executor.currentPosition());
+				process.updatePosition(ep.id, ep.executor.getCurrentSection(), ep.executor.getCurrentRow());
 			}
 		}
 		
+		updateStates();
+	}
+	
+	/**
+	 * 所有执行器执行完一帧之后, 更新等待协议的状态与 started 值
+	 */
+	private void updateStates() {
 		process.updateStates();
 
 		// 更新 started 值. 该值只能在第一帧全跑完之后确定. 所以放在这里
@@ -393,6 +437,289 @@ public class FamiTrackerSyncRenderer extends AbstractRenderer<FtmAudio>
 		mixer.readBuffer(data, 0, data.length);
 	}
 	
+	/* **********
+	 * 并行执行 *
+	 ********** */
+	
+	/**
+	 * 执行器并行执行使用的线程池. 为 null 时所有执行器在渲染线程中逐个执行
+	 */
+	private ForkJoinPool parallelPool;
+	
+	/**
+	 * 每个需要工作的执行器对应的任务. 数组只增长, 前 taskCount 个有效
+	 */
+	private ExecutorTask[] tasks = new ExecutorTask[0];
+	private int taskCount;
+	private final FrameTask frameTask = new FrameTask();
+	
+	private static final int PHASE_TICK = 0;
+	private static final int PHASE_TRIGGER = 1;
+	
+	/**
+	 * <p>设置执行器并行执行使用的线程池.
+	 * <p>各个执行器在两次等待协议的状态更新 ({@link SyncProcessManager#updateStates()}) 之间互不影响,
+	 * 因此每一帧中, 各执行器的执行、以及它们发声器的工作, 可以放到线程池中同时进行.
+	 * 所有执行器都完成之后, 渲染线程再更新等待协议, 并从混音器中读取数据.
+	 * 渲染结果与不使用线程池时相同.
+	 * <p>发声器只有在混音器允许多个线程同时写入不同的轨道时
+	 * (见 {@link ISoundMixer#isChannelIndependent()}, 比如 Xgm 混音器) 才会并行工作,
+	 * 否则只有执行器的执行是并行的, 发声器仍然在渲染线程中逐个工作.
+	 * <p>启用之后, 执行器的监听器 ({@link IFtmFetchListener}, {@link IFtmExecutedListener})
+	 * 可能在线程池的线程中被调用, 同一个执行器的监听器不会被同时调用.
+	 * <p>同时工作的执行器只有一个时, 不使用线程池.
+	 * </p>
+	 * @param pool
+	 *   线程池. 为 null 时不并行执行, 这也是默认值
+	 * @since v0.3.3
+	 */
+	public void setParallelPool(ForkJoinPool pool) {
+		this.parallelPool = pool;
+	}
+	
+	/**
+	 * @return
+	 *   执行器并行执行使用的线程池. 没有设置时返回 null
+	 * @see #setParallelPool(ForkJoinPool)
+	 * @since v0.3.3
+	 */
+	public ForkJoinPool getParallelPool() {
+		return parallelPool;
+	}
+	
+	/**
+	 * 本帧是否需要并行执行. 需要设置了线程池, 且有多个执行器需要工作
+	 */
+	private boolean isParallel() {
+		if (parallelPool == null || parallelPool.getParallelism() <= 1) {
+			return false;
+		}
+		
+		int count = 0;
+		for (ExecutorParam ep : eParams) {
+			if (ep != null && ep.enable && !ep.stop && ++count > 1) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * <p>并行地渲染一帧. 与 {@link #handleDelay()}, {@link #tickExeutors()}, {@link #triggerSounds()}
+	 * 依次执行的结果相同.
+	 * <p>如果混音器不允许多个线程同时写入, 发声器的工作仍然在渲染线程中进行.
+	 * </p>
+	 */
+	private void renderParallel() {
+		if (mixer.isChannelIndependent()) {
+			countDelay();
+			tickParallel(true);
+			updateProcess();
+			collectTasks();
+			runTasks(PHASE_TRIGGER);
+		} else {
+			handleDelay();
+			tickParallel(false);
+			updateProcess();
+			triggerSounds();
+		}
+	}
+	
+	/**
+	 * 与 {@link #handleDelay()} 相同, 计算每个轨道的延迟, 但发声器不工作
+	 */
+	private void countDelay() {
+		int delay = 0;
+		final int clock = param.freqPerFrame;
+		for (int i = 0; i < this.cParams.length; i++) {
+			ChannelParam cp = cParams[i];
+			if (cp == null) {
+				continue;
+			}
+			
+			ExecutorParam ep = eParams[cp.executorId];
+			if (!ep.enable || ep.stop) {
+				continue;
+			}
+			
+			if (ep.started) {
+				cp.delay = delay;
+			}
+			
+			delay += 100;
+			if (delay >= clock) {
+				delay = clock - 1;
+			}
+		}
+	}
+	
+	/**
+	 * 让所有未停止、未等待的执行器并行地执行一帧
+	 * @param withSound
+	 *   执行前发声器是否先工作延迟的时钟数 (见 {@link #handleDelay()})
+	 */
+	private void tickParallel(boolean withSound) {
+		collectTasks();
+		for (int i = 0; i < taskCount; i++) {
+			ExecutorParam ep = tasks[i].ep;
+			ep.waiting = process.isWaiting(ep.id);
+			ep.ticked = false;
+			tasks[i].withSound = withSound;
+		}
+		runTasks(PHASE_TICK);
+	}
+	
+	/**
+	 * 并行执行之后, 在渲染线程中更新执行器的位置与等待协议的状态
+	 */
+	private void updateProcess() {
+		for (int i = 0; i < taskCount; i++) {
+			ExecutorParam ep = tasks[i].ep;
+			if (ep.ticked && ep.executor.isRowUpdated()) {
+				process.updatePosition(ep.id, ep.executor.getCurrentSection(), ep.executor.getCurrentRow());
+			}
+		}
+		updateStates();
+	}
+	
+	/**
+	 * 收集所有未停止的执行器. 等待中的执行器也包含在内, 它们的发声器仍然需要工作
+	 */
+	private void collectTasks() {
+		int count = 0;
+		for (ExecutorParam ep : eParams) {
+			if (ep == null || !ep.enable || ep.stop) {
+				continue;
+			}
+			if (count == tasks.length) {
+				tasks = Arrays.copyOf(tasks, count * 2 + 4);
+			}
+			if (tasks[count] == null) {
+				tasks[count] = new ExecutorTask();
+			}
+			tasks[count++].ep = ep;
+		}
+		taskCount = count;
+	}
+	
+	private void runTasks(int phase) {
+		if (taskCount == 0) {
+			return;
+		}
+		frameTask.reinitialize();
+		frameTask.phase = phase;
+		parallelPool.invoke(frameTask);
+	}
+	
+	/**
+	 * 执行器并行执行前的部分: 发声器工作延迟的时钟数, 然后执行一帧
+	 */
+	private void tickExecutor(ExecutorTask task) {
+		ExecutorParam ep = task.ep;
+		if (task.withSound && ep.started) {
+			for (int i = 0; i < this.cParams.length; i++) {
+				ChannelParam cp = cParams[i];
+				if (cp != null && cp.executorId == ep.id) {
+					ep.executor.getSound(cp.channelCode).process(cp.delay);
+				}
+			}
+		}
+		
+		if (ep.waiting) {
+			// 协议: 等待中
+			return;
+		}
+		ep.executor.tick();
+		ep.ticked = true;
+		if (ep.executor.isFinished()) {
+			ep.stop = true;
+		}
+	}
+	
+	/**
+	 * 与 {@link #triggerSounds()} 相同, 但只处理一个执行器的发声器
+	 */
+	private void triggerExecutor(ExecutorTask task) {
+		ExecutorParam ep = task.ep;
+		final int clock = param.freqPerFrame;
+		for (int i = 0; i < this.cParams.length; i++) {
+			ChannelParam cp = cParams[i];
+			if (cp == null || cp.executorId != ep.id) {
+				continue;
+			}
+			
+			AbstractNsfSound s = ep.executor.getSound(cp.channelCode);
+			if (ep.started) {
+				s.process(clock - cp.delay);
+			}
+			s.endFrame();
+			cp.delay = 0;
+		}
+	}
+	
+	/**
+	 * 一个执行器在一帧中的工作
+	 */
+	private final class ExecutorTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		
+		ExecutorParam ep;
+		boolean withSound;
+		int phase;
+		
+		@Override
+		protected void compute() {
+			if (phase == PHASE_TICK) {
+				tickExecutor(this);
+			} else {
+				triggerExecutor(this);
+			}
+		}
+	}
+	
+	/**
+	 * 一帧中所有执行器的工作. 渲染线程等待它完成, 作为每帧的栅栏
+	 */
+	private final class FrameTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		
+		int phase;
+		
+		@Override
+		protected void compute() {
+			final int count = taskCount;
+			for (int i = 1; i < count; i++) {
+				ExecutorTask task = tasks[i];
+				task.reinitialize();
+				task.phase = phase;
+				task.fork();
+			}
+			
+			RuntimeException ex = null;
+			ExecutorTask first = tasks[0];
+			first.phase = phase;
+			try {
+				first.compute();
+			} catch (RuntimeException e) {
+				ex = e;
+			}
+			
+			// 等待所有执行器完成后再抛出异常
+			for (int i = 1; i < count; i++) {
+				try {
+					tasks[i].join();
+				} catch (RuntimeException e) {
+					if (ex == null) {
+						ex = e;
+					}
+				}
+			}
+			if (ex != null) {
+				throw ex;
+			}
+		}
+	}
+	
 	/* **********
 	 * 分配轨道 *
 	 ********** */
@@ -423,6 +750,17 @@ public class FamiTrackerSyncRenderer extends AbstractRenderer<FtmAudio>
 		 */
 		boolean started;
 		
+		/**
+		 * 并行执行时使用. 本帧开始时是否由于等待协议而等待
+		 * @since v0.3.3
+		 */
+		boolean waiting;
+		/**
+		 * 并行执行时使用. 本帧是否执行了一帧
+		 * @since v0.3.3
+		 */
+		boolean ticked;
+		
 		public ExecutorParam(int id) {
 			this.id = id;
 		}
@@ -828,7 +1166,7 @@ public class FamiTrackerSyncRenderer extends AbstractRenderer<FtmAudio>
 		ep.executor.ready(track);
 		
 		// process 管理
-		process.updatePosition(exeId, ep.executor.currentPosition());
+		process.updatePosition(exeId, ep.executor.getCurrentSection(), ep.executor.getCurrentRow());
 		
 		// started 参数
 		ep.started = false;
@@ -857,7 +1195,7 @@ public class FamiTrackerSyncRenderer extends AbstractRenderer<FtmAudio>
 		ep.executor.ready(track, section);
 		
 		// process 管理
-		process.updatePosition(exeId, ep.executor.currentPosition());
+		process.updatePosition(exeId, ep.executor.getCurrentSection(), ep.executor.getCurrentRow());
 		
 		// started 参数
 		ep.started = false;
@@ -889,7 +1227,7 @@ public class FamiTrackerSyncRenderer extends AbstractRenderer<FtmAudio>
 		ep.executor.ready(track, section, row);
 		
 		// process 管理
-		process.updatePosition(exeId, ep.executor.currentPosition());
+		process.updatePosition(exeId, ep.executor.getCurrentSection(), ep.executor.getCurrentRow());
 		
 		// started 参数
 		ep.started = false;
@@ -966,7 +1304,7 @@ public class FamiTrackerSyncRenderer extends AbstractRenderer<FtmAudio>
 		}
 		
 		// process 管理
-		process.updatePosition(exeId, ep.executor.currentPosition());
+		process.updatePosition(exeId, ep.executor.getCurrentSection(), ep.executor.getCurrentRow());
 		
 		// started 参数
 		ep.started = false;
@@ -1041,7 +1379,7 @@ public class FamiTrackerSyncRenderer extends AbstractRenderer<FtmAudio>
 		}
 		
 		// process 管理
-		process.updatePosition(exeId, ep.executor.currentPosition());
+		process.updatePosition(exeId, ep.executor.getCurrentSection(), ep.executor.getCurrentRow());
 		
 		// started 参数
 		ep.started = false;
@@ -1580,5 +1918,30 @@ public class FamiTrackerSyncRenderer extends AbstractRenderer<FtmAudio>
 	public void removeWaitingAgreement(WaitingAgreement a) {
 		process.removeWaitingAgreement(a);
 	}
+	
+	/**
+	 * <p>添加栅栏协议.
+	 * <p>协议中的执行器到达各自的指定位置后开始等待,
+	 * 直到所有执行器都到达指定位置, 或者超过了超时时间, 一起放行.
+	 * </p>
+	 * @param a
+	 *   协议数据
+	 * @throws NullPointerException
+	 *   当协议中有不存在的执行器时
+	 * @since v0.3.3
+	 */
+	public void addBarrierAgreement(BarrierAgreement a) {
+		process.addBarrierAgreement(a);
+	}
+	
+	/**
+	 * 删除栅栏协议
+	 * @param a
+	 *   协议数据
+	 * @since v0.3.3
+	 */
+	public void removeBarrierAgreement(BarrierAgreement a) {
+		process.removeBarrierAgreement(a);
+	}
 
 }
@@ -17,6 +17,18 @@ public interface ISoundMixer extends IResetable, INsfChannelCode {
 	default void init() {
 		// do nothing
 	}
+	
+	/**
+	 * <p>将混音器恢复到刚刚创建、调用完 {@link #init()} 时的状态, 用于渲染器的重复使用.
+	 * <p>与 {@link #reset()} 不同, 该方法还会拆开所有的轨道,
+	 * 并丢弃用户对拦截器组等混音效果的修改. 调用之后需要重新调用 {@link #allocateChannel(byte)} 连接轨道.
+	 * </p>
+	 * @since v0.3.3
+	 */
+	default void resetForReuse() {
+		detachAll();
+		reset();
+	}
 
 	/* **********
 	 * 音频管道 *
@@ -87,6 +99,22 @@ public interface ISoundMixer extends IResetable, INsfChannelCode {
 	 */
 	default public void setInSample(int id, int inSample) {}
 	
+	/**
+	 * <p>询问是否允许在多个线程中同时向不同的轨道写入数据.
+	 * <p>如果每个轨道 {@link IMixerChannel} 各自缓存写入的数据、互不影响, 返回 true.
+	 * 此时不同轨道的 {@link IMixerChannel#mix(int, int)} 可以在不同的线程中同时调用,
+	 * 但同一个轨道仍然只能在一个线程中写入.
+	 * 如果轨道共用缓冲区, 返回 false, 所有轨道只能在同一个线程中写入.
+	 * <p>{@link #readyBuffer()}, {@link #finishBuffer()} 等其它方法任何情况下都只能在一个线程中调用.
+	 * </p>
+	 * @return
+	 *   默认 false
+	 * @since v0.3.3
+	 */
+	default boolean isChannelIndependent() {
+		return false;
+	}
+	
 	/**
 	 * 每帧启用混音器前调用
 	 */
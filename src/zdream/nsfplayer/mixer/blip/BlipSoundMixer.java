@@ -40,6 +40,17 @@ public class BlipSoundMixer extends AbstractNsfSoundMixer<BlipMixerChannel> {
 		buffer.clockRate(param.freqPerSec);
 	}
 	
+	/**
+	 * 重新初始化 Blip 缓冲区, 丢弃上次使用时缓冲区内残留的数据
+	 * @since v0.3.3
+	 */
+	@Override
+	public void resetForReuse() {
+		detachAll();
+		init();
+		reset();
+	}
+	
 	/**
 	 * 根据配置项重置参数
 	 * @param config
@@ -123,6 +134,12 @@ public class BlipSoundMixer extends AbstractNsfSoundMixer<BlipMixerChannel> {
 			mixer.updateSetting(12, -800);
 		} break;
 		
+		case CHANNEL_TYPE_MPEG:
+		{
+			// 16 位采样数据. 输出一半的振幅, 与 Xgm 混音器相同
+			mixer.updateSetting(12, -131072);
+		} break;
+		
 		default:
 		{
 			mixer.updateSetting(12, -1);
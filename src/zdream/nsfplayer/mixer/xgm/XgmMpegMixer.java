@@ -0,0 +1,72 @@
+package zdream.nsfplayer.mixer.xgm;
+
+/**
+ * <p>MPEG 采样音频轨道的合并轨道, 只有一个轨道.
+ * <p>轨道的入采样数由 {@link XgmMultiSoundMixer#setInSample(int, int)} 指定,
+ * 因此 44100 Hz 等采样率的音频能和 NSF 的轨道一起混音.
+ * </p>
+ *
+ * @author Zdream
+ * @since v0.3.3
+ */
+public class XgmMpegMixer extends AbstractXgmMultiMixer {
+
+	final XgmLinearChannel ch;
+	private boolean enable;
+
+	public XgmMpegMixer() {
+		ch = new XgmLinearChannel();
+	}
+
+	@Override
+	public void reset() {
+		super.reset();
+		ch.reset();
+	}
+
+	@Override
+	public XgmLinearChannel getRemainAudioChannel(byte type) {
+		if (type != CHANNEL_TYPE_MPEG) {
+			return null;
+		}
+
+		if (!enable) {
+			return ch;
+		}
+		return null;
+	}
+
+	@Override
+	public void setEnable(AbstractXgmAudioChannel channel, boolean enable) {
+		if (channel == this.ch) {
+			this.enable = enable;
+		}
+	}
+
+	@Override
+	public boolean isEnable(AbstractXgmAudioChannel channel) {
+		if (channel == this.ch) {
+			return enable;
+		}
+		return false;
+	}
+
+	@Override
+	public void beforeRender() {
+		super.beforeRender();
+		if (enable)
+			ch.beforeSubmit();
+	}
+
+	@Override
+	public int render(int index) {
+		if (!enable) {
+			return 0;
+		}
+
+		int value = (int) (ch.read(index) * ch.getLevel());
+		value = intercept(value, 1);
+		return value;
+	}
+
+}
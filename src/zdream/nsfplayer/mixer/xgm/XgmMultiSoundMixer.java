@@ -4,6 +4,7 @@ import static java.util.Objects.requireNonNull;
 import static zdream.nsfplayer.core.NsfChannelCode.chipOfChannel;
 
 import java.util.ArrayList;
+import java.util.Collections;
 
 import zdream.nsfplayer.core.NsfCommonParameter;
 import zdream.nsfplayer.core.NsfPlayerException;
@@ -126,6 +127,11 @@ public class XgmMultiSoundMixer extends AbstractNsfSoundMixer<AbstractXgmAudioCh
 			interceptors[i] = initInterceptors(new ArrayList<>());
 		}
 		interceptorArray = new ISoundInterceptor[trackCount][];
+		
+		defaultInterceptors = new ISoundInterceptor[trackCount][];
+		for (int i = 0; i < trackCount; i++) {
+			defaultInterceptors[i] = interceptors[i].toArray(new ISoundInterceptor[0]);
+		}
 	}
 	
 	protected class XgmMultiChannelAttr extends ChannelAttr {
@@ -238,6 +244,9 @@ public class XgmMultiSoundMixer extends AbstractNsfSoundMixer<AbstractXgmAudioCh
 		case CHIP_S5B:
 			multi = new XgmS5BMixer();
 			break;
+		case CHIP_MPEG:
+			// 采样音频不经过模拟芯片输出的低通过滤和扩音器
+			return new XgmMpegMixer();
 		}
 		
 		if (multi != null) {
@@ -277,6 +286,24 @@ public class XgmMultiSoundMixer extends AbstractNsfSoundMixer<AbstractXgmAudioCh
 		}
 	}
 	
+	/**
+	 * <p>拆开所有轨道, 并将全局拦截器组恢复为默认的拦截器组.
+	 * <p>用户通过 {@link XgmMixerHandler} 添加、删除的拦截器, 以及修改过的参数、启用状态都将被丢弃.
+	 * </p>
+	 * @since v0.3.3
+	 */
+	@Override
+	public void resetForReuse() {
+		detachAll();
+		for (int i = 0; i < trackCount; i++) {
+			ArrayList<ISoundInterceptor> list = interceptors[i];
+			list.clear();
+			Collections.addAll(list, defaultInterceptors[i]);
+			configInterceptors(list);
+		}
+		reset();
+	}
+	
 	/* **********
 	 * 音频合成 *
 	 ********** */
@@ -296,27 +323,47 @@ public class XgmMultiSoundMixer extends AbstractNsfSoundMixer<AbstractXgmAudioCh
 	 */
 	private ISoundInterceptor[][] interceptorArray;
 	
+	/**
+	 * 默认的拦截器组, 用于 {@link #resetForReuse()} 时恢复. [声道][拦截器]
+	 * @since v0.3.3
+	 */
+	private ISoundInterceptor[][] defaultInterceptors;
+	
 	private ArrayList<ISoundInterceptor> initInterceptors(ArrayList<ISoundInterceptor> list) {
 		// 构造拦截器组
-		EchoUnit echo = new EchoUnit();
+		list.add(new EchoUnit()); // 注意, 回音是这里产生的. 如果想去掉回音, 修改这里
+		list.add(new DCFilter());
+		list.add(new Filter());
+		list.add(new Compressor());
+		
+		configInterceptors(list);
+		return list;
+	}
+	
+	/**
+	 * 设置默认拦截器组的参数, 并启用它们
+	 * @param list
+	 *   由 {@link #initInterceptors(ArrayList)} 构造的默认拦截器组
+	 * @since v0.3.3
+	 */
+	private void configInterceptors(ArrayList<ISoundInterceptor> list) {
+		EchoUnit echo = (EchoUnit) list.get(0);
 		echo.setRate(param.sampleRate);
-		list.add(echo); // 注意, 回音是这里产生的. 如果想去掉回音, 修改这里
 
-		DCFilter dcf = new DCFilter();
+		DCFilter dcf = (DCFilter) list.get(1);
 		dcf.setRate(param.sampleRate);
 		dcf.setParam(270, 164);
-		list.add(dcf);
 
-		Filter f = new Filter();
+		Filter f = (Filter) list.get(2);
 		f.setRate(param.sampleRate);
 		f.setParam(4700, 112);
-		list.add(f);
 
-		Compressor cmp = new Compressor();
+		Compressor cmp = (Compressor) list.get(3);
 		cmp.setParam(1, 1, 1);
-		list.add(cmp);
 		
-		return list;
+		for (ISoundInterceptor i : list) {
+			i.setEnable(true);
+		}
 	}
 	
 	/**
@@ -339,6 +386,15 @@ public class XgmMultiSoundMixer extends AbstractNsfSoundMixer<AbstractXgmAudioCh
 		return ret;
 	}
 	
+	/**
+	 * 每个轨道都有各自的缓冲区, 只在 {@link #finishBuffer()} 时合并.
+	 * @since v0.3.3
+	 */
+	@Override
+	public boolean isChannelIndependent() {
+		return true;
+	}
+	
 	@Override
 	public void readyBuffer() {
 		allocateSampleArray();
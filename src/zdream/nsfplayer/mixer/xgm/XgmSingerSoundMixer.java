@@ -1,6 +1,9 @@
 package zdream.nsfplayer.mixer.xgm;
 
+import static zdream.nsfplayer.core.NsfChannelCode.typeOfChannel;
+
 import java.util.ArrayList;
+import java.util.Collections;
 
 import zdream.nsfplayer.core.NsfCommonParameter;
 import zdream.nsfplayer.core.NsfPlayerException;
@@ -54,6 +57,9 @@ public class XgmSingerSoundMixer extends AbstractNsfSoundMixer<XgmSingleChannel>
 		
 		c.store = new XgmAudioChannel();
 		c.exp = NsfMixerSoundConvertor.getExpression(code);
+		if (typeOfChannel(code) == CHANNEL_TYPE_MPEG) {
+			c.master = 0.0625f;
+		}
 		c.setTrackCount(trackCount, param);
 		
 		return new ChannelAttr(code, c);
@@ -105,6 +111,11 @@ public class XgmSingerSoundMixer extends AbstractNsfSoundMixer<XgmSingleChannel>
 			interceptors[i] = initInterceptors(new ArrayList<>());
 		}
 		interceptorArray = new ISoundInterceptor[trackCount][];
+		
+		defaultInterceptors = new ISoundInterceptor[trackCount][];
+		for (int i = 0; i < trackCount; i++) {
+			defaultInterceptors[i] = interceptors[i].toArray(new ISoundInterceptor[0]);
+		}
 	}
 	
 	/* **********
@@ -126,27 +137,47 @@ public class XgmSingerSoundMixer extends AbstractNsfSoundMixer<XgmSingleChannel>
 	 */
 	private ISoundInterceptor[][] interceptorArray;
 	
+	/**
+	 * 默认的拦截器组, 用于 {@link #resetForReuse()} 时恢复. [声道][拦截器]
+	 * @since v0.3.3
+	 */
+	private ISoundInterceptor[][] defaultInterceptors;
+	
 	private ArrayList<ISoundInterceptor> initInterceptors(ArrayList<ISoundInterceptor> array) {
 		// 构造拦截器组
-		EchoUnit echo = new EchoUnit();
+		array.add(new EchoUnit()); // 注意, 回音是这里产生的. 如果想去掉回音, 修改这里
+		array.add(new DCFilter());
+		array.add(new Filter());
+		array.add(new Compressor());
+		
+		configInterceptors(array);
+		return array;
+	}
+	
+	/**
+	 * 设置默认拦截器组的参数, 并启用它们
+	 * @param array
+	 *   由 {@link #initInterceptors(ArrayList)} 构造的默认拦截器组
+	 * @since v0.3.3
+	 */
+	private void configInterceptors(ArrayList<ISoundInterceptor> array) {
+		EchoUnit echo = (EchoUnit) array.get(0);
 		echo.setRate(param.sampleRate);
-		array.add(echo); // 注意, 回音是这里产生的. 如果想去掉回音, 修改这里
 
-		DCFilter dcf = new DCFilter();
+		DCFilter dcf = (DCFilter) array.get(1);
 		dcf.setRate(param.sampleRate);
 		dcf.setParam(270, 164);
-		array.add(dcf);
 
-		Filter f = new Filter();
+		Filter f = (Filter) array.get(2);
 		f.setRate(param.sampleRate);
 		f.setParam(4700, 112);
-		array.add(f);
 
-		Compressor cmp = new Compressor();
+		Compressor cmp = (Compressor) array.get(3);
 		cmp.setParam(1, 1, 1);
-		array.add(cmp);
 		
-		return array;
+		for (ISoundInterceptor i : array) {
+			i.setEnable(true);
+		}
 	}
 	
 	/**
@@ -201,16 +232,48 @@ public class XgmSingerSoundMixer extends AbstractNsfSoundMixer<XgmSingleChannel>
 			interceptors[i].forEach(t -> t.reset());
 		}
 	}
+	
+	/**
+	 * <p>拆开所有轨道, 并将拦截器组恢复为默认的拦截器组.
+	 * <p>用户添加、删除的拦截器, 以及修改过的参数、启用状态都将被丢弃.
+	 * </p>
+	 * @since v0.3.3
+	 */
+	@Override
+	public void resetForReuse() {
+		detachAll();
+		for (int i = 0; i < trackCount; i++) {
+			ArrayList<ISoundInterceptor> list = interceptors[i];
+			list.clear();
+			Collections.addAll(list, defaultInterceptors[i]);
+			configInterceptors(list);
+		}
+		reset();
+	}
 
+	/**
+	 * 每个轨道都有各自的缓冲区, 只在 {@link #finishBuffer()} 时合并.
+	 * @since v0.3.3
+	 */
+	@Override
+	public boolean isChannelIndependent() {
+		return true;
+	}
+	
 	@Override
 	public void readyBuffer() {
 		allocateSampleArray();
+		int inSample;
 		for (ChannelAttr attr : attrs) {
 			if (attr == null) {
 				continue;
 			}
 			
-			attr.channel.checkCapacity(param.freqPerFrame, param.sampleInCurFrame);
+			inSample = attr.inSample;
+			if (inSample == 0) {
+				inSample = param.freqPerFrame;
+			}
+			attr.channel.checkCapacity(inSample, param.sampleInCurFrame);
 		}
 	}
 
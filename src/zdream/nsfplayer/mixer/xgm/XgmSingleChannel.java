@@ -27,6 +27,14 @@ public class XgmSingleChannel extends AbstractXgmAudioChannel implements ITrackC
 	 * 入采样数
 	 */
 	int inSample;
+	/**
+	 * <p>输出的放大倍数. NES 芯片的轨道为 12.
+	 * <p>MPEG 等采样音频的数据已经是 16 位的采样值, 设为 1/16. 经过轨道的扩音器 (8 倍) 之后
+	 * 输出一半的振幅, 与合并轨混音器、Blip 混音器的输出相同.
+	 * </p>
+	 * @since v0.3.3
+	 */
+	float master = 12;
 	
 	@Override
 	public void mix(int value, int time) {
@@ -83,7 +91,7 @@ public class XgmSingleChannel extends AbstractXgmAudioChannel implements ITrackC
 	 */
 	public int render(int index, int track) {
 		float lv = trackLevel[track];
-		float v = (lv == 0) ? 0 : read(index) * lv * 12;
+		float v = (lv == 0) ? 0 : read(index) * lv * master;
 		return intercept((int) v, 1, track);
 	}
 
@@ -14,6 +14,21 @@ public abstract class AbstractLayer {
 	 */
 	public abstract void ready(MpegFrameHead head);
 	
+	/**
+	 * 解码一帧. 解码出的 PCM 数据通过 {@link #synthesisSubBand(float[], int)}
+	 * 写入当前的输出缓冲区
+	 * @param bs
+	 *   数据
+	 * @param offset
+	 *   偏移量, 不包含帧头的数据, 希望也不包含 CRC 检验字段
+	 * @param length 
+	 *   数据长度
+	 * @return
+	 *   如果跳过了这一帧, 返回 false
+	 * @since v0.3.3
+	 */
+	protected abstract boolean decodeFrame(byte[] bs, int offset, int length);
+	
 	/**
 	 * 解码
 	 * @param bs
@@ -23,8 +38,41 @@ public abstract class AbstractLayer {
 	 * @param length 
 	 *   数据长度
 	 * @return
+	 *   PCM 数据, 16 位小端序, 各声道交替排列. 如果跳过了这一帧, 返回 null
+	 */
+	public byte[] decode(byte[] bs, int offset, int length) {
+		resetCursor(pcmbuf, 0);
+		if (!decodeFrame(bs, offset, length)) {
+			return null;
+		}
+		return outputPCM();
+	}
+	
+	/**
+	 * 解码, 将 PCM 数据直接写入 out 中, 不创建新的数组
+	 * @param bs
+	 *   数据
+	 * @param offset
+	 *   偏移量, 不包含帧头的数据, 希望也不包含 CRC 检验字段
+	 * @param length 
+	 *   数据长度
+	 * @param out
+	 *   接收 PCM 数据的数组, 各声道交替排列.
+	 *   从 off 开始至少需要 {@link MpegFrameHead#getPcmSize()} / 2 个元素
+	 * @param off
+	 *   out 开始写入的位置
+	 * @return
+	 *   写入的样本个数 (各声道合计). 如果跳过了这一帧, 返回 -1
+	 * @since v0.3.3
 	 */
-	public abstract byte[] decode(byte[] bs, int offset, int length);
+	public int decode(byte[] bs, int offset, int length, short[] out, int off) {
+		resetCursor(out, off);
+		boolean decoded = decodeFrame(bs, offset, length);
+		int count = writeCursor[0] - off;
+		resetCursor(pcmbuf, 0);
+		
+		return decoded ? count : -1;
+	}
 
 	/**
 	 * 声道数
@@ -32,24 +80,31 @@ public abstract class AbstractLayer {
 	private int channels;
 	
 	/*
-	 * 管理 PCM 缓冲区的5个变量
+	 * 管理 PCM 缓冲区的变量
 	 */
-	protected byte[] pcmbuf;
-	private int size;			// 一次向音频缓冲区 pcmbuf 写入的长度
-	private int[] writeCursor;	// 两个声道向 pcmbuf 写入数据时使用的偏移量
+	protected short[] pcmbuf;
+	private short[] output;		// 当前写入的缓冲区, pcmbuf 或者调用者提供的数组
+	private int[] writeCursor;	// 两个声道向 output 写入数据时使用的偏移量
 	
 	public AbstractLayer() {
 		
 	}
 	
 	protected void init(MpegFrameHead head) {
-		size = 2 * head.getPcmSize();	//#### 几处数字不能更改
-		
 		channels = head.getChannels();
 		filter = new Synthesis(channels);
 		writeCursor = new int[2];
-		writeCursor[1] = 2;				//####
-		pcmbuf = new byte[size * 4];	//####
+		pcmbuf = new short[head.getPcmSize()];	// 两帧的样本数
+		resetCursor(pcmbuf, 0);
+	}
+	
+	/**
+	 * 设置输出缓冲区, 并将写入位置放到 off
+	 */
+	private void resetCursor(short[] out, int off) {
+		output = out;
+		writeCursor[0] = off;
+		writeCursor[1] = off + 1;
 	}
 	
 	/*
@@ -66,7 +121,7 @@ public abstract class AbstractLayer {
 	 * @param ch 当前声道。0表示左声道，1表示右声道。
 	 */
 	protected final void synthesisSubBand (float[] samples, int ch) {
-		writeCursor[ch] = filter.synthesisSubBand(samples, ch, pcmbuf, writeCursor[ch]);
+		writeCursor[ch] = filter.synthesisSubBand(samples, ch, output, writeCursor[ch]);
 	}
 	
 	/**
@@ -79,14 +134,17 @@ public abstract class AbstractLayer {
 	 * @see #startAudio()
 	 */
 	protected byte[] outputPCM() {
-		byte[] ret = new byte[writeCursor[0]];
-		System.arraycopy(pcmbuf, 0, ret, 0, writeCursor[0]);
+		int len = writeCursor[0];
+		byte[] ret = new byte[len * 2];
+		for (int i = 0, j = 0; i < len; i++, j += 2) {
+			short pcm = pcmbuf[i];
+			ret[j] = (byte) pcm;
+			ret[j + 1] = (byte) (pcm >>> 8);
+		}
 		
-		// size = 0;
-		writeCursor[0] = 0;
-		writeCursor[1] = 2;
+		resetCursor(pcmbuf, 0);
 		
 		return ret;
 	}
 
-}
\ No newline at end of file
+}
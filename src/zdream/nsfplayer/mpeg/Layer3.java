@@ -187,7 +187,7 @@ public class Layer3 extends AbstractLayer {
 	}
 
 	@Override
-	public byte[] decode(byte[] bs, final int offset, final int length) {
+	protected boolean decodeFrame(byte[] bs, final int offset, final int length) {
 		int off;
 		
 		/*
@@ -195,7 +195,7 @@ public class Layer3 extends AbstractLayer {
 		 */
 		int i = getSideInfo(bs, offset); // 帧边信息占的 byte 数
 		if (i < 0)
-			return null; // 跳过这一帧的主数据
+			return false; // 跳过这一帧的主数据
 		off = i;
 
 		/*
@@ -203,6 +203,13 @@ public class Layer3 extends AbstractLayer {
 		 * length: ((part2_3_bits + 7) >> 3) bytes
 		 */
 		int endPos = maindataStream.getSize();
+		if (main_data_begin > endPos) {
+			// 位流缓冲区中没有这一帧引用的之前的数据 (从中间的帧开始解码时),
+			// 只保存这一帧的主数据, 供后面的帧使用, 跳过这一帧
+			maindataStream.skipBytes(endPos - maindataStream.getBytePos());
+			maindataStream.append(bs, off, length);
+			return false;
+		}
 
 		// 丢弃上一帧的填充位
 		int discard = endPos - maindataStream.getBytePos() - main_data_begin;
@@ -247,8 +254,7 @@ public class Layer3 extends AbstractLayer {
 		if (nch == 2)
 			decodeAudioDataChannel(infoCh1, 1);
 
-		// 输出结果
-		return outputPCM();
+		return true;
 	}
 
 	//1.
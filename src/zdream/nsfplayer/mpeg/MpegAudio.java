@@ -1,5 +1,6 @@
 package zdream.nsfplayer.mpeg;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -29,9 +30,12 @@ public class MpegAudio {
 	}
 	
 	/**
-	 * 原始数据镜像 （摘掉 ID3V2 部分后的）
+	 * <p>原始数据镜像 （摘掉 ID3V2 部分后的）
+	 * <p>从 v0.3.3 开始为 {@link ByteBuffer}, 范围是 [0, limit).
+	 * 从文件创建的音频, 该数据是映射到内存中的文件, 不在堆中.
+	 * </p>
 	 */
-	byte[] datas;
+	ByteBuffer datas;
 	
 	List<MpegFrame> frames = new ArrayList<>();
 
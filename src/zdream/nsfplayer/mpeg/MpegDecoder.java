@@ -1,10 +1,22 @@
 package zdream.nsfplayer.mpeg;
 
-import zdream.utils.common.BytesUtils;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.IllegalBlockingModeException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectableChannel;
 
 /**
  * <p>mpeg 解码器.
  * <p>该解码器指定将 Mpeg 格式的音频转化成 byte 数组
+ * <p>解码器有两种数据来源:
+ * <li>{@link #ready(MpegAudio)}: 整个音频数据已经在 {@link MpegAudio} 中;
+ * <li>{@link #ready(ReadableByteChannel)} / {@link #ready(InputStream)}: 从流中读取,
+ * 数据经过一个固定大小的缓冲区, 解码时按需补充. 无论音频多长, 占用的内存都不变.
+ * </li>
  * @author Zdream
  * @since v0.1
  * @date 2018-01-16
@@ -14,13 +26,56 @@ public class MpegDecoder{
 	static final int HEADER_MASK = 0xffe00000;
 	
 	/**
-	 * 记录正在解码的位置, 这个值是指向 audio.datas 的索引.
+	 * ID3V1 部分的长度
+	 * @since v0.3.3
+	 */
+	static final int TAG_V1_SIZE = 128;
+	
+	/**
+	 * 流读取时, 默认的缓冲区大小
+	 * @since v0.3.3
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 16384;
+	
+	/**
+	 * 流读取时, 缓冲区大小的最小值.
+	 * 缓冲区需要同时放下一整帧 (最长约 1.7 KB) 以及为 ID3V1 预留的部分
+	 * @since v0.3.3
+	 */
+	public static final int MIN_BUFFER_SIZE = 4096;
+	
+	/**
+	 * 一帧最多的样本个数 (各声道合计). MPEG1 双声道时, 每声道 1152 个样本
+	 * @since v0.3.3
+	 */
+	public static final int MAX_FRAME_SAMPLES = 2304;
+	
+	/**
+	 * 记录正在解码的位置, 这个值是指向 view 的索引.
 	 */
 	private int pos;
+	
+	/**
+	 * 可以解码的数据的末尾 (不包含), 不包括 ID3V1 部分.
+	 * 流读取时, 在读到流末尾之前, 缓冲区最后 {@link #TAG_V1_SIZE} 字节不计入,
+	 * 因为它们可能是 ID3V1
+	 */
 	private int endPos;
 	
+	/**
+	 * view 中已经填入数据的末尾 (不包含). 非流读取时与 endPos 相同或更大
+	 * @since v0.3.3
+	 */
+	private int fillPos;
+	
 	private boolean end;
 	
+	/**
+	 * 是否已经找到过第一帧. 第一帧如果是 Xing / Info / VBRI 信息帧, 解码时跳过
+	 * @since v0.3.3
+	 */
+	private boolean started;
+	
 	/**
 	 * 保留第一帧的头数据, (只保留用来检查的几位), 作为判断后面帧头是否合法的依据
 	 */
@@ -36,17 +91,147 @@ public class MpegDecoder{
 	
 	private MpegAudio audio;
 	
+	/**
+	 * 音频数据的视图, 用于批量复制帧数据
+	 */
+	private ByteBuffer view;
+	
+	/**
+	 * <p>当前帧帧头之后的数据.
+	 * <p>音频数据可能不在 byte 数组中 (比如映射到内存中的文件), 而 Layer 只能解码 byte 数组,
+	 * 因此每一帧的数据先复制到这里. 该数组在各帧之间重复使用.
+	 * </p>
+	 * @since v0.3.3
+	 */
+	private byte[] frame = new byte[2048];
+	
+	/**
+	 * {@link #decode(float[], int)} 使用的 PCM 暂存区
+	 * @since v0.3.3
+	 */
+	private final short[] pcm = new short[MAX_FRAME_SAMPLES];
+	
+	/**
+	 * 流读取时的数据来源. 非流读取时为 null
+	 * @since v0.3.3
+	 */
+	private ReadableByteChannel channel;
+	
+	/**
+	 * 流读取时是否已经读到末尾
+	 * @since v0.3.3
+	 */
+	private boolean eof;
+	
+	/**
+	 * 流读取时使用的缓冲区. 各次 ready 之间重复使用
+	 * @since v0.3.3
+	 */
+	private ByteBuffer buffer;
+	
+	private final int bufferSize;
+	
+	public MpegDecoder() {
+		this(DEFAULT_BUFFER_SIZE);
+	}
+	
+	/**
+	 * @param bufferSize
+	 *   流读取时的缓冲区大小, 单位: 字节. 不能小于 {@link #MIN_BUFFER_SIZE}
+	 * @throws IllegalArgumentException
+	 *   当 bufferSize 小于 {@link #MIN_BUFFER_SIZE} 时
+	 * @since v0.3.3
+	 */
+	public MpegDecoder(int bufferSize) {
+		if (bufferSize < MIN_BUFFER_SIZE) {
+			throw new IllegalArgumentException("缓冲区大小 " + bufferSize + " 不能小于 " + MIN_BUFFER_SIZE);
+		}
+		this.bufferSize = bufferSize;
+	}
+	
 	public void ready(MpegAudio audio) {
 		this.audio = audio;
+		this.view = audio.datas.duplicate();
+		this.channel = null;
 		
-		pos = 0; // TODO 应该跳过 ID3V2
-		endPos = audio.datas.length; // TODO 应该跳过 ID3V1
+		pos = 0; // ID3V2 已经在 MpegFactory 中跳过了
+		fillPos = audio.datas.limit();
+		eof = true;
+		updateEndPos();
 		firstH = 0;
 		end = false;
+		started = false;
+		// 丢弃上一个音频的解码状态
+		layer = null;
+		header.reset();
+	}
+	
+	/**
+	 * <p>从流中读取并解码. 解码时数据按需从流中读取,
+	 * 只保留一个大小固定的缓冲区, 不会将整个音频读入内存.
+	 * <p>开头的 ID3V2 部分和末尾的 ID3V1 部分会被跳过.
+	 * 解码器不会关闭 channel, 需要调用者在解码完之后关闭.
+	 * <p>channel 必须是阻塞模式的: 读取返回 0 字节时, 解码器认为暂时读不到数据,
+	 * 这时已经读到的数据解码完之后, decode 方法返回的结果与解码到末尾时相同.
+	 * </p>
+	 * @param channel
+	 *   数据来源, 读取位置应当在 Mpeg 文件的开头
+	 * @throws IOException
+	 *   读取开头部分时发生错误
+	 * @throws IllegalBlockingModeException
+	 *   当 channel 是非阻塞模式的 {@link SelectableChannel} 时
+	 * @since v0.3.3
+	 */
+	public void ready(ReadableByteChannel channel) throws IOException {
+		if (channel instanceof SelectableChannel && !((SelectableChannel) channel).isBlocking()) {
+			throw new IllegalBlockingModeException();
+		}
+		if (buffer == null) {
+			buffer = ByteBuffer.allocate(bufferSize);
+		}
+		this.audio = null;
+		this.view = buffer.duplicate();
+		this.channel = channel;
+		
+		pos = 0;
+		fillPos = 0;
+		endPos = 0;
+		eof = false;
+		firstH = 0;
+		end = false;
+		started = false;
+		// 丢弃上一个音频的解码状态
+		layer = null;
+		header.reset();
+		
+		try {
+			// 跳过 ID3V2
+			while (fillPos < 10 && refill());
+			ByteBuffer head = view.duplicate();
+			head.limit(fillPos);
+			skip(MpegFactory.handleId3v2(head));
+			detectTerminal();
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+	
+	/**
+	 * 从流中读取并解码, 见 {@link #ready(ReadableByteChannel)}
+	 * @param in
+	 *   数据来源, 读取位置应当在 Mpeg 文件的开头
+	 * @throws IOException
+	 *   读取开头部分时发生错误
+	 * @since v0.3.3
+	 */
+	public void ready(InputStream in) throws IOException {
+		ready(Channels.newChannel(in));
 	}
 	
 	/**
 	 * 解码器的主方法. 每次调用这个方法时, 解码器解码下一帧
+	 * @throws UncheckedIOException
+	 *   流读取时发生错误
 	 */
 	public byte[] decode() {
 		// 寻找帧头
@@ -61,15 +246,192 @@ public class MpegDecoder{
 		return decode0();
 	}
 	
+	/**
+	 * <p>解码下一帧, 将 PCM 数据直接写入 out 中.
+	 * <p>与 {@link #decode()} 不同, 该方法不创建新的数组, 解码器状态也在各帧之间重复使用,
+	 * 适合与其它音频一起实时播放.
+	 * </p>
+	 * @param out
+	 *   接收 PCM 数据的数组, 16 位有符号数, 各声道交替排列.
+	 *   从 off 开始至少需要 {@link #MAX_FRAME_SAMPLES} 个元素
+	 * @param off
+	 *   out 开始写入的位置
+	 * @return
+	 *   写入的样本个数 (各声道合计). 跳过这一帧时返回 0, 已经解码到末尾时返回 -1
+	 * @throws IllegalArgumentException
+	 *   out 的剩余空间放不下这一帧时
+	 * @throws UncheckedIOException
+	 *   流读取时发生错误
+	 * @since v0.3.3
+	 */
+	public int decode(short[] out, int off) {
+		if (!detectFrameHead()) {
+			return -1;
+		}
+		
+		int samples = header.getPcmSize() >> 1;
+		if (out.length - off < samples) {
+			throw new IllegalArgumentException("数组剩余长度 " + (out.length - off) + " 放不下一帧的 " + samples + " 个样本");
+		}
+		return decode0(out, off);
+	}
+	
+	/**
+	 * <p>解码下一帧, 将 PCM 数据转成 [-1, 1) 范围的浮点数写入 out 中.
+	 * <p>和 {@link #decode(short[], int)} 一样不创建新的数组.
+	 * </p>
+	 * @param out
+	 *   接收 PCM 数据的数组, 各声道交替排列.
+	 *   从 off 开始至少需要 {@link #MAX_FRAME_SAMPLES} 个元素
+	 * @param off
+	 *   out 开始写入的位置
+	 * @return
+	 *   写入的样本个数 (各声道合计). 跳过这一帧时返回 0, 已经解码到末尾时返回 -1
+	 * @throws IllegalArgumentException
+	 *   out 的剩余空间放不下这一帧时
+	 * @throws UncheckedIOException
+	 *   流读取时发生错误
+	 * @since v0.3.3
+	 */
+	public int decode(float[] out, int off) {
+		if (!detectFrameHead()) {
+			return -1;
+		}
+		
+		int samples = header.getPcmSize() >> 1;
+		if (out.length - off < samples) {
+			throw new IllegalArgumentException("数组剩余长度 " + (out.length - off) + " 放不下一帧的 " + samples + " 个样本");
+		}
+		
+		int count = decode0(pcm, 0);
+		final float scale = 1.0f / 32768;
+		for (int i = 0; i < count; i++) {
+			out[off + i] = pcm[i] * scale;
+		}
+		return count;
+	}
+	
+	/**
+	 * @return
+	 *   最近一次找到的帧头. 该实例在各帧之间重复使用, 内容会随着解码改变
+	 * @since v0.3.3
+	 */
+	public MpegFrameHead getFrameHead() {
+		return header;
+	}
+	
 	boolean detectTerminal() {
-		if (pos >= endPos) {
-			// TODO 流读取时不是这样, 而是再读一段数据
+		if (!require(1)) {
 			return end = true;
 		}
 		
 		return false;
 	}
 	
+	/* **********
+	 *  流读取  *
+	 ********** */
+	
+	/**
+	 * 确认从 pos 开始至少有 length 字节可以解码. 流读取时, 不够则从流中补充数据.
+	 * 补充数据时 pos 会改变, 但它指向的数据不变
+	 * @param length
+	 *   需要的字节数
+	 * @return
+	 *   如果有足够的数据, 返回 true
+	 * @throws UncheckedIOException
+	 *   读取时发生错误
+	 * @since v0.3.3
+	 */
+	private boolean require(int length) {
+		while (endPos - pos < length) {
+			if (!refill()) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * <p>将缓冲区中未解码的数据移到开头, 然后从流中读满缓冲区.
+	 * <p>读取之后 pos 变为 0.
+	 * </p>
+	 * @return
+	 *   如果读到了新数据, 返回 true; 流已经读完、缓冲区已满或者不是流读取时, 返回 false.
+	 *   流 (阻塞模式) 一次也没有读到数据, 即读取返回 0 字节时, 同样返回 false
+	 * @throws UncheckedIOException
+	 *   读取时发生错误
+	 * @since v0.3.3
+	 */
+	private boolean refill() {
+		if (channel == null || eof) {
+			return false;
+		}
+		
+		int remain = fillPos - pos;
+		if (remain == buffer.capacity()) {
+			return false;
+		}
+		byte[] array = buffer.array();
+		System.arraycopy(array, pos, array, 0, remain);
+		pos = 0;
+		
+		buffer.clear();
+		buffer.position(remain);
+		try {
+			while (buffer.hasRemaining()) {
+				int count = channel.read(buffer);
+				if (count < 0) {
+					eof = true;
+					break;
+				} else if (count == 0) {
+					break;
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		
+		boolean read = buffer.position() > remain;
+		fillPos = buffer.position();
+		updateEndPos();
+		return read || eof;
+	}
+	
+	/**
+	 * 跳过 length 字节. 流读取时跳过的数据可以超出缓冲区
+	 * @since v0.3.3
+	 */
+	private void skip(int length) {
+		while (true) {
+			int step = Math.min(length, fillPos - pos);
+			pos += step;
+			length -= step;
+			if (length == 0 || !refill()) {
+				break;
+			}
+		}
+		updateEndPos();
+	}
+	
+	/**
+	 * 按照已填入的数据计算 endPos. 末尾如果是 ID3V1, 则不计入.
+	 * 流没有读完时, 末尾的 {@link #TAG_V1_SIZE} 字节总是不计入.
+	 * @since v0.3.3
+	 */
+	private void updateEndPos() {
+		int e = fillPos;
+		if (!eof) {
+			e -= TAG_V1_SIZE;
+		} else if (fillPos - TAG_V1_SIZE >= 0
+				&& view.get(fillPos - TAG_V1_SIZE) == 'T'
+				&& view.get(fillPos - TAG_V1_SIZE + 1) == 'A'
+				&& view.get(fillPos - TAG_V1_SIZE + 2) == 'G') {
+			e -= TAG_V1_SIZE;
+		}
+		endPos = Math.max(pos, e);
+	}
+	
 	public boolean isEnd() {
 		return end;
 	}
@@ -88,35 +450,171 @@ public class MpegDecoder{
 		}
 		
 		while (true) {
-			if (audio.datas[pos] == -1) { // 0xFF -> -1
+			// 帧头一定有 4 字节的. 如果不满 4 字节一定不是帧头
+			if (!require(4)) {
+				end = true;
+				return false;
+			}
+			
+			if (view.get(pos) == -1) { // 0xFF -> -1
 				if (isLegalHead()) { // 该方法自己会解析 header
 					break;
 				}
 			}
 			pos++;
-			
-			// 帧头一定有 4 字节的. 如果不满 4 字节一定不是帧头
-			if (endPos - pos < 4) {
-				return false;
-			}
 		}
 		
-		// 现在 pos 指向 audio.datas 的帧头
+		// 现在 pos 指向 view 的帧头
 		
-		// TODO 现在能拿到帧长度. 如果用流来缓存的话, 检查该帧是否已经完全读出来了
-		// 帧长度: header.getFrameSize();
+		// 流读取时, 确认该帧已经完全读出来了. 多要 4 个字节, 位流读取时可能会预读.
+		// 末尾的帧可能不完整, 这时由 decode0() 判断
+		require(header.getFrameSize() + 4);
+		
+		if (!started) {
+			started = true;
+			if (MpegSeekTable.infoTagOffset(view, pos, header) >= 0) {
+				// 信息帧没有音频数据
+				skipFrame();
+				return detectFrameHead();
+			}
+		}
 		
-		// 如果已经发现到了最后的话, 那就说明没有数据字段了, 这个肯定不能算
 		return true;
 	}
 	
 	/**
-	 * 检查 audio.datas[pos] 是不是指向一个合法的帧头的位置
+	 * 寻找第一帧, 不跳过信息帧. 需要在 ready 之后立即调用
+	 * @return
+	 *   如果第一帧是 Xing / Info / VBRI 信息帧, 返回 true. 这时 pos 指向该帧
+	 * @since v0.3.3
+	 */
+	boolean detectInfoFrame() {
+		started = true;
+		return detectFrameHead() && MpegSeekTable.infoTagOffset(view, pos, header) >= 0;
+	}
+	
+	/**
+	 * @return
+	 *   当前帧帧头的位置, 指向 view 的索引
+	 * @since v0.3.3
+	 */
+	int position() {
+		return pos;
+	}
+	
+	/**
+	 * @return
+	 *   第一帧帧头中, 同一文件各帧都相同的部分
+	 * @since v0.3.3
+	 */
+	int getFirstHead() {
+		return firstH;
+	}
+	
+	/* **********
+	 *   跳转   *
+	 ********** */
+	
+	/**
+	 * <p>跳转时, 在目标帧之前至少额外解码并丢弃的帧数.
+	 * <p>目标帧的混叠 (overlap-add) 和合成滤波器依赖之前两帧的解码结果 (MPEG2 每帧只有一节).
+	 * </p>
+	 * @since v0.3.3
+	 */
+	public static final int PRIME_FRAMES = 2;
+	
+	/**
+	 * 主数据最多引用之前多少字节的数据. MPEG1 为 9 位的 main_data_begin, 最大 511
+	 * @since v0.3.3
+	 */
+	public static final int MAX_RESERVOIR_BYTES = 511;
+	
+	/**
+	 * 每帧除了主数据之外, 最多占用的字节数: 帧头 4 + CRC 2 + 帧边信息 32
+	 */
+	private static final int MAX_FRAME_OVERHEAD = 38;
+	
+	/**
+	 * <p>跳转到指定的帧. 之后调用 decode 方法将从该帧开始解码.
+	 * <p>跳转会丢弃之前的解码状态, 从目标帧之前的几帧开始解码并丢弃输出 (预热),
+	 * 使得目标帧的解码结果与从头顺序解码时相同. 预热的帧数见 {@link #primeFrameOf(MpegSeekTable, int)}.
+	 * 使用近似的跳转表时, 跳转的位置是估计的.
+	 * </p>
+	 * @param table
+	 *   跳转表, 需要由正在解码的 {@link MpegAudio} 创建
+	 * @param frame
+	 *   帧序号, 范围 [0, {@link MpegSeekTable#getFrameCount()}].
+	 *   可以用 {@link MpegSeekTable#frameAt(float)} 将时间转换成帧序号
+	 * @throws IllegalStateException
+	 *   流读取时 (不是使用 {@link #ready(MpegAudio)} 准备的)
+	 * @throws IllegalArgumentException
+	 *   跳转表不是由正在解码的音频创建的
+	 * @since v0.3.3
+	 */
+	public void seek(MpegSeekTable table, int frame) {
+		if (audio == null) {
+			throw new IllegalStateException("只有使用 ready(MpegAudio) 时才能跳转");
+		}
+		if (table.audio != audio) {
+			throw new IllegalArgumentException("跳转表不属于正在解码的音频");
+		}
+		
+		frame = Math.max(0, Math.min(frame, table.getFrameCount()));
+		int prime = frame - primeFrameOf(table, frame);
+		
+		// 丢弃之前的解码状态, 位流缓冲区从预热的第一帧开始重新填充
+		pos = table.positionOf(frame - prime);
+		layer = null;
+		header.reset();
+		if (firstH == 0) {
+			firstH = table.firstHead;
+		}
+		started = true;
+		end = false;
+		updateEndPos();
+		if (detectTerminal()) {
+			return;
+		}
+		
+		for (int i = 0; i < prime; i++) {
+			if (!detectFrameHead()) {
+				return;
+			}
+			decode0(pcm, 0);
+		}
+	}
+	
+	/**
+	 * <p>计算跳转到 frame 帧时, 需要从哪一帧开始预热.
+	 * <p>目标帧依赖之前 {@link #PRIME_FRAMES} 帧的解码结果, 而这几帧的主数据
+	 * 最多引用之前 {@link #MAX_RESERVOIR_BYTES} 字节的数据 (bit reservoir),
+	 * 因此按跳转表中的字节数往前找到足够多的帧, 让这些数据在位流缓冲区中.
+	 * </p>
+	 * @param table
+	 *   跳转表
+	 * @param frame
+	 *   目标帧序号
+	 * @return
+	 *   预热开始的帧序号
+	 * @since v0.3.3
+	 */
+	static int primeFrameOf(MpegSeekTable table, int frame) {
+		int start = Math.max(frame - PRIME_FRAMES, 0);
+		int bytes = 0;
+		while (start > 0 && bytes < MAX_RESERVOIR_BYTES) {
+			start--;
+			bytes += table.positionOf(start + 1) - table.positionOf(start) - MAX_FRAME_OVERHEAD;
+		}
+		return start;
+	}
+	
+	/**
+	 * 检查 view[pos] 是不是指向一个合法的帧头的位置
 	 * @return
 	 *   如果是, 返回 true, 并且 header 已经解析完帧头的数据, 否则返回 false
 	 */
 	boolean isLegalHead() {
-		int h = BytesUtils.bytes2Int(audio.datas, pos);
+		int h = view.getInt(pos);
 		if ((h & HEADER_MASK) == HEADER_MASK
 				&& ((h >> 19) & 3) != 1 // version ID:  '01' - reserved
 				&& ((h >> 17) & 3) != 0 // Layer index: '00' - reserved
@@ -169,6 +667,38 @@ public class MpegDecoder{
 	 * 用相应的解码器进行解码
 	 */
 	byte[] decode0() {
+		byte[] ret = null;
+		if (loadFrame()) {
+			ret = layer.decode(frame, 0, header.getMainDataSize());
+		}
+		skipFrame();
+		
+		return ret;
+	}
+	
+	/**
+	 * 用相应的解码器进行解码, 结果写入 out
+	 * @return
+	 *   写入的样本个数. 跳过这一帧时返回 0
+	 * @since v0.3.3
+	 */
+	int decode0(short[] out, int off) {
+		int ret = 0;
+		if (loadFrame()) {
+			ret = Math.max(layer.decode(frame, 0, header.getMainDataSize(), out, off), 0);
+		}
+		skipFrame();
+		
+		return ret;
+	}
+	
+	/**
+	 * 将当前帧的帧边信息和主数据复制到 frame 中, 并让 layer 做好准备
+	 * @return
+	 *   如果这一帧能够解码, 返回 true
+	 * @since v0.3.3
+	 */
+	private boolean loadFrame() {
 		// 现在 pos 指向帧头
 		
 		int ptr = pos + 4; // 跳过帧头
@@ -177,18 +707,29 @@ public class MpegDecoder{
 		
 		int length = header.getMainDataSize();
 		
-		byte[] ret = null;
+		if (ptr + length > endPos || layer == null) {
+			return false;
+		}
 		
-		if (ptr + length <= audio.datas.length && layer != null) {
-			layer.ready(header);
-			ret = layer.decode(audio.datas, ptr, length);
+		// 帧边信息 + 主数据. 多复制几个字节, 位流读取时可能会预读
+		int size = Math.min(header.getSideInfoSize() + length + 4, endPos - ptr);
+		if (frame.length < size) {
+			frame = new byte[size];
 		}
+		view.position(ptr);
+		view.get(frame, 0, size);
 		
-		// 现在 pos 指向该帧帧尾, 可能是下一帧的帧头
-		pos += header.getFrameSize();
+		layer.ready(header);
+		return true;
+	}
+	
+	/**
+	 * 不解码, 让 pos 指向该帧帧尾, 可能是下一帧的帧头
+	 * @since v0.3.3
+	 */
+	void skipFrame() {
+		skip(header.getFrameSize());
 		detectTerminal();
-		
-		return ret;
 	}
 
 }
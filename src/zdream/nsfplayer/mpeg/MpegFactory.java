@@ -1,6 +1,7 @@
 package zdream.nsfplayer.mpeg;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import zdream.utils.common.FileUtils;
 
@@ -12,32 +13,51 @@ import zdream.utils.common.FileUtils;
  */
 public class MpegFactory {
 	
+	/**
+	 * 读取文件并生成 mpeg 数据. 文件被映射到内存中, 数据不会复制到堆中
+	 * @param path
+	 *   文件路径
+	 * @return
+	 * @throws IOException
+	 * @throws MpegAudioException
+	 *   文件格式不匹配导致读取失败
+	 */
 	public MpegAudio createFromFile(String path) throws IOException, MpegAudioException {
-		return create(FileUtils.readFile(path));
+		return create(FileUtils.mapFile(path));
 	}
 	
 	/**
 	 * 从 byte 数组中读取并生成 mpeg 数据
 	 * @param image
-	 *   镜像 byte 数组
+	 *   镜像 byte 数组. 生成的数据直接使用该数组, 不会复制
 	 * @return
 	 * @throws MpegAudioException
 	 *   文件格式不匹配导致读取失败
 	 */
 	public MpegAudio create(byte[] image) throws MpegAudioException {
+		return create(ByteBuffer.wrap(image));
+	}
+	
+	/**
+	 * 从 {@link ByteBuffer} 中读取并生成 mpeg 数据
+	 * @param image
+	 *   镜像数据, 范围是 [position, limit). 生成的数据与 image 共享, 不会复制.
+	 *   读取不会修改 image 的 position
+	 * @return
+	 * @throws MpegAudioException
+	 *   文件格式不匹配导致读取失败
+	 * @since v0.3.3
+	 */
+	public MpegAudio create(ByteBuffer image) throws MpegAudioException {
 		MpegAudio audio = new MpegAudio();
+		ByteBuffer buf = image.slice();
 		
-		int offset = handleId3v2(image);
-		
-		System.out.println(System.currentTimeMillis());
-		if (offset == 0) {
-			audio.datas = image;
-		} else {
-			audio.datas = new byte[image.length - offset];
-			System.out.println(audio.datas.length);
-			System.arraycopy(image, offset, audio.datas, 0, audio.datas.length);
+		int offset = handleId3v2(buf);
+		if (offset > buf.limit()) {
+			throw new MpegAudioException("ID3V2 部分的长度 " + offset + " 超出了文件大小 " + buf.limit());
 		}
-		System.out.println(System.currentTimeMillis());
+		buf.position(offset);
+		audio.datas = buf.slice();
 		
 		return audio;
 	}
@@ -45,16 +65,17 @@ public class MpegFactory {
 	/**
 	 * 读取并跳过 ID3V2 部分
 	 * @param image
+	 *   镜像数据, 范围是 [0, limit)
 	 * @return
 	 *   ID3V2 部分的数据长度, 如果没有 ID3V2 部分则返回 0.
 	 */
-	int handleId3v2(byte[] image) {
-		if (image[0] == 'I' && image[1] == 'D' && image[2] == '3') {
-			int size = (image[6] & 0x7F) << 21 | (image[7] & 0x7F) << 14 | (image[8] & 0x7F) << 7 | (image[9] & 0x7F);
+	static int handleId3v2(ByteBuffer image) {
+		if (image.limit() >= 10 && image.get(0) == 'I' && image.get(1) == 'D' && image.get(2) == '3') {
+			int size = (image.get(6) & 0x7F) << 21 | (image.get(7) & 0x7F) << 14
+					| (image.get(8) & 0x7F) << 7 | (image.get(9) & 0x7F);
 			return size + 10; // 10 是 ID3V2 帧头的大小, size 没有包括它
 		}
 		return 0;
 	}
 
 }
-
@@ -390,6 +390,15 @@ public class MpegFrameHead {
 	public int getSamplingFrequency() {
 		return samplingFrequency;
 	}
+	
+	/**
+	 * @return
+	 *   采样率, 单位 Hz
+	 * @since v0.3.3
+	 */
+	public int getSamplingRate() {
+		return samplingRate;
+	}
 
 	/**
 	 * 获取帧头的简短信息。
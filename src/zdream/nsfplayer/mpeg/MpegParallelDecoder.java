@@ -0,0 +1,164 @@
+package zdream.nsfplayer.mpeg;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * <p>多线程的 Mpeg 解码器, 用于离线地将整个音频解码成 PCM 数据, 比如批量转码.
+ * <p>按照精确的跳转表 {@link MpegSeekTable} 将所有帧分成若干段, 每段由一个线程各自的
+ * {@link MpegDecoder} 解码, 最后按顺序拼接. 每段用 {@link MpegDecoder#seek(MpegSeekTable, int)}
+ * 跳到段的第一帧, 跳转时的预热让位流缓冲区 (bit reservoir) 以及 Layer3 的混叠、合成滤波器的状态
+ * 与顺序解码时相同. 因此拼接的结果与 {@link MpegDecoder} 从头到尾顺序解码的结果相同.
+ * <p>所有线程共享同一个 {@link MpegAudio} 实例, 解码过程中只读取, 不修改.
+ * <p>该类的设置方法是线程不安全的, 设置只对之后调用的 decode 方法生效.
+ * </p>
+ *
+ * @author Zdream
+ * @since v0.3.3
+ */
+public class MpegParallelDecoder {
+
+	/**
+	 * 自动分段时, 每段的最少帧数. 太短的段中, 预热部分占的比例太大
+	 */
+	public static final int MIN_SEGMENT_FRAMES = 64;
+
+	private final ForkJoinPool pool;
+
+	/**
+	 * 每段的帧数. 0 表示按照线程池的并行数自动计算
+	 */
+	private int segmentFrames;
+
+	/**
+	 * 使用公共线程池 {@link ForkJoinPool#commonPool()}
+	 */
+	public MpegParallelDecoder() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * @param pool
+	 *   解码使用的线程池
+	 */
+	public MpegParallelDecoder(ForkJoinPool pool) {
+		requireNonNull(pool, "pool = null");
+		this.pool = pool;
+	}
+
+	/* **********
+	 *   设置   *
+	 ********** */
+
+	/**
+	 * 设置每段的帧数
+	 * @param frames
+	 *   帧数. 0 表示按照线程池的并行数自动计算, 每个线程大约分到 4 段
+	 * @throws IllegalArgumentException
+	 *   当帧数为负数时
+	 */
+	public void setSegmentFrames(int frames) {
+		if (frames < 0) {
+			throw new IllegalArgumentException("帧数 frames: " + frames + " 不能为负数");
+		}
+		this.segmentFrames = frames;
+	}
+
+	/**
+	 * @return
+	 *   每段的帧数. 0 表示自动计算
+	 */
+	public int getSegmentFrames() {
+		return segmentFrames;
+	}
+
+	/* **********
+	 *   解码   *
+	 ********** */
+
+	/**
+	 * 扫描所有帧头后, 解码整个音频
+	 * @param audio
+	 *   音频
+	 * @return
+	 *   PCM 数据, 16 位有符号数, 各声道交替排列
+	 * @see #decode(MpegSeekTable)
+	 */
+	public short[] decode(MpegAudio audio) {
+		return decode(MpegSeekTable.scan(audio));
+	}
+
+	/**
+	 * 解码跳转表所属的整个音频
+	 * @param table
+	 *   精确的跳转表, 由 {@link MpegSeekTable#scan(MpegAudio)} 创建
+	 * @return
+	 *   PCM 数据, 16 位有符号数, 各声道交替排列
+	 * @throws IllegalArgumentException
+	 *   当跳转表不是精确的跳转表时
+	 */
+	public short[] decode(MpegSeekTable table) {
+		if (!table.isExact()) {
+			throw new IllegalArgumentException("分段解码需要精确的跳转表");
+		}
+
+		final int total = table.getFrameCount();
+		int seg = segmentFrames;
+		if (seg == 0) {
+			int count = pool.getParallelism() * 4;
+			seg = Math.max(MIN_SEGMENT_FRAMES, (total + count - 1) / count);
+		}
+
+		List<ForkJoinTask<short[]>> tasks = new ArrayList<>(total / seg + 1);
+		for (int i = 0; i < total; i += seg) {
+			final int start = i;
+			final int end = Math.min(i + seg, total);
+			tasks.add(pool.submit(() -> decodeSegment(table, start, end)));
+		}
+
+		// 按顺序拼接
+		List<short[]> results = new ArrayList<>(tasks.size());
+		int length = 0;
+		for (ForkJoinTask<short[]> task : tasks) {
+			short[] pcm = task.join();
+			results.add(pcm);
+			length += pcm.length;
+		}
+
+		short[] out = new short[length];
+		int off = 0;
+		for (short[] pcm : results) {
+			System.arraycopy(pcm, 0, out, off, pcm.length);
+			off += pcm.length;
+		}
+		return out;
+	}
+
+	/**
+	 * 解码 [start, end) 范围内的帧
+	 */
+	private static short[] decodeSegment(MpegSeekTable table, int start, int end) {
+		MpegDecoder decoder = new MpegDecoder();
+		decoder.ready(table.audio);
+
+		// 跳转时预热
+		decoder.seek(table, start);
+
+		short[] out = new short[(end - start) * MpegDecoder.MAX_FRAME_SAMPLES];
+		int length = 0;
+		for (int i = start; i < end; i++) {
+			int count = decoder.decode(out, length);
+			if (count < 0) {
+				break;
+			}
+			length += count;
+		}
+		return Arrays.copyOf(out, length);
+	}
+
+}
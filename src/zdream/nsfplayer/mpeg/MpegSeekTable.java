@@ -0,0 +1,324 @@
+package zdream.nsfplayer.mpeg;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * <p>Mpeg 音频的跳转表, 记录帧序号与数据位置的对应关系,
+ * 配合 {@link MpegDecoder#seek(MpegSeekTable, int)} 使用.
+ * <p>跳转表有两种:
+ * <li>精确的: 由 {@link #scan(MpegAudio)} 扫描所有帧头得到, 记录了每一帧的位置;
+ * <li>近似的: 由 {@link #readToc(MpegAudio)} 从第一帧的 Xing / Info 或 VBRI 信息中读取目录得到.
+ * 不需要扫描整个文件, 但只能定位到目录项之间的估计位置.
+ * </li>
+ * <p>帧序号从 0 开始, 不包含存放 Xing / Info / VBRI 信息的帧. 它与 {@link MpegDecoder} 的解码顺序相同.
+ * </p>
+ *
+ * @author Zdream
+ * @since v0.3.3
+ */
+public class MpegSeekTable {
+
+	/**
+	 * 所属的音频
+	 */
+	final MpegAudio audio;
+
+	/**
+	 * 帧数
+	 */
+	private int frameCount;
+
+	/**
+	 * 每帧每声道的样本数
+	 */
+	private int samplesPerFrame;
+
+	/**
+	 * 采样率, 单位 Hz
+	 */
+	private int sampleRate;
+
+	/**
+	 * 第一帧帧头中, 同一文件各帧都相同的部分. 见 {@link MpegDecoder#isLegalHead()}
+	 */
+	int firstHead;
+
+	/**
+	 * <p>精确的跳转表中, 每一帧帧头在 audio.datas 中的位置.
+	 * <p>近似的跳转表中, 是目录项的位置, 与 tocFrames 一一对应.
+	 * </p>
+	 */
+	private int[] offsets;
+
+	/**
+	 * 近似的跳转表中, 各目录项对应的帧序号, 递增. 精确的跳转表中为 null
+	 */
+	private int[] tocFrames;
+
+	private MpegSeekTable(MpegAudio audio) {
+		this.audio = audio;
+	}
+
+	/* **********
+	 *   创建   *
+	 ********** */
+
+	/**
+	 * 创建跳转表. 如果第一帧有目录信息, 则读取目录; 否则扫描所有帧头
+	 * @param audio
+	 *   音频
+	 * @return
+	 *   跳转表
+	 */
+	public static MpegSeekTable create(MpegAudio audio) {
+		MpegSeekTable table = readToc(audio);
+		return (table != null) ? table : scan(audio);
+	}
+
+	/**
+	 * <p>扫描所有帧头, 创建精确的跳转表.
+	 * <p>扫描只读取帧头, 按照帧长度 {@link MpegFrameHead#getFrameSize()} 跳到下一帧,
+	 * 不解码数据. 只有帧长度之后不是合法的帧头时, 才逐字节寻找下一个帧头.
+	 * </p>
+	 * @param audio
+	 *   音频
+	 * @return
+	 *   跳转表
+	 */
+	public static MpegSeekTable scan(MpegAudio audio) {
+		MpegSeekTable table = new MpegSeekTable(audio);
+		MpegDecoder d = new MpegDecoder();
+		d.ready(audio);
+
+		int[] offsets = null;
+		int count = 0;
+		while (d.detectFrameHead()) {
+			MpegFrameHead head = d.getFrameHead();
+			if (offsets == null) {
+				table.readHead(head, d.getFirstHead());
+				offsets = new int[audio.datas.limit() / Math.max(head.getFrameSize(), 1) + 16];
+			} else if (count == offsets.length) {
+				offsets = Arrays.copyOf(offsets, count * 2);
+			}
+			offsets[count++] = d.position();
+			d.skipFrame();
+		}
+
+		table.frameCount = count;
+		table.offsets = (offsets == null) ? new int[0] : Arrays.copyOf(offsets, count);
+		return table;
+	}
+
+	/**
+	 * 读取第一帧中的 Xing / Info 或 VBRI 目录, 创建近似的跳转表
+	 * @param audio
+	 *   音频
+	 * @return
+	 *   跳转表. 如果第一帧没有目录信息, 或者目录信息不完整, 返回 null
+	 */
+	public static MpegSeekTable readToc(MpegAudio audio) {
+		MpegDecoder d = new MpegDecoder();
+		d.ready(audio);
+		if (!d.detectInfoFrame()) {
+			return null;
+		}
+
+		MpegSeekTable table = new MpegSeekTable(audio);
+		MpegFrameHead head = d.getFrameHead();
+		table.readHead(head, d.getFirstHead());
+
+		ByteBuffer datas = audio.datas;
+		int start = d.position();
+		int tag = infoTagOffset(datas, start, head);
+		int limit = datas.limit();
+
+		if (datas.get(tag) == 'V') {
+			// VBRI
+			int frames = datas.getInt(tag + 14);
+			int entries = datas.getShort(tag + 18) & 0xFFFF;
+			int scale = datas.getShort(tag + 20) & 0xFFFF;
+			int entrySize = datas.getShort(tag + 22) & 0xFFFF;
+			int framesPerEntry = datas.getShort(tag + 24) & 0xFFFF;
+			int toc = tag + 26;
+			if (frames <= 0 || entrySize < 1 || entrySize > 4 || toc + entries * entrySize > limit) {
+				return null;
+			}
+
+			table.frameCount = frames;
+			table.tocFrames = new int[entries + 1];
+			table.offsets = new int[entries + 1];
+			long offset = start + head.getFrameSize();
+			table.offsets[0] = (int) offset;
+			for (int i = 0; i < entries; i++) {
+				int v = 0;
+				for (int j = 0; j < entrySize; j++) {
+					v = (v << 8) | (datas.get(toc + i * entrySize + j) & 0xFF);
+				}
+				offset += (long) v * scale;
+				table.tocFrames[i + 1] = (int) Math.min((long) (i + 1) * framesPerEntry, frames);
+				table.offsets[i + 1] = (int) Math.min(offset, limit);
+			}
+		} else {
+			// Xing / Info
+			int flags = datas.getInt(tag + 4);
+			int p = tag + 8;
+			if ((flags & 1) == 0 || (flags & 4) == 0) {
+				return null; // 没有帧数或者没有目录
+			}
+			int frames = datas.getInt(p);
+			p += 4;
+			long bytes = limit - start;
+			if ((flags & 2) != 0) {
+				bytes = datas.getInt(p) & 0xFFFFFFFFL;
+				p += 4;
+			}
+			if (frames <= 0 || p + 100 > limit) {
+				return null;
+			}
+
+			table.frameCount = frames;
+			table.tocFrames = new int[101];
+			table.offsets = new int[101];
+			for (int i = 0; i < 100; i++) {
+				table.tocFrames[i] = (int) ((long) i * frames / 100);
+				table.offsets[i] = (int) Math.min(start + (datas.get(p + i) & 0xFF) * bytes / 256, limit);
+			}
+			table.tocFrames[100] = frames;
+			table.offsets[100] = (int) Math.min(start + bytes, limit);
+			// 目录第一项指向信息帧自己, 音频数据从下一帧开始
+			table.offsets[0] = Math.max(table.offsets[0], start + head.getFrameSize());
+		}
+
+		return table;
+	}
+
+	private void readHead(MpegFrameHead head, int firstHead) {
+		this.samplesPerFrame = head.getPcmSize() / (2 * head.getChannels());
+		this.sampleRate = head.getSamplingRate();
+		this.firstHead = firstHead;
+	}
+
+	/**
+	 * 寻找帧中 Xing / Info 或 VBRI 信息的位置
+	 * @param datas
+	 *   音频数据
+	 * @param start
+	 *   帧头所在的位置
+	 * @param head
+	 *   已经解析的帧头
+	 * @return
+	 *   信息标签 ("Xing", "Info" 或 "VBRI") 的位置. 如果没有, 返回 -1
+	 */
+	static int infoTagOffset(ByteBuffer datas, int start, MpegFrameHead head) {
+		int end = Math.min(start + head.getFrameSize(), datas.limit());
+
+		// Xing / Info 在帧边信息之后
+		int p = start + 4 + head.getSideInfoSize() + (head.isProtected() ? 2 : 0);
+		if (p + 8 <= end) {
+			int tag = datas.getInt(p);
+			if (tag == 0x58696E67 || tag == 0x496E666F) { // "Xing", "Info"
+				return p;
+			}
+		}
+
+		// VBRI 固定在帧头之后 32 字节
+		p = start + 36;
+		if (p + 26 <= end && datas.getInt(p) == 0x56425249) { // "VBRI"
+			return p;
+		}
+
+		return -1;
+	}
+
+	/* **********
+	 *   查询   *
+	 ********** */
+
+	/**
+	 * @return
+	 *   是否是精确的跳转表
+	 */
+	public boolean isExact() {
+		return tocFrames == null;
+	}
+
+	/**
+	 * @return
+	 *   帧数
+	 */
+	public int getFrameCount() {
+		return frameCount;
+	}
+
+	/**
+	 * @return
+	 *   每帧每声道的样本数
+	 */
+	public int getSamplesPerFrame() {
+		return samplesPerFrame;
+	}
+
+	/**
+	 * @return
+	 *   采样率, 单位 Hz
+	 */
+	public int getSampleRate() {
+		return sampleRate;
+	}
+
+	/**
+	 * @return
+	 *   音频总时长, 单位: 秒
+	 */
+	public float getDuration() {
+		return (sampleRate == 0) ? 0 : (float) frameCount * samplesPerFrame / sampleRate;
+	}
+
+	/**
+	 * 计算指定时间所在的帧序号
+	 * @param second
+	 *   时间, 单位: 秒
+	 * @return
+	 *   帧序号, 范围 [0, {@link #getFrameCount()}]
+	 */
+	public int frameAt(float second) {
+		if (sampleRate == 0) {
+			return 0;
+		}
+		long frame = (long) (second * sampleRate / samplesPerFrame);
+		return (int) Math.max(0, Math.min(frame, frameCount));
+	}
+
+	/**
+	 * 计算帧在 audio.datas 中的位置. 近似的跳转表中, 按目录项之间的线性插值估计
+	 * @param frame
+	 *   帧序号, 范围 [0, {@link #getFrameCount()}]
+	 * @return
+	 *   帧头的位置. 近似的跳转表返回的位置不一定是帧头, 需要从该位置开始寻找帧头.
+	 *   frame 为 {@link #getFrameCount()} 时, 返回数据末尾
+	 */
+	public int positionOf(int frame) {
+		if (tocFrames == null) {
+			return (frame < frameCount) ? offsets[frame] : audio.datas.limit();
+		}
+
+		int i = Arrays.binarySearch(tocFrames, frame);
+		if (i >= 0) {
+			// 目录项的帧序号可能重复, 取第一个
+			while (i > 0 && tocFrames[i - 1] == frame) {
+				i--;
+			}
+			return offsets[i];
+		}
+		i = -i - 2; // frame 之前的那一项
+		if (i + 1 >= tocFrames.length) {
+			return offsets[offsets.length - 1];
+		}
+
+		int f0 = tocFrames[i], f1 = tocFrames[i + 1];
+		int o0 = offsets[i], o1 = offsets[i + 1];
+		return o0 + (int) ((long) (o1 - o0) * (frame - f0) / (f1 - f0));
+	}
+
+}
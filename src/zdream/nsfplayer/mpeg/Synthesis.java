@@ -35,21 +35,21 @@ public class Synthesis {
 	 * @param ch
 	 *   当前的声道, 左声道 0, 右声道 1
 	 * @param b
-	 *   接收输出结果的 PCM 缓冲区
+	 *   接收输出结果的 PCM 缓冲区. 从 v0.3.3 开始按样本写入, 各声道交替排列
 	 * @param off
 	 *   缓冲区 b 的下标, 本次开始向 b 写入数据的起始位置
 	 * @return 缓冲区 b 的下标, 本次向 b 写入的结束位置
 	 */
-	public int synthesisSubBand (float[] samples, int ch, byte[] b, int off) {
+	public int synthesisSubBand (float[] samples, int ch, short[] b, int off) {
 		final float[] fifo = fifobuf[ch];
-		final byte[] buf = b;
+		final short[] buf = b;
 		float sum, win[];
 		int i, pcmi;
 		/*
 		 * 向PCM缓冲区写入数据的步长值，左右声道的PCM数据在PCM缓冲区内是交替排列的。
 		 * 指示解码某一声道时写入一次数据后，下一次应该写入的位置。
 		 */
-		int step = (nch == 2) ? 4 : 2;
+		int step = nch;
 
 		//1. Shift
 		fifoIndex[ch] = (fifoIndex[ch] - 64) & 0x3FF;
@@ -83,8 +83,7 @@ public class Synthesis {
 				sum += win[14] * fifo[i + 896];
 				sum += win[15] * fifo[i + 992];
 				pcmi = sum > 32767 ? 32767 : (sum < -32768 ? -32768 : (int)sum); //clip
-				buf[off] = (byte)pcmi;
-				buf[off + 1] = (byte)(pcmi >>> 8);
+				buf[off] = (short)pcmi;
 			}
 			break;
 		case 64:
@@ -108,8 +107,7 @@ public class Synthesis {
 				sum += win[14] * fifo[i + 960];
 				sum += win[15] * fifo[i + 32];
 				pcmi = sum > 32767 ? 32767 : (sum < -32768 ? -32768 : (int)sum);
-				buf[off] = (byte)pcmi;
-				buf[off + 1] = (byte)(pcmi >>> 8);
+				buf[off] = (short)pcmi;
 			}
 			break;
 		case 128:
@@ -133,8 +131,7 @@ public class Synthesis {
 				sum += win[14] * fifo[i];
 				sum += win[15] * fifo[i + 96];
 				pcmi = sum > 32767 ? 32767 : (sum < -32768 ? -32768 : (int)sum);
-				buf[off] = (byte)pcmi;
-				buf[off + 1] = (byte)(pcmi >>> 8);
+				buf[off] = (short)pcmi;
 			}
 			break;
 		case 192:
@@ -158,8 +155,7 @@ public class Synthesis {
 				sum += win[14] * fifo[i + 64];
 				sum += win[15] * fifo[i + 160];
 				pcmi = sum > 32767 ? 32767 : (sum < -32768 ? -32768 : (int)sum);
-				buf[off] = (byte)pcmi;
-				buf[off + 1] = (byte)(pcmi >>> 8);
+				buf[off] = (short)pcmi;
 			}
 			break;
 		case 256:
@@ -183,8 +179,7 @@ public class Synthesis {
 				sum += win[14] * fifo[i + 128];
 				sum += win[15] * fifo[i + 224];
 				pcmi = sum > 32767 ? 32767 : (sum < -32768 ? -32768 : (int)sum);
-				buf[off] = (byte)pcmi;
-				buf[off + 1] = (byte)(pcmi >>> 8);
+				buf[off] = (short)pcmi;
 			}
 			break;
 		case 320:
@@ -208,8 +203,7 @@ public class Synthesis {
 				sum += win[14] * fifo[i + 192];
 				sum += win[15] * fifo[i + 288];
 				pcmi = sum > 32767 ? 32767 : (sum < -32768 ? -32768 : (int)sum);
-				buf[off] = (byte)pcmi;
-				buf[off + 1] = (byte)(pcmi >>> 8);
+				buf[off] = (short)pcmi;
 			}
 			break;
 		case 384:
@@ -233,8 +227,7 @@ public class Synthesis {
 				sum += win[14] * fifo[i + 256];
 				sum += win[15] * fifo[i + 352];
 				pcmi = sum > 32767 ? 32767 : (sum < -32768 ? -32768 : (int)sum);
-				buf[off] = (byte)pcmi;
-				buf[off + 1] = (byte)(pcmi >>> 8);
+				buf[off] = (short)pcmi;
 			}
 			break;
 		case 448:
@@ -258,8 +251,7 @@ public class Synthesis {
 				sum += win[14] * fifo[i + 320];
 				sum += win[15] * fifo[i + 416];
 				pcmi = sum > 32767 ? 32767 : (sum < -32768 ? -32768 : (int)sum);
-				buf[off] = (byte)pcmi;
-				buf[off + 1] = (byte)(pcmi >>> 8);
+				buf[off] = (short)pcmi;
 			}
 			break;
 		case 512:
@@ -283,8 +275,7 @@ public class Synthesis {
 				sum += win[14] * fifo[i + 384];
 				sum += win[15] * fifo[i + 480];
 				pcmi = sum > 32767 ? 32767 : (sum < -32768 ? -32768 : (int)sum);
-				buf[off] = (byte)pcmi;
-				buf[off + 1] = (byte)(pcmi >>> 8);
+				buf[off] = (short)pcmi;
 			}
 			break;
 		case 576:
@@ -308,8 +299,7 @@ public class Synthesis {
 				sum += win[14] * fifo[i + 448];
 				sum += win[15] * fifo[i + 544];
 				pcmi = sum > 32767 ? 32767 : (sum < -32768 ? -32768 : (int)sum);
-				buf[off] = (byte)pcmi;
-				buf[off + 1] = (byte)(pcmi >>> 8);
+				buf[off] = (short)pcmi;
 			}
 			break;
 		case 640:
@@ -333,8 +323,7 @@ public class Synthesis {
 				sum += win[14] * fifo[i + 512];
 				sum += win[15] * fifo[i + 608];
 				pcmi = sum > 32767 ? 32767 : (sum < -32768 ? -32768 : (int)sum);
-				buf[off] = (byte)pcmi;
-				buf[off + 1] = (byte)(pcmi >>> 8);
+				buf[off] = (short)pcmi;
 			}
 			break;
 		case 704:
@@ -358,8 +347,7 @@ public class Synthesis {
 				sum += win[14] * fifo[i + 576];
 				sum += win[15] * fifo[i + 672];
 				pcmi = sum > 32767 ? 32767 : (sum < -32768 ? -32768 : (int)sum);
-				buf[off] = (byte)pcmi;
-				buf[off + 1] = (byte)(pcmi >>> 8);
+				buf[off] = (short)pcmi;
 			}
 			break;
 		case 768:
@@ -383,8 +371,7 @@ public class Synthesis {
 				sum += win[14] * fifo[i + 640];
 				sum += win[15] * fifo[i + 736];
 				pcmi = sum > 32767 ? 32767 : (sum < -32768 ? -32768 : (int)sum);
-				buf[off] = (byte)pcmi;
-				buf[off + 1] = (byte)(pcmi >>> 8);
+				buf[off] = (short)pcmi;
 			}
 			break;
 		case 832:
@@ -408,8 +395,7 @@ public class Synthesis {
 				sum += win[14] * fifo[i + 704];
 				sum += win[15] * fifo[i + 800];
 				pcmi = sum > 32767 ? 32767 : (sum < -32768 ? -32768 : (int)sum);
-				buf[off] = (byte)pcmi;
-				buf[off + 1] = (byte)(pcmi >>> 8);
+				buf[off] = (short)pcmi;
 			}
 			break;
 		case 896:
@@ -433,8 +419,7 @@ public class Synthesis {
 				sum += win[14] * fifo[i + 768];
 				sum += win[15] * fifo[i + 864];
 				pcmi = sum > 32767 ? 32767 : (sum < -32768 ? -32768 : (int)sum);
-				buf[off] = (byte)pcmi;
-				buf[off + 1] = (byte)(pcmi >>> 8);
+				buf[off] = (short)pcmi;
 			}
 			break;
 		case 960:
@@ -458,8 +443,7 @@ public class Synthesis {
 				sum += win[14] * fifo[i + 832];
 				sum += win[15] * fifo[i + 928];
 				pcmi = sum > 32767 ? 32767 : (sum < -32768 ? -32768 : (int)sum);
-				buf[off] = (byte)pcmi;
-				buf[off + 1] = (byte)(pcmi >>> 8);
+				buf[off] = (short)pcmi;
 			}
 			break;
 		}
@@ -869,7 +853,7 @@ public class Synthesis {
 	 * dewin: D[i] * 32767 (i=0..511), 然后重新排序
 	 * D[]: Coefficients Di of the synthesis window. ISO/IEC 11172-3 ANNEX_B Table 3-B.3
 	 */
-	private final float[][] dewin = { // [32][16]
+	private static final float[][] dewin = { // [32][16]
 		{0f,-14.5f,106.5f,-229.5f,1018.5f,-2576.5f,3287f,-18744.5f,
 		37519f,18744.5f,3287f,2576.5f,1018.5f,229.5f,106.5f,14.5f},
 		{-0.5f,-15.5f,109f,-259.5f,1000f,-2758.5f,2979.5f,-19668f,
@@ -0,0 +1,276 @@
+package zdream.nsfplayer.mpeg.renderer;
+
+import zdream.nsfplayer.core.CycleCounter;
+import zdream.nsfplayer.core.INsfChannelCode;
+import zdream.nsfplayer.mixer.ISoundMixer;
+import zdream.nsfplayer.mpeg.MpegAudio;
+import zdream.nsfplayer.mpeg.MpegDecoder;
+import zdream.nsfplayer.mpeg.MpegSeekTable;
+import zdream.nsfplayer.sound.SoundMpeg;
+
+/**
+ * <p>MPEG 音频轨道.
+ * <p>将 MPEG 音频作为一个 {@link INsfChannelCode#CHANNEL_MPEG} 轨道接入混音器.
+ * 它由渲染器逐帧驱动: 每帧开始前, 用 {@link ISoundMixer#setInSample(int, int)} 告诉混音器该帧的入采样数
+ * (MPEG 音频的采样数), 然后将该帧的采样数据送往混音器.
+ * <p>它既被 {@link MpegRenderer} 使用, 也可以用
+ * {@link zdream.nsfplayer.nsf.renderer.NsfRenderer#attachMpeg(MpegChannel)},
+ * {@link zdream.nsfplayer.ftm.renderer.FamiTrackerRenderer#attachMpeg(MpegChannel)}
+ * 接入 NSF / FTM 渲染器的混音器, 和 NES 的轨道在同一个混音器里混音, 不需要再混合两个渲染器的输出.
+ * 同一时刻它只能接入一个渲染器.
+ * <p>该类是线程不安全的, 请注意不要在渲染途中设置参数.
+ * </p>
+ *
+ * @author Zdream
+ * @since v0.3.3
+ */
+public class MpegChannel implements INsfChannelCode {
+
+	private final MpegDecoder decoder = new MpegDecoder();
+
+	private final SoundMpeg sound = new SoundMpeg();
+
+	/**
+	 * 计算每帧的入采样数 (MPEG 音频的采样数), 计入 speed 影响
+	 */
+	private final CycleCounter inCounter = new CycleCounter();
+
+	/**
+	 * 连接的混音器. 没有连接时为 null
+	 */
+	private ISoundMixer mixer;
+
+	/**
+	 * 混音器中 MPEG 轨道的标识号. 没有连接时为 -1
+	 */
+	private int mixerChannel = -1;
+
+	/**
+	 * 本帧的入采样数
+	 */
+	private int inSample;
+
+	/**
+	 * 上一次告诉混音器的入采样数, 相同时不再重复设置
+	 */
+	private int lastInSample = -1;
+
+	/**
+	 * MPEG 音频的采样率, 单位 Hz
+	 */
+	private int inSampleRate;
+
+	/**
+	 * 渲染器的帧率
+	 */
+	private int frameRate = 60;
+
+	private float speed = 1;
+
+	/**
+	 * 音量. 范围 [0, 1]
+	 */
+	private float level = 1;
+
+	/* **********
+	 * 准备部分 *
+	 ********** */
+
+	/**
+	 * 读取 MPEG 音频, 并从开头进行准备
+	 * @param audio
+	 *   MPEG 音频
+	 * @throws NullPointerException
+	 *   当 audio 为 null 时
+	 */
+	public void ready(MpegAudio audio) {
+		decoder.ready(audio);
+		sound.reset();
+		sound.setDecoder(decoder);
+
+		inSampleRate = sound.getSampleRate();
+		resetInCounter();
+	}
+
+	/**
+	 * <p>跳转到指定的帧. 上一帧没有送往混音器的采样数据将被丢弃.
+	 * <p>需要先调用 {@link #ready(MpegAudio)} 读取音频.
+	 * </p>
+	 * @param table
+	 *   跳转表, 需要由正在播放的 {@link MpegAudio} 创建
+	 * @param frame
+	 *   MPEG 帧序号, 范围 [0, {@link MpegSeekTable#getFrameCount()}]
+	 * @throws IllegalArgumentException
+	 *   跳转表不是由正在播放的音频创建的
+	 * @see MpegDecoder#seek(MpegSeekTable, int)
+	 */
+	public void seek(MpegSeekTable table, int frame) {
+		decoder.seek(table, frame);
+		sound.setDecoder(decoder);
+	}
+
+	/**
+	 * 设置渲染器的帧率. 由渲染器调用
+	 * @param frameRate
+	 *   每秒的帧数
+	 */
+	public void setFrameRate(int frameRate) {
+		this.frameRate = frameRate;
+		resetInCounter();
+	}
+
+	/**
+	 * <p>设置播放速度. 每帧的入采样数乘以该值, 音调会随之改变.
+	 * <p>NSF / FTM 渲染器的速度通过改变每帧的出采样数实现, 接入这两个渲染器时不需要设置.
+	 * </p>
+	 * @param speed
+	 *   播放速度, 默认为 1
+	 */
+	public void setSpeed(float speed) {
+		this.speed = speed;
+		resetInCounter();
+	}
+
+	private void resetInCounter() {
+		int cycle = inSampleRate;
+		if (speed != 1) {
+			cycle = (int) (cycle * speed);
+		}
+		inCounter.setParam(cycle, frameRate);
+	}
+
+	/**
+	 * 连接混音器, 在混音器中分配一个 MPEG 轨道. 由渲染器在连接它自己的轨道时调用
+	 * @param mixer
+	 *   混音器
+	 */
+	public void connect(ISoundMixer mixer) {
+		this.mixer = mixer;
+		mixerChannel = mixer.allocateChannel(CHANNEL_MPEG);
+		sound.setOut(mixer.getMixerChannel(mixerChannel));
+		mixer.setLevel(mixerChannel, level);
+		lastInSample = -1;
+	}
+
+	/**
+	 * 断开混音器, 拆开混音器中的 MPEG 轨道
+	 */
+	public void disconnect() {
+		if (mixer != null) {
+			mixer.detach(mixerChannel);
+		}
+		mixer = null;
+		mixerChannel = -1;
+	}
+
+	/**
+	 * @return
+	 *   是否已经连接混音器
+	 */
+	public boolean isConnected() {
+		return mixer != null;
+	}
+
+	/* **********
+	 * 渲染部分 *
+	 ********** */
+
+	/**
+	 * 计算本帧的入采样数, 并告诉混音器. 需要在混音器的 readyBuffer 之前调用
+	 */
+	public void beforeFrame() {
+		inSample = inCounter.tick();
+		if (mixer != null && inSample != lastInSample) {
+			mixer.setInSample(mixerChannel, inSample);
+			lastInSample = inSample;
+		}
+	}
+
+	/**
+	 * 将本帧的采样数据送往混音器. 需要在 {@link #beforeFrame()} 之后,
+	 * 混音器的 finishBuffer 之前调用
+	 */
+	public void processFrame() {
+		sound.process(inSample);
+		sound.endFrame();
+	}
+
+	/**
+	 * 跳过一帧, 不向混音器传递音频数据
+	 */
+	public void skipFrame() {
+		sound.skip(inCounter.tick());
+	}
+
+	/* **********
+	 * 仪表盘区 *
+	 ********** */
+
+	/**
+	 * @return
+	 *   MPEG 音频的采样率, 单位 Hz. 如果音频里没有能够解码的帧, 返回 0
+	 */
+	public int getInSampleRate() {
+		return inSampleRate;
+	}
+
+	/**
+	 * @return
+	 *   解码器已经解码到末尾, 并且所有采样都已经送往混音器时, 返回 true
+	 */
+	public boolean isFinished() {
+		return sound.isFinished();
+	}
+
+	/**
+	 * 设置音量
+	 * @param level
+	 *   音量. 范围 [0, 1]
+	 */
+	public void setLevel(float level) {
+		if (level < 0) {
+			level = 0;
+		} else if (level > 1) {
+			level = 1;
+		}
+
+		this.level = level;
+		if (mixer != null) {
+			mixer.setLevel(mixerChannel, level);
+		}
+	}
+
+	/**
+	 * @return
+	 *   音量. 范围 [0, 1]
+	 */
+	public float getLevel() {
+		return level;
+	}
+
+	/**
+	 * 设置是否发出声音
+	 * @param muted
+	 *   false, 发声; true, 则静音
+	 */
+	public void setMuted(boolean muted) {
+		sound.setMuted(muted);
+	}
+
+	/**
+	 * @return
+	 *   false, 没有被屏蔽; true, 则已经被屏蔽
+	 */
+	public boolean isMuted() {
+		return sound.isMuted();
+	}
+
+	/**
+	 * @return
+	 *   发声器
+	 */
+	public SoundMpeg getSound() {
+		return sound;
+	}
+
+}
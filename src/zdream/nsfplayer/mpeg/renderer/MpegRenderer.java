@@ -0,0 +1,249 @@
+package zdream.nsfplayer.mpeg.renderer;
+
+import zdream.nsfplayer.core.AbstractRenderer;
+import zdream.nsfplayer.core.INsfChannelCode;
+import zdream.nsfplayer.core.NsfCommonParameter;
+import zdream.nsfplayer.core.NsfPlayerApplication;
+import zdream.nsfplayer.core.NsfStatic;
+import zdream.nsfplayer.mixer.IMixerConfig;
+import zdream.nsfplayer.mixer.IMixerHandler;
+import zdream.nsfplayer.mixer.ISoundMixer;
+import zdream.nsfplayer.mixer.blip.BlipMixerConfig;
+import zdream.nsfplayer.mpeg.MpegAudio;
+import zdream.nsfplayer.mpeg.MpegDecoder;
+import zdream.nsfplayer.mpeg.MpegSeekTable;
+
+/**
+ * <p>MPEG 音频渲染器.
+ * <p>解码得到的 PCM 数据通过 {@link MpegChannel} 送往混音器的 {@link INsfChannelCode#CHANNEL_MPEG} 轨道,
+ * 每帧用 {@link ISoundMixer#setInSample(int, int)} 告诉混音器该帧的入采样数,
+ * 由混音器将 MPEG 音频的采样率 (44100 Hz, 48000 Hz 等) 转换成渲染器的采样率.
+ * 因此它和 NSF / FTM 渲染器使用相同的混音器、相同的输出格式.
+ * <p>播放速度的变化通过改变每帧的入采样数实现, 音调会随之改变.
+ * <p>如果要将 MPEG 音频与 NSF / FTM 音频一起播放, 不需要该渲染器,
+ * 直接将 {@link MpegChannel} 接入 NSF / FTM 渲染器即可.
+ * <p>该渲染器是线程不安全的, 请注意不要在渲染途中设置参数.
+ * </p>
+ *
+ * @author Zdream
+ * @since v0.3.3
+ */
+public class MpegRenderer extends AbstractRenderer<MpegAudio> implements INsfChannelCode {
+
+	private final MpegChannel channel = new MpegChannel();
+
+	private final NsfCommonParameter param = new NsfCommonParameter();
+
+	/**
+	 * 音频混音器
+	 */
+	public ISoundMixer mixer;
+
+	/**
+	 * 帧率. 和 NSF 渲染器一样, 选 50 还是 60 不影响输出
+	 */
+	private final int frameRate = NsfStatic.FRAME_RATE_NTSC;
+
+	public MpegRenderer() {
+		this(new MpegRendererConfig());
+	}
+
+	public MpegRenderer(MpegRendererConfig config) {
+		param.sampleRate = config.sampleRate;
+		param.frameRate = frameRate;
+		// 全局的时钟以输出的采样为单位
+		param.freqPerSec = config.sampleRate;
+
+		initMixer(config);
+		counter.setParam(param.sampleRate, frameRate);
+		channel.setFrameRate(frameRate);
+	}
+
+	private void initMixer(MpegRendererConfig config) {
+		IMixerConfig mixerConfig = config.mixerConfig;
+		if (mixerConfig == null) {
+			mixerConfig = new BlipMixerConfig();
+		}
+
+		this.mixer = NsfPlayerApplication.app.mixerFactory.create(mixerConfig, param);
+	}
+
+	/* **********
+	 * 准备部分 *
+	 ********** */
+
+	/**
+	 * 读取 MPEG 音频, 并从开头进行准备
+	 * @param audio
+	 *   MPEG 音频
+	 * @throws NullPointerException
+	 *   当 audio 为 null 时
+	 */
+	@Override
+	public void ready(MpegAudio audio) {
+		channel.ready(audio);
+		counter.setParam(param.sampleRate, frameRate);
+
+		mixer.reset();
+		connectChannels();
+		clearBuffer();
+	}
+
+	/**
+	 * <p>跳转到指定的帧. 上一帧没有渲染完的采样数据将被丢弃.
+	 * <p>需要先调用 {@link #ready(MpegAudio)} 读取音频.
+	 * </p>
+	 * @param table
+	 *   跳转表, 需要由正在渲染的 {@link MpegAudio} 创建
+	 * @param frame
+	 *   MPEG 帧序号, 范围 [0, {@link MpegSeekTable#getFrameCount()}]
+	 * @throws IllegalArgumentException
+	 *   跳转表不是由正在渲染的音频创建的
+	 * @see MpegDecoder#seek(MpegSeekTable, int)
+	 */
+	public void seek(MpegSeekTable table, int frame) {
+		channel.seek(table, frame);
+		clearBuffer();
+	}
+
+	/**
+	 * <p>将渲染器恢复到刚刚创建时的状态, 以便重复使用.
+	 * <p>拆开混音器的所有轨道并丢弃混音器的设置, 播放速度恢复为 1.
+	 * 调用之后需要重新调用 {@link #ready(MpegAudio)}.
+	 * </p>
+	 */
+	@Override
+	public void resetForReuse() {
+		channel.setMuted(false);
+		channel.disconnect();
+		mixer.resetForReuse();
+		param.speed = 1;
+		channel.setSpeed(1);
+		super.resetForReuse();
+	}
+
+	/**
+	 * 连接发声器和混音器的轨道
+	 */
+	private void connectChannels() {
+		mixer.detachAll();
+		channel.connect(mixer);
+	}
+
+	/* **********
+	 * 渲染部分 *
+	 ********** */
+
+	@Override
+	protected int renderFrame() {
+		int ret = countNextFrame();
+		param.sampleInCurFrame = ret;
+		param.freqPerFrame = ret;
+
+		channel.beforeFrame();
+		mixer.readyBuffer();
+		channel.processFrame();
+
+		// 从 mixer 中读取数据
+		mixer.finishBuffer();
+		mixer.readBuffer(data, 0, data.length);
+
+		return ret;
+	}
+
+	@Override
+	protected int skipFrame() {
+		int ret = countNextFrame();
+		channel.skipFrame();
+		return ret;
+	}
+
+	/**
+	 * 询问是否整个音频已经渲染完成
+	 * @return
+	 *   解码器已经解码到末尾, 并且所有采样都已经送往混音器时, 返回 true
+	 */
+	@Override
+	public boolean isFinished() {
+		return channel.isFinished();
+	}
+
+	/* **********
+	 * 仪表盘区 *
+	 ********** */
+
+	/**
+	 * @return
+	 *   MPEG 音频的采样率, 单位 Hz. 如果音频里没有能够解码的帧, 返回 0
+	 */
+	public int getInSampleRate() {
+		return channel.getInSampleRate();
+	}
+
+	/**
+	 * 设置音量
+	 * @param level
+	 *   音量. 范围 [0, 1]
+	 */
+	public void setLevel(float level) {
+		channel.setLevel(level);
+	}
+
+	/**
+	 * 获得音量
+	 * @return
+	 *   音量. 范围 [0, 1]
+	 * @throws NullPointerException
+	 *   当还没有调用 {@link #ready(MpegAudio)} 时
+	 */
+	public float getLevel() throws NullPointerException {
+		if (!channel.isConnected()) {
+			throw new NullPointerException("还没有读取 MPEG 音频");
+		}
+		return channel.getLevel();
+	}
+
+	/**
+	 * 设置是否发出声音
+	 * @param muted
+	 *   false, 发声; true, 则静音
+	 */
+	public void setMuted(boolean muted) {
+		channel.setMuted(muted);
+	}
+
+	/**
+	 * @return
+	 *   false, 没有被屏蔽; true, 则已经被屏蔽
+	 */
+	public boolean isMuted() {
+		return channel.isMuted();
+	}
+
+	@Override
+	public void setSpeed(float speed) {
+		if (speed > 10) {
+			speed = 10;
+		} else if (speed < 0.1f) {
+			speed = 0.1f;
+		}
+
+		param.speed = speed;
+		channel.setSpeed(speed);
+	}
+
+	@Override
+	public float getSpeed() {
+		return param.speed;
+	}
+
+	/**
+	 * 获得混音器的操作者（工具类）. 通过它可以对所使用的混音器进行简单的操作.
+	 * @return
+	 *   混音器的操作者
+	 */
+	public IMixerHandler getMixerHandler() {
+		return mixer.getHandler();
+	}
+
+}
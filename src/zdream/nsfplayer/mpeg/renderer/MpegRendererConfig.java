@@ -0,0 +1,41 @@
+package zdream.nsfplayer.mpeg.renderer;
+
+import zdream.nsfplayer.mixer.IMixerConfig;
+
+/**
+ * 用于设置启动 {@link MpegRenderer} 的启动参数.
+ * 
+ * @author Zdream
+ * @since v0.3.3
+ */
+public class MpegRendererConfig implements Cloneable {
+	
+	public MpegRendererConfig() {
+	}
+	
+	/**
+	 * 渲染出的采样率. 与 MPEG 音频本身的采样率无关, 由混音器进行转换
+	 */
+	public int sampleRate = 48000;
+	
+	/**
+	 * <p>Mixer 参数.
+	 * <p>如果为 null, 使用 Blip 混音器. Xgm 混音器默认开启的回音等效果是为 NES 音频设计的,
+	 * 不适合采样音频.
+	 * </p>
+	 */
+	public IMixerConfig mixerConfig;
+	
+	@Override
+	public MpegRendererConfig clone() {
+		MpegRendererConfig c = new MpegRendererConfig();
+		
+		c.sampleRate = this.sampleRate;
+		if (mixerConfig != null) {
+			c.mixerConfig = mixerConfig.clone();
+		}
+		
+		return c;
+	}
+
+}
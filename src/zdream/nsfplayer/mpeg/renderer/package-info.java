@@ -0,0 +1,6 @@
+/**
+ * MPEG 渲染器所在的包
+ * @author Zdream
+ * @since v0.3.3
+ */
+package zdream.nsfplayer.mpeg.renderer;
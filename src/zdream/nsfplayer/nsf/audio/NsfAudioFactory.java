@@ -1,11 +1,14 @@
 package zdream.nsfplayer.nsf.audio;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import zdream.utils.common.FileUtils;
 
 /**
  * <p>用于生成 NSF 音频结构 (原则上不支持 NSFe)
+ * <p>从 v0.3.3 开始, {@link #createFromFile(String)} 将文件映射到内存中读取,
+ * 只有音频的数据部分 (头部之后的部分) 会被复制到堆中.
  * @author Zdream
  * @version v0.1
  * @date 2018-01-16
@@ -15,7 +18,32 @@ public class NsfAudioFactory {
 	public NsfAudioFactory() {}
 	
 	public NsfAudio createFromFile(String path) throws IOException, NsfAudioFormatException {
-		return create(FileUtils.readFile(path));
+		return create(FileUtils.mapFile(path));
+	}
+	
+	/**
+	 * 从 {@link ByteBuffer} 中读取并生成 NSF 数据. 不支持 NSFe
+	 * @param image
+	 *   镜像数据, 范围是 [position, limit). 读取不会修改 image 的 position
+	 * @return
+	 * @throws NsfAudioFormatException
+	 *   文件格式不匹配导致读取失败
+	 * @since v0.3.3
+	 */
+	public NsfAudio create(ByteBuffer image) throws NsfAudioFormatException {
+		ByteBuffer buf = image.duplicate();
+		if (buf.remaining() < 0x80)
+			throw new NsfAudioFormatException("镜像数组太小");
+		
+		byte[] head = new byte[0x80];
+		buf.get(head);
+		NsfAudio audio = readHeader(head, 0);
+		
+		byte[] body = new byte[buf.remaining()];
+		buf.get(body);
+		audio.body = body;
+		
+		return audio;
 	}
 	
 	public NsfAudio create(byte[] image) throws NsfAudioFormatException {
@@ -37,6 +65,20 @@ public class NsfAudioFactory {
 		if (image.length < 0x80) // 这里相当于检查 image == null
 			throw new NsfAudioFormatException("镜像数组太小");
 		
+		NsfAudio audio = readHeader(image, offset);
+		
+		byte[] body = new byte[image.length - offset - 0x80];
+		System.arraycopy(image, 0x80, body, 0, body.length);
+		audio.body = body;
+		
+		return audio;
+	}
+	
+	/**
+	 * 读取 NSF 的头部 (0x80 字节), 不含数据部分
+	 * @since v0.3.3
+	 */
+	private NsfAudio readHeader(byte[] image, int offset) throws NsfAudioFormatException {
 		// 指向 image 的索引
 		int ptr = offset;
 		
@@ -112,12 +154,7 @@ public class NsfAudioFactory {
 		// extra 占 4 byte
 		ptr += 4;
 		
-		byte[] body = new byte[image.length - ptr]; // ptr == 0x80
-		System.arraycopy(image, 0x80, body, 0, body.length);
-		audio.body = body;
-		
 		return audio;
-
 	}
 
 }
@@ -126,6 +126,7 @@ public class NesS5B extends AbstractSoundChip {
 
 	@Override
 	public void reset() {
+		address = 0;
 		s1.reset();
 		s2.reset();
 		s3.reset();
@@ -14,6 +14,7 @@ import zdream.nsfplayer.mixer.IMixerConfig;
 import zdream.nsfplayer.mixer.IMixerHandler;
 import zdream.nsfplayer.mixer.ISoundMixer;
 import zdream.nsfplayer.mixer.xgm.XgmMixerConfig;
+import zdream.nsfplayer.mpeg.renderer.MpegChannel;
 import zdream.nsfplayer.nsf.audio.NsfAudio;
 import zdream.nsfplayer.nsf.device.chip.NesN163;
 import zdream.nsfplayer.nsf.executor.IN163ReattachListener;
@@ -74,6 +75,12 @@ public class NsfRenderer extends AbstractNsfRenderer<NsfAudio> {
 	 */
 	private boolean channelInit;
 	
+	/**
+	 * 接入的 MPEG 轨道. 没有接入时为 null
+	 * @since v0.3.3
+	 */
+	private MpegChannel mpeg;
+	
 	public NsfRenderer() {
 		this(new NsfRendererConfig());
 	}
@@ -168,6 +175,33 @@ public class NsfRenderer extends AbstractNsfRenderer<NsfAudio> {
 		channelInit = false;
 	}
 	
+	/**
+	 * <p>将渲染器恢复到刚刚创建时的状态, 以便重复使用.
+	 * <p>取消所有轨道的屏蔽, 拆开混音器的所有轨道 (包括接入的 MPEG 轨道) 并丢弃混音器的设置, 播放速度恢复为 1.
+	 * 调用之后需要重新调用 {@link #ready(NsfAudio, int)} 等方法.
+	 * </p>
+	 * @since v0.3.3
+	 */
+	@Override
+	public void resetForReuse() {
+		for (byte channelCode : executor.allChannelSet()) {
+			AbstractNsfSound sound = executor.getSound(channelCode);
+			if (sound != null) {
+				sound.setMuted(false);
+			}
+		}
+		
+		detachMpeg();
+		mixer.resetForReuse();
+		channels = null;
+		n163ChannelCount = -1;
+		channelInit = false;
+		
+		// 播放速度在下一次 ready 时重新计算
+		param.speed = 1;
+		super.resetForReuse();
+	}
+	
 	/**
 	 * <p>连接执行构件中的 sound 和渲染构件的轨道.
 	 * <p>这个方法可以暂时确定所有轨道号
@@ -199,7 +233,8 @@ public class NsfRenderer extends AbstractNsfRenderer<NsfAudio> {
 				// 音量
 				mix.setLevel(getInitLevel(channelCode));
 				
-				// TODO 告诉混音器更多的信息, 包括发声器的输出采样率 (NSF 的为 177万, mpeg 的为 44100 或 48000 等)
+				// NES 的发声器使用全局的入采样数 (每帧的时钟数).
+				// MPEG 轨道的入采样数由 MpegChannel 每帧告诉混音器
 			}
 			
 			// 缓存轨道号
@@ -209,6 +244,58 @@ public class NsfRenderer extends AbstractNsfRenderer<NsfAudio> {
 			this.channels[index] = p;
 			index++;
 		}
+		
+		connectMpeg();
+	}
+	
+	/**
+	 * 将接入的 MPEG 轨道连接到混音器
+	 * @since v0.3.3
+	 */
+	private void connectMpeg() {
+		if (mpeg != null) {
+			mpeg.setFrameRate(frameRate);
+			mpeg.connect(mixer);
+		}
+	}
+	
+	/**
+	 * <p>接入 MPEG 轨道, 让 MPEG 音频与 NSF 的轨道在同一个混音器中混音.
+	 * <p>MPEG 轨道跟随该渲染器逐帧渲染、跳过. 渲染器的播放速度改变时, MPEG 音频的速度、音调随之改变.
+	 * 渲染器读取新的 NSF 音频时, MPEG 轨道会重新连接到混音器, 播放位置不变.
+	 * 之前接入的 MPEG 轨道将被拆开.
+	 * </p>
+	 * @param mpeg
+	 *   MPEG 轨道, 需要已经调用过 {@link MpegChannel#ready(zdream.nsfplayer.mpeg.MpegAudio)}.
+	 *   为 null 时, 等同于 {@link #detachMpeg()}
+	 * @since v0.3.3
+	 */
+	public void attachMpeg(MpegChannel mpeg) {
+		detachMpeg();
+		this.mpeg = mpeg;
+		if (channels != null) {
+			connectMpeg();
+		}
+	}
+	
+	/**
+	 * 拆开接入的 MPEG 轨道
+	 * @since v0.3.3
+	 */
+	public void detachMpeg() {
+		if (mpeg != null) {
+			mpeg.disconnect();
+			mpeg = null;
+		}
+	}
+	
+	/**
+	 * @return
+	 *   接入的 MPEG 轨道. 没有接入时为 null
+	 * @since v0.3.3
+	 */
+	public MpegChannel getMpeg() {
+		return mpeg;
 	}
 	
 	/* **********
@@ -220,6 +307,9 @@ public class NsfRenderer extends AbstractNsfRenderer<NsfAudio> {
 		int ret = countNextFrame();
 		param.sampleInCurFrame = ret;
 		rate.doConvert();
+		if (mpeg != null) {
+			mpeg.beforeFrame();
+		}
 		mixerReady();
 		
 		final int exeCount = exeCycle.tick();
@@ -227,6 +317,9 @@ public class NsfRenderer extends AbstractNsfRenderer<NsfAudio> {
 			executor.tick();
 			processSounds(apuCounter.tick());
 		}
+		if (mpeg != null) {
+			mpeg.processFrame();
+		}
 		endFrame();
 
 		// 从 mixer 中读取数据
@@ -245,6 +338,9 @@ public class NsfRenderer extends AbstractNsfRenderer<NsfAudio> {
 		for (int i = 0; i < exeCount; i++) {
 			executor.tick();
 		}
+		if (mpeg != null) {
+			mpeg.skipFrame();
+		}
 		endFrame();
 
 		return ret;
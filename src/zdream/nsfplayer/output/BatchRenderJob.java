@@ -0,0 +1,92 @@
+package zdream.nsfplayer.output;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * <p>一次批量渲染的任务.
+ * <p>由 {@link BatchRenderService} 创建, 可以用来等待任务结束, 或者取消任务.
+ * </p>
+ * 
+ * @author Zdream
+ * @since v0.3.3
+ */
+public class BatchRenderJob {
+	
+	/**
+	 * 每个曲目的渲染任务, 按曲目号顺序排列
+	 */
+	final List<ForkJoinTask<BatchRenderResult>> tasks = new ArrayList<>();
+	
+	/**
+	 * 取消标志. 渲染线程每帧都会检查该标志
+	 */
+	volatile boolean cancelled;
+	
+	BatchRenderJob() {
+		// 仅允许 BatchRenderService 创建
+	}
+	
+	/**
+	 * <p>取消任务.
+	 * <p>还没有开始的曲目将不再渲染; 正在渲染的曲目将在当前帧结束后停止, 并删除其输出文件.
+	 * 已经渲染完成的曲目不受影响.
+	 * </p>
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+	
+	/**
+	 * @return
+	 *   任务是否已经被取消
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+	
+	/**
+	 * @return
+	 *   是否所有曲目都已经结束 (包括失败或被取消)
+	 */
+	public boolean isDone() {
+		for (ForkJoinTask<BatchRenderResult> task : tasks) {
+			if (!task.isDone()) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * @return
+	 *   需要渲染的曲目总数
+	 */
+	public int getTrackCount() {
+		return tasks.size();
+	}
+	
+	/**
+	 * 阻塞等待所有曲目结束
+	 * @return
+	 *   每个曲目的渲染结果, 按曲目号顺序排列
+	 * @throws InterruptedException
+	 *   当等待时线程被中断
+	 */
+	public List<BatchRenderResult> await() throws InterruptedException {
+		List<BatchRenderResult> results = new ArrayList<>(tasks.size());
+		for (ForkJoinTask<BatchRenderResult> task : tasks) {
+			try {
+				results.add(task.get());
+			} catch (ExecutionException | CancellationException e) {
+				// 渲染任务内部已经捕获了所有异常, 这里不会出现
+				throw new IllegalStateException(e);
+			}
+		}
+		return results;
+	}
+
+}
@@ -0,0 +1,81 @@
+package zdream.nsfplayer.output;
+
+import java.nio.file.Path;
+
+/**
+ * <p>批量渲染中, 单个曲目的渲染结果.
+ * <p>不可变实例
+ * </p>
+ * 
+ * @author Zdream
+ * @since v0.3.3
+ */
+public class BatchRenderResult {
+	
+	/**
+	 * 曲目号, 从 0 开始
+	 */
+	public final int track;
+	
+	/**
+	 * 输出的文件路径
+	 */
+	public final Path path;
+	
+	/**
+	 * 写入的采样数 (每个声道)
+	 */
+	public final long samples;
+	
+	/**
+	 * <p>渲染过程中出现的异常. 如果渲染成功, 为 null.
+	 * <p>进度监听器抛出的异常也记录在这里; 如果渲染本身也出现了异常,
+	 * 监听器的异常作为它的 suppressed 异常.
+	 * </p>
+	 */
+	public final Throwable error;
+	
+	/**
+	 * 是否被取消. 被取消的曲目, 其输出文件将被删除
+	 */
+	public final boolean cancelled;
+	
+	BatchRenderResult(int track, Path path, long samples, Throwable error, boolean cancelled) {
+		this.track = track;
+		this.path = path;
+		this.samples = samples;
+		this.error = error;
+		this.cancelled = cancelled;
+	}
+	
+	/**
+	 * 返回记录了 e 的结果. 用于记录进度监听器抛出的异常
+	 * @param e
+	 *   异常
+	 * @return
+	 *   新的结果实例, 其它数据与该实例相同
+	 */
+	BatchRenderResult withError(Throwable e) {
+		Throwable t = e;
+		if (error != null) {
+			error.addSuppressed(e);
+			t = error;
+		}
+		return new BatchRenderResult(track, path, samples, t, cancelled);
+	}
+	
+	/**
+	 * @return
+	 *   该曲目是否渲染成功
+	 */
+	public boolean isSuccess() {
+		return error == null && !cancelled;
+	}
+	
+	@Override
+	public String toString() {
+		return "BatchRenderResult [track=" + track + ", path=" + path + ", samples=" + samples
+				+ ", error=" + error + ", cancelled=" + cancelled + "]";
+	}
+
+}
@@ -0,0 +1,338 @@
+package zdream.nsfplayer.output;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Supplier;
+
+import zdream.nsfplayer.core.AbstractRenderer;
+import zdream.nsfplayer.core.RendererPool;
+import zdream.nsfplayer.ftm.audio.FtmAudio;
+import zdream.nsfplayer.ftm.renderer.FamiTrackerConfig;
+import zdream.nsfplayer.ftm.renderer.FamiTrackerRenderer;
+import zdream.nsfplayer.nsf.audio.NsfAudio;
+import zdream.nsfplayer.nsf.renderer.NsfRenderer;
+import zdream.nsfplayer.nsf.renderer.NsfRendererConfig;
+
+/**
+ * <p>批量渲染服务.
+ * <p>将一个 NSF / FTM 音频的所有曲目并行地渲染到 WAV 文件中.
+ * 所有渲染线程共享同一个 {@link NsfAudio} / {@link FtmAudio} 实例 (渲染过程中只读取, 不修改),
+ * 每个渲染线程使用自己的渲染器. 渲染器由 {@link RendererPool} 在同一个任务中的曲目之间重复使用,
+ * 因此一个任务创建的渲染器数量不会超过线程池的并行数.
+ * <p>每个曲目的渲染时长由最大时长限制, 同时可以开启循环判断:
+ * FTM 在播放位置回到已经播放过的行时结束, NSF 在连续静音一段时间后结束.
+ * <p>该类的设置方法是线程不安全的, 设置只对之后创建的任务生效.
+ * </p>
+ * 
+ * @author Zdream
+ * @since v0.3.3
+ */
+public class BatchRenderService {
+	
+	private final ForkJoinPool pool;
+	
+	/**
+	 * 使用公共线程池 {@link ForkJoinPool#commonPool()}
+	 */
+	public BatchRenderService() {
+		this(ForkJoinPool.commonPool());
+	}
+	
+	/**
+	 * @param pool
+	 *   渲染使用的线程池
+	 */
+	public BatchRenderService(ForkJoinPool pool) {
+		requireNonNull(pool, "pool = null");
+		this.pool = pool;
+	}
+	
+	/* **********
+	 *   设置   *
+	 ********** */
+	
+	private NsfRendererConfig nsfConfig = new NsfRendererConfig();
+	private FamiTrackerConfig ftmConfig = new FamiTrackerConfig();
+	
+	/**
+	 * 默认每个曲目的最大时长, 单位秒
+	 */
+	private float defaultDuration = 600;
+	
+	/**
+	 * 指定曲目的最大时长, 单位秒. 曲目号 - 时长
+	 */
+	private final Map<Integer, Float> durations = new HashMap<>();
+	
+	/**
+	 * 是否在侦测到循环 / 静音时结束
+	 */
+	private boolean stopOnLoop = true;
+	
+	/**
+	 * 静音判断的帧数, 仅 NSF 使用
+	 */
+	private int silentFrames = 180;
+	
+	private int channels = 1;
+	private WavExportSink.Format format = WavExportSink.Format.PCM_16;
+	
+	private IBatchRenderListener listener;
+	
+	public void setNsfConfig(NsfRendererConfig config) {
+		requireNonNull(config, "config = null");
+		this.nsfConfig = config.clone();
+	}
+	
+	public void setFtmConfig(FamiTrackerConfig config) {
+		requireNonNull(config, "config = null");
+		this.ftmConfig = config.clone();
+	}
+	
+	/**
+	 * 设置每个曲目默认的最大时长
+	 * @param seconds
+	 *   最大时长, 单位秒. 必须为正数
+	 * @throws IllegalArgumentException
+	 *   当时长不是正数时
+	 */
+	public void setDefaultDuration(float seconds) {
+		if (seconds <= 0) {
+			throw new IllegalArgumentException("时长 seconds: " + seconds + " 必须为正数");
+		}
+		this.defaultDuration = seconds;
+	}
+	
+	/**
+	 * 设置指定曲目的最大时长, 覆盖默认的最大时长
+	 * @param track
+	 *   曲目号, 从 0 开始
+	 * @param seconds
+	 *   最大时长, 单位秒. 必须为正数
+	 * @throws IllegalArgumentException
+	 *   当时长不是正数时
+	 */
+	public void setTrackDuration(int track, float seconds) {
+		if (seconds <= 0) {
+			throw new IllegalArgumentException("时长 seconds: " + seconds + " 必须为正数");
+		}
+		durations.put(track, seconds);
+	}
+	
+	/**
+	 * 清除所有指定曲目的最大时长
+	 */
+	public void clearTrackDurations() {
+		durations.clear();
+	}
+	
+	/**
+	 * 设置是否在侦测到循环 (FTM) 或静音 (NSF) 时结束曲目的渲染
+	 * @param stopOnLoop
+	 *   默认 true
+	 */
+	public void setStopOnLoop(boolean stopOnLoop) {
+		this.stopOnLoop = stopOnLoop;
+	}
+	
+	/**
+	 * 设置 NSF 判断为结束需要的连续静音帧数
+	 * @param frames
+	 *   帧数, 默认 180 (大约 3 秒)
+	 */
+	public void setSilentFrames(int frames) {
+		if (frames <= 0) {
+			throw new IllegalArgumentException("帧数 frames: " + frames + " 必须为正数");
+		}
+		this.silentFrames = frames;
+	}
+	
+	/**
+	 * 设置输出文件的格式
+	 * @param channels
+	 *   声道数, 1 或 2
+	 * @param format
+	 *   采样格式
+	 */
+	public void setOutputFormat(int channels, WavExportSink.Format format) {
+		if (channels != 1 && channels != 2) {
+			throw new IllegalArgumentException("声道数 channels: " + channels + " 只能为 1 或 2");
+		}
+		requireNonNull(format, "format = null");
+		this.channels = channels;
+		this.format = format;
+	}
+	
+	/**
+	 * @param listener
+	 *   进度监听器, 可以为 null
+	 */
+	public void setListener(IBatchRenderListener listener) {
+		this.listener = listener;
+	}
+	
+	/* **********
+	 *   渲染   *
+	 ********** */
+	
+	/**
+	 * 将 NSF 音频的所有曲目渲染到文件中
+	 * @param audio
+	 *   NSF 音频
+	 * @param output
+	 *   曲目号 - 输出文件路径
+	 * @return
+	 *   批量渲染任务
+	 */
+	public BatchRenderJob renderAll(NsfAudio audio, IntFunction<Path> output) {
+		requireNonNull(audio, "NSF 曲目 audio = null");
+		final NsfRendererConfig config = nsfConfig.clone();
+		final int frames = silentFrames;
+		
+		return submit(audio.total_songs, output, config.sampleRate,
+				() -> new NsfRenderer(config),
+				(r, track) -> r.ready(audio, track),
+				r -> new SilenceDetector(frames));
+	}
+	
+	/**
+	 * 将 FTM 音频的所有曲目渲染到文件中
+	 * @param audio
+	 *   FTM 音频
+	 * @param output
+	 *   曲目号 - 输出文件路径
+	 * @return
+	 *   批量渲染任务
+	 */
+	public BatchRenderJob renderAll(FtmAudio audio, IntFunction<Path> output) {
+		requireNonNull(audio, "FamiTracker 曲目 audio = null");
+		final FamiTrackerConfig config = ftmConfig.clone();
+		
+		return submit(audio.getTrackCount(), output, config.sampleRate,
+				() -> new FamiTrackerRenderer(config),
+				(r, track) -> r.ready(audio, track),
+				FtmLoopDetector::new);
+	}
+	
+	private <R extends AbstractRenderer<?>> BatchRenderJob submit(
+			final int total,
+			IntFunction<Path> output,
+			final int sampleRate,
+			Supplier<R> creater,
+			ObjIntConsumer<R> ready,
+			Function<R, IRenderEndDetector> loopDetector) {
+		requireNonNull(output, "output = null");
+		
+		// 设置的快照
+		final Map<Integer, Float> durations = new HashMap<>(this.durations);
+		final float defaultDuration = this.defaultDuration;
+		final boolean stopOnLoop = this.stopOnLoop;
+		final int channels = this.channels;
+		final WavExportSink.Format format = this.format;
+		final IBatchRenderListener listener = this.listener;
+		
+		final BatchRenderJob job = new BatchRenderJob();
+		final RendererPool<R> renderers = new RendererPool<>(creater, pool.getParallelism());
+		final AtomicInteger finished = new AtomicInteger();
+		
+		for (int i = 0; i < total; i++) {
+			final int track = i;
+			final Path path = output.apply(track);
+			final long maxSamples = (long) (durations.getOrDefault(track, defaultDuration) * sampleRate);
+			
+			ForkJoinTask<BatchRenderResult> task = pool.submit(() -> {
+				BatchRenderResult result;
+				if (job.cancelled) {
+					result = new BatchRenderResult(track, path, 0, null, true);
+				} else {
+					R renderer = renderers.borrow();
+					try {
+						result = renderTrack(job, renderer, track, path, maxSamples, sampleRate,
+								channels, format, ready,
+								stopOnLoop ? loopDetector.apply(renderer) : null);
+					} finally {
+						renderers.release(renderer);
+					}
+				}
+				
+				if (listener != null) {
+					try {
+						listener.onTrackFinished(result, finished.incrementAndGet(), total);
+					} catch (RuntimeException e) {
+						// 监听器的异常记录在结果中, 由 await() 返回
+						result = result.withError(e);
+					}
+				}
+				return result;
+			});
+			job.tasks.add(task);
+		}
+		
+		return job;
+	}
+	
+	private <R extends AbstractRenderer<?>> BatchRenderResult renderTrack(
+			final BatchRenderJob job,
+			R renderer,
+			int track,
+			Path path,
+			long maxSamples,
+			int sampleRate,
+			int channels,
+			WavExportSink.Format format,
+			ObjIntConsumer<R> ready,
+			final IRenderEndDetector detector) {
+		long samples = 0;
+		Throwable error = null;
+		final boolean[] stopped = new boolean[1]; // 是否因为取消而停止
+		
+		// 在结束判断器中顺带检查取消标志
+		IRenderEndDetector d = new IRenderEndDetector() {
+			@Override
+			public void reset() {
+				if (detector != null) {
+					detector.reset();
+				}
+			}
+			
+			@Override
+			public boolean onFrame(short[] s, int offset, int length) {
+				if (job.cancelled) {
+					return stopped[0] = true;
+				}
+				return detector != null && detector.onFrame(s, offset, length);
+			}
+		};
+		
+		try {
+			ready.accept(renderer, track);
+			try (WavExportSink sink = new WavExportSink(path, sampleRate, channels, format)) {
+				samples = sink.export(renderer, maxSamples, d);
+			}
+		} catch (IOException | RuntimeException e) {
+			error = e;
+		}
+		
+		if (stopped[0]) {
+			try {
+				Files.deleteIfExists(path);
+			} catch (IOException e) {
+				// 文件删除失败不影响结果
+			}
+			return new BatchRenderResult(track, path, 0, null, true);
+		}
+		return new BatchRenderResult(track, path, samples, error, false);
+	}
+
+}
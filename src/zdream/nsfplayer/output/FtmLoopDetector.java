@@ -0,0 +1,55 @@
+package zdream.nsfplayer.output;
+
+import static zdream.nsfplayer.ftm.format.FtmStatic.MAX_PATTERN_LENGTH;
+import static zdream.nsfplayer.ftm.format.FtmStatic.MAX_SECTIONS;
+
+import java.util.BitSet;
+
+import zdream.nsfplayer.ftm.renderer.FamiTrackerRenderer;
+
+/**
+ * <p>FTM 循环判断器.
+ * <p>记录渲染器已经执行过的行, 当执行位置回到已经执行过的行时,
+ * (无论是曲目末尾回到开头, 还是 Bxx 效果往回跳转) 认为乐曲已经完整播放了一遍.
+ * <p>遇到 Cxx 停止效果时同样判断为结束.
+ * </p>
+ * 
+ * @author Zdream
+ * @since v0.3.3
+ */
+public class FtmLoopDetector implements IRenderEndDetector {
+	
+	private final FamiTrackerRenderer renderer;
+	
+	/**
+	 * 已执行的行. 索引: section * MAX_PATTERN_LENGTH + row
+	 */
+	private final BitSet visited = new BitSet(MAX_SECTIONS * MAX_PATTERN_LENGTH);
+	
+	public FtmLoopDetector(FamiTrackerRenderer renderer) {
+		this.renderer = renderer;
+	}
+	
+	@Override
+	public void reset() {
+		visited.clear();
+	}
+	
+	@Override
+	public boolean onFrame(short[] samples, int offset, int length) {
+		if (renderer.isFinished()) {
+			return true;
+		}
+		if (!renderer.isRowUpdated()) {
+			return false;
+		}
+		
+		int index = renderer.getCurrentSection() * MAX_PATTERN_LENGTH + renderer.getCurrentRow();
+		if (visited.get(index)) {
+			return true;
+		}
+		visited.set(index);
+		return false;
+	}
+
+}
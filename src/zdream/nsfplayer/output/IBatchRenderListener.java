@@ -0,0 +1,27 @@
+package zdream.nsfplayer.output;
+
+/**
+ * <p>批量渲染的进度监听器.
+ * <p>每个曲目渲染完成 (包括失败或被取消) 时调用一次.
+ * 该方法会在渲染线程中调用, 可能会被多个线程同时调用, 实现类需要保证线程安全.
+ * <p>该方法抛出的异常不会中断其它曲目的渲染, 而是记录在该曲目的渲染结果
+ * ({@link BatchRenderJob#await()} 返回的 {@link BatchRenderResult#error}) 中.
+ * </p>
+ * 
+ * @author Zdream
+ * @since v0.3.3
+ */
+public interface IBatchRenderListener {
+	
+	/**
+	 * 某个曲目渲染完成时调用
+	 * @param result
+	 *   该曲目的渲染结果
+	 * @param finished
+	 *   包括该曲目在内, 已经完成的曲目数
+	 * @param total
+	 *   需要渲染的曲目总数
+	 */
+	public void onTrackFinished(BatchRenderResult result, int finished, int total);
+
+}
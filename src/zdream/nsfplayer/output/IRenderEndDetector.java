@@ -0,0 +1,34 @@
+package zdream.nsfplayer.output;
+
+/**
+ * <p>渲染结束判断器.
+ * <p>NSF 没有明确的结束播放结点, 而 FTM 大部分曲目会无限循环下去.
+ * 导出时需要用该接口判断什么时候可以停止渲染.
+ * </p>
+ * 
+ * @author Zdream
+ * @since v0.3.3
+ */
+public interface IRenderEndDetector {
+	
+	/**
+	 * 在渲染开始之前调用, 重置判断器的状态
+	 */
+	public void reset();
+	
+	/**
+	 * <p>每渲染完一帧调用一次.
+	 * <p>如果返回 true, 该帧的采样数据将不会被写出, 渲染结束.
+	 * </p>
+	 * @param samples
+	 *   该帧的采样数据
+	 * @param offset
+	 *   采样数据的起始位置
+	 * @param length
+	 *   采样数
+	 * @return
+	 *   true, 如果判断乐曲已经渲染结束
+	 */
+	public boolean onFrame(short[] samples, int offset, int length);
+
+}
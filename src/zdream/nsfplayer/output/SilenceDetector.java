@@ -0,0 +1,78 @@
+package zdream.nsfplayer.output;
+
+/**
+ * <p>静音判断器.
+ * <p>NSF 没有明确的结束播放结点, 因此通过查看连续多帧的采样数据是否都相同,
+ * 来判断该时段 NSF 没有发出声音. 当连续若干帧都出现该情况, 即判断乐曲渲染结束.
+ * </p>
+ * 
+ * @author Zdream
+ * @since v0.3.3
+ */
+public class SilenceDetector implements IRenderEndDetector {
+	
+	/**
+	 * 判断为结束需要的连续静音帧数
+	 */
+	private final int frames;
+	
+	/**
+	 * 已连续静音的帧数
+	 */
+	private int count;
+	
+	/**
+	 * 上一帧最后的采样值
+	 */
+	private short last;
+	
+	/**
+	 * 以默认的 180 帧 (大约 3 秒) 作为判断的依据
+	 */
+	public SilenceDetector() {
+		this(180);
+	}
+	
+	/**
+	 * @param frames
+	 *   判断为结束需要的连续静音帧数, 必须为正数
+	 * @throws IllegalArgumentException
+	 *   当 frames 不是正数时
+	 */
+	public SilenceDetector(int frames) {
+		if (frames <= 0) {
+			throw new IllegalArgumentException("帧数 frames: " + frames + " 必须为正数");
+		}
+		this.frames = frames;
+	}
+	
+	@Override
+	public void reset() {
+		count = 0;
+		last = 0;
+	}
+	
+	@Override
+	public boolean onFrame(short[] samples, int offset, int length) {
+		boolean silent = true;
+		final int end = offset + length;
+		for (int i = offset; i < end; i++) {
+			if (samples[i] != last) {
+				silent = false;
+				break;
+			}
+		}
+		
+		if (length > 0) {
+			last = samples[end - 1];
+		}
+		
+		if (silent) {
+			count++;
+		} else {
+			count = 0;
+		}
+		return count >= frames;
+	}
+
+}
@@ -0,0 +1,387 @@
+package zdream.nsfplayer.output;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import zdream.nsfplayer.core.AbstractRenderer;
+
+/**
+ * <p>WAV 文件输出.
+ * <p>将渲染器输出的采样数据流式写入 WAV 文件.
+ * 采样数据先写进一块可重复使用的直接缓冲区, 缓冲区写满之后整块写入 {@link FileChannel};
+ * 文件头在打开时先写入占位数据, 在 {@link #close()} 时再补写 RIFF 与 data 块的长度.
+ * 因此无论渲染多长的曲目, 占用的内存都是固定的.
+ * <p>渲染器输出的是单声道数据, 当输出为双声道时, 左右声道写入相同的数据.
+ * <p>WAV 格式的长度字段只有 32 位, 超过 4GB 的部分长度字段将被截断为最大值.
+ * <p>该类是线程不安全的.
+ * </p>
+ * 
+ * @author Zdream
+ * @since v0.3.3
+ */
+public class WavExportSink implements AutoCloseable {
+	
+	/**
+	 * 采样格式
+	 */
+	public enum Format {
+		/**
+		 * 16 位有符号整数
+		 */
+		PCM_16(1, 2),
+		/**
+		 * 32 位浮点数, 范围 [-1, 1)
+		 */
+		FLOAT_32(3, 4);
+		
+		/**
+		 * WAV 文件中 fmt 块的格式号
+		 */
+		final int tag;
+		/**
+		 * 每个采样的字节数
+		 */
+		final int bytes;
+		
+		private Format(int tag, int bytes) {
+			this.tag = tag;
+			this.bytes = bytes;
+		}
+	}
+	
+	/**
+	 * 默认缓冲区大小, 单位 byte. 为 4096 的倍数
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+	
+	private final FileChannel channel;
+	private final ByteBuffer buffer;
+	
+	private final int sampleRate;
+	private final int channels;
+	private final Format format;
+	
+	/**
+	 * 文件头长度. 浮点格式需要额外的 fact 块
+	 */
+	private final int headerSize;
+	
+	/**
+	 * 已写入的 data 块长度, 单位 byte
+	 */
+	private long dataSize;
+	
+	/**
+	 * 渲染时用的临时采样数组
+	 */
+	private short[] frame;
+	
+	private boolean closed;
+	
+	/**
+	 * 创建 48000 Hz, 单声道, 16 位的 WAV 文件输出
+	 * @param path
+	 *   文件路径. 如果文件已经存在, 将被覆盖
+	 * @throws IOException
+	 *   当文件打开失败时
+	 */
+	public WavExportSink(Path path) throws IOException {
+		this(path, 48000, 1, Format.PCM_16);
+	}
+	
+	/**
+	 * @param path
+	 *   文件路径. 如果文件已经存在, 将被覆盖
+	 * @param sampleRate
+	 *   采样率, 需要与渲染器的采样率一致
+	 * @param channels
+	 *   声道数, 1 或 2
+	 * @param format
+	 *   采样格式
+	 * @throws IOException
+	 *   当文件打开失败时
+	 * @throws IllegalArgumentException
+	 *   当声道数或采样率不合法时
+	 */
+	public WavExportSink(Path path, int sampleRate, int channels, Format format) throws IOException {
+		this(path, sampleRate, channels, format, DEFAULT_BUFFER_SIZE);
+	}
+	
+	/**
+	 * @param path
+	 *   文件路径. 如果文件已经存在, 将被覆盖
+	 * @param sampleRate
+	 *   采样率, 需要与渲染器的采样率一致
+	 * @param channels
+	 *   声道数, 1 或 2
+	 * @param format
+	 *   采样格式
+	 * @param bufferSize
+	 *   缓冲区大小, 单位 byte. 将向上取整到 4096 的倍数
+	 * @throws IOException
+	 *   当文件打开失败时
+	 * @throws IllegalArgumentException
+	 *   当声道数、采样率或缓冲区大小不合法时
+	 */
+	public WavExportSink(Path path, int sampleRate, int channels, Format format, int bufferSize)
+			throws IOException {
+		if (channels != 1 && channels != 2) {
+			throw new IllegalArgumentException("声道数 channels: " + channels + " 只能为 1 或 2");
+		}
+		if (sampleRate <= 0) {
+			throw new IllegalArgumentException("采样率 sampleRate: " + sampleRate + " 必须为正数");
+		}
+		if (bufferSize <= 0) {
+			throw new IllegalArgumentException("缓冲区大小 bufferSize: " + bufferSize + " 必须为正数");
+		}
+		if (format == null) {
+			format = Format.PCM_16;
+		}
+		
+		this.sampleRate = sampleRate;
+		this.channels = channels;
+		this.format = format;
+		this.headerSize = (format == Format.PCM_16) ? 44 : 58;
+		
+		// 4096 对齐, 且为 blockAlign 的倍数 (blockAlign 最大为 8, 能整除 4096)
+		bufferSize = (bufferSize + 4095) & ~4095;
+		buffer = ByteBuffer.allocateDirect(bufferSize).order(ByteOrder.LITTLE_ENDIAN);
+		
+		channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		
+		// 文件头占位
+		writeHeader();
+		buffer.flip();
+		writeBuffer(-1);
+	}
+	
+	/* **********
+	 *   写入   *
+	 ********** */
+	
+	/**
+	 * 写入单声道采样数据. 如果输出为双声道, 左右声道写入相同的数据
+	 * @param samples
+	 *   采样数组
+	 * @param offset
+	 *   数组起始位置
+	 * @param length
+	 *   采样数
+	 * @throws IOException
+	 *   当写入文件失败时
+	 */
+	public void write(short[] samples, int offset, int length) throws IOException {
+		checkOpen();
+		final int end = offset + length;
+		final int frameBytes = format.bytes * channels;
+		
+		for (int i = offset; i < end; i++) {
+			if (buffer.remaining() < frameBytes) {
+				flush();
+			}
+			
+			short s = samples[i];
+			if (format == Format.PCM_16) {
+				buffer.putShort(s);
+				if (channels == 2) {
+					buffer.putShort(s);
+				}
+			} else {
+				float f = s / 32768f;
+				buffer.putFloat(f);
+				if (channels == 2) {
+					buffer.putFloat(f);
+				}
+			}
+		}
+		dataSize += (long) length * frameBytes;
+	}
+	
+	/**
+	 * <p>将渲染器的输出写入文件, 直到满足结束条件.
+	 * <p>满足以下任意一个条件时结束:
+	 * <li>已写入的采样数达到 maxSamples;
+	 * <li>渲染器 {@link AbstractRenderer#isFinished()} 返回 true;
+	 * <li>结束判断器 detector 返回 true.
+	 * </li>
+	 * </p>
+	 * @param renderer
+	 *   已经调用过 ready(...) 的渲染器
+	 * @param maxSamples
+	 *   最多写入的采样数 (每个声道). 小于等于 0 表示不限制,
+	 *   此时必须指定 detector 或使用会结束的音频, 否则不会停止
+	 * @param detector
+	 *   结束判断器, 可以为 null
+	 * @return
+	 *   本次写入的采样数 (每个声道)
+	 * @throws IOException
+	 *   当写入文件失败时
+	 */
+	public long export(AbstractRenderer<?> renderer, long maxSamples, IRenderEndDetector detector)
+			throws IOException {
+		checkOpen();
+		if (frame == null) {
+			frame = new short[sampleRate / 50 + 16];
+		}
+		if (detector != null) {
+			detector.reset();
+		}
+		
+		long count = 0;
+		while (maxSamples <= 0 || count < maxSamples) {
+			// 上一帧的采样数据已经取完, 本次将渲染新的一帧
+			boolean newFrame = renderer.remain() == 0;
+			int len = renderer.renderOneFrame(frame, 0, frame.length);
+			if (detector != null && newFrame && detector.onFrame(frame, 0, len)) {
+				break;
+			}
+			
+			if (maxSamples > 0 && count + len > maxSamples) {
+				len = (int) (maxSamples - count);
+			}
+			write(frame, 0, len);
+			count += len;
+			
+			if (renderer.isFinished()) {
+				break;
+			}
+		}
+		
+		return count;
+	}
+	
+	/**
+	 * 将缓冲区的数据写入文件
+	 * @throws IOException
+	 *   当写入文件失败时
+	 */
+	public void flush() throws IOException {
+		checkOpen();
+		buffer.flip();
+		writeBuffer(-1);
+	}
+	
+	/**
+	 * 将缓冲区剩余的数据写入文件, 补写文件头的长度字段, 并关闭文件
+	 * @throws IOException
+	 *   当写入文件失败时
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		
+		try {
+			flush();
+			writeHeader();
+			buffer.flip();
+			writeBuffer(0);
+			channel.force(false);
+		} finally {
+			closed = true;
+			channel.close();
+		}
+	}
+	
+	/* **********
+	 * 参数指标 *
+	 ********** */
+	
+	/**
+	 * @return
+	 *   已写入的采样数 (每个声道)
+	 */
+	public long getSampleCount() {
+		return dataSize / (format.bytes * channels);
+	}
+	
+	public int getSampleRate() {
+		return sampleRate;
+	}
+	
+	public int getChannels() {
+		return channels;
+	}
+	
+	public Format getFormat() {
+		return format;
+	}
+	
+	/* **********
+	 *   内部   *
+	 ********** */
+	
+	private void checkOpen() throws IOException {
+		if (closed) {
+			throw new IOException("WAV 文件已关闭");
+		}
+	}
+	
+	/**
+	 * 将 buffer 中 [position, limit) 的数据写入文件, 然后清空 buffer
+	 * @param position
+	 *   文件写入位置. -1 表示写在当前位置
+	 */
+	private void writeBuffer(long position) throws IOException {
+		if (position >= 0) {
+			long pos = position;
+			while (buffer.hasRemaining()) {
+				pos += channel.write(buffer, pos);
+			}
+		} else {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		}
+		buffer.clear();
+	}
+	
+	/**
+	 * 将文件头写进 buffer. 调用前 buffer 需要为空
+	 */
+	private void writeHeader() {
+		final int blockAlign = format.bytes * channels;
+		final int dataLength = clamp(dataSize);
+		final int riffLength = clamp(dataSize + headerSize - 8);
+		
+		buffer.put((byte) 'R').put((byte) 'I').put((byte) 'F').put((byte) 'F');
+		buffer.putInt(riffLength);
+		buffer.put((byte) 'W').put((byte) 'A').put((byte) 'V').put((byte) 'E');
+		
+		// fmt 块
+		buffer.put((byte) 'f').put((byte) 'm').put((byte) 't').put((byte) ' ');
+		buffer.putInt(format == Format.PCM_16 ? 16 : 18);
+		buffer.putShort((short) format.tag);
+		buffer.putShort((short) channels);
+		buffer.putInt(sampleRate);
+		buffer.putInt(sampleRate * blockAlign);
+		buffer.putShort((short) blockAlign);
+		buffer.putShort((short) (format.bytes * 8));
+		
+		if (format != Format.PCM_16) {
+			// 非 PCM 格式需要 cbSize 与 fact 块
+			buffer.putShort((short) 0);
+			buffer.put((byte) 'f').put((byte) 'a').put((byte) 'c').put((byte) 't');
+			buffer.putInt(4);
+			buffer.putInt(clamp(dataSize / blockAlign));
+		}
+		
+		// data 块
+		buffer.put((byte) 'd').put((byte) 'a').put((byte) 't').put((byte) 'a');
+		buffer.putInt(dataLength);
+	}
+	
+	/**
+	 * 长度字段只有 32 位 (无符号)
+	 */
+	private static int clamp(long v) {
+		return (int) Math.min(v, 0xFFFFFFFFL);
+	}
+
+}
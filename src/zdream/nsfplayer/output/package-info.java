@@ -0,0 +1,10 @@
+/**
+ * <p>输出构件所在包.
+ * <p>该包负责将渲染器输出的 PCM 采样数据写出到文件等外部介质中,
+ * 比如 {@link zdream.nsfplayer.output.WavExportSink} 将采样流式写入 WAV 文件.
+ * </p>
+ * 
+ * @author Zdream
+ * @since v0.3.3
+ */
+package zdream.nsfplayer.output;
@@ -34,11 +34,26 @@ public abstract class AbstractNsfSound implements IResetable, IEnable {
 	 */
 	private boolean muted = false;
 	
+	/**
+	 * <p>本帧最后一次通过 {@link #mixIfChanged(int)} 向混音器传递的音频值.
+	 * <p>混音器轨道会忽略与上一次相同的音频值, 因此发声器可以不传递重复的值.
+	 * 每帧结束、重置、更换管道时, 该值将失效, 下一次传递的值一定会送往混音器.
+	 * </p>
+	 * @since v0.3.3
+	 */
+	private int lastMixValue = NO_MIX_VALUE;
+	
+	/**
+	 * {@link #lastMixValue} 失效时的值. 音频值不会是这个数
+	 */
+	private static final int NO_MIX_VALUE = Integer.MIN_VALUE;
+	
 	/**
 	 * 每帧结束时调用
 	 */
 	public void endFrame() {
 		time = 0;
+		lastMixValue = NO_MIX_VALUE;
 	}
 	
 	/**
@@ -47,6 +62,7 @@ public abstract class AbstractNsfSound implements IResetable, IEnable {
 	 */
 	public void setOut(IMixerChannel out) {
 		this.out = out;
+		lastMixValue = NO_MIX_VALUE;
 	}
 	
 	/**
@@ -79,6 +95,7 @@ public abstract class AbstractNsfSound implements IResetable, IEnable {
 	 */
 	public void setMuted(boolean muted) {
 		this.muted = muted;
+		lastMixValue = NO_MIX_VALUE;
 	}
 
 	@Override
@@ -129,5 +146,31 @@ public abstract class AbstractNsfSound implements IResetable, IEnable {
 		if (!muted)
 			out.mix(value, time + offset);
 	}
+	
+	/**
+	 * <p>向混音器传递当前时间点的音频值, 但如果与上一次传递的值相同则忽略.
+	 * <p>混音器轨道只在音频值变化时工作, 因此结果与 {@link #mix(int)} 相同,
+	 * 只是省去了重复的调用. 发声器在一段时间内输出不变时, 可以直接跳过这段时间.
+	 * </p>
+	 * @param value
+	 *   音频值
+	 * @since v0.3.3
+	 */
+	protected void mixIfChanged(int value) {
+		if (value != lastMixValue) {
+			lastMixValue = value;
+			mix(value);
+		}
+	}
+	
+	/**
+	 * @return
+	 *   本帧最后一次通过 {@link #mixIfChanged(int)} 传递的音频值.
+	 *   如果本帧还没有传递过, 返回 {@link Integer#MIN_VALUE}
+	 * @since v0.3.3
+	 */
+	protected int lastMixValue() {
+		return lastMixValue;
+	}
 
 }
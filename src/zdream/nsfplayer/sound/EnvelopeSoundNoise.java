@@ -163,6 +163,25 @@ public class EnvelopeSoundNoise extends SoundNoise implements IFrameSequence {
 		return ret;
 	}
 	
+	@Override
+	protected int currentVolume() {
+		if (lengthCounter <= 0) {
+			return 0;
+		}
+		return envelopeDisable ? fixedVolume : envelopeCounter;
+	}
+	
+	@Override
+	protected int stepsBeforeEvent(int period) {
+		// 第 n 步时 sequenceRemain - n * period < 0 触发 Frame Sequence
+		return (sequenceRemain < 0) ? 0 : sequenceRemain / period;
+	}
+	
+	@Override
+	protected void skipSteps(int steps, int period) {
+		sequenceRemain -= steps * period;
+	}
+	
 	@Override
 	protected void processRemainTime(int period) {
 		sequenceRemain -= period;
@@ -141,6 +141,17 @@ public class LinearSoundTriangle extends SoundTriangle implements IFrameSequence
 		return super.processStep(period);
 	}
 	
+	@Override
+	protected int stepsBeforeEvent(int period) {
+		// 第 n 步时 sequenceRemain - n * period < 0 触发 Frame Sequence
+		return (sequenceRemain < 0) ? 0 : sequenceRemain / period;
+	}
+	
+	@Override
+	protected void skipSteps(int steps, int period) {
+		sequenceRemain -= steps * period;
+	}
+	
 	protected boolean isStatusValid() {
 		return super.isStatusValid() && linearCounter > 0;
 	}
@@ -14,6 +14,25 @@ public class PulseSound extends Sound2A03 {
 			{  true,  true, false, false, false, false,  true,  true,  true,  true,  true,  true,  true,  true,  true,  true }
 	};
 	
+	/**
+	 * DUTY_TABLE 中从某一位开始 (包括该位), 连续多少位的值与该位相同. [音色][位]
+	 * @since v0.3.3
+	 */
+	protected static final int[][] DUTY_RUN = new int[DUTY_TABLE.length][16];
+	
+	static {
+		for (int i = 0; i < DUTY_TABLE.length; i++) {
+			boolean[] duty = DUTY_TABLE[i];
+			for (int j = 0; j < 16; j++) {
+				int run = 1;
+				while (run < 16 && duty[(j + run) & 0x0F] == duty[j]) {
+					run++;
+				}
+				DUTY_RUN[i][j] = run;
+			}
+		}
+	}
+	
 	public PulseSound() {
 		reset();
 	}
@@ -105,7 +124,7 @@ public class PulseSound extends Sound2A03 {
 	protected void onProcess(int time) {
 		if (period < 8) {
 			dutyCycle = 0;
-			mix(0);
+			mixIfChanged(0);
 			return;
 		}
 		
@@ -117,14 +136,60 @@ public class PulseSound extends Sound2A03 {
 			counter = period + 1;
 			
 			int value = processStep(counter);
-			mix(valid ? value : 0);
+			mixIfChanged(valid ? value : 0);
 			
 			dutyCycle = (dutyCycle + 1) & 0x0F;
+			
+			// 跳过输出不变的步.
+			// 需要这一步前后的波长相同 (sweep 可能修改波长), 否则下一步仍按原来的波长计时
+			if (counter == period + 1) {
+				int skip = stableSteps(valid, time / counter, counter);
+				if (skip > 0) {
+					int clock = skip * counter;
+					time -= clock;
+					this.time += clock;
+					
+					dutyCycle = (dutyCycle + skip) & 0x0F;
+					skipSteps(skip, counter);
+				}
+			}
 		}
 
 		counter -= time;
 	}
 	
+	/**
+	 * <p>计算从下一步开始, 有多少步可以直接跳过.
+	 * <p>可以跳过的步需要满足: 输出值与上一步相同, 而且期间没有其它事件 (比如 Frame Sequence) 发生.
+	 * </p>
+	 * @param valid
+	 *   本次调用 {@link #onProcess(int)} 时状态是否有效
+	 * @param remain
+	 *   本次调用剩余的完整步数
+	 * @param period
+	 *   每一步的时钟数
+	 * @return
+	 *   可以跳过的步数, 范围 [0, remain]
+	 * @since v0.3.3
+	 */
+	private int stableSteps(boolean valid, int remain, int period) {
+		if (remain == 0) {
+			return 0;
+		}
+		int steps = Math.min(remain, stepsBeforeEvent(period));
+		if (steps == 0 || !valid || currentVolume() == 0) {
+			// 输出一直为 0
+			return steps;
+		}
+		
+		// 波形中与上一步输出相同的部分
+		boolean high = lastMixValue() != 0;
+		if (DUTY_TABLE[dutyLength][dutyCycle] != high) {
+			return 0;
+		}
+		return Math.min(steps, DUTY_RUN[dutyLength][dutyCycle]);
+	}
+	
 	protected int processStep(int period) {
 		int volume = fixedVolume;
 		if (DUTY_TABLE[dutyLength][dutyCycle]) {
@@ -134,6 +199,42 @@ public class PulseSound extends Sound2A03 {
 		}
 	}
 	
+	/**
+	 * @return
+	 *   在没有事件发生时, {@link #processStep(int)} 在波形高位时输出的音量
+	 * @since v0.3.3
+	 */
+	protected int currentVolume() {
+		return fixedVolume;
+	}
+	
+	/**
+	 * <p>从下一步开始, 在第几步之前没有事件发生.
+	 * <p>这里的事件是指除了波形变化以外, 会改变发声器状态的事件, 比如 Frame Sequence 触发.
+	 * 这些步可以不调用 {@link #processStep(int)}, 而用 {@link #skipSteps(int, int)} 一次跳过.
+	 * </p>
+	 * @param period
+	 *   每一步的时钟数
+	 * @return
+	 *   不会发生事件的步数. 默认没有事件, 返回 {@link Integer#MAX_VALUE}
+	 * @since v0.3.3
+	 */
+	protected int stepsBeforeEvent(int period) {
+		return Integer.MAX_VALUE;
+	}
+	
+	/**
+	 * 一次跳过多个没有事件发生的步, 更新除波形位置以外的状态
+	 * @param steps
+	 *   步数
+	 * @param period
+	 *   每一步的时钟数
+	 * @since v0.3.3
+	 */
+	protected void skipSteps(int steps, int period) {
+		// do nothing
+	}
+	
 	protected boolean isStatusValid() {
 		return (period > 7) && isEnable() && (lengthCounter > 0)/* && (sweepResult < 0x800)*/;
 	}
@@ -337,33 +337,8 @@ public class SoundFDS extends AbstractNsfSound {
 		 * 这样虽然会和真实的音频输出会有非常细微的差别（人感觉不到的）,
 		 * 但是这样的 CPU 和代码可读性都会有显著提高.
 		 */
-		int clockLeft = time;
-		
 		if (!wavHalt) {
-			int wavePhaseDelta = countWavePhaseDelta();
-			int waveLeft = (((wavPhase >> 16) + 1) << 16) - wavPhase;
-			int clockAccum = 0;
-			
-			while (clockLeft > 0) {
-				waveLeft -= wavePhaseDelta;
-				wavPhase += wavePhaseDelta;
-				if (waveLeft < 0) {
-					wavPhase &= 0x3FFFFF;
-					// 上面这个条件满足时, wavPhase 指向的 wave 数组的索引向前挪了一格.
-					stepAll(clockAccum);
-					putOut(wavEnvOut);
-					clockAccum = 0;
-					waveLeft = (((wavPhase >> 16) + 1) << 16) - wavPhase;
-				}
-				
-				clockAccum ++;
-				clockLeft --;
-				this.time ++;
-			}
-			
-			if (clockAccum > 0) {
-				stepAll(clockAccum);
-			}
+			processWave(time);
 		} else {
 			if (!modHalt) {
 				modTableStep(time);
@@ -372,6 +347,55 @@ public class SoundFDS extends AbstractNsfSound {
 		}
 	}
 	
+	/**
+	 * <p>波形没有停止时的处理.
+	 * <p>一次 onProcess 中 wavPhase 每时钟增加的值 (wavePhaseDelta) 是不变的,
+	 * 因此不需要逐个时钟累加, 直接算出 wavPhase 到达下一格需要的时钟数, 一次性前进.
+	 * 调制停止 (modHalt) 并且包络不工作时, 两格之间也不需要计算其它部分.
+	 * 音频值、送往混音器的时间, 都与逐个时钟计算的结果相同.
+	 * </p>
+	 */
+	private void processWave(int time) {
+		int clockLeft = time;
+		int wavePhaseDelta = countWavePhaseDelta();
+		int waveLeft = (((wavPhase >> 16) + 1) << 16) - wavPhase;
+		int clockAccum = 0;
+		
+		// stepAll 是否会做任何事情. 这些参数在 onProcess 中不会改变
+		boolean stepping = !modHalt
+				|| !envHalt && (masterEnvSpeed != 0) && (!wavEnvDisable || !modEnvDisable);
+		
+		while (clockLeft > 0) {
+			// 到 wavPhase 指向的 wave 数组的索引向前挪一格, 需要的时钟数 (包含挪动的那个时钟)
+			int step = (wavePhaseDelta > 0) ? waveLeft / wavePhaseDelta + 1 : Integer.MAX_VALUE;
+			if (step > clockLeft) {
+				// 剩下的时间里不会挪动
+				wavPhase += wavePhaseDelta * clockLeft;
+				clockAccum += clockLeft;
+				this.time += clockLeft;
+				break;
+			}
+			
+			wavPhase = (wavPhase + wavePhaseDelta * step) & 0x3FFFFF;
+			clockAccum += step - 1;
+			this.time += step - 1;
+			
+			if (stepping) {
+				stepAll(clockAccum);
+			}
+			putOut(wavEnvOut);
+			waveLeft = (((wavPhase >> 16) + 1) << 16) - wavPhase;
+			
+			clockAccum = 1;
+			clockLeft -= step;
+			this.time ++;
+		}
+		
+		if (clockAccum > 0 && stepping) {
+			stepAll(clockAccum);
+		}
+	}
+	
 	private void stepAll(int time) {
 		if (!envHalt && !wavHalt && (masterEnvSpeed != 0)) {
 			if (!wavEnvDisable) {
@@ -446,14 +470,18 @@ public class SoundFDS extends AbstractNsfSound {
 				if (wv == 4) // 4 意味着重置 mod position
 					modPos = 0;
 				else {
-					final int BIAS[] = { 0, 1, 2, 4, 0, -4, -2, -1 };
-					modPos += BIAS[wv];
+					modPos += MOD_BIAS[wv];
 					modPos &= 0x7F; // 7-bit 数值, 无符号位
 				}
 			}
 		}
 	}
 	
+	/**
+	 * 调制包络表每个单元的值对应的 modPos 增量. 4 意味着重置 modPos, 不使用该表
+	 */
+	private static final int[] MOD_BIAS = { 0, 1, 2, 4, 0, -4, -2, -1 };
+	
 	/**
 	 * 计算 wavFreq 每个时钟会往上加多少值
 	 */
@@ -524,7 +552,7 @@ public class SoundFDS extends AbstractNsfSound {
 		
 		v = (curOut * v) / 30;
 		
-		mix(v);
+		mixIfChanged(v);
 	}
 
 }
@@ -0,0 +1,156 @@
+package zdream.nsfplayer.sound;
+
+import zdream.nsfplayer.mpeg.MpegDecoder;
+
+/**
+ * <p>MPEG 采样音频的发声器.
+ * <p>从 {@link MpegDecoder} 中逐帧解码 PCM 数据, 多声道的音频按平均值混合成一个轨道.
+ * 它的时钟单位是 MPEG 音频的一个采样, 而不是 NES 的时钟周期,
+ * 因此连接的混音器轨道需要用 {@link zdream.nsfplayer.mixer.ISoundMixer#setInSample(int, int)}
+ * 指定每帧的入采样数, 由混音器转换到输出的采样率.
+ * </p>
+ *
+ * @author Zdream
+ * @since v0.3.3
+ */
+public class SoundMpeg extends AbstractNsfSound {
+
+	public SoundMpeg() {
+		reset();
+	}
+
+	/* **********
+	 *   参数   *
+	 ********** */
+
+	/**
+	 * 解码器
+	 */
+	private MpegDecoder decoder;
+
+	/**
+	 * 已解码、各声道交替排列的 PCM 数据. 还没有输出的采样在 [pcmPos, pcmLength)
+	 */
+	private final short[] pcm = new short[MpegDecoder.MAX_FRAME_SAMPLES];
+	private int pcmPos, pcmLength;
+
+	/**
+	 * 当前帧的声道数
+	 */
+	private int channels = 1;
+
+	/**
+	 * 当前帧的采样率, 单位 Hz. 还没有解码时为 0
+	 */
+	private int sampleRate;
+
+	/**
+	 * 解码器是否已经解码到末尾
+	 */
+	private boolean finished;
+
+	/**
+	 * 设置解码器. 解码器需要已经调用过 ready 方法
+	 * @param decoder
+	 *   解码器
+	 */
+	public void setDecoder(MpegDecoder decoder) {
+		this.decoder = decoder;
+		pcmPos = pcmLength = 0;
+		sampleRate = 0;
+		finished = (decoder == null);
+	}
+
+	/**
+	 * <p>获取音频的采样率. 如果还没有开始解码, 将先解码第一帧.
+	 * </p>
+	 * @return
+	 *   采样率, 单位 Hz. 如果音频里没有能够解码的帧, 返回 0
+	 */
+	public int getSampleRate() {
+		if (sampleRate == 0 && pcmPos == pcmLength) {
+			fetch();
+		}
+		return sampleRate;
+	}
+
+	/**
+	 * @return
+	 *   是否所有的采样都已经输出
+	 */
+	public boolean isFinished() {
+		return finished && pcmPos == pcmLength;
+	}
+
+	/* **********
+	 * 音频输出 *
+	 ********** */
+
+	@Override
+	protected void onProcess(int time) {
+		for (int i = 0; i < time; i++) {
+			if (pcmPos == pcmLength && !fetch()) {
+				// 解码结束, 后面全部输出 0
+				mix(0, i);
+				return;
+			}
+
+			int v;
+			if (channels == 2) {
+				v = (pcm[pcmPos] + pcm[pcmPos + 1]) >> 1;
+			} else {
+				v = pcm[pcmPos];
+			}
+			pcmPos += channels;
+			mix(v, i);
+		}
+	}
+
+	/**
+	 * 跳过指定的采样数, 不向混音器传递音频数据
+	 * @param time
+	 *   采样数
+	 */
+	public void skip(int time) {
+		while (time > 0) {
+			if (pcmPos == pcmLength && !fetch()) {
+				return;
+			}
+			int n = Math.min(time, (pcmLength - pcmPos) / channels);
+			pcmPos += n * channels;
+			time -= n;
+		}
+	}
+
+	/**
+	 * 解码下一帧, 解码器跳过的帧将被忽略
+	 * @return
+	 *   是否解码出采样数据. 解码到末尾时返回 false
+	 */
+	private boolean fetch() {
+		if (finished) {
+			return false;
+		}
+
+		int count;
+		while ((count = decoder.decode(pcm, 0)) == 0);
+		if (count < 0) {
+			finished = true;
+			pcmPos = pcmLength = 0;
+			return false;
+		}
+
+		channels = decoder.getFrameHead().getChannels();
+		sampleRate = decoder.getFrameHead().getSamplingRate();
+		pcmPos = 0;
+		pcmLength = count;
+		return true;
+	}
+
+	@Override
+	public void reset() {
+		pcmPos = pcmLength = 0;
+		super.reset();
+	}
+
+}
@@ -136,8 +136,19 @@ public class SoundNoise extends Sound2A03 {
 			this.time += counter;
 			
 			int value = processStep(counter);
-			mix(value);
+			mixIfChanged(value);
 			counter = period;
+			
+			// 跳过输出不变的步
+			int skip = stableSteps(time / period, period);
+			if (skip > 0) {
+				int clock = skip * period;
+				time -= clock;
+				this.time += clock;
+				
+				shiftReg = shift(shiftReg, skip);
+				skipSteps(skip, period);
+			}
 		}
 
 		counter -= time;
@@ -155,6 +166,104 @@ public class SoundNoise extends Sound2A03 {
 		return ret;
 	}
 	
+	/**
+	 * <p>计算从下一步开始, 有多少步可以直接跳过.
+	 * <p>可以跳过的步需要满足: 输出值与上一步相同, 而且期间没有其它事件 (比如 Frame Sequence) 发生.
+	 * </p>
+	 * @param remain
+	 *   本次调用剩余的完整步数
+	 * @param period
+	 *   每一步的时钟数
+	 * @return
+	 *   可以跳过的步数, 范围 [0, remain]
+	 * @since v0.3.3
+	 */
+	private int stableSteps(int remain, int period) {
+		if (remain == 0 || !isEnable()) {
+			return 0;
+		}
+		int steps = Math.min(remain, stepsBeforeEvent(period));
+		if (steps == 0 || currentVolume() == 0) {
+			// 输出一直为 0
+			return steps;
+		}
+		
+		// 接下来 15 步的输出依次为 shiftReg 的第 0 至 14 位
+		boolean high = (shiftReg & 1) != 0;
+		if (high != (lastMixValue() != 0)) {
+			return 0;
+		}
+		int run = Integer.numberOfTrailingZeros(high ? ~shiftReg : shiftReg);
+		return Math.min(steps, Math.min(run, 15));
+	}
+	
+	/**
+	 * <p>让移位寄存器一次前进多步.
+	 * <p>反馈位由第 0 位与第 (14 - dutySampleRate) 位异或得到,
+	 * 因此连续 (dutySampleRate + 1) 步的反馈位都可以由当前的寄存器值直接算出.
+	 * </p>
+	 * @param reg
+	 *   移位寄存器的值, 15 位
+	 * @param steps
+	 *   步数
+	 * @return
+	 *   前进后的移位寄存器的值
+	 * @since v0.3.3
+	 */
+	private int shift(int reg, int steps) {
+		final int rate = dutySampleRate;
+		if (rate < 1 || rate > 13) {
+			for (; steps > 0; steps--) {
+				reg = (((reg << 14) ^ (reg << rate)) & 0x4000) | (reg >> 1);
+			}
+			return reg;
+		}
+		
+		final int tap = 14 - rate;
+		while (steps > 0) {
+			int k = Math.min(steps, rate + 1);
+			int feedback = (reg ^ (reg >> tap)) & ((1 << k) - 1);
+			reg = (reg >> k) | (feedback << (15 - k));
+			steps -= k;
+		}
+		return reg;
+	}
+	
+	/**
+	 * @return
+	 *   在没有事件发生时, {@link #processStep(int)} 在移位寄存器第 0 位为 1 时输出的音量
+	 * @since v0.3.3
+	 */
+	protected int currentVolume() {
+		return fixedVolume;
+	}
+	
+	/**
+	 * <p>从下一步开始, 在第几步之前没有事件发生.
+	 * <p>这里的事件是指除了移位寄存器变化以外, 会改变发声器状态的事件, 比如 Frame Sequence 触发.
+	 * </p>
+	 * @param period
+	 *   每一步的时钟数
+	 * @return
+	 *   不会发生事件的步数. 默认没有事件, 返回 {@link Integer#MAX_VALUE}
+	 * @since v0.3.3
+	 */
+	protected int stepsBeforeEvent(int period) {
+		return Integer.MAX_VALUE;
+	}
+	
+	/**
+	 * 一次跳过多个没有事件发生的步, 更新除移位寄存器以外的状态
+	 * @param steps
+	 *   步数
+	 * @param period
+	 *   每一步的时钟数
+	 * @since v0.3.3
+	 */
+	protected void skipSteps(int steps, int period) {
+		// do nothing
+	}
+	
 	protected void processRemainTime(int period) {
 		// do nothing
 	}
@@ -176,11 +176,29 @@ public class SoundS5B extends AbstractNsfSound {
 	
 	@Override
 	public void reset() {
-		// TODO S5B 参数重置
-		
+		freq = 0;
+		noiseFreq = 0;
+		waveEnable = false;
+		noiseEnable = false;
+		volume = 0;
+		envelopeSpeed = 0;
+		envelopeContinue = false;
+		envelopeAttack = false;
+		envelopeAlternate = false;
+		envelopeHold = false;
 		
+		envFace = false;
+		envPause = false;
+		envCount = 0;
+		envPtr = 0;
 		
+		noiseCount = 0;
 		noiseSeed = 0xffff;
+		waveCount = 0;
+		waveEdge = false;
+		
+		counter = 8;
+		baseCount = 0;
 		
 		super.reset();
 	}
@@ -195,13 +213,88 @@ public class SoundS5B extends AbstractNsfSound {
 			counter	= 8;
 			
 			value = this.renderStep();
-			mix(value);
+			mixIfChanged(value);
+			
+			// 跳过输出不变的步
+			int skip = Math.min(time >> 3, stableSteps());
+			if (skip > 0) {
+				time -= skip << 3;
+				this.time += skip << 3;
+				skipSteps(skip);
+			}
 		}
 		
 		this.time += time;
 		counter -= time;
 	}
 	
+	/**
+	 * <p>计算从下一步开始, 有多少步可以直接跳过.
+	 * <p>只要包络、噪音、方波三个计数器都没有触发, 发声器的状态和输出就不会改变.
+	 * 这里计算每个计数器触发前还需要多少步.
+	 * </p>
+	 * @return
+	 *   可以跳过的步数
+	 * @since v0.3.3
+	 */
+	private int stableSteps() {
+		if (baseDelta <= 0 || baseDelta > (1 << GETA_BITS)) {
+			return 0;
+		}
+		
+		int steps = Integer.MAX_VALUE;
+		if (envelopeSpeed > 0) {
+			steps = Math.min(steps, stepsBeforeDelta(Math.max(0, 0x10000 - envCount)));
+		}
+		steps = Math.min(steps, stepsBeforeDelta(deltaBeforeBit(noiseCount, 0x40)));
+		if (freq > 1 || !waveEdge) {
+			steps = Math.min(steps, stepsBeforeDelta(deltaBeforeBit(waveCount, 0x1000)));
+		}
+		return steps;
+	}
+	
+	/**
+	 * @param count
+	 *   计数器
+	 * @param bit
+	 *   计数器触发的位
+	 * @return
+	 *   计数器再增加多少, 该位才为 1
+	 */
+	private static int deltaBeforeBit(int count, int bit) {
+		return ((count & bit) != 0) ? 0 : bit - (count & (bit - 1));
+	}
+	
+	/**
+	 * @param delta
+	 *   计数器触发需要的增量 delta 总和
+	 * @return
+	 *   在计数器触发之前, 可以安全跳过的步数
+	 */
+	private int stepsBeforeDelta(int delta) {
+		if (delta == 0) {
+			return 0;
+		}
+		// 第 n 步时 delta 总和为 (baseCount + n * baseDelta) >> GETA_BITS
+		long n = (((long) delta << GETA_BITS) - baseCount + baseDelta - 1) / baseDelta;
+		return (int) Math.min(n - 1, Integer.MAX_VALUE);
+	}
+	
+	/**
+	 * 一次跳过多个步. 这些步中包络、噪音、方波计数器都不会触发
+	 * @param steps
+	 *   步数
+	 */
+	private void skipSteps(int steps) {
+		long total = baseCount + (long) steps * baseDelta;
+		int delta = (int) (total >> GETA_BITS);
+		baseCount = (int) (total & ((1 << GETA_BITS) - 1));
+		
+		envCount += delta;
+		noiseCount += delta;
+		waveCount += delta;
+	}
+	
 	private int renderStep() {
 		int noise;
 		int delta; // unsigned
@@ -270,7 +363,6 @@ public class SoundS5B extends AbstractNsfSound {
 			if ((volume & 32) == 0) {
 				out = VOLT_BL[volume & 31];
 			} else {
-				System.out.println(Integer.toHexString(volume));
 				out = VOLT_BL[envPtr];
 			}
 		}
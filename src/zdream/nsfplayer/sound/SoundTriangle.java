@@ -130,12 +130,51 @@ public class SoundTriangle extends Sound2A03 {
 			}
 			
 			int value = processStep(counter);
-			mix(value);
+			mixIfChanged(value);
+			
+			// 停止发声时输出一直为 0, 跳过这些步.
+			// 需要这一步前后的波长相同, 否则下一步仍按原来的波长计时
+			if (dutyCycle == 0 && value == 0 && !isStatusValid()
+					&& counter == ((period < 8) ? lastPeriod : period) + 1) {
+				int skip = Math.min(time / counter, stepsBeforeEvent(counter));
+				if (skip > 0) {
+					int clock = skip * counter;
+					time -= clock;
+					this.time += clock;
+					skipSteps(skip, counter);
+				}
+			}
 		}
 		
 		counter -= time;
 	}
 	
+	/**
+	 * <p>从下一步开始, 在第几步之前没有事件发生.
+	 * <p>这里的事件是指除了波形变化以外, 会改变发声器状态的事件, 比如 Frame Sequence 触发.
+	 * </p>
+	 * @param period
+	 *   每一步的时钟数
+	 * @return
+	 *   不会发生事件的步数. 默认没有事件, 返回 {@link Integer#MAX_VALUE}
+	 * @since v0.3.3
+	 */
+	protected int stepsBeforeEvent(int period) {
+		return Integer.MAX_VALUE;
+	}
+	
+	/**
+	 * 一次跳过多个没有事件发生的步, 更新除波形位置以外的状态
+	 * @param steps
+	 *   步数
+	 * @param period
+	 *   每一步的时钟数
+	 * @since v0.3.3
+	 */
+	protected void skipSteps(int steps, int period) {
+		// do nothing
+	}
+	
 	protected int processStep(int period) {
 		if (isStatusValid()) {
 			int ret = TRIANGLE_WAVE[dutyCycle];
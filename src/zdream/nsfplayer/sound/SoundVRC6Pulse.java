@@ -100,11 +100,37 @@ public class SoundVRC6Pulse extends SoundVRC6 {
 			counter = period + 1;
 		
 			dutyCycleCounter = (dutyCycleCounter + 1) & 0x0F;
-			mix((gate || dutyCycleCounter > duty) ? volume : 0);
+			mixIfChanged((gate || dutyCycleCounter > duty) ? volume : 0);
+			
+			// 跳过输出不变的步
+			int skip = Math.min(time / counter, stableSteps());
+			if (skip > 0) {
+				int clock = skip * counter;
+				time -= clock;
+				this.time += clock;
+				dutyCycleCounter = (dutyCycleCounter + skip) & 0x0F;
+			}
 		}
 
 		counter -= time;
 		this.time += time;
 	}
 	
+	/**
+	 * @return
+	 *   从下一步开始, 输出与上一步相同的步数
+	 * @since v0.3.3
+	 */
+	private int stableSteps() {
+		if (gate || volume == 0) {
+			return Integer.MAX_VALUE;
+		}
+		if (dutyCycleCounter > duty) {
+			// 高位, 直到 dutyCycleCounter 回到 0
+			return 15 - dutyCycleCounter;
+		}
+		// 低位, 直到 dutyCycleCounter 超过 duty
+		return (duty >= 15) ? Integer.MAX_VALUE : duty - dutyCycleCounter;
+	}
+
 }
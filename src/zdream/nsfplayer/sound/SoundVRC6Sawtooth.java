@@ -100,7 +100,18 @@ public class SoundVRC6Sawtooth extends SoundVRC6 {
 			}
 
 			// The 5 highest bits of accumulator are sent to the mixer
-			mix(phaseAccumulator >> 3);
+			mixIfChanged(phaseAccumulator >> 3);
+			
+			// 音量为 0 时输出一直为 0, 跳过这些步
+			if (volume == 0 && phaseAccumulator == 0) {
+				int skip = time / counter;
+				if (skip > 0) {
+					int clock = skip * counter;
+					time -= clock;
+					this.time += clock;
+					cycleCounter = (cycleCounter + skip) % 14;
+				}
+			}
 		}
 
 		counter -= time;
@@ -272,6 +272,22 @@ public class SweepSoundPulse extends PulseSound implements IFrameSequence {
 		}
 	}
 	
+	@Override
+	protected int currentVolume() {
+		return envelopeFix ? fixedVolume : envelopeCounter;
+	}
+	
+	@Override
+	protected int stepsBeforeEvent(int period) {
+		// 第 n 步时 sequenceRemain - n * period < 0 触发 Frame Sequence
+		return (sequenceRemain < 0) ? 0 : sequenceRemain / period;
+	}
+	
+	@Override
+	protected void skipSteps(int steps, int period) {
+		sequenceRemain -= steps * period;
+	}
+	
 	@Override
 	protected boolean isStatusValid() {
 		return super.isStatusValid() && (sweepResult < 0x800);
@@ -119,10 +119,7 @@ public class OPLLSlot implements IResetable {
 	 * EG
 	 */
 	void calc_envelope(int lfo) {
-		int[] SL = new int[16];
-		for (int i = 0; i < SL.length; i++) {
-			SL[i] = (int) ((3.0 * i / SL_STEP) * (int) (SL_STEP / EG_STEP)) << (EG_DP_BITS - EG_BITS);
-		}
+		final int[] SL = parent.SL_TABLE;
 
 		int egout; // unsigned
 
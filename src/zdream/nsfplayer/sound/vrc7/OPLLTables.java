@@ -0,0 +1,361 @@
+package zdream.nsfplayer.sound.vrc7;
+
+import static zdream.nsfplayer.sound.vrc7.VRC7Static.*;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>OPLL 使用的查找表.
+ * <p>这些表只与输入时钟 clk 和采样率 rate 有关, 而且创建之后不再修改,
+ * 因此同一组 (clk, rate) 的所有 {@link OPLL} 实例共享同一个表实例.
+ * 原本每个 OPLL 实例都需要单独计算并保存一份, 占用几百 KB 的内存.
+ * <p>表实例由 {@link #of(int, int)} 获取, 进程内缓存, 线程安全.
+ * 所有数组在创建之后只读, 请不要修改.
+ * </p>
+ * 
+ * @author Zdream
+ * @since v0.3.3
+ */
+final class OPLLTables {
+	
+	/**
+	 * 缓存. key 为 (clk << 32 | rate)
+	 */
+	private static final ConcurrentHashMap<Long, OPLLTables> CACHE = new ConcurrentHashMap<>();
+	
+	/**
+	 * 获取指定输入时钟、采样率对应的查找表. 如果没有, 则创建并缓存
+	 * @param clk
+	 *   输入时钟, unsigned
+	 * @param rate
+	 *   采样率, unsigned
+	 * @return
+	 *   共享的查找表实例
+	 */
+	static OPLLTables of(int clk, int rate) {
+		long key = ((long) clk << 32) | (rate & 0xFFFFFFFFL);
+		OPLLTables tables = CACHE.get(key);
+		if (tables == null) {
+			tables = CACHE.computeIfAbsent(key, k -> new OPLLTables(clk, rate));
+		}
+		return tables;
+	}
+	
+	/* **********
+	 *    表    *
+	 ********** */
+	
+	/** Input clock, unsigned */
+	final int clk;
+	/** Sampling rate, unsigned */
+	final int rate;
+	
+	// WaveTable for each envelope amp
+	/** unsigned */
+	final int[][] waveform = { new int[PG_WIDTH], new int[PG_WIDTH] };
+	
+	// LFO Table
+	/** unsigned */
+	final int[] pmtable = new int[PM_PG_WIDTH], amtable = new int[AM_PG_WIDTH];
+	
+	// Phase delta for LFO
+	/** unsigned */
+	final int pm_dphase, am_dphase;
+	
+	// dB to Liner table
+	/** int - 16bit */
+	final int[] DB2LIN_TABLE = new int[(DB_MUTE + DB_MUTE) * 2];
+	
+	// Liner to Log curve conversion table (for Attack rate).
+	/** unsigned - 16bit */
+	final int[] AR_ADJUST_TABLE = new int[1 << EG_BITS];
+	
+	/**
+	 * Sustine level 对应的包络相位. 原本在 {@link OPLLSlot} 每次计算包络时重新计算
+	 */
+	final int[] SL_TABLE = new int[16];
+	
+	/**
+	 * 默认的 patch 数值. 大小: [8][38]
+	 */
+	final OPLLPatch[][] default_patch = new OPLLPatch[OPLL_TONE_NUM][(16 + 3) * 2];
+	
+	/** Phase incr table for Attack, unsigned */
+	final int[][] dphaseARTable = new int[16][16];
+	/** Phase incr table for Decay and Release, unsigned */
+	final int[][] dphaseDRTable = new int[16][16];
+	
+	/** KSL + TL Table, unsigned */
+	final int[][][][] tllTable = new int[16][8][1 << TL_BITS][4];
+	final int[][][] rksTable = new int[2][8][2];
+	
+	/** Phase incr table for PG, unsigned */
+	final int[][][] dphaseTable = new int[512][8][16];
+	
+	/* **********
+	 *  初始化  *
+	 ********** */
+	
+	/**
+	 * @param clk
+	 *   unsigned
+	 * @param rate
+	 *   unsigned, 48000
+	 */
+	private OPLLTables(int clk, int rate) {
+		this.clk = clk;
+		this.rate = rate;
+		
+		makePmTable();
+		makeAmTable();
+		makeDB2LinTable();
+		makeAdjustTable();
+		makeSlTable();
+		makeTllTable();
+		makeRksTable();
+		makeSinTable();
+		makeDefaultPatch();
+		
+		makeDphaseTable();
+		makeDphaseARTable();
+		makeDphaseDRTable();
+		
+		double x = (PM_SPEED * PM_DP_WIDTH / (clk / 72));
+		pm_dphase = (rate == 49716 ? (int) x : (int) (x * clk / 72 / rate + 0.5)) & 0x7FFFFFFF;
+		x = AM_SPEED * AM_DP_WIDTH / (clk / 72);
+		am_dphase = (rate == 49716 ? (int) x : (int) (x * clk / 72 / rate + 0.5)) & 0x7FFFFFFF;
+	}
+	
+	/**
+	 * #define RATE_ADJUST(x) (rate==49716?x:(e_uint32)((double)(x)*clk/72/rate + 0.5))
+	 */
+	private int rateAdjust(int x) {
+		return (rate == 49716 ? x : (int) ((double) (x) * clk / 72 / rate + 0.5));
+	}
+	
+	private void makePmTable() {
+		for (int i = 0; i < PM_PG_WIDTH; i++) {
+			double phase = 2.0 * Math.PI * i / PM_PG_WIDTH, d;
+			// saw begin - inline
+			if (phase <= Math.PI / 2)
+				d = phase * 2 / Math.PI;
+			else if (phase <= Math.PI * 3 / 2)
+				d = 2.0 - (phase * 2 / Math.PI);
+			else
+				d = -4.0 + phase * 2 / Math.PI;
+			// saw end - inline
+			pmtable[i] = (int) ((double) PM_AMP * Math.pow(2, (double) PM_DEPTH * d / 1200));
+		}
+	}
+	
+	private void makeAmTable() {
+		for (int i = 0; i < AM_PG_WIDTH; i++) {
+			double phase = 2.0 * Math.PI * i / PM_PG_WIDTH, d;
+			// saw begin - inline
+			if (phase <= Math.PI / 2)
+				d = phase * 2 / Math.PI;
+			else if (phase <= Math.PI * 3 / 2)
+				d = 2.0 - (phase * 2 / Math.PI);
+			else
+				d = -4.0 + phase * 2 / Math.PI;
+			// saw end - inline
+			amtable[i] = (int) ((double) AM_DEPTH / 2 / DB_STEP * (1.0 + d));
+		}
+	}
+	
+	private void makeDB2LinTable() {
+		for (int i = 0; i < DB_MUTE + DB_MUTE; i++) {
+			DB2LIN_TABLE[i] = (int) ((double) ((1 << DB2LIN_AMP_BITS) - 1)
+					* Math.pow(10, -(double) i * DB_STEP / 20));
+			if (i >= DB_MUTE)
+				DB2LIN_TABLE[i] = 0;
+			DB2LIN_TABLE[i + DB_MUTE + DB_MUTE] = (int) (-DB2LIN_TABLE[i]);
+		}
+	}
+	
+	private void makeAdjustTable() {
+		AR_ADJUST_TABLE[0] = (1 << EG_BITS) - 1;
+		for (int i = 1; i < (1 << EG_BITS); i++) {
+			AR_ADJUST_TABLE[i] = (int) ((double) (1 << EG_BITS) - 1
+					- ((1 << EG_BITS) - 1) * Math.log(i) / Math.log(127));
+		}
+	}
+	
+	private void makeSlTable() {
+		for (int i = 0; i < SL_TABLE.length; i++) {
+			SL_TABLE[i] = (int) ((3.0 * i / SL_STEP) * (int) (SL_STEP / EG_STEP)) << (EG_DP_BITS - EG_BITS);
+		}
+	}
+	
+	private void makeTllTable() {
+		double kltable[] = {
+				0.00, 18.00, 24.00, 27.75, 30.00, 32.25, 33.75, 35.25,
+				36.00, 37.50, 38.25, 39.00, 39.75, 40.50, 41.25, 42.00
+				};
+		
+		int tmp;
+		for (int fnum = 0; fnum < 16; fnum++)
+			for (int block = 0; block < 8; block++)
+				for (int TL = 0; TL < 64; TL++)
+					for (int KL = 0; KL < 4; KL++) {
+						if (KL == 0) {
+							tllTable[fnum][block][TL][KL] = (TL * (int) (TL_STEP / EG_STEP));
+						} else {
+							tmp = (int) (kltable[fnum] - (6.00) * (7 - block));
+							if (tmp <= 0)
+								tllTable[fnum][block][TL][KL] = (TL) * (int) (TL_STEP / EG_STEP);
+							else
+								tllTable[fnum][block][TL][KL] = (int) ((tmp >> (3 - KL)) / EG_STEP)
+										+ (TL) * (int) (TL_STEP / EG_STEP);
+						}
+					}
+	}
+	
+	private void makeRksTable() {
+		int fnum8, block, KR;
+		
+		for (fnum8 = 0; fnum8 < 2; fnum8++)
+			for (block = 0; block < 8; block++)
+				for (KR = 0; KR < 2; KR++) {
+					if (KR != 0)
+						rksTable[fnum8][block][KR] = (block << 1) + fnum8;
+					else
+						rksTable[fnum8][block][KR] = block >> 1;
+				}
+	}
+	
+	private void makeSinTable() {
+		int[] fullsintable = waveform[0], halfsintable = waveform[1];
+		int i;
+		
+		for (i = 0; i < PG_WIDTH / 4; i++) {
+			double d = Math.sin(2.0 * Math.PI * i / PG_WIDTH), v;
+			// lin2db begin - inline
+			if (d == 0)
+				v = (DB_MUTE - 1);
+			else
+				v = Math.min(-(int) (20.0 * Math.log10(d) / DB_STEP), DB_MUTE - 1); /* 0 -- 127 */
+			// lin2db end
+			fullsintable[i] = (int) v;
+		}
+		
+		for (i = 0; i < PG_WIDTH / 4; i++) {
+			fullsintable[PG_WIDTH / 2 - 1 - i] = fullsintable[i];
+		}
+		
+		for (i = 0; i < PG_WIDTH / 2; i++) {
+			fullsintable[PG_WIDTH / 2 + i] = (int) (DB_MUTE + DB_MUTE + fullsintable[i]);
+		}
+		
+		for (i = 0; i < PG_WIDTH / 2; i++)
+			halfsintable[i] = fullsintable[i];
+		for (i = PG_WIDTH / 2; i < PG_WIDTH; i++)
+			halfsintable[i] = fullsintable[0];
+	}
+	
+	private void dump2patch(short[] dump, int offset, OPLLPatch patch0, OPLLPatch patch1) {
+		patch0.AM = (dump[offset] & 0x80) != 0;
+		patch1.AM = (dump[1 + offset] & 0x80) != 0;
+		patch0.PM = (dump[offset] & 0x40) != 0;
+		patch1.PM = (dump[1 + offset] & 0x40) != 0;
+		patch0.EG = (dump[offset] & 0x20) != 0;
+		patch1.EG = (dump[1 + offset] & 0x20) != 0;
+		patch0.KR = (dump[offset] & 0x10) != 0;
+		patch1.KR = (dump[1 + offset] & 0x10) != 0;
+		patch0.ML = (dump[offset]) & 15;
+		patch1.ML = (dump[1 + offset]) & 15;
+		patch0.KL = (dump[2 + offset] >> 6) & 3;
+		patch1.KL = (dump[3 + offset] >> 6) & 3;
+		patch0.TL = (dump[2 + offset]) & 63;
+		patch0.FB = (dump[3 + offset]) & 7;
+		patch0.WF = (dump[3 + offset] >> 3) & 1;
+		patch1.WF = (dump[3 + offset] >> 4) & 1;
+		patch0.AR = (dump[4 + offset] >> 4) & 15;
+		patch1.AR = (dump[5 + offset] >> 4) & 15;
+		patch0.DR = (dump[4 + offset]) & 15;
+		patch1.DR = (dump[5 + offset]) & 15;
+		patch0.SL = (dump[6 + offset] >> 4) & 15;
+		patch1.SL = (dump[7 + offset] >> 4) & 15;
+		patch0.RR = (dump[6 + offset]) & 15;
+		patch1.RR = (dump[7 + offset]) & 15;
+	}
+	
+	private void makeDefaultPatch() {
+		for (int i = 0; i < default_patch.length; i++) {
+			OPLLPatch[] os = default_patch[i];
+			for (int j = 0; j < os.length; j++) {
+				os[j] = new OPLLPatch();
+			}
+		}
+		
+		for (int i = 0; i < OPLL_TONE_NUM; i++) {
+			for (int j = 0; j < 19; j++) {
+				dump2patch(default_inst[i], j * 16,
+						default_patch[i][j * 2], default_patch[i][j * 2 + 1]);
+			}
+		}
+	}
+	
+	private void makeDphaseTable() {
+		int fnum, block, ML;
+		int[] mltable = { 1, 1 * 2, 2 * 2, 3 * 2, 4 * 2, 5 * 2, 6 * 2, 7 * 2, 8 * 2, 9 * 2, 10 * 2, 10 * 2, 12 * 2,
+				12 * 2, 15 * 2, 15 * 2 };
+		
+		for (fnum = 0; fnum < 512; fnum++) {
+			for (block = 0; block < 8; block++) {
+				for (ML = 0; ML < 16; ML++) {
+					int x = ((fnum * mltable[ML]) << block) >> (20 - DP_BITS);
+					dphaseTable[fnum][block][ML] = rateAdjust(x);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Rate Table for Attack
+	 */
+	private void makeDphaseARTable() {
+		int AR, Rks, RM, RL;
+		for (AR = 0; AR < 16; AR++) {
+			for (Rks = 0; Rks < 16; Rks++) {
+				RM = AR + (Rks >> 2);
+				RL = Rks & 3;
+				if (RM > 15)
+					RM = 15;
+				switch (AR) {
+				case 0:
+					dphaseARTable[AR][Rks] = 0;
+					break;
+				case 15:
+					dphaseARTable[AR][Rks] = 0;/* EG_DP_WIDTH; */
+					break;
+				default:
+					dphaseARTable[AR][Rks] = rateAdjust(3 * (RL + 4) << (RM + 1));
+					break;
+				}
+			}
+		}
+	}
+	
+	private void makeDphaseDRTable() {
+		int DR, Rks, RM, RL;
+		
+		for (DR = 0; DR < 16; DR++) {
+			for (Rks = 0; Rks < 16; Rks++) {
+				RM = DR + (Rks >> 2);
+				RL = Rks & 3;
+				if (RM > 15)
+					RM = 15;
+				switch (DR) {
+				case 0:
+					dphaseDRTable[DR][Rks] = 0;
+					break;
+				default:
+					dphaseDRTable[DR][Rks] = rateAdjust((RL + 4) << (RM - 1));
+					break;
+				}
+			}
+		}
+	}
+
+}
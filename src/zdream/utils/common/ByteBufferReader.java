@@ -0,0 +1,106 @@
+package zdream.utils.common;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>以 {@link ByteBuffer} 为数据源的读取器.
+ * <p>读取方法与 {@link BytesReader} 相同. 数据源可以是用 {@link FileUtils#mapFile(String)}
+ * 映射的文件, 这时文件数据不会被复制到堆中.
+ * <p>由于数据不在 byte 数组中, {@link #bytes()} 返回 null.
+ * 读取器的读取位置与 buffer 自身的 position 无关, 读取不会修改 buffer 的状态.
+ * </p>
+ * 
+ * @author Zdream
+ * @since v0.3.3
+ */
+public class ByteBufferReader extends BytesReader {
+	
+	/**
+	 * 数据源. 读取器的 [0] 号数据是 buffer 的 [position] 号数据
+	 */
+	private ByteBuffer buffer;
+	
+	/**
+	 * 用于批量读取的视图, 和 buffer 共享数据
+	 */
+	private ByteBuffer view;
+	
+	/**
+	 * @param buffer
+	 *   数据源, 读取范围是 buffer 的 [position, limit)
+	 */
+	public ByteBufferReader(ByteBuffer buffer) {
+		setBuffer(buffer);
+	}
+	
+	/**
+	 * 创建没有数据源的读取器. 子类需要在读取之前调用 {@link #setBuffer(ByteBuffer)}
+	 */
+	protected ByteBufferReader() {
+	}
+	
+	/**
+	 * 设置数据源, 并将读取位置置为 0
+	 * @param buffer
+	 *   数据源, 读取范围是 buffer 的 [position, limit)
+	 */
+	protected void setBuffer(ByteBuffer buffer) {
+		this.buffer = buffer.slice();
+		this.view = this.buffer.duplicate();
+		this.offset = 0;
+	}
+	
+	@Override
+	public void set(byte[] bs) {
+		// do-nothing
+	}
+	
+	@Override
+	public int read(byte[] bs, int offset, int len) {
+		int len0 = (len > buffer.limit() - this.offset) ? buffer.limit() - this.offset : len;
+		view.position(this.offset);
+		view.get(bs, offset, len0);
+		this.offset += len0;
+		return len0;
+	}
+	
+	@Override
+	public int read(byte[] bs) {
+		return read(bs, 0, bs.length);
+	}
+	
+	@Override
+	public int readAsCInt() {
+		if (offset + 4 > buffer.limit()) {
+			throw new ArrayIndexOutOfBoundsException("还剩余 " + (buffer.limit() - offset) + " 数据, 无法读取 4 个值");
+		}
+		int value = (buffer.get(offset) & 0xFF) | ((buffer.get(offset + 1) & 0xFF) << 8)
+				| ((buffer.get(offset + 2) & 0xFF) << 16) | ((buffer.get(offset + 3) & 0xFF) << 24);
+		offset += 4;
+		return value;
+	}
+	
+	@Override
+	public byte readByte() {
+		if (offset + 1 > buffer.limit()) {
+			throw new ArrayIndexOutOfBoundsException("还剩余 " + (buffer.limit() - offset) + " 数据, 无法读取 1 个值");
+		}
+		return buffer.get(offset++);
+	}
+	
+	@Override
+	public int readUnsignedByte() {
+		return readByte() & 0xFF;
+	}
+	
+	@Override
+	public boolean isFinished() {
+		return offset >= buffer.limit();
+	}
+	
+	@Override
+	public int length() {
+		return buffer.limit();
+	}
+
+}
@@ -1,9 +1,13 @@
 package zdream.utils.common;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 
 /**
  * 工具类, 用于读取、写入文件
@@ -37,13 +41,32 @@ public class FileUtils {
 	 * @throws IOException
 	 */
 	public static byte[] readFile(String fn) throws IOException {
-		File f = new File(fn);
-		FileInputStream r = new FileInputStream(f);
-		byte[] bs = new byte[(int) f.length()];
-		r.read(bs);
-		r.close();
-		
-		return bs;
+		// 一次 read 不一定能读完整个文件
+		return Files.readAllBytes(Paths.get(fn));
+	}
+	
+	/**
+	 * <p>将文件以只读方式映射到内存中.
+	 * <p>文件数据不会复制到堆中, 由操作系统按需读入. 返回之后文件就已经关闭,
+	 * 映射在返回的 buffer 被回收之前一直有效.
+	 * </p>
+	 * @param fn
+	 *   file name 文件名
+	 * @return
+	 *   文件数据, position 为 0, limit 为文件大小
+	 * @throws IOException
+	 *   文件无法打开, 或文件大于 2GB 时
+	 * @since v0.3.3
+	 */
+	public static MappedByteBuffer mapFile(String fn) throws IOException {
+		try (FileChannel channel = FileChannel.open(Paths.get(fn), StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				// map 方法对这种情况抛出的是 IllegalArgumentException
+				throw new IOException("文件 " + fn + " 大小为 " + size + " 字节, 超过 2GB, 无法映射");
+			}
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+		}
 	}
 	
 	/**
@@ -1,32 +1,92 @@
 package zdream.utils.common;
 
-import java.util.Scanner;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
 
 /**
- * byte 数组读取器
+ * 文本读取器
+ * 
+ * @version v0.3.3
+ * <p>改为从 {@link Reader} 逐行读取, 不再需要将整个文本读到内存中.
+ * 本行文本存放在可重复使用的 char 数组中 (见 {@link #lineChars()}),
+ * 只有调用 {@link #thisLine()} 时才创建 String.
+ * 另外补充了按空白字符切分本行文本的方法 {@link #tokenize()}, 切分时不创建 String.
+ * <p>读取数据源出错时, 抛出 {@link UncheckedIOException}.
+ * </p>
+ * 
  * @author Zdream
  * @date 2018-04-25
  * @since v0.1
  */
 public class TextReader {
 
-	String text;
+	/**
+	 * 数据源
+	 */
+	private final Reader in;
+	
+	/**
+	 * 从数据源读取的数据
+	 */
+	private final char[] buf = new char[8192];
+	private int bufPos, bufLen;
+	
+	/**
+	 * 数据源是否已经读完
+	 */
+	private boolean eof;
+	
+	/**
+	 * 上一行是否以 '\r' 结尾. 如果是, 下一个 '\n' 属于上一行的行尾
+	 */
+	private boolean skipLF;
 	
 	/*
 	 * 行号
 	 */
 	int l = 0;
 	
-	Scanner scanner;
+	/**
+	 * 储存本行文本, 范围是 [0, lineLen)
+	 */
+	private char[] line = new char[256];
+	private int lineLen;
 	
 	/**
-	 * 储存本行文本
+	 * 本行文本的 String 形式, 需要时才创建
 	 */
 	String lineBuf;
 	
 	public TextReader(String text) {
-		this.text = text;
-		scanner = new Scanner(text);
+		this(new StringReader(text));
+	}
+	
+	/**
+	 * @param reader
+	 *   数据源. 调用 {@link #close()} 时关闭
+	 * @since v0.3.3
+	 */
+	public TextReader(Reader reader) {
+		this.in = reader;
+	}
+	
+	/**
+	 * @param channel
+	 *   数据源. 调用 {@link #close()} 时关闭
+	 * @param charset
+	 *   字符集. 无法解码的数据将被替换为替换字符
+	 * @since v0.3.3
+	 */
+	public TextReader(ReadableByteChannel channel, Charset charset) {
+		this(Channels.newReader(channel, charset.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE), -1));
 	}
 	
 	// 基本操作
@@ -34,17 +94,95 @@ public class TextReader {
 	/**
 	 * 下一行文本
 	 * @return
+	 *   本行文本. 已经读取完毕时返回 null
 	 */
 	public String nextLine() {
-		if (!scanner.hasNextLine()) {
-			lineBuf = null;
+		if (!readLine()) {
+			return null;
+		}
+		return thisLine();
+	}
+	
+	/**
+	 * 读取下一行到 {@link #line} 中
+	 * @return
+	 *   如果已经读取完毕, 返回 false
+	 */
+	private boolean readLine() {
+		lineBuf = null;
+		lineLen = 0;
+		tokenCount = 0;
+		
+		if (isFinished()) {
 			l = 0;
+			return false;
+		}
+		
+		while (fill()) {
+			int start = bufPos;
+			int i = start;
+			for (; i < bufLen; i++) {
+				char ch = buf[i];
+				if (ch == '\n' || ch == '\r') {
+					break;
+				}
+			}
+			append(start, i);
+			bufPos = i;
+			
+			if (i < bufLen) {
+				// 找到行尾
+				skipLF = buf[i] == '\r';
+				bufPos++;
+				break;
+			}
 		}
 		
-		lineBuf = scanner.nextLine();
 		l++;
+		return true;
+	}
+	
+	/**
+	 * 保证 buf 中还有未读取的数据
+	 * @return
+	 *   数据源已经读完时返回 false
+	 */
+	private boolean fill() {
+		if (bufPos < bufLen) {
+			return true;
+		}
+		if (eof) {
+			return false;
+		}
 		
-		return lineBuf;
+		try {
+			int len;
+			do {
+				len = in.read(buf, 0, buf.length);
+			} while (len == 0);
+			
+			bufPos = 0;
+			if (len < 0) {
+				bufLen = 0;
+				eof = true;
+				return false;
+			}
+			bufLen = len;
+			return true;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	private void append(int start, int end) {
+		int len = end - start;
+		if (lineLen + len > line.length) {
+			char[] cs = new char[Math.max(line.length * 2, lineLen + len)];
+			System.arraycopy(line, 0, cs, 0, lineLen);
+			line = cs;
+		}
+		System.arraycopy(buf, start, line, lineLen, len);
+		lineLen += len;
 	}
 	
 	/**
@@ -52,9 +190,31 @@ public class TextReader {
 	 * @return
 	 */
 	public String thisLine() {
+		if (lineBuf == null && l > 0) {
+			lineBuf = new String(line, 0, lineLen);
+		}
 		return lineBuf;
 	}
 	
+	/**
+	 * 本行文本的 char 数组. 数组会被重复使用, 读取下一行之后内容将改变
+	 * @return
+	 *   数组, 本行文本范围为 [0, {@link #lineLength()})
+	 * @since v0.3.3
+	 */
+	public char[] lineChars() {
+		return line;
+	}
+	
+	/**
+	 * @return
+	 *   本行文本的长度
+	 * @since v0.3.3
+	 */
+	public int lineLength() {
+		return lineLen;
+	}
+	
 	/**
 	 * @return
 	 *  本行行号, 第一行为 1. 还没读取或已经读取完毕时为 0
@@ -64,11 +224,25 @@ public class TextReader {
 	}
 	
 	public void close() {
-		scanner.close();
+		try {
+			in.close();
+		} catch (IOException e) {
+			// 关闭失败不影响已经读取的结果
+		}
 	}
 	
 	public boolean isFinished() {
-		return !scanner.hasNextLine();
+		if (!fill()) {
+			return true;
+		}
+		if (skipLF) {
+			skipLF = false;
+			if (buf[bufPos] == '\n') {
+				bufPos++;
+				return !fill();
+			}
+		}
+		return false;
 	}
 	
 	// 进阶操作
@@ -78,13 +252,19 @@ public class TextReader {
 	 * 只要是空行、以 # 开头的行, 都不是有效行
 	 */
 	public boolean isValidLine() {
-		if (lineBuf.trim().equals("")) {
+		if (lineLen == 0) {
 			return false;
 		}
-		if (lineBuf.charAt(0) == '#') {
+		if (line[0] == '#') {
 			return false;
 		}
-		return true;
+		for (int i = 0; i < lineLen; i++) {
+			// 与 String.trim() 相同, 不大于 ' ' 的字符视为空白
+			if (line[i] > ' ') {
+				return true;
+			}
+		}
+		return false;
 	}
 	
 	/**
@@ -93,13 +273,182 @@ public class TextReader {
 	 *   当没有下一个有效行时, 返回 0
 	 */
 	public int toNextValidLine() {
-		while (scanner.hasNextLine()) {
-			nextLine();
-			
+		while (readLine()) {
 			if (isValidLine()) {
 				return l;
 			}
 		}
 		return 0;
 	}
+	
+	/* **********
+	 *   切分   *
+	 ********** */
+	/*
+	 * 本行文本按空白字符 (见 Character.isSpaceChar) 切分后, 每一项的开始与结束位置.
+	 * 和 CodeSpliter.split 不同, 这里不处理双引号.
+	 */
+	private int[] tokenStarts = new int[64];
+	private int[] tokenEnds = new int[64];
+	private int tokenCount;
+	
+	/**
+	 * <p>将本行文本按空白字符切分, 不创建 String. 切分的结果用 {@link #tokenEquals(int, String)},
+	 * {@link #tokenToInt(int, int, int)} 等方法读取.
+	 * <p>与 {@link CodeSpliter#split(String)} 不同, 双引号不做特殊处理.
+	 * </p>
+	 * @return
+	 *   切分后的项数
+	 * @since v0.3.3
+	 */
+	public int tokenize() {
+		int count = 0;
+		int head = -1;
+		for (int i = 0; i <= lineLen; i++) {
+			boolean space = (i == lineLen) || Character.isSpaceChar(line[i]);
+			if (head < 0) {
+				if (!space) {
+					head = i;
+				}
+			} else if (space) {
+				if (count == tokenStarts.length) {
+					int[] ss = new int[count * 2], es = new int[count * 2];
+					System.arraycopy(tokenStarts, 0, ss, 0, count);
+					System.arraycopy(tokenEnds, 0, es, 0, count);
+					tokenStarts = ss;
+					tokenEnds = es;
+				}
+				tokenStarts[count] = head;
+				tokenEnds[count] = i;
+				count++;
+				head = -1;
+			}
+		}
+		return tokenCount = count;
+	}
+	
+	/**
+	 * @return
+	 *   最近一次 {@link #tokenize()} 切分后的项数
+	 * @since v0.3.3
+	 */
+	public int tokenCount() {
+		return tokenCount;
+	}
+	
+	/**
+	 * @param index
+	 *   第几项
+	 * @return
+	 *   该项的长度
+	 * @since v0.3.3
+	 */
+	public int tokenLength(int index) {
+		return tokenEnds[index] - tokenStarts[index];
+	}
+	
+	/**
+	 * @param index
+	 *   第几项
+	 * @param offset
+	 *   该项的第几个字符
+	 * @return
+	 *   字符
+	 * @since v0.3.3
+	 */
+	public char tokenCharAt(int index, int offset) {
+		if (offset < 0 || offset >= tokenLength(index)) {
+			throw new StringIndexOutOfBoundsException(offset);
+		}
+		return line[tokenStarts[index] + offset];
+	}
+	
+	/**
+	 * @param index
+	 *   第几项
+	 * @param s
+	 *   比较的文本
+	 * @return
+	 *   该项是否与 s 相同
+	 * @since v0.3.3
+	 */
+	public boolean tokenEquals(int index, String s) {
+		int start = tokenStarts[index];
+		int len = tokenEnds[index] - start;
+		if (len != s.length()) {
+			return false;
+		}
+		for (int i = 0; i < len; i++) {
+			if (line[start + i] != s.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * 将该项从第 from 个字符开始的部分解析为整数. 规则与 {@link Integer#parseInt(String, int)} 相同
+	 * @param index
+	 *   第几项
+	 * @param from
+	 *   从该项的第几个字符开始解析
+	 * @param radix
+	 *   进制
+	 * @return
+	 * @throws NumberFormatException
+	 *   无法解析时
+	 * @since v0.3.3
+	 */
+	public int tokenToInt(int index, int from, int radix) throws NumberFormatException {
+		int start = tokenStarts[index] + from;
+		int end = tokenEnds[index];
+		if (start >= end) {
+			throw new NumberFormatException("For input string: \"\"");
+		}
+		
+		boolean negative = false;
+		int i = start;
+		char first = line[i];
+		if (first == '-' || first == '+') {
+			negative = first == '-';
+			i++;
+			if (i == end) {
+				throw new NumberFormatException("For input string: \"" + tokenString(index, from) + "\"");
+			}
+		}
+		
+		long result = 0;
+		for (; i < end; i++) {
+			int digit = Character.digit(line[i], radix);
+			if (digit < 0) {
+				throw new NumberFormatException("For input string: \"" + tokenString(index, from) + "\"");
+			}
+			result = result * radix + digit;
+			if (result > (long) Integer.MAX_VALUE + 1) {
+				throw new NumberFormatException("For input string: \"" + tokenString(index, from) + "\"");
+			}
+		}
+		
+		result = negative ? -result : result;
+		if (result > Integer.MAX_VALUE) {
+			throw new NumberFormatException("For input string: \"" + tokenString(index, from) + "\"");
+		}
+		return (int) result;
+	}
+	
+	/**
+	 * @param index
+	 *   第几项
+	 * @return
+	 *   该项的文本. 每次调用都会创建 String
+	 * @since v0.3.3
+	 */
+	public String tokenString(int index) {
+		return tokenString(index, 0);
+	}
+	
+	private String tokenString(int index, int from) {
+		int start = tokenStarts[index] + from;
+		return new String(line, start, tokenEnds[index] - start);
+	}
 }
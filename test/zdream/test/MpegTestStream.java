@@ -0,0 +1,129 @@
+package zdream.test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+
+import zdream.nsfplayer.mpeg.MpegAudio;
+import zdream.nsfplayer.mpeg.MpegAudioException;
+import zdream.nsfplayer.mpeg.MpegFactory;
+
+/**
+ * <p>生成测试用的 MPEG1 Layer III 音频数据.
+ * <p>每帧的帧头固定, 帧边信息合法、取值随机, 主数据是随机数据.
+ * 解码的结果没有意义, 但每一帧都会走完 Layer III 的所有解码步骤, 输出不为 0.
+ * 这样测试不需要依赖外部的 mp3 文件.
+ * </p>
+ *
+ * @author Zdream
+ * @since v0.3.3-test
+ */
+public class MpegTestStream {
+
+	/**
+	 * <p>生成 128 kbps, 44100 Hz, 联合立体声的音频. 每帧 417 字节.
+	 * <p>除了第一帧, 每帧的主数据从前一帧末尾的 60 字节开始 (main_data_begin = 60).
+	 * </p>
+	 * @param frames
+	 *   帧数
+	 */
+	public static MpegAudio create(int frames) throws MpegAudioException {
+		return new MpegFactory().create(image(frames, false, 11));
+	}
+
+	/**
+	 * <p>生成 32 kbps, 44100 Hz, 联合立体声的音频. 每帧 104 字节.
+	 * <p>每帧的主数据比本帧能放下的多, 主数据从前面几帧开始 (main_data_begin 最大 300),
+	 * 位流缓冲区 (bit reservoir) 引用之前最多 4 帧的数据.
+	 * 用于测试从中间开始解码时, 位流缓冲区数据不足的情况.
+	 * </p>
+	 * @param frames
+	 *   帧数
+	 */
+	public static MpegAudio createWithReservoir(int frames) throws MpegAudioException {
+		return new MpegFactory().create(image(frames, true, 7));
+	}
+
+	/**
+	 * @param frames
+	 *   帧数
+	 * @param reservoir
+	 *   true, 生成 {@link #createWithReservoir(int)} 的音频; false, 生成 {@link #create(int)} 的音频
+	 * @param seed
+	 *   随机数种子
+	 * @return
+	 *   音频数据
+	 */
+	public static byte[] image(int frames, boolean reservoir, long seed) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		Random r = new Random(seed);
+		final int frameSize = reservoir ? 104 : 417;
+
+		for (int k = 0; k < frames; k++) {
+			BitWriter w = new BitWriter(new byte[frameSize]);
+			r.nextBytes(w.bytes);
+
+			// 帧头: MPEG1 Layer III, 无 CRC; 比特率 32 / 128 kbps, 44100 Hz, 无填充; 联合立体声 (M/S)
+			w.bytes[0] = (byte) 0xFF;
+			w.bytes[1] = (byte) 0xFB;
+			w.bytes[2] = (byte) (reservoir ? 0x10 : 0x90);
+			w.bytes[3] = 0x64;
+			w.pos = 32;
+
+			// 帧边信息
+			if (reservoir) {
+				w.put(Math.min(k * 72, 300), 9);
+			} else {
+				w.put(k == 0 ? 0 : 60, 9);
+			}
+			w.put(0, 3); // private_bits
+			w.put(0, 8); // scfsi
+			for (int gr = 0; gr < 2; gr++) {
+				for (int ch = 0; ch < 2; ch++) {
+					w.put(reservoir ? 120 : 600, 12); // part2_3_length
+					w.put(r.nextInt(reservoir ? 8 : 200), 9); // big_values
+					w.put(150 + r.nextInt(60), 8); // global_gain
+					w.put(r.nextInt(16), 4); // scalefac_compress
+					w.put(0, 1); // window_switching_flag
+					for (int i = 0; i < 3; i++) {
+						// table_select, 4 和 14 不是合法的 Huffman 表
+						int table;
+						do {
+							table = r.nextInt(16);
+						} while (table == 4 || table == 14);
+						w.put(table, 5);
+					}
+					w.put(r.nextInt(16), 4); // region0_count
+					w.put(r.nextInt(8), 3); // region1_count
+					w.put(r.nextInt(2), 1); // preflag
+					w.put(r.nextInt(2), 1); // scalefac_scale
+					w.put(r.nextInt(2), 1); // count1table_select
+				}
+			}
+
+			out.write(w.bytes, 0, frameSize);
+		}
+		return out.toByteArray();
+	}
+
+	static class BitWriter {
+		final byte[] bytes;
+		int pos;
+
+		BitWriter(byte[] bytes) {
+			this.bytes = bytes;
+		}
+
+		void put(int value, int bits) {
+			for (int i = bits - 1; i >= 0; i--) {
+				int mask = 0x80 >> (pos & 7);
+				if (((value >> i) & 1) != 0) {
+					bytes[pos >> 3] |= mask;
+				} else {
+					bytes[pos >> 3] &= ~mask;
+				}
+				pos++;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,155 @@
+package zdream.test;
+
+import java.util.Random;
+
+import zdream.nsfplayer.mixer.IMixerChannel;
+import zdream.nsfplayer.sound.SoundFDS;
+
+/**
+ * <p>测试 FDS 发声器 {@link SoundFDS}.
+ * <p>用固定的随机数据写入参数, 分别按 NSF 的方式 (每次一采样的时钟数) 和 FTM 的方式 (每次一帧的时钟数)
+ * 调用 process, 检查送往混音器的音频值、时间与 {@link #GOLDEN_NSF}, {@link #GOLDEN_FTM} 相同,
+ * 然后测量两种方式的速度. 修改 SoundFDS 之后运行, 确认结果没有变化, 并比较修改前后的耗时.
+ * </p>
+ *
+ * @author Zdream
+ * @since v0.3.3-test
+ */
+public class TestFdsSound {
+
+	/**
+	 * v0.3.3 逐个时钟计算的实现, 对下面输入的输出摘要
+	 */
+	static final long GOLDEN_NSF = -8381446042095055249L;
+	static final long GOLDEN_FTM = 538221998854158753L;
+
+	/**
+	 * 帧数, 约 5 分钟
+	 */
+	static final int FRAMES = 60 * 60 * 5;
+
+	/**
+	 * NTSC 每帧的时钟数
+	 */
+	static final int FRAME_CLOCK = 29780;
+
+	public static void main(String[] args) {
+		long nsf = run(true), ftm = run(false);
+		if (nsf != GOLDEN_NSF || ftm != GOLDEN_FTM) {
+			System.out.println("输出与预期不同: " + nsf + ", " + ftm);
+			return;
+		}
+		System.out.println("输出与预期相同");
+
+		for (int round = 0; round < 10; round++) {
+			long time = System.nanoTime();
+			run(true);
+			long t1 = System.nanoTime() - time;
+
+			time = System.nanoTime();
+			run(false);
+			long t2 = System.nanoTime() - time;
+			System.out.printf("第 %d 轮: NSF 方式 %.2f ms, FTM 方式 %.2f ms%n", round + 1, t1 / 1e6, t2 / 1e6);
+		}
+	}
+
+	/**
+	 * @param nsf
+	 *   true, 每次 process 一采样的时钟数; false, 每次 process 一帧的时钟数
+	 * @return
+	 *   输出的摘要
+	 */
+	static long run(boolean nsf) {
+		Random r = new Random(20181019);
+		SoundFDS fds = new SoundFDS();
+		DigestChannel out = new DigestChannel();
+		fds.setOut(out);
+
+		for (int i = 0; i < 64; i++) {
+			fds.wave[i] = (byte) r.nextInt(64);
+		}
+
+		for (int frame = 0; frame < FRAMES; frame++) {
+			// 每 8 帧左右换一次参数, 覆盖调制开关、包络开关等各种情况
+			if (r.nextInt(8) == 0) {
+				fds.wavFreq = r.nextInt(0x1000);
+				fds.wavHalt = r.nextInt(16) == 0;
+				fds.envHalt = r.nextInt(4) == 0;
+				fds.wavEnvDisable = r.nextBoolean();
+				fds.wavEnvMode = r.nextBoolean();
+				fds.wavEnvSpeed = r.nextInt(64);
+				fds.modEnvDisable = r.nextBoolean();
+				fds.modEnvMode = r.nextBoolean();
+				fds.modEnvSpeed = r.nextInt(64);
+				fds.modFreq = r.nextInt(0x1000);
+				fds.masterVolume = r.nextInt(4);
+				fds.masterEnvSpeed = (r.nextInt(4) == 0) ? 0 : r.nextInt(256);
+
+				boolean modHalt = r.nextInt(3) == 0;
+				if (modHalt) {
+					fds.modHalt = true;
+					fds.writeMods(r.nextInt(8));
+				} else {
+					fds.modHalt = false;
+					fds.modPos = r.nextInt(128);
+				}
+			}
+			if (r.nextInt(64) == 0) {
+				fds.wave[r.nextInt(64)] = (byte) r.nextInt(64);
+			}
+
+			if (nsf) {
+				// 48000 Hz 左右, 每采样 37 个时钟上下
+				int clock = 0;
+				while (clock < FRAME_CLOCK) {
+					int t = Math.min(36 + r.nextInt(4), FRAME_CLOCK - clock);
+					fds.process(t);
+					clock += t;
+				}
+			} else {
+				fds.process(FRAME_CLOCK);
+			}
+			fds.endFrame();
+			out.time += FRAME_CLOCK;
+		}
+
+		return out.digest;
+	}
+
+	/**
+	 * 计算音频值与时间的摘要. 和混音器一样, 只有音频值变化时才记录
+	 */
+	static class DigestChannel implements IMixerChannel {
+
+		long digest;
+		int last = Integer.MIN_VALUE;
+
+		/**
+		 * 之前各帧的总时钟数
+		 */
+		long time;
+
+		@Override
+		public void reset() {}
+
+		@Override
+		public void setLevel(float level) {}
+
+		@Override
+		public float getLevel() {
+			return 1;
+		}
+
+		@Override
+		public void mix(int value, int time) {
+			if (value == last) {
+				return;
+			}
+			last = value;
+			digest = digest * 31 + value;
+			digest = digest * 31 + this.time + time;
+		}
+
+	}
+
+}
@@ -0,0 +1,238 @@
+package zdream.test;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import zdream.nsfplayer.ftm.audio.FtmAudio;
+import zdream.nsfplayer.ftm.factory.FtmAudioFactory;
+import zdream.nsfplayer.ftm.format.FtmNote;
+import zdream.nsfplayer.ftm.format.FtmPattern;
+import zdream.nsfplayer.ftm.format.FtmTrack;
+import zdream.nsfplayer.ftm.renderer.FamiTrackerRenderer;
+
+/**
+ * <p>测试模式数据的延迟解析 ({@link FtmAudioFactory#setLazyPatterns(boolean)}).
+ * <li>延迟解析的音频, 读取之前模式数据没有就绪, 读取之后每个模式的每一行与一次解析全部的音频相同,
+ * 渲染结果也相同;
+ * <li>多个线程同时第一次读取同一曲目, 只解析一次, 得到同一个结果;
+ * <li>解析失败时抛出异常, 下一次读取时重新解析.
+ * </li>
+ * </p>
+ *
+ * @author Zdream
+ * @since v0.3.3-test
+ */
+public class TestFtmLazyPatterns {
+
+	static final String[] FILES = {
+			"mm10nsf.ftm",
+			"mm9nsf.ftm",
+			"Hornet 2xVRC7.ftm",
+			"JtS Stage 3.ftm",
+			"N163 - Enigma of Aqua (Sync Play Version).ftm",
+			"VRC6+VRC7 - Napalm.ftm",
+	};
+
+	/**
+	 * 同时读取的线程数
+	 */
+	static final int THREADS = 8;
+
+	public static void main(String[] args) throws Exception {
+		boolean ok = true;
+		for (String file : FILES) {
+			ok &= testParity(file);
+		}
+		ok &= testConcurrent("mm10nsf.ftm");
+		ok &= testLoader();
+
+		System.out.println(ok ? "全部通过" : "有测试没有通过");
+	}
+
+	static FtmAudio create(String file, boolean lazy) throws Exception {
+		FtmAudioFactory factory = new FtmAudioFactory();
+		factory.setLazyPatterns(lazy);
+		return factory.create("test/assets/test/" + file);
+	}
+
+	/**
+	 * 延迟解析与一次解析全部的结果相同
+	 */
+	static boolean testParity(String file) throws Exception {
+		FtmAudio eager = create(file, false);
+		FtmAudio lazy = create(file, true);
+
+		boolean ok = eager.getTrackCount() == lazy.getTrackCount();
+		int deferred = 0;
+		for (int t = 0; ok && t < lazy.getTrackCount(); t++) {
+			FtmTrack track = lazy.getTrack(t);
+			ok &= eager.getTrack(t).isPatternsLoaded();
+			if (!track.isPatternsLoaded()) {
+				deferred++;
+				ok &= track.patterns == null;
+			}
+			ok &= same(eager.getTrack(t).getPatterns(), track.getPatterns()) && track.isPatternsLoaded();
+		}
+
+		// 最后一首曲目, 渲染之前不读取模式数据
+		lazy = create(file, true);
+		int last = lazy.getTrackCount() - 1;
+		ok &= render(eager, last) == render(lazy, last);
+
+		System.out.printf("%s: 延迟解析的曲目 %d 个: %s%n", file, deferred, ok ? "通过" : "失败");
+		return ok;
+	}
+
+	static boolean same(FtmPattern[][] a, FtmPattern[][] b) {
+		if (a.length != b.length) {
+			return false;
+		}
+		FtmNote na = new FtmNote(), nb = new FtmNote();
+		for (int i = 0; i < a.length; i++) {
+			if (a[i] == null || b[i] == null) {
+				if (a[i] != b[i]) {
+					return false;
+				}
+				continue;
+			}
+			if (a[i].length != b[i].length) {
+				return false;
+			}
+			for (int j = 0; j < a[i].length; j++) {
+				FtmPattern pa = a[i][j], pb = b[i][j];
+				if (pa == null || pb == null) {
+					if (pa != pb) {
+						return false;
+					}
+					continue;
+				}
+				if (pa.length() != pb.length()) {
+					return false;
+				}
+				for (int row = 0; row < pa.length(); row++) {
+					boolean ra = pa.readNote(row, na), rb = pb.readNote(row, nb);
+					if (ra != rb || ra && !TestFtmPattern.same(na, nb)) {
+						return false;
+					}
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return
+	 *   渲染 10 秒得到的采样的散列值
+	 */
+	static int render(FtmAudio audio, int track) throws Exception {
+		FamiTrackerRenderer renderer = new FamiTrackerRenderer();
+		renderer.ready(audio, track);
+		short[] out = new short[48000 * 10];
+		int length = 0;
+		while (length < out.length) {
+			length += renderer.renderOneFrame(out, length, out.length - length);
+		}
+		return Arrays.hashCode(out);
+	}
+
+	/**
+	 * 多个线程同时第一次读取同一曲目
+	 */
+	static boolean testConcurrent(String file) throws Exception {
+		FtmAudio eager = create(file, false);
+		boolean ok = true;
+
+		for (int t = 0; t < eager.getTrackCount(); t++) {
+			FtmAudio lazy = create(file, true);
+			FtmTrack track = lazy.getTrack(t);
+			if (track.isPatternsLoaded()) {
+				continue;
+			}
+
+			FtmPattern[][][] results = new FtmPattern[THREADS][][];
+			Throwable[] errors = new Throwable[1];
+			CountDownLatch start = new CountDownLatch(1);
+			Thread[] threads = new Thread[THREADS];
+			for (int i = 0; i < THREADS; i++) {
+				final int index = i;
+				threads[i] = new Thread(() -> {
+					try {
+						start.await();
+						results[index] = track.getPatterns();
+					} catch (Throwable e) {
+						errors[0] = e;
+					}
+				});
+				threads[i].start();
+			}
+			start.countDown();
+			for (Thread thread : threads) {
+				thread.join();
+			}
+
+			ok &= errors[0] == null;
+			for (int i = 0; ok && i < THREADS; i++) {
+				ok = results[i] != null && results[i] == results[0];
+			}
+			ok = ok && same(eager.getTrack(t).getPatterns(), results[0]);
+		}
+
+		System.out.println("多个线程同时第一次读取: " + (ok ? "通过" : "失败"));
+		return ok;
+	}
+
+	/**
+	 * 用计数的解析方法检查只解析一次, 以及失败后重新解析
+	 */
+	static boolean testLoader() throws Exception {
+		FtmPattern[][] patterns = new FtmPattern[1][1];
+		AtomicInteger calls = new AtomicInteger();
+		CountDownLatch start = new CountDownLatch(1);
+
+		FtmTrack track = new FtmTrack();
+		track.setPatternLoader(() -> {
+			if (calls.incrementAndGet() == 1) {
+				throw new IllegalStateException("第一次解析失败");
+			}
+			try {
+				// 让其它线程有机会同时进入
+				Thread.sleep(50);
+			} catch (InterruptedException e) {}
+			return patterns;
+		});
+
+		boolean ok = false;
+		try {
+			track.getPatterns();
+		} catch (IllegalStateException e) {
+			ok = !track.isPatternsLoaded() && track.patterns == null;
+		}
+
+		Thread[] threads = new Thread[THREADS];
+		FtmPattern[][][] results = new FtmPattern[THREADS][][];
+		for (int i = 0; i < THREADS; i++) {
+			final int index = i;
+			threads[i] = new Thread(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {}
+				results[index] = track.getPatterns();
+			});
+			threads[i].start();
+		}
+		start.countDown();
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		ok &= calls.get() == 2 && track.isPatternsLoaded();
+		for (int i = 0; i < THREADS; i++) {
+			ok &= results[i] == patterns;
+		}
+
+		System.out.println("只解析一次, 失败后重新解析: " + (ok ? "通过" : "失败"));
+		return ok;
+	}
+
+}
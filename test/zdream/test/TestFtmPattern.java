@@ -0,0 +1,142 @@
+package zdream.test;
+
+import static zdream.nsfplayer.ftm.format.FtmStatic.MAX_EFFECT_COLUMNS;
+
+import java.util.Arrays;
+
+import zdream.nsfplayer.ftm.audio.FtmAudio;
+import zdream.nsfplayer.ftm.factory.FtmAudioFactory;
+import zdream.nsfplayer.ftm.format.FtmNote;
+import zdream.nsfplayer.ftm.format.FtmPattern;
+import zdream.nsfplayer.ftm.format.FtmTrack;
+
+/**
+ * <p>测试 {@link FtmPattern} 的压缩与还原.
+ * <li>读取的音频中, 模式都已经压缩. 还原之后的键数据与压缩时读取的相同, 再次压缩得到相同的数据;
+ * <li>{@link FtmPattern#readNote(int, FtmNote)} 与 {@link FtmPattern#getNote(int)} 读到的数据相同,
+ * 修改 getNote 返回的实例不影响模式;
+ * <li>无法压缩的模式保持原样, {@link FtmPattern#getNotes()} 返回原来的数组.
+ * </li>
+ * </p>
+ *
+ * @author Zdream
+ * @since v0.3.3-test
+ */
+public class TestFtmPattern {
+
+	public static void main(String[] args) throws Exception {
+		FtmAudioFactory factory = new FtmAudioFactory();
+
+		boolean ok = test("mm10nsf.ftm", factory.create("test/assets/test/mm10nsf.ftm"));
+		ok &= test("Editor_05.txt", factory.createFromTextPath("test/assets/test/Editor_05.txt"));
+		ok &= testUnpackable();
+
+		System.out.println(ok ? "全部通过" : "有测试没有通过");
+	}
+
+	static boolean test(String name, FtmAudio audio) {
+		int count = 0, failed = 0;
+		FtmNote scratch = new FtmNote();
+
+		for (int t = 0; t < audio.getTrackCount(); t++) {
+			FtmTrack track = audio.getTrack(t);
+			for (FtmPattern[] group : track.getPatterns()) {
+				if (group == null) {
+					continue;
+				}
+				for (FtmPattern p : group) {
+					if (p == null) {
+						continue;
+					}
+					count++;
+					if (!roundTrip(p, scratch)) {
+						failed++;
+					}
+				}
+			}
+		}
+
+		boolean ok = count > 0 && failed == 0;
+		System.out.printf("%s: 模式 %d 个, 失败 %d 个: %s%n", name, count, failed, ok ? "通过" : "失败");
+		return ok;
+	}
+
+	static boolean roundTrip(FtmPattern p, FtmNote scratch) {
+		if (!p.isPacked()) {
+			return false;
+		}
+		final int length = p.length();
+		int[] heads = p.packedHeads().clone();
+		long[] effects = p.packedEffects() == null ? null : p.packedEffects().clone();
+
+		// 压缩时读取
+		FtmNote[] expected = new FtmNote[length];
+		boolean ok = true;
+		for (int row = 0; row < length; row++) {
+			expected[row] = p.getNote(row);
+			boolean present = p.readNote(row, scratch);
+			ok &= present == (expected[row] != null);
+			if (present) {
+				ok &= same(scratch, expected[row]);
+				// getNote 返回的是副本
+				expected[row].vol++;
+				ok &= !same(p.getNote(row), expected[row]);
+				expected[row].vol--;
+			}
+		}
+
+		// 还原
+		FtmNote[] notes = p.getNotes();
+		ok &= !p.isPacked() && notes != null && notes.length == length;
+		for (int row = 0; ok && row < length; row++) {
+			ok = (notes[row] == null) ? expected[row] == null : same(notes[row], expected[row]);
+		}
+
+		// 再次压缩
+		ok &= p.pack() && p.isPacked();
+		ok &= Arrays.equals(heads, p.packedHeads()) && Arrays.equals(effects, p.packedEffects());
+		return ok;
+	}
+
+	/**
+	 * 效果参数超出紧凑存储范围的模式
+	 */
+	static boolean testUnpackable() {
+		FtmNote[] notes = new FtmNote[4];
+		FtmNote n = notes[1] = new FtmNote();
+		n.note = 1;
+		n.octave = 3;
+		n.vol = 8;
+		n.instrument = 2;
+		n.effNumber[0] = 1;
+		n.effParam[0] = 0x1FF;
+
+		FtmPattern p = new FtmPattern();
+		p.setNotes(notes);
+		boolean ok = !p.pack() && !p.isPacked();
+		ok &= p.getNotes() == notes && p.getNote(1) == n && p.getNote(0) == null;
+
+		FtmNote scratch = new FtmNote();
+		ok &= p.readNote(1, scratch) && same(scratch, n) && !p.readNote(2, scratch);
+
+		// 改成可以压缩的数据
+		n.effParam[0] = 0xFF;
+		ok &= p.pack() && p.isPacked() && same(p.getNote(1), n);
+
+		System.out.println("无法压缩的模式: " + (ok ? "通过" : "失败"));
+		return ok;
+	}
+
+	static boolean same(FtmNote a, FtmNote b) {
+		if (a.note != b.note || a.octave != b.octave || a.vol != b.vol || a.instrument != b.instrument) {
+			return false;
+		}
+		for (int i = 0; i < MAX_EFFECT_COLUMNS; i++) {
+			if (a.effNumber[i] != b.effNumber[i] || a.effParam[i] != b.effParam[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
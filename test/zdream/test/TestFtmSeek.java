@@ -0,0 +1,188 @@
+package zdream.test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import zdream.nsfplayer.ftm.audio.FtmAudio;
+import zdream.nsfplayer.ftm.executor.FamiTrackerExecutor;
+import zdream.nsfplayer.ftm.executor.FamiTrackerExecutorHandler;
+import zdream.nsfplayer.ftm.executor.FtmCheckpoints;
+import zdream.nsfplayer.ftm.factory.FtmAudioFactory;
+
+/**
+ * <p>测试检查点 {@link FtmCheckpoints} 与 {@link FamiTrackerExecutor#seek(FtmCheckpoints, int, int)}.
+ * <li>从头播放曲目, 记录每一帧各轨道的音键、音量、音高、音色、乐器;
+ * 用检查点跳到正常播放时经过的行, 之后每一帧的记录与从头播放时相同;
+ * <li>曲目由 Cxx 效果停止时, 跳到停止的行返回 true, 跳到停止之后的行返回 false;
+ * <li>正常播放时不会经过的段, 跳转返回 false.
+ * </li>
+ * </p>
+ *
+ * @author Zdream
+ * @since v0.3.3-test
+ */
+public class TestFtmSeek {
+
+	/**
+	 * 跳转之后比较的帧数
+	 */
+	static final int COMPARE_FRAMES = 64;
+
+	/**
+	 * 从头播放时最多执行的帧数
+	 */
+	static final int MAX_FRAMES = 60 * 60 * 5;
+
+	public static void main(String[] args) throws Exception {
+		FtmAudioFactory factory = new FtmAudioFactory();
+		FtmAudio mm10 = factory.create("test/assets/test/mm10nsf.ftm");
+		FtmAudio mm9 = factory.create("test/assets/test/mm9nsf.ftm");
+
+		boolean ok = true;
+		for (int track = 0; track < mm10.getTrackCount(); track += 5) {
+			ok &= testAccuracy(mm10, track);
+		}
+		ok &= testAccuracy(mm9, 21);
+		ok &= testHalt(mm9, 21);
+
+		System.out.println(ok ? "全部通过" : "有测试没有通过");
+	}
+
+	/**
+	 * 从头播放的记录
+	 */
+	static class Playback {
+		/**
+		 * 每一帧的记录
+		 */
+		final List<String> frames = new ArrayList<>();
+		/**
+		 * 每一行第一次执行时所在的帧, 以及段号、行号. [帧, 段, 行]
+		 */
+		final List<int[]> rows = new ArrayList<>();
+		/**
+		 * 曲目是否停止
+		 */
+		boolean finished;
+	}
+
+	/**
+	 * 从头播放曲目, 直到曲目停止或者开始循环
+	 */
+	static Playback play(FtmAudio audio, int track) {
+		FamiTrackerExecutor executor = new FamiTrackerExecutor();
+		StringBuilder frame = new StringBuilder();
+		executor.addExecuteFinishedListener(h -> record(h, frame));
+		executor.ready(audio, track);
+
+		Playback p = new Playback();
+		boolean[][] visited = new boolean[256][256];
+		for (int i = 0; i < MAX_FRAMES; i++) {
+			frame.setLength(0);
+			executor.tick();
+			p.frames.add(frame.toString());
+
+			if (executor.isRowUpdated()) {
+				int section = executor.getCurrentSection(), row = executor.getCurrentRow();
+				if (visited[section][row]) {
+					// 开始循环
+					break;
+				}
+				visited[section][row] = true;
+				p.rows.add(new int[] {i, section, row});
+			}
+			if (executor.isFinished()) {
+				p.finished = true;
+				break;
+			}
+		}
+		return p;
+	}
+
+	static void record(FamiTrackerExecutorHandler h, StringBuilder b) {
+		b.append(h.getCurrentSection()).append(':').append(h.getCurrentRow());
+		for (int i = 0; i < h.channelCount(); i++) {
+			byte code = h.channelCodeAt(i);
+			b.append('|').append(h.currentNote(code))
+					.append(',').append(h.currentVolume(code))
+					.append(',').append(h.currentPeriod(code))
+					.append(',').append(h.currentDuty(code))
+					.append(',').append(h.currentInstrument(code))
+					.append(',').append(h.isChannelPlaying(code));
+		}
+	}
+
+	/**
+	 * 跳到正常播放经过的行, 之后的执行结果与从头播放相同
+	 */
+	static boolean testAccuracy(FtmAudio audio, int track) {
+		Playback p = play(audio, track);
+		FtmCheckpoints cps = FtmCheckpoints.build(audio, track);
+
+		FamiTrackerExecutor executor = new FamiTrackerExecutor();
+		StringBuilder frame = new StringBuilder();
+		executor.addExecuteFinishedListener(h -> record(h, frame));
+
+		int count = 0, failed = 0;
+		// 每隔几行取一个目标, 包括每段的第一行
+		for (int[] target : p.rows) {
+			int start = target[0], section = target[1], row = target[2];
+			if (row != 0 && row % 7 != 3) {
+				continue;
+			}
+			count++;
+
+			executor.ready(audio, track);
+			if (!executor.seek(cps, section, row)) {
+				failed++;
+				continue;
+			}
+			int end = Math.min(start + COMPARE_FRAMES, p.frames.size());
+			for (int i = start; i < end; i++) {
+				frame.setLength(0);
+				executor.tick();
+				if (!frame.toString().equals(p.frames.get(i))) {
+					failed++;
+					break;
+				}
+			}
+		}
+
+		boolean ok = count > 0 && failed == 0;
+		System.out.printf("曲目 %d: 检查点 %d 个, 跳转 %d 次, 失败 %d 次: %s%n",
+				track, cps.checkpointCount(), count, failed, ok ? "通过" : "失败");
+		return ok;
+	}
+
+	/**
+	 * 曲目由 Cxx 效果停止
+	 */
+	static boolean testHalt(FtmAudio audio, int track) {
+		Playback p = play(audio, track);
+		if (!p.finished) {
+			System.out.println("曲目 " + track + " 没有停止");
+			return false;
+		}
+		FtmCheckpoints cps = FtmCheckpoints.build(audio, track);
+		int[] last = p.rows.get(p.rows.size() - 1);
+		int section = last[1], row = last[2];
+
+		FamiTrackerExecutor executor = new FamiTrackerExecutor();
+		executor.ready(audio, track);
+		boolean ok = executor.seek(cps, section, row);
+		// 停止之后的行
+		ok &= !executor.seek(cps, section, row + 5);
+		ok &= executor.getCurrentSection() == section && executor.getNextRow() == row + 5;
+
+		// 没有播放过的段
+		for (int s = 0; s < cps.sectionCount(); s++) {
+			if (cps.checkpointOf(s) == null) {
+				ok &= !executor.seek(cps, s, 0);
+			}
+		}
+
+		System.out.printf("曲目 %d 在 %d:%d 停止: %s%n", track, section, row, ok ? "通过" : "失败");
+		return ok;
+	}
+
+}
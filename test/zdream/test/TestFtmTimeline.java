@@ -0,0 +1,79 @@
+package zdream.test;
+
+import zdream.nsfplayer.ftm.audio.FtmAudio;
+import zdream.nsfplayer.ftm.executor.FamiTrackerExecutor;
+import zdream.nsfplayer.ftm.executor.FtmTimeline;
+import zdream.nsfplayer.ftm.factory.FtmAudioFactory;
+
+/**
+ * <p>测试 {@link FtmTimeline} 记录的每一行与执行器实际执行的结果相同.
+ * <p>另外用一个执行器执行曲目的第一遍, 每次跳行时检查:
+ * <li>时间轴中对应的行的位置、开始的帧与执行器相同;
+ * <li>记录的速度值、节奏值与 {@link FamiTrackerExecutor#getCurrentSpeed()}、
+ * {@link FamiTrackerExecutor#getCurrentTempo()} 相同;
+ * <li>执行之前, 执行器返回的速度值、节奏值为曲目的初始值;
+ * <li>至少有一首曲目在播放中由 Fxx 效果修改了速度值或节奏值.
+ * </li>
+ * </p>
+ *
+ * @author Zdream
+ * @since v0.3.3-test
+ */
+public class TestFtmTimeline {
+
+	public static void main(String[] args) throws Exception {
+		FtmAudioFactory factory = new FtmAudioFactory();
+
+		boolean ok = test("mm10nsf.ftm", factory.create("test/assets/test/mm10nsf.ftm"));
+		ok &= test("mm9nsf.ftm", factory.create("test/assets/test/mm9nsf.ftm"));
+		ok &= test("Editor_05.txt", factory.createFromTextPath("test/assets/test/Editor_05.txt"));
+		System.out.println("速度或节奏有变化: " + (changed ? "通过" : "失败"));
+		ok &= changed;
+
+		System.out.println(ok ? "全部通过" : "有测试没有通过");
+	}
+
+	/**
+	 * 是否检查到播放中速度值或节奏值的变化
+	 */
+	static boolean changed;
+
+	static boolean test(String name, FtmAudio audio) throws Exception {
+		boolean ok = true;
+		int rows = 0;
+
+		for (int track = 0; track < audio.getTrackCount(); track++) {
+			FtmTimeline timeline = FtmTimeline.build(audio, track);
+
+			FamiTrackerExecutor executor = new FamiTrackerExecutor();
+			executor.ready(audio, track);
+			ok &= executor.getCurrentSpeed() == audio.getTrack(track).speed
+					&& executor.getCurrentTempo() == audio.getTrack(track).tempo;
+
+			int index = 0;
+			final long frames = timeline.durationFrames();
+			for (long frame = 0; ok && frame < frames; frame++) {
+				executor.tick();
+				if (!executor.isRowUpdated()) {
+					continue;
+				}
+
+				int speed = executor.getCurrentSpeed(), tempo = executor.getCurrentTempo();
+				ok = index < timeline.rowCount()
+						&& timeline.frameOf(index) == frame
+						&& timeline.sectionOf(index) == executor.getCurrentSection()
+						&& timeline.rowOf(index) == executor.getCurrentRow()
+						&& timeline.speedOf(index) == speed
+						&& timeline.tempoOf(index) == tempo;
+				changed |= speed != timeline.speedOf(0) || tempo != timeline.tempoOf(0);
+				index++;
+			}
+			ok &= index == timeline.rowCount();
+			rows += index;
+		}
+
+		System.out.printf("%s: 检查 %d 行: %s%n", name, rows, ok ? "通过" : "失败");
+		return ok;
+	}
+
+}
@@ -0,0 +1,69 @@
+package zdream.test;
+
+import zdream.nsfplayer.mpeg.MpegAudio;
+import zdream.nsfplayer.mpeg.MpegAudioException;
+import zdream.nsfplayer.mpeg.MpegDecoder;
+
+/**
+ * <p>测试 {@link MpegDecoder} 的三种输出方式的结果相同:
+ * <li>{@link MpegDecoder#decode()}: 每帧创建新的 byte 数组, 16 位小端序;
+ * <li>{@link MpegDecoder#decode(short[], int)}: 写入调用者的 short 数组;
+ * <li>{@link MpegDecoder#decode(float[], int)}: 写入调用者的 float 数组, 值为 short 的结果除以 32768.
+ * </li>
+ * 三个解码器同时解码同一音频, 逐帧比较, 包括跳过的帧以及末尾的返回值. 写入的开始位置不为 0.
+ * </p>
+ *
+ * @author Zdream
+ * @since v0.3.3-test
+ */
+public class TestMpegOutput {
+
+	public static void main(String[] args) throws MpegAudioException {
+		boolean ok = test("每帧主数据在本帧中", MpegTestStream.create(120));
+		ok &= test("位流缓冲区跨帧", MpegTestStream.createWithReservoir(120));
+		System.out.println(ok ? "全部通过" : "有测试没有通过");
+	}
+
+	static boolean test(String name, MpegAudio audio) {
+		MpegDecoder legacy = new MpegDecoder(), ds = new MpegDecoder(), df = new MpegDecoder();
+		legacy.ready(audio);
+		ds.ready(audio);
+		df.ready(audio);
+
+		final int off = 3;
+		short[] s = new short[MpegDecoder.MAX_FRAME_SAMPLES + off];
+		float[] f = new float[MpegDecoder.MAX_FRAME_SAMPLES + off];
+
+		boolean ok = true;
+		int frames = 0, skipped = 0;
+		while (true) {
+			byte[] bs = legacy.decode();
+			int cs = ds.decode(s, off);
+			int cf = df.decode(f, off);
+
+			if (cs < 0) {
+				// 末尾
+				ok &= cf < 0 && bs == null && legacy.isEnd();
+				break;
+			}
+			frames++;
+			ok &= cs == cf;
+			if (bs == null) {
+				skipped++;
+				ok &= cs == 0;
+				continue;
+			}
+			ok &= bs.length == cs * 2;
+
+			for (int i = 0; ok && i < cs; i++) {
+				short v = (short) ((bs[i * 2] & 0xFF) | (bs[i * 2 + 1] << 8));
+				ok = v == s[off + i] && f[off + i] == s[off + i] / 32768.0f;
+			}
+		}
+
+		ok &= frames == 120;
+		System.out.printf("%s: 帧数 %d, 跳过 %d: %s%n", name, frames, skipped, ok ? "通过" : "失败");
+		return ok;
+	}
+
+}
@@ -0,0 +1,81 @@
+package zdream.test;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import zdream.nsfplayer.mpeg.MpegAudio;
+import zdream.nsfplayer.mpeg.MpegAudioException;
+import zdream.nsfplayer.mpeg.MpegDecoder;
+import zdream.nsfplayer.mpeg.MpegParallelDecoder;
+
+/**
+ * <p>测试多线程的 Mpeg 解码器 {@link MpegParallelDecoder}.
+ * <p>用 {@link MpegTestStream} 生成的音频, 按不同的每段帧数分段解码,
+ * 检查拼接的结果与 {@link MpegDecoder} 从头顺序解码的结果相同, 然后比较两者的耗时.
+ * 位流缓冲区引用之前多帧数据的音频, 用于检查每段开头的预热帧数是否足够.
+ * </p>
+ *
+ * @author Zdream
+ * @since v0.3.3-test
+ */
+public class TestMpegParallelDecoder {
+
+	public static void main(String[] args) throws MpegAudioException {
+		MpegAudio[] audios = {
+				MpegTestStream.create(3000),
+				MpegTestStream.createWithReservoir(2000)
+		};
+		ForkJoinPool pool = new ForkJoinPool(4);
+
+		boolean ok = true;
+		for (MpegAudio audio : audios) {
+			short[] expected = decode(audio);
+			for (int segment : new int[] {0, 1, 2, 7, 64, 100}) {
+				MpegParallelDecoder d = new MpegParallelDecoder(pool);
+				d.setSegmentFrames(segment);
+				boolean same = Arrays.equals(expected, d.decode(audio));
+				System.out.printf("采样数 %d, 每段帧数 %d: %s%n", expected.length, segment, same ? "相同" : "不同");
+				ok &= same;
+			}
+		}
+		if (!ok) {
+			System.out.println("输出与顺序解码不同");
+			return;
+		}
+		System.out.println("输出与顺序解码相同");
+
+		MpegAudio audio = audios[0];
+		MpegParallelDecoder d = new MpegParallelDecoder(pool);
+		for (int round = 0; round < 10; round++) {
+			long time = System.nanoTime();
+			decode(audio);
+			long t1 = System.nanoTime() - time;
+
+			time = System.nanoTime();
+			d.decode(audio);
+			long t2 = System.nanoTime() - time;
+			System.out.printf("第 %d 轮: 顺序 %.2f ms, 并行 %.2f ms%n", round + 1, t1 / 1e6, t2 / 1e6);
+		}
+		pool.shutdown();
+	}
+
+	/**
+	 * 从头顺序解码整个音频
+	 */
+	static short[] decode(MpegAudio audio) {
+		MpegDecoder d = new MpegDecoder();
+		d.ready(audio);
+		short[] pcm = new short[MpegDecoder.MAX_FRAME_SAMPLES];
+		short[] out = new short[1 << 16];
+		int length = 0, count;
+		while ((count = d.decode(pcm, 0)) >= 0) {
+			if (length + count > out.length) {
+				out = Arrays.copyOf(out, out.length * 2);
+			}
+			System.arraycopy(pcm, 0, out, length, count);
+			length += count;
+		}
+		return Arrays.copyOf(out, length);
+	}
+
+}
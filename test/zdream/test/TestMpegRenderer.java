@@ -0,0 +1,189 @@
+package zdream.test;
+
+import java.util.Arrays;
+import java.util.function.Function;
+
+import zdream.nsfplayer.ftm.audio.FtmAudio;
+import zdream.nsfplayer.ftm.factory.FtmAudioFactory;
+import zdream.nsfplayer.ftm.renderer.FamiTrackerConfig;
+import zdream.nsfplayer.ftm.renderer.FamiTrackerRenderer;
+import zdream.nsfplayer.mixer.IMixerConfig;
+import zdream.nsfplayer.mixer.blip.BlipMixerConfig;
+import zdream.nsfplayer.mixer.xgm.XgmMixerConfig;
+import zdream.nsfplayer.mpeg.MpegAudio;
+import zdream.nsfplayer.mpeg.renderer.MpegChannel;
+import zdream.nsfplayer.mpeg.renderer.MpegRenderer;
+import zdream.nsfplayer.mpeg.renderer.MpegRendererConfig;
+import zdream.nsfplayer.nsf.audio.NsfAudio;
+import zdream.nsfplayer.nsf.audio.NsfAudioFactory;
+import zdream.nsfplayer.nsf.renderer.NsfRenderer;
+import zdream.nsfplayer.nsf.renderer.NsfRendererConfig;
+
+/**
+ * <p>测试 MPEG 音频的渲染.
+ * <li>{@link MpegRenderer} 使用 Blip、Xgm (合并轨道)、Xgm (单轨道) 三种混音器,
+ * 把 {@link MpegTestStream} 生成的音频从头渲染到结束, 检查采样数与音频时长相符, 输出有声音且没有削波;
+ * <li>{@link MpegChannel} 接入 FTM / NSF 渲染器 (Xgm 混音器), 检查输出等于 FTM 单独渲染的输出
+ * 加上 {@link MpegRenderer} 单独渲染的输出; 静音时等于 FTM / NSF 单独渲染的输出.
+ * 同一个 MpegChannel 重复使用, 检查重新 ready 之后解码器不残留上一次的状态.
+ * </li>
+ * <p>Blip 混音器按时钟数划分帧, NES 的帧长与 MPEG 的帧长换算成出采样有不到一个采样的差别,
+ * 两者分别渲染时相位不同, 所以这里用 Xgm 混音器比较.
+ * </p>
+ * </p>
+ *
+ * @author Zdream
+ * @since v0.3.3-test
+ */
+public class TestMpegRenderer {
+
+	static final int SAMPLE_RATE = 48000;
+
+	/**
+	 * MPEG 音频的帧数, 约 3.1 秒
+	 */
+	static final int MPEG_FRAMES = 120;
+
+	/**
+	 * 接入 MPEG 轨道时渲染的帧数, 少于 MPEG 音频的长度
+	 */
+	static final int ATTACH_FRAMES = 150;
+
+	public static void main(String[] args) throws Exception {
+		MpegAudio mpeg = MpegTestStream.create(MPEG_FRAMES);
+
+		boolean ok = true;
+		XgmMixerConfig singer = new XgmMixerConfig();
+		singer.channelType = XgmMixerConfig.TYPE_SINGER;
+		ok &= testRenderer(mpeg, "Blip", new BlipMixerConfig());
+		ok &= testRenderer(mpeg, "Xgm 合并轨道", new XgmMixerConfig());
+		ok &= testRenderer(mpeg, "Xgm 单轨道", singer);
+
+		FtmAudio ftm = new FtmAudioFactory().create("test/assets/test/mm10nsf.ftm");
+		ok &= testAttach(mpeg, "FTM", channel -> renderFtm(ftm, channel, ATTACH_FRAMES));
+		NsfAudio nsf = new NsfAudioFactory().createFromFile("test/assets/test/mm10nsf.nsf");
+		ok &= testAttach(mpeg, "NSF", channel -> renderNsf(nsf, channel, ATTACH_FRAMES));
+
+		System.out.println(ok ? "全部通过" : "有测试没有通过");
+	}
+
+	/**
+	 * MpegRenderer 从头渲染到结束
+	 */
+	static boolean testRenderer(MpegAudio mpeg, String name, IMixerConfig mixerConfig) {
+		MpegRendererConfig config = new MpegRendererConfig();
+		config.sampleRate = SAMPLE_RATE;
+		config.mixerConfig = mixerConfig;
+		MpegRenderer renderer = new MpegRenderer(config);
+		renderer.ready(mpeg);
+
+		short[] buf = new short[4096];
+		long total = 0, sum = 0;
+		int peak = 0;
+		while (!renderer.isFinished()) {
+			int n = renderer.render(buf, 0, buf.length);
+			total += n;
+			for (int i = 0; i < n; i++) {
+				int v = Math.abs(buf[i]);
+				sum += v;
+				peak = Math.max(peak, v);
+			}
+		}
+
+		// 每帧 1152 个采样; 最多多渲染一帧 (60 Hz)
+		long expected = (long) MPEG_FRAMES * 1152 * SAMPLE_RATE / renderer.getInSampleRate();
+		boolean ok = renderer.getInSampleRate() == 44100
+				&& total >= expected && total <= expected + SAMPLE_RATE / 60 + 1
+				&& sum > 0 && peak < Short.MAX_VALUE;
+		System.out.printf("MpegRenderer (%s): 采样数 %d, 平均振幅 %d, 峰值 %d: %s%n",
+				name, total, sum / Math.max(total, 1), peak, ok ? "通过" : "失败");
+		return ok;
+	}
+
+	/**
+	 * MpegChannel 接入 NES 的渲染器
+	 * @param render
+	 *   渲染 {@link #ATTACH_FRAMES} 帧, 参数为接入的 MPEG 轨道, 可以为 null
+	 */
+	static boolean testAttach(MpegAudio mpeg, String name, Function<MpegChannel, short[]> render) {
+		short[] nesOnly = render.apply(null);
+
+		MpegChannel channel = new MpegChannel();
+		channel.ready(mpeg);
+		channel.setMuted(true);
+		short[] muted = render.apply(channel);
+
+		channel.ready(mpeg);
+		channel.setMuted(false);
+		short[] mixed = render.apply(channel);
+
+		MpegRendererConfig config = new MpegRendererConfig();
+		config.sampleRate = SAMPLE_RATE;
+		config.mixerConfig = new XgmMixerConfig();
+		MpegRenderer renderer = new MpegRenderer(config);
+		renderer.ready(mpeg);
+		short[] mpegOnly = new short[mixed.length];
+		int length = 0;
+		while (length < mpegOnly.length) {
+			length += renderer.renderOneFrame(mpegOnly, length, mpegOnly.length - length);
+		}
+
+		// Xgm 混音器的滤波器用整数计算, 两者只有取整的误差
+		int maxDiff = 0;
+		long mpegEnergy = 0;
+		for (int i = 0; i < mixed.length; i++) {
+			maxDiff = Math.max(maxDiff, Math.abs(mixed[i] - nesOnly[i] - mpegOnly[i]));
+			mpegEnergy += Math.abs(mpegOnly[i]);
+		}
+		boolean same = Arrays.equals(nesOnly, muted);
+		boolean ok = same && mpegEnergy > 0 && maxDiff <= 8;
+		System.out.printf("MpegChannel 接入 %s 渲染器: 静音时输出%s, 与分别渲染之和的最大误差 %d: %s%n",
+				name, same ? "不变" : "改变", maxDiff, ok ? "通过" : "失败");
+		return ok;
+	}
+
+	/**
+	 * 使用 Xgm 混音器渲染 FTM 音频的第一首曲目
+	 * @param channel
+	 *   接入的 MPEG 轨道. 可以为 null
+	 */
+	static short[] renderFtm(FtmAudio ftm, MpegChannel channel, int frames) {
+		FamiTrackerConfig config = new FamiTrackerConfig();
+		config.sampleRate = SAMPLE_RATE;
+		config.mixerConfig = new XgmMixerConfig();
+		FamiTrackerRenderer renderer = new FamiTrackerRenderer(config);
+		renderer.attachMpeg(channel);
+		renderer.ready(ftm, 0);
+
+		short[] out = new short[frames * SAMPLE_RATE / 60];
+		int length = 0;
+		while (length < out.length) {
+			length += renderer.renderOneFrame(out, length, out.length - length);
+		}
+		renderer.detachMpeg();
+		return out;
+	}
+
+	/**
+	 * 使用 Xgm 混音器渲染 NSF 音频的第一首曲目
+	 * @param channel
+	 *   接入的 MPEG 轨道. 可以为 null
+	 */
+	static short[] renderNsf(NsfAudio nsf, MpegChannel channel, int frames) {
+		NsfRendererConfig config = new NsfRendererConfig();
+		config.sampleRate = SAMPLE_RATE;
+		config.mixerConfig = new XgmMixerConfig();
+		NsfRenderer renderer = new NsfRenderer(config);
+		renderer.attachMpeg(channel);
+		renderer.ready(nsf, 0);
+
+		short[] out = new short[frames * SAMPLE_RATE / 60];
+		int length = 0;
+		while (length < out.length) {
+			length += renderer.renderOneFrame(out, length, out.length - length);
+		}
+		renderer.detachMpeg();
+		return out;
+	}
+
+}
@@ -0,0 +1,169 @@
+package zdream.test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import zdream.nsfplayer.mpeg.MpegAudio;
+import zdream.nsfplayer.mpeg.MpegAudioException;
+import zdream.nsfplayer.mpeg.MpegDecoder;
+import zdream.nsfplayer.mpeg.MpegFactory;
+import zdream.nsfplayer.mpeg.MpegSeekTable;
+
+/**
+ * <p>测试 {@link MpegSeekTable} 与 {@link MpegDecoder#seek(MpegSeekTable, int)}.
+ * <p>用 {@link MpegTestStream} 生成的音频, 检查:
+ * <li>扫描得到的精确跳转表, 跳转后解码的帧与从头顺序解码的同一帧相同;
+ * <li>Xing 目录得到的近似跳转表, 估计的位置在目标帧头之前不远时, 解码器找到目标帧头, 跳转结果与精确跳转表相同;
+ * <li>位流缓冲区引用之前多帧数据的音频, 跳转之后解码的每一帧都与从头顺序解码的结果相同.
+ * </li>
+ * </p>
+ *
+ * @author Zdream
+ * @since v0.3.3-test
+ */
+public class TestMpegSeek {
+
+	public static void main(String[] args) throws MpegAudioException {
+		boolean ok = testExact();
+		ok &= testToc();
+		ok &= testReservoir();
+		System.out.println(ok ? "全部通过" : "有测试没有通过");
+	}
+
+	/**
+	 * 精确跳转表
+	 */
+	static boolean testExact() throws MpegAudioException {
+		MpegAudio audio = MpegTestStream.create(120);
+		MpegSeekTable table = MpegSeekTable.scan(audio);
+		List<short[]> frames = decodeAll(audio);
+
+		boolean ok = table.isExact() && table.getFrameCount() == frames.size();
+		MpegDecoder d = new MpegDecoder();
+		d.ready(audio);
+		short[] pcm = new short[MpegDecoder.MAX_FRAME_SAMPLES];
+		for (int frame : new int[] {0, 1, 2, 3, 7, 50, 119, 60, 0}) {
+			d.seek(table, frame);
+			int count = d.decode(pcm, 0);
+			ok &= Arrays.equals(frames.get(frame), Arrays.copyOf(pcm, Math.max(count, 0)));
+		}
+
+		// 跳到末尾
+		d.seek(table, table.getFrameCount());
+		ok &= d.decode(pcm, 0) < 0;
+
+		System.out.println("精确跳转表: " + (ok ? "通过" : "失败"));
+		return ok;
+	}
+
+	/**
+	 * 近似跳转表. 在音频前面放一个 Xing 信息帧
+	 */
+	static boolean testToc() throws MpegAudioException {
+		final int count = 25, frameSize = 417;
+		byte[] image = MpegTestStream.image(count, false, 11);
+
+		byte[] info = new byte[frameSize];
+		System.arraycopy(image, 0, info, 0, 4); // 相同的帧头
+		int p = 4 + 32; // Xing 标签在帧边信息之后
+		info[p] = 'X';
+		info[p + 1] = 'i';
+		info[p + 2] = 'n';
+		info[p + 3] = 'g';
+		info[p + 7] = 7; // 帧数, 字节数, 目录
+		putInt(info, p + 8, count);
+		int bytes = frameSize * (count + 1);
+		putInt(info, p + 12, bytes);
+		for (int i = 0; i < 100; i++) {
+			// 目录项按第 (i * count / 100) 帧的帧头计算, 量化后在帧头之前不远
+			info[p + 16 + i] = (byte) (256L * frameSize * (1 + i * count / 100) / bytes);
+		}
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		out.write(info, 0, info.length);
+		out.write(image, 0, image.length);
+		MpegAudio audio = new MpegFactory().create(out.toByteArray());
+
+		MpegSeekTable toc = MpegSeekTable.create(audio);
+		MpegSeekTable exact = MpegSeekTable.scan(audio);
+		List<short[]> frames = decodeAll(audio);
+
+		boolean ok = !toc.isExact() && toc.getFrameCount() == count
+				&& exact.getFrameCount() == count && frames.size() == count;
+
+		MpegDecoder d = new MpegDecoder();
+		d.ready(audio);
+		short[] pcm = new short[MpegDecoder.MAX_FRAME_SAMPLES];
+		for (int frame : new int[] {3, 12, 20}) {
+			// 估计的位置在目标帧之前的一帧之内
+			int delta = exact.positionOf(frame) - toc.positionOf(frame);
+			ok &= delta >= 0 && delta < frameSize;
+			d.seek(toc, frame);
+			int c = d.decode(pcm, 0);
+			ok &= Arrays.equals(frames.get(frame), Arrays.copyOf(pcm, Math.max(c, 0)));
+		}
+
+		System.out.println("近似跳转表: " + (ok ? "通过" : "失败"));
+		return ok;
+	}
+
+	/**
+	 * <p>位流缓冲区引用之前多帧数据的音频.
+	 * <p>主数据的开头在目标帧之前好几帧, 跳转时要按字节数往前预热足够的帧.
+	 * 跳转之后每一帧的 PCM 数据要与从头顺序解码的结果相同,
+	 * 无论解码器是新建的, 还是之前解码过其它位置的.
+	 * </p>
+	 */
+	static boolean testReservoir() throws MpegAudioException {
+		MpegAudio audio = MpegTestStream.createWithReservoir(400);
+		MpegSeekTable table = MpegSeekTable.scan(audio);
+		List<short[]> frames = decodeAll(audio);
+
+		boolean ok = table.getFrameCount() == frames.size();
+		MpegDecoder reused = new MpegDecoder();
+		reused.ready(audio);
+		short[] pcm = new short[MpegDecoder.MAX_FRAME_SAMPLES];
+		for (int frame : new int[] {1, 2, 3, 5, 100, 257, 399, 7}) {
+			MpegDecoder fresh = new MpegDecoder();
+			fresh.ready(audio);
+
+			for (MpegDecoder d : new MpegDecoder[] {fresh, reused}) {
+				d.seek(table, frame);
+				int n = frame, count;
+				while ((count = d.decode(pcm, 0)) >= 0) {
+					ok &= n < frames.size() && Arrays.equals(frames.get(n), Arrays.copyOf(pcm, count));
+					n++;
+				}
+				ok &= (n == frames.size());
+			}
+		}
+
+		System.out.println("位流缓冲区跨帧的跳转: " + (ok ? "通过" : "失败"));
+		return ok;
+	}
+
+	/**
+	 * 从头顺序解码, 返回每一帧的 PCM 数据
+	 */
+	static List<short[]> decodeAll(MpegAudio audio) {
+		MpegDecoder d = new MpegDecoder();
+		d.ready(audio);
+		short[] pcm = new short[MpegDecoder.MAX_FRAME_SAMPLES];
+		List<short[]> frames = new ArrayList<>();
+		int count;
+		while ((count = d.decode(pcm, 0)) >= 0) {
+			frames.add(Arrays.copyOf(pcm, count));
+		}
+		return frames;
+	}
+
+	static void putInt(byte[] bs, int offset, int value) {
+		bs[offset] = (byte) (value >>> 24);
+		bs[offset + 1] = (byte) (value >>> 16);
+		bs[offset + 2] = (byte) (value >>> 8);
+		bs[offset + 3] = (byte) value;
+	}
+
+}
@@ -0,0 +1,245 @@
+package zdream.test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.IllegalBlockingModeException;
+import java.nio.channels.Pipe;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import zdream.nsfplayer.mpeg.MpegAudioException;
+import zdream.nsfplayer.mpeg.MpegDecoder;
+import zdream.nsfplayer.mpeg.MpegFactory;
+
+/**
+ * <p>测试 {@link MpegDecoder#ready(ReadableByteChannel)} 与 {@link MpegDecoder#ready(InputStream)} 的流式解码.
+ * <p>用 {@link MpegTestStream} 生成的音频, 前面加上比缓冲区还长的 ID3V2 部分, 后面加上 ID3V1 部分.
+ * 缓冲区大小取 {@link MpegDecoder#MIN_BUFFER_SIZE}, 流每次只返回很少的数据. 检查:
+ * <li>解码的每一帧与没有 ID3 部分的音频从内存中解码的结果相同, 帧数相同;
+ * <li>ID3V1 部分在流读完之前不会被当作帧数据, 包括缓冲区恰好在 ID3V1 末尾读满、还不知道流已经读完的情况;
+ * <li>非阻塞模式的流被拒绝.
+ * </li>
+ * </p>
+ *
+ * @author Zdream
+ * @since v0.3.3-test
+ */
+public class TestMpegStream {
+
+	/**
+	 * 模拟的流每次返回字节数的随机数种子
+	 */
+	static final long CHUNK_SEED = 13;
+
+	public static void main(String[] args) throws Exception {
+		byte[] frames = MpegTestStream.image(300, false, 11);
+		byte[] tagged = tag(frames, MpegDecoder.MIN_BUFFER_SIZE + 1000);
+		List<short[]> expected = decode(frames);
+
+		boolean ok = true;
+		for (int chunk : new int[] {1, 7, 100, 1000}) {
+			ok &= test("channel, 每次最多 " + chunk + " 字节", expected, d -> d.ready(new ChunkChannel(tagged, chunk)));
+			ok &= test("InputStream, 每次最多 " + chunk + " 字节", expected, d -> d.ready(new ChunkInputStream(tagged, chunk)));
+		}
+		ok &= test("内存中带 ID3 的音频", expected, d -> d.ready(new MpegFactory().create(tagged)));
+		ok &= testHoldBack();
+		ok &= testNonBlocking();
+
+		System.out.println(ok ? "全部通过" : "有测试没有通过");
+	}
+
+	/**
+	 * <p>在音频前后加上 ID3V2 和 ID3V1 部分.
+	 * <p>ID3V1 中放入完整的一帧 (32 kbps, 104 字节), 如果它被当作帧数据扫描, 会多出一帧.
+	 * </p>
+	 * @param id3v2
+	 *   ID3V2 部分的长度 (包括 10 字节的头)
+	 */
+	static byte[] tag(byte[] frames, int id3v2) {
+		Random r = new Random(5);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		byte[] v2 = new byte[id3v2];
+		r.nextBytes(v2);
+		int size = id3v2 - 10;
+		v2[0] = 'I';
+		v2[1] = 'D';
+		v2[2] = '3';
+		v2[3] = 3;
+		v2[4] = 0;
+		v2[5] = 0;
+		v2[6] = (byte) ((size >> 21) & 0x7F);
+		v2[7] = (byte) ((size >> 14) & 0x7F);
+		v2[8] = (byte) ((size >> 7) & 0x7F);
+		v2[9] = (byte) (size & 0x7F);
+		out.write(v2, 0, v2.length);
+
+		out.write(frames, 0, frames.length);
+
+		byte[] v1 = new byte[128];
+		r.nextBytes(v1);
+		v1[0] = 'T';
+		v1[1] = 'A';
+		v1[2] = 'G';
+		System.arraycopy(MpegTestStream.image(1, true, 3), 0, v1, 3, 104);
+		out.write(v1, 0, v1.length);
+
+		return out.toByteArray();
+	}
+
+	/**
+	 * 从内存中解码, 返回每一帧的 PCM 数据
+	 */
+	static List<short[]> decode(byte[] image) throws MpegAudioException {
+		MpegDecoder d = new MpegDecoder();
+		d.ready(new MpegFactory().create(image));
+		return decodeAll(d);
+	}
+
+	static List<short[]> decodeAll(MpegDecoder d) {
+		short[] pcm = new short[MpegDecoder.MAX_FRAME_SAMPLES];
+		List<short[]> frames = new ArrayList<>();
+		int count;
+		while ((count = d.decode(pcm, 0)) >= 0) {
+			frames.add(Arrays.copyOf(pcm, count));
+		}
+		return frames;
+	}
+
+	interface Ready {
+		void ready(MpegDecoder d) throws Exception;
+	}
+
+	static boolean test(String name, List<short[]> expected, Ready ready) throws Exception {
+		MpegDecoder d = new MpegDecoder(MpegDecoder.MIN_BUFFER_SIZE);
+		ready.ready(d);
+		List<short[]> frames = decodeAll(d);
+
+		boolean ok = frames.size() == expected.size();
+		for (int i = 0; ok && i < frames.size(); i++) {
+			ok = Arrays.equals(frames.get(i), expected.get(i));
+		}
+		System.out.printf("%s: 帧数 %d / %d: %s%n", name, frames.size(), expected.size(), ok ? "通过" : "失败");
+		return ok;
+	}
+
+	/**
+	 * <p>流读取时, 缓冲区重新填充之后总是从某一帧的帧头开始.
+	 * 缓冲区大小取 10 帧加上 ID3V1 的长度, 并改变帧数, 其中一种情况下缓冲区恰好在 ID3V1 的末尾读满.
+	 * 这时流还没有返回 -1, 解码器需要保留末尾的 128 字节直到确认流已经读完.
+	 * </p>
+	 */
+	static boolean testHoldBack() throws Exception {
+		final int size = 10 * 417 + 128;
+		int failed = 0;
+		for (int count = 40; count < 50; count++) {
+			byte[] frames = MpegTestStream.image(count, false, 11);
+			byte[] tagged = tag(frames, MpegDecoder.MIN_BUFFER_SIZE + 1000);
+			List<short[]> expected = decode(frames);
+
+			MpegDecoder d = new MpegDecoder(size);
+			d.ready(new ChunkChannel(tagged, tagged.length));
+			List<short[]> result = decodeAll(d);
+
+			boolean ok = result.size() == expected.size();
+			for (int i = 0; ok && i < result.size(); i++) {
+				ok = Arrays.equals(result.get(i), expected.get(i));
+			}
+			if (!ok) {
+				failed++;
+			}
+		}
+		System.out.println("ID3V1 的保留: 失败 " + failed + " 次: " + (failed == 0 ? "通过" : "失败"));
+		return failed == 0;
+	}
+
+	/**
+	 * 非阻塞模式的流
+	 */
+	static boolean testNonBlocking() throws IOException {
+		Pipe pipe = Pipe.open();
+		boolean ok = false;
+		try {
+			pipe.source().configureBlocking(false);
+			new MpegDecoder().ready(pipe.source());
+		} catch (IllegalBlockingModeException e) {
+			ok = true;
+		} finally {
+			pipe.source().close();
+			pipe.sink().close();
+		}
+		System.out.println("非阻塞模式的流: " + (ok ? "通过" : "失败"));
+		return ok;
+	}
+
+	/**
+	 * 每次读取最多返回 chunk 字节, 且数量随机, 模拟网络等来源
+	 */
+	static class ChunkChannel implements ReadableByteChannel {
+		final byte[] data;
+		final int chunk;
+		final Random r = new Random(CHUNK_SEED);
+		int pos;
+
+		ChunkChannel(byte[] data, int chunk) {
+			this.data = data;
+			this.chunk = chunk;
+		}
+
+		@Override
+		public int read(ByteBuffer dst) {
+			if (pos == data.length) {
+				return -1;
+			}
+			int n = Math.min(Math.min(1 + r.nextInt(chunk), dst.remaining()), data.length - pos);
+			dst.put(data, pos, n);
+			pos += n;
+			return n;
+		}
+
+		@Override
+		public boolean isOpen() {
+			return true;
+		}
+
+		@Override
+		public void close() {}
+	}
+
+	static class ChunkInputStream extends InputStream {
+		final byte[] data;
+		final int chunk;
+		final Random r = new Random(CHUNK_SEED);
+		int pos;
+
+		ChunkInputStream(byte[] data, int chunk) {
+			this.data = data;
+			this.chunk = chunk;
+		}
+
+		@Override
+		public int read() {
+			return pos == data.length ? -1 : data[pos++] & 0xFF;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) {
+			if (len == 0) {
+				return 0;
+			}
+			if (pos == data.length) {
+				return -1;
+			}
+			int n = Math.min(Math.min(1 + r.nextInt(chunk), len), data.length - pos);
+			System.arraycopy(data, pos, b, off, n);
+			pos += n;
+			return n;
+		}
+	}
+
+}
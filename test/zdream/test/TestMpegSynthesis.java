@@ -0,0 +1,88 @@
+package zdream.test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import zdream.nsfplayer.mpeg.Synthesis;
+
+/**
+ * <p>测试 mp3 子带多相合成滤波 {@link Synthesis}.
+ * <p>用固定的随机数据做输入, 检查输出与 {@link #GOLDEN} 逐位相同, 然后测量合成滤波的速度.
+ * 修改 Synthesis 之后运行, 确认结果没有变化, 并比较修改前后的耗时.
+ * </p>
+ * 
+ * @author Zdream
+ * @since v0.3.3-test
+ */
+public class TestMpegSynthesis {
+	
+	/**
+	 * v0.3.3 的实现对下面输入的输出摘要
+	 */
+	static final long GOLDEN = 7190364232115176362L;
+	
+	/**
+	 * 每声道的子带个数, 约 60 秒的 44100Hz 音频
+	 */
+	static final int BLOCKS = 44100 * 60 / 32;
+	
+	public static void main(String[] args) {
+		float[][] inputs = createInputs();
+		
+		long digest = run(inputs);
+		if (digest != GOLDEN) {
+			System.out.println("输出与预期不同: " + digest);
+			return;
+		}
+		System.out.println("输出与预期相同");
+		
+		for (int round = 0; round < 20; round++) {
+			long time = System.nanoTime();
+			bench(inputs);
+			time = System.nanoTime() - time;
+			System.out.printf("第 %d 轮: %.2f ms%n", round + 1, time / 1e6);
+		}
+	}
+	
+	static float[][] createInputs() {
+		Random r = new Random(20181016);
+		float[][] inputs = new float[BLOCKS][32];
+		for (int i = 0; i < BLOCKS; i++) {
+			for (int j = 0; j < 32; j++) {
+				// 子带样本一般在 [-1, 1] 之内; 每 64 个子带放一个响亮的, 覆盖削波的情况
+				inputs[i][j] = (float) (r.nextGaussian() * ((i % 64 == 0) ? 4 : 0.05));
+			}
+		}
+		return inputs;
+	}
+	
+	/**
+	 * 双声道合成所有输入, 返回输出的摘要
+	 */
+	static long run(float[][] inputs) {
+		Synthesis s = new Synthesis(2);
+		short[] pcm = new short[64];
+		long digest = 0;
+		
+		for (int i = 0; i < inputs.length; i++) {
+			s.synthesisSubBand(inputs[i], 0, pcm, 0);
+			s.synthesisSubBand(inputs[inputs.length - 1 - i], 1, pcm, 1);
+			digest = digest * 31 + Arrays.hashCode(pcm);
+		}
+		return digest;
+	}
+	
+	/**
+	 * 双声道合成所有输入, 只计时, 不计算摘要
+	 */
+	static void bench(float[][] inputs) {
+		Synthesis s = new Synthesis(2);
+		short[] pcm = new short[64];
+		
+		for (int i = 0; i < inputs.length; i++) {
+			s.synthesisSubBand(inputs[i], 0, pcm, 0);
+			s.synthesisSubBand(inputs[inputs.length - 1 - i], 1, pcm, 1);
+		}
+	}
+
+}
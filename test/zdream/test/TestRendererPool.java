@@ -0,0 +1,130 @@
+package zdream.test;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import zdream.nsfplayer.core.AbstractNsfAudio;
+import zdream.nsfplayer.core.AbstractNsfRenderer;
+import zdream.nsfplayer.core.RendererPool;
+import zdream.nsfplayer.ftm.audio.FtmAudio;
+import zdream.nsfplayer.ftm.factory.FtmAudioFactory;
+import zdream.nsfplayer.ftm.format.FtmNote;
+import zdream.nsfplayer.ftm.renderer.FamiTrackerConfig;
+import zdream.nsfplayer.ftm.renderer.FamiTrackerRenderer;
+import zdream.nsfplayer.mixer.IMixerConfig;
+import zdream.nsfplayer.mixer.blip.BlipMixerConfig;
+import zdream.nsfplayer.mixer.xgm.XgmMixerConfig;
+import zdream.nsfplayer.mpeg.renderer.MpegChannel;
+import zdream.nsfplayer.nsf.audio.NsfAudio;
+import zdream.nsfplayer.nsf.audio.NsfAudioFactory;
+import zdream.nsfplayer.nsf.renderer.NsfRenderer;
+import zdream.nsfplayer.nsf.renderer.NsfRendererConfig;
+
+/**
+ * <p>测试 {@link RendererPool} 借出的渲染器与新创建的渲染器的渲染结果相同.
+ * <p>上一个使用者播放了另一首曲目, 并修改了播放速度、轨道屏蔽、音量,
+ * 添加了监听器, 接入了 MPEG 轨道. 渲染器归还之后再借出, 重新 ready,
+ * 渲染结果要与新创建的渲染器逐个采样相同. Blip 与 Xgm 混音器都要检查.
+ * </p>
+ *
+ * @author Zdream
+ * @since v0.3.3-test
+ */
+public class TestRendererPool {
+
+	/**
+	 * 比较的帧数
+	 */
+	static final int FRAMES = 600;
+
+	public static void main(String[] args) throws Exception {
+		FtmAudio ftm = new FtmAudioFactory().create("test/assets/test/mm10nsf.ftm");
+		NsfAudio nsf = new NsfAudioFactory().createFromFile("test/assets/test/mm10nsf.nsf");
+
+		boolean ok = true;
+		for (IMixerConfig mixer : new IMixerConfig[] {new BlipMixerConfig(), new XgmMixerConfig()}) {
+			String name = mixer.getClass().getSimpleName();
+
+			ok &= test("FTM, " + name, () -> {
+				FamiTrackerConfig config = new FamiTrackerConfig();
+				config.mixerConfig = mixer;
+				return new FamiTrackerRenderer(config);
+			}, ftm, 3, 7, r -> {
+				r.addFetchListener((note, channelCode, handler) -> {
+					if (note != null && note.note != FtmNote.NOTE_NONE) {
+						note.octave = (byte) Math.min(note.octave + 1, 7);
+					}
+					return note;
+				});
+				r.addExecuteFinishedListener(handler -> {});
+				r.attachMpeg(mpeg());
+			});
+
+			ok &= test("NSF, " + name, () -> {
+				NsfRendererConfig config = new NsfRendererConfig();
+				config.mixerConfig = mixer;
+				return new NsfRenderer(config);
+			}, nsf, 3, 7, r -> r.attachMpeg(mpeg()));
+		}
+
+		System.out.println(ok ? "全部通过" : "有测试没有通过");
+	}
+
+	/**
+	 * @param creater
+	 *   创建新的渲染器
+	 * @param track
+	 *   比较的曲目
+	 * @param otherTrack
+	 *   上一个使用者播放的曲目
+	 * @param misuse
+	 *   上一个使用者对渲染器的其它修改
+	 */
+	static <T extends AbstractNsfAudio, R extends AbstractNsfRenderer<T>> boolean test(
+			String name, Supplier<R> creater, T audio, int track, int otherTrack, Consumer<R> misuse) {
+		R fresh = creater.get();
+		fresh.ready(audio, track);
+		short[] expected = render(fresh);
+
+		RendererPool<R> pool = new RendererPool<>(creater, 1);
+		R r = pool.borrow();
+		r.ready(audio, otherTrack);
+		misuse.accept(r);
+		r.setSpeed(1.7f);
+		Byte[] codes = r.allChannelSet().toArray(new Byte[0]);
+		r.setChannelMuted(codes[0], true);
+		r.setLevel(codes[codes.length - 1], 0.25f);
+		render(r);
+		pool.release(r);
+
+		R reused = pool.borrow();
+		boolean ok = reused == r;
+		reused.ready(audio, track);
+		short[] result = render(reused);
+		ok &= Arrays.equals(expected, result);
+
+		System.out.printf("%s: %s%n", name, ok ? "通过" : "失败");
+		return ok;
+	}
+
+	static short[] render(AbstractNsfRenderer<?> r) {
+		short[] out = new short[FRAMES * 48000 / 60];
+		int length = 0;
+		for (int i = 0; i < FRAMES && length < out.length; i++) {
+			length += r.renderOneFrame(out, length, out.length - length);
+		}
+		return out;
+	}
+
+	static MpegChannel mpeg() {
+		try {
+			MpegChannel channel = new MpegChannel();
+			channel.ready(MpegTestStream.create(1000));
+			return channel;
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
@@ -0,0 +1,164 @@
+package zdream.test;
+
+import zdream.nsfplayer.ftm.process.SyncProcessManager;
+import zdream.nsfplayer.ftm.process.agreement.BarrierAgreement;
+import zdream.nsfplayer.ftm.process.base.FtmPosition;
+
+/**
+ * <p>测试 {@link SyncProcessManager} 对栅栏协议 {@link BarrierAgreement} 的处理.
+ * <p>模拟 FamiTrackerSyncRenderer 的每一帧: 没有在等待的执行器各自前进, 更新位置,
+ * 然后更新协议状态. 执行器每隔若干帧前进一行, 到达段尾后回到开头 (循环).
+ * 检查:
+ * <li>所有执行器在超时之前到达, 先到达的等待后到达的, 然后一起放行;
+ * <li>超时放行之后, 还没有到达的执行器到达时直接通过, 不会重新触发栅栏;
+ * <li>循环播放时, 每一轮栅栏都照常工作;
+ * <li>多个执行器参与同一个栅栏.
+ * </li>
+ * </p>
+ *
+ * @author Zdream
+ * @since v0.3.3-test
+ */
+public class TestSyncBarrier {
+
+	public static void main(String[] args) {
+		boolean ok = testReached();
+		ok &= testTimeout();
+		ok &= testLoop();
+		ok &= testMany();
+		System.out.println(ok ? "全部通过" : "有测试没有通过");
+	}
+
+	/**
+	 * 模拟的执行器组
+	 */
+	static class Sim {
+		final SyncProcessManager manager = new SyncProcessManager();
+		/**
+		 * 每隔多少帧前进一行
+		 */
+		final int[] periods;
+		/**
+		 * 每段的行数. 到达段尾后回到开头
+		 */
+		final int rows;
+		final int[] row, ticks, waited;
+
+		Sim(int rows, int... periods) {
+			this.rows = rows;
+			this.periods = periods;
+			row = new int[periods.length];
+			ticks = new int[periods.length];
+			waited = new int[periods.length];
+			for (int i = 0; i < periods.length; i++) {
+				manager.addExecutor(i, new FtmPosition(0, 0));
+			}
+		}
+
+		void barrier(int timeout, int... rows) {
+			BarrierAgreement a = new BarrierAgreement();
+			for (int i = 0; i < rows.length; i++) {
+				a.put(i, new FtmPosition(0, rows[i]));
+			}
+			a.setTimeout(timeout);
+			a.commit();
+			manager.addBarrierAgreement(a);
+		}
+
+		void frame() {
+			for (int i = 0; i < periods.length; i++) {
+				if (manager.isWaiting(i)) {
+					waited[i]++;
+					continue;
+				}
+				if (++ticks[i] == periods[i]) {
+					ticks[i] = 0;
+					row[i] = (row[i] + 1) % rows;
+					manager.updatePosition(i, 0, row[i]);
+				}
+			}
+			manager.updateStates();
+		}
+
+		void run(int frames) {
+			for (int i = 0; i < frames; i++) {
+				frame();
+			}
+		}
+	}
+
+	static boolean check(String name, boolean ok) {
+		System.out.println(name + ": " + (ok ? "通过" : "失败"));
+		return ok;
+	}
+
+	/**
+	 * e0 在第 4 帧到达 (0,4), e1 在第 12 帧到达 (0,12), 超时 30 帧之内
+	 */
+	static boolean testReached() {
+		Sim s = new Sim(64, 1, 1);
+		s.barrier(30, 4, 12);
+		s.run(20);
+		// e0 等待 e1 到达, 一起放行之后两者各自前进 8 行
+		return check("超时之前全部到达", s.waited[0] == 8 && s.waited[1] == 0 && s.row[0] == 12 && s.row[1] == 20);
+	}
+
+	/**
+	 * e0 在第 4 帧到达 (0,4), e1 每 4 帧前进一行, 第 48 帧才到达 (0,12), 超时 30 帧
+	 */
+	static boolean testTimeout() {
+		Sim s = new Sim(64, 1, 4);
+		s.barrier(30, 4, 12);
+		s.run(100);
+		int w0 = s.waited[0];
+		// e0 超时放行; e1 到达时栅栏已经放行过, 直接通过
+		return check("超时放行之后到达的执行器不再等待", w0 > 0 && w0 <= 32 && s.waited[1] == 0);
+	}
+
+	/**
+	 * 两个执行器循环播放, 每一轮都在栅栏处对齐
+	 */
+	static boolean testLoop() {
+		Sim s = new Sim(16, 1, 2);
+		s.barrier(1000, 8, 8);
+		boolean ok = true;
+		int rounds = 0;
+		for (int i = 0; i < 500; i++) {
+			s.frame();
+			if (!s.manager.isWaiting(0) && !s.manager.isWaiting(1) && s.row[0] == 8 && s.row[1] == 8) {
+				rounds++;
+			}
+		}
+		// e1 较慢, 每一轮 e0 都要在 (0,8) 等待 e1
+		ok &= rounds >= 10 && s.waited[1] == 0 && s.waited[0] > 0;
+
+		// e1 很慢, e0 第一轮超时放行, 第二轮已经在等待时 e1 才到达.
+		// e0 第二轮的等待在 e1 到达时结束
+		Sim t = new Sim(8, 1, 8);
+		t.barrier(10, 4, 4);
+		for (int i = 0; i < 40; i++) {
+			t.frame();
+			if (t.row[1] == 4) {
+				break;
+			}
+		}
+		// e0 第一轮等待 11 帧, 第二轮从第 23 帧等到 e1 在第 32 帧到达
+		ok &= t.row[0] == 4 && !t.manager.isWaiting(0) && !t.manager.isWaiting(1) && t.waited[0] == 11 + 9;
+		return check("循环播放", ok);
+	}
+
+	/**
+	 * 四个执行器参与同一个栅栏
+	 */
+	static boolean testMany() {
+		Sim s = new Sim(64, 1, 2, 3, 1);
+		s.barrier(1000, 10, 10, 10, 30);
+		s.run(40);
+		// e3 最后到达 (第 30 帧), 之后 10 帧所有执行器一起前进
+		boolean ok = s.waited[3] == 0
+				&& s.waited[0] == 20 && s.waited[1] == 10
+				&& s.row[3] == 40;
+		return check("多个执行器", ok);
+	}
+
+}
@@ -0,0 +1,40 @@
+package zdream.test;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import zdream.nsfplayer.core.NsfPlayerApplication;
+import zdream.nsfplayer.ftm.audio.FtmAudio;
+import zdream.nsfplayer.ftm.renderer.FamiTrackerRenderer;
+import zdream.nsfplayer.output.FtmLoopDetector;
+import zdream.nsfplayer.output.WavExportSink;
+
+/**
+ * 测试将 FTM 渲染结果导出为 WAV 文件, 播放一遍之后停止
+ * 
+ * @author Zdream
+ * @since v0.3.3-test
+ */
+public class TestWavExport {
+	
+	public static void main(String[] args) throws Exception {
+		FtmAudio audio;
+		
+		try {
+			audio = NsfPlayerApplication.app.open("test/assets/test/JtS Stage 3.ftm");
+		} catch (IOException e) {
+			e.printStackTrace();
+			return;
+		}
+		
+		FamiTrackerRenderer renderer = new FamiTrackerRenderer();
+		renderer.ready(audio, 0);
+		
+		try (WavExportSink sink = new WavExportSink(Paths.get("JtS Stage 3.wav"),
+				48000, 2, WavExportSink.Format.PCM_16)) {
+			long samples = sink.export(renderer, 48000L * 600, new FtmLoopDetector(renderer));
+			System.out.println("导出采样数: " + samples);
+		}
+	}
+
+}